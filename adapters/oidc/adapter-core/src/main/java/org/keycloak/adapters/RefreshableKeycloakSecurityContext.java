@@ -21,6 +21,7 @@ import org.jboss.logging.Logger;
 import org.keycloak.KeycloakSecurityContext;
 import org.keycloak.RSATokenVerifier;
 import org.keycloak.common.VerificationException;
+import org.keycloak.common.util.Time;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.representations.AccessTokenResponse;
 import org.keycloak.representations.IDToken;
@@ -39,6 +40,14 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
     protected transient AdapterTokenStore tokenStore;
     protected String refreshToken;
 
+    // Number of finished refresh attempts. Requests which waited for an in-flight refresh reuse its outcome instead of
+    // sending another refresh request
+    private transient volatile int refreshCount;
+    private transient boolean lastRefreshResult;
+
+    // Set while a request refreshes the token, so others with still active token don't wait for it
+    private transient volatile boolean refreshInProgress;
+
     public RefreshableKeycloakSecurityContext() {
     }
 
@@ -87,24 +96,75 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
     }
 
     /**
-     * @param checkActive if true, then we won't send refresh request if current accessToken is still active.
+     * Refreshes the token. Concurrent calls are coalesced, so only a single refresh request is sent to the server and
+     * all callers get its outcome. Lock is taken only if the refresh is due. If the token is still active and it's just
+     * refreshed ahead of time, concurrent requests don't wait and keep using it, even if the refresh fails.
+     *
+     * @param checkActive if true, then we won't send refresh request if current accessToken is still active and doesn't
+     *                    expire within token-minimum-time-to-live.
      * @return true if accessToken is active or was successfully refreshed
      */
     public boolean refreshExpiredToken(boolean checkActive) {
+        if (this.deployment == null || refreshToken == null) {
+            // Might be serialized in HttpSession?
+            return checkActive && isActive();
+        }
+
+        if (!this.getRealm().equals(this.deployment.getRealm())) {
+            // this should not happen, but let's check it anyway
+            return false;
+        }
+
+        int count = refreshCount;
         if (checkActive) {
             if (log.isTraceEnabled()) {
                 log.trace("checking whether to refresh.");
             }
-            if (isActive()) return true;
+            if (isActive() && (isTokenTimeToLiveSufficient(this.token) || refreshInProgress)) return true;
         }
 
-        if (this.deployment == null || refreshToken == null) return false; // Might be serialized in HttpSession?
+        synchronized (this) {
+            // Checked again with the lock held, so the token refreshed by a concurrent request is seen
+            if (refreshCount != count) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Token was refreshed by concurrent request");
+                }
+                return lastRefreshResult || (checkActive && isActive());
+            }
 
-        if (!this.getRealm().equals(this.deployment.getRealm())) {
-            // this should not happen, but let's check it anyway
-            return false;
+            boolean active = checkActive && isActive();
+            if (active && isTokenTimeToLiveSufficient(this.token)) return true;
+
+            lastRefreshResult = false;
+            refreshInProgress = true;
+            try {
+                lastRefreshResult = doRefresh();
+            } finally {
+                refreshInProgress = false;
+                refreshCount++;
+            }
+
+            if (!lastRefreshResult && active) {
+                log.debug("Failed to refresh the token ahead of time, current token is still active");
+                return true;
+            }
+            return lastRefreshResult;
         }
+    }
+
+    /**
+     * @return true if the token doesn't expire within token-minimum-time-to-live
+     */
+    public boolean isTokenTimeToLiveSufficient(AccessToken token) {
+        return token != null && (token.getExpiration() - this.deployment.getTokenMinimumTimeToLive()) > Time.currentTime();
+    }
 
+    /**
+     * Sends the refresh request and updates the tokens
+     *
+     * @return true if the token was refreshed
+     */
+    protected boolean doRefresh() {
         if (log.isTraceEnabled()) {
             log.trace("Doing refresh");
         }
@@ -133,6 +193,9 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
         if (response.getNotBeforePolicy() > deployment.getNotBefore()) {
             deployment.setNotBefore(response.getNotBeforePolicy());
         }
+        if (!isTokenTimeToLiveSufficient(token)) {
+            log.warn("The access token lifespan is shorter than token-minimum-time-to-live, the token is refreshed on every request");
+        }
 
         this.token = token;
         if (response.getRefreshToken() != null) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.adapters;
+
+import org.junit.Test;
+import org.keycloak.common.util.Time;
+import org.keycloak.representations.AccessToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshableKeycloakSecurityContextTest {
+
+    @Test
+    public void testRefreshAheadByOneRequest() throws Exception {
+        AccessToken current = createToken(10);
+        final TestSecurityContext context = new TestSecurityContext(current, true);
+
+        Thread refreshing = new Thread() {
+            @Override
+            public void run() {
+                context.getToken();
+            }
+        };
+        refreshing.start();
+        assertTrue(context.refreshStarted.await(10, TimeUnit.SECONDS));
+
+        // Refresh is in progress, so other requests don't wait and keep using the token, which is still active
+        for (int i = 0; i < 5; i++) {
+            assertSame(current, context.getToken());
+        }
+
+        context.release.countDown();
+        refreshing.join(10000);
+
+        assertEquals(1, context.refreshes.get());
+        assertSame(context.refreshedToken, context.getToken());
+        assertEquals(1, context.refreshes.get());
+    }
+
+    @Test
+    public void testRefreshAheadFailureKeepsActiveToken() throws Exception {
+        AccessToken current = createToken(10);
+        TestSecurityContext context = new TestSecurityContext(current, false);
+        context.release.countDown();
+
+        assertTrue(context.refreshExpiredToken(true));
+        assertSame(current, context.getToken());
+        assertEquals(2, context.refreshes.get());
+    }
+
+    @Test
+    public void testExpiredTokenRefreshedOnce() throws Exception {
+        final TestSecurityContext context = new TestSecurityContext(createToken(-10), true);
+
+        final List<Boolean> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    boolean result = context.refreshExpiredToken(true);
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            });
+        }
+
+        threads.get(0).start();
+        assertTrue(context.refreshStarted.await(10, TimeUnit.SECONDS));
+
+        // Token is expired, so other requests wait for the refresh in progress
+        for (Thread thread : threads.subList(1, threads.size())) {
+            thread.start();
+            waitUntilBlocked(thread);
+        }
+
+        context.release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(1, context.refreshes.get());
+        assertEquals(5, results.size());
+        assertFalse(results.contains(false));
+        assertSame(context.refreshedToken, context.getToken());
+    }
+
+    @Test
+    public void testNoRefreshForSufficientToken() throws Exception {
+        AccessToken current = createToken(60);
+        TestSecurityContext context = new TestSecurityContext(current, true);
+
+        assertSame(current, context.getToken());
+        assertEquals(0, context.refreshes.get());
+    }
+
+    private static void waitUntilBlocked(Thread thread) throws InterruptedException {
+        for (int i = 0; i < 1000 && thread.getState() != Thread.State.BLOCKED; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.BLOCKED, thread.getState());
+    }
+
+    private static AccessToken createToken(int expiresIn) {
+        AccessToken token = new AccessToken();
+        token.issuer("http://localhost/auth/realms/test");
+        token.issuedAt(Time.currentTime() - 100);
+        token.expiration(Time.currentTime() + expiresIn);
+        return token;
+    }
+
+    private static KeycloakDeployment createDeployment() {
+        KeycloakDeployment deployment = new KeycloakDeployment();
+        deployment.setRealm("test");
+        deployment.setTokenMinimumTimeToLive(30);
+        return deployment;
+    }
+
+    private static class TestSecurityContext extends RefreshableKeycloakSecurityContext {
+
+        private final boolean succeed;
+        private final AtomicInteger refreshes = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch refreshStarted = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AccessToken refreshedToken = createToken(300);
+
+        private TestSecurityContext(AccessToken token, boolean succeed) {
+            super(createDeployment(), null, "token", token, null, null, "refresh-token");
+            this.succeed = succeed;
+        }
+
+        @Override
+        protected boolean doRefresh() {
+            refreshes.incrementAndGet();
+            if (started.compareAndSet(false, true)) {
+                refreshStarted.countDown();
+            }
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (succeed) {
+                token = refreshedToken;
+                tokenString = "refreshed-token";
+            }
+            return succeed;
+        }
+
+    }
+
+}
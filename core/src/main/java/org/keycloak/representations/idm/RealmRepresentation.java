@@ -32,6 +32,9 @@ public class RealmRepresentation {
     protected String displayNameHtml;
     protected Integer notBefore;
     protected Boolean revokeRefreshToken;
+    protected Boolean refreshTokenSymmetricSigning;
+    protected String refreshTokenSecretKid;
+    protected Map<String, String> refreshTokenSecrets;
     protected Integer accessTokenLifespan;
     protected Integer accessTokenLifespanForImplicitFlow;
     protected Integer ssoSessionIdleTimeout;
@@ -218,6 +221,30 @@ public class RealmRepresentation {
         this.revokeRefreshToken = revokeRefreshToken;
     }
 
+    public Boolean getRefreshTokenSymmetricSigning() {
+        return refreshTokenSymmetricSigning;
+    }
+
+    public void setRefreshTokenSymmetricSigning(Boolean refreshTokenSymmetricSigning) {
+        this.refreshTokenSymmetricSigning = refreshTokenSymmetricSigning;
+    }
+
+    public String getRefreshTokenSecretKid() {
+        return refreshTokenSecretKid;
+    }
+
+    public void setRefreshTokenSecretKid(String refreshTokenSecretKid) {
+        this.refreshTokenSecretKid = refreshTokenSecretKid;
+    }
+
+    public Map<String, String> getRefreshTokenSecrets() {
+        return refreshTokenSecrets;
+    }
+
+    public void setRefreshTokenSecrets(Map<String, String> refreshTokenSecrets) {
+        this.refreshTokenSecrets = refreshTokenSecrets;
+    }
+
     public Integer getAccessTokenLifespan() {
         return accessTokenLifespan;
     }
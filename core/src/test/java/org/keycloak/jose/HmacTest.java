@@ -43,5 +43,17 @@ public class HmacTest {
         Assert.assertTrue(HMACProvider.verify(input, secret));
     }
 
+    @Test
+    public void testHmacSignaturesWithKid() throws Exception {
+        SecretKey secret = new SecretKeySpec(UUID.randomUUID().toString().getBytes(), "HmacSHA256");
+        SecretKey otherSecret = new SecretKeySpec(UUID.randomUUID().toString().getBytes(), "HmacSHA256");
+        String encoded = new JWSBuilder().kid("key-1").content("12345678901234567890".getBytes())
+                .hmac256(secret);
+        JWSInput input = new JWSInput(encoded);
+        Assert.assertEquals("key-1", input.getHeader().getKeyId());
+        Assert.assertTrue(HMACProvider.verify(input, secret));
+        Assert.assertFalse(HMACProvider.verify(input, otherSecret));
+    }
+
 
 }
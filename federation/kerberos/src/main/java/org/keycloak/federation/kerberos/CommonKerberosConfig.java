@@ -56,6 +56,10 @@ public abstract class CommonKerberosConfig {
         return Boolean.valueOf(getConfig().get(KerberosConstants.DEBUG));
     }
 
+    public String getProviderId() {
+        return providerModel.getId();
+    }
+
     protected Map<String, String> getConfig() {
         return providerModel.getConfig();
     }
@@ -24,6 +24,7 @@ import java.util.Set;
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.federation.kerberos.impl.KerberosServerSubjectAuthenticator;
+import org.keycloak.federation.kerberos.impl.KerberosServerSubjectRegistry;
 import org.keycloak.federation.kerberos.impl.KerberosUsernamePasswordAuthenticator;
 import org.keycloak.federation.kerberos.impl.SPNEGOAuthenticator;
 import org.keycloak.models.KeycloakSession;
@@ -43,6 +44,9 @@ public class KerberosFederationProviderFactory implements UserFederationProvider
 
     private static final Logger logger = Logger.getLogger(KerberosFederationProviderFactory.class);
     public static final String PROVIDER_NAME = "kerberos";
+
+    private KerberosServerSubjectRegistry serverSubjectRegistry;
+
     @Override
     public UserFederationProvider getInstance(KeycloakSession session, UserFederationProviderModel model) {
         return new KerberosFederationProvider(session, model, this);
@@ -77,7 +81,7 @@ public class KerberosFederationProviderFactory implements UserFederationProvider
 
     @Override
     public void init(Config.Scope config) {
-
+        this.serverSubjectRegistry = new KerberosServerSubjectRegistry();
     }
 
     @Override
@@ -87,7 +91,10 @@ public class KerberosFederationProviderFactory implements UserFederationProvider
 
     @Override
     public void close() {
-
+        if (this.serverSubjectRegistry != null) {
+            this.serverSubjectRegistry.close();
+        }
+        this.serverSubjectRegistry = null;
     }
 
     protected SPNEGOAuthenticator createSPNEGOAuthenticator(String spnegoToken, CommonKerberosConfig kerberosConfig) {
@@ -96,7 +103,7 @@ public class KerberosFederationProviderFactory implements UserFederationProvider
     }
 
     protected KerberosServerSubjectAuthenticator createKerberosSubjectAuthenticator(CommonKerberosConfig kerberosConfig) {
-        return new KerberosServerSubjectAuthenticator(kerberosConfig);
+        return serverSubjectRegistry.getServerSubjectAuthenticator(kerberosConfig);
     }
 
     protected KerberosUsernamePasswordAuthenticator createKerberosUsernamePasswordAuthenticator(CommonKerberosConfig kerberosConfig) {
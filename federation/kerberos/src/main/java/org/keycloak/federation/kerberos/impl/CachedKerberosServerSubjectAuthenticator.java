@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.kerberos.impl;
+
+import java.io.File;
+import java.util.Date;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+import org.jboss.logging.Logger;
+import org.keycloak.federation.kerberos.CommonKerberosConfig;
+
+/**
+ * Server subject authenticated from the keytab just once and then shared by all SPNEGO authentications of the federation
+ * provider. Subject is renewed on the background before Kerberos tickets in it expire or when the keytab file is changed.
+ * <p>
+ * Renewed subject replaces the previous one, which is not logged out as it may still be used by running authentications.
+ * Just the current subject is logged out when the authenticator is closed.
+ */
+public class CachedKerberosServerSubjectAuthenticator extends KerberosServerSubjectAuthenticator {
+
+    private static final Logger logger = Logger.getLogger(CachedKerberosServerSubjectAuthenticator.class);
+
+    // Subject is renewed when less than this part of the ticket lifetime remains
+    private static final double RENEW_WINDOW = 0.2;
+
+    private final String serverPrincipal;
+    private final String keyTab;
+    private final boolean debug;
+
+    private volatile CachedSubject cached;
+    private volatile long lastUsedTime = System.currentTimeMillis();
+    private boolean closed;
+
+    public CachedKerberosServerSubjectAuthenticator(CommonKerberosConfig config) {
+        super(config);
+        this.serverPrincipal = config.getServerPrincipal();
+        this.keyTab = config.getKeyTab();
+        this.debug = config.getDebug();
+    }
+
+    @Override
+    public Subject authenticateServerSubject() throws LoginException {
+        lastUsedTime = System.currentTimeMillis();
+
+        CachedSubject current = cached;
+        if (current == null || current.isExpired()) {
+            current = renew(current);
+        }
+        return current.loginContext.getSubject();
+    }
+
+    @Override
+    public void logoutServerSubject() {
+        // Subject is shared. It's logged out when authenticator is closed
+    }
+
+    /**
+     * Called periodically from the background. Renews subject if it's going to expire soon or if keytab was changed
+     */
+    public void renewIfNeeded() {
+        CachedSubject current = cached;
+        if (current == null || !current.needsRenewal()) {
+            return;
+        }
+
+        try {
+            renew(current);
+        } catch (LoginException le) {
+            // Keep the current subject. Renewal is tried again next time
+            logger.warn("Failed to renew kerberos server subject: " + serverPrincipal, le);
+        }
+    }
+
+    public long getLastUsedTime() {
+        return lastUsedTime;
+    }
+
+    public boolean isSameConfig(CommonKerberosConfig config) {
+        return eq(serverPrincipal, config.getServerPrincipal()) && eq(keyTab, config.getKeyTab()) && debug == config.getDebug();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (cached != null) {
+            try {
+                cached.loginContext.logout();
+            } catch (LoginException le) {
+                logger.error("Failed to logout kerberos server subject: " + serverPrincipal, le);
+            }
+            cached = null;
+        }
+    }
+
+    private synchronized CachedSubject renew(CachedSubject expected) throws LoginException {
+        // Other thread might have renewed subject in the meantime
+        if (cached != expected && cached != null) {
+            return cached;
+        }
+
+        if (closed) {
+            throw new LoginException("Kerberos server subject authenticator was closed");
+        }
+
+        long keyTabLastModified = getKeyTabLastModified();
+        LoginContext loginContext = login();
+        cached = new CachedSubject(loginContext, keyTabLastModified);
+
+        if (logger.isDebugEnabled()) {
+            logger.debugf("Authenticated kerberos server subject for principal '%s'. Renewal at: %s", serverPrincipal,
+                    cached.renewAt == Long.MAX_VALUE ? "keytab change" : new Date(cached.renewAt));
+        }
+
+        return cached;
+    }
+
+    private long getKeyTabLastModified() {
+        return keyTab != null ? new File(keyTab).lastModified() : 0;
+    }
+
+    private static boolean eq(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private class CachedSubject {
+
+        private final LoginContext loginContext;
+        private final long keyTabLastModified;
+
+        // Time when at least one ticket expires and when it should be renewed. Subject of acceptor usually contains just keys, which don't expire
+        private final long expiresAt;
+        private final long renewAt;
+
+        private CachedSubject(LoginContext loginContext, long keyTabLastModified) {
+            this.loginContext = loginContext;
+            this.keyTabLastModified = keyTabLastModified;
+
+            long expiresAt = Long.MAX_VALUE;
+            long renewAt = Long.MAX_VALUE;
+            for (KerberosTicket ticket : loginContext.getSubject().getPrivateCredentials(KerberosTicket.class)) {
+                long start = ticket.getStartTime() != null ? ticket.getStartTime().getTime() : ticket.getAuthTime().getTime();
+                long end = ticket.getEndTime().getTime();
+                expiresAt = Math.min(expiresAt, end);
+                renewAt = Math.min(renewAt, end - (long) ((end - start) * RENEW_WINDOW));
+            }
+
+            this.expiresAt = expiresAt;
+            this.renewAt = renewAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        private boolean needsRenewal() {
+            return System.currentTimeMillis() >= renewAt || getKeyTabLastModified() != keyTabLastModified;
+        }
+
+    }
+
+}
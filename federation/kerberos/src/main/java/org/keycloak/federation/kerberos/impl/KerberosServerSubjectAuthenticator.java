@@ -36,7 +36,7 @@ public class KerberosServerSubjectAuthenticator {
 
     private static final Logger logger = Logger.getLogger(KerberosServerSubjectAuthenticator.class);
 
-    private final CommonKerberosConfig config;
+    protected final CommonKerberosConfig config;
     private LoginContext loginContext;
 
     public KerberosServerSubjectAuthenticator(CommonKerberosConfig config) {
@@ -44,9 +44,7 @@ public class KerberosServerSubjectAuthenticator {
     }
 
     public Subject authenticateServerSubject() throws LoginException {
-        Configuration config = createJaasConfiguration();
-        loginContext = new LoginContext("does-not-matter", null, null, config);
-        loginContext.login();
+        loginContext = login();
         return loginContext.getSubject();
     }
 
@@ -60,6 +58,13 @@ public class KerberosServerSubjectAuthenticator {
         }
     }
 
+    protected LoginContext login() throws LoginException {
+        Configuration config = createJaasConfiguration();
+        LoginContext loginContext = new LoginContext("does-not-matter", null, null, config);
+        loginContext.login();
+        return loginContext;
+    }
+
     protected Configuration createJaasConfiguration() {
         return new Configuration() {
 
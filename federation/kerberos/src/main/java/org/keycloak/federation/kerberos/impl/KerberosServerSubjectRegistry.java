@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.kerberos.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.keycloak.federation.kerberos.CommonKerberosConfig;
+
+/**
+ * Keeps authenticated server subject per federation provider. Subject is re-created when Kerberos configuration of the
+ * provider changes. All subjects are checked for renewal periodically by single background thread.
+ * <p>
+ * Replaced subjects are just dropped and not logged out, as they may still be used by running SPNEGO authentications.
+ * Subjects, which weren't used for some time (for example because the provider was removed), are dropped the same way.
+ */
+public class KerberosServerSubjectRegistry {
+
+    private static final Logger logger = Logger.getLogger(KerberosServerSubjectRegistry.class);
+
+    private static final long RENEWAL_CHECK_PERIOD_SECONDS = 60;
+
+    private static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final ConcurrentMap<String, CachedKerberosServerSubjectAuthenticator> authenticators = new ConcurrentHashMap<>();
+    private final long maxIdleMillis;
+    private ScheduledExecutorService renewalExecutor;
+
+    public KerberosServerSubjectRegistry() {
+        this(DEFAULT_MAX_IDLE_MILLIS);
+    }
+
+    KerberosServerSubjectRegistry(long maxIdleMillis) {
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public KerberosServerSubjectAuthenticator getServerSubjectAuthenticator(CommonKerberosConfig config) {
+        String key = config.getProviderId() != null ? config.getProviderId() : config.getServerPrincipal();
+
+        CachedKerberosServerSubjectAuthenticator authenticator = authenticators.get(key);
+        if (authenticator != null && authenticator.isSameConfig(config)) {
+            return authenticator;
+        }
+
+        synchronized (this) {
+            authenticator = authenticators.get(key);
+            if (authenticator == null || !authenticator.isSameConfig(config)) {
+                if (authenticator != null) {
+                    logger.debugf("Kerberos configuration changed for server principal '%s'", config.getServerPrincipal());
+                }
+
+                authenticator = createAuthenticator(config);
+                authenticators.put(key, authenticator);
+                startRenewal();
+            }
+            return authenticator;
+        }
+    }
+
+    /**
+     * Renews subjects, which are going to expire soon, and drops subjects, which weren't used for some time
+     */
+    void renewOrEvict() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, CachedKerberosServerSubjectAuthenticator> entry : authenticators.entrySet()) {
+            CachedKerberosServerSubjectAuthenticator authenticator = entry.getValue();
+            if (now - authenticator.getLastUsedTime() >= maxIdleMillis) {
+                if (authenticators.remove(entry.getKey(), authenticator)) {
+                    logger.debugf("Dropped kerberos server subject for '%s', which wasn't used for %d ms", entry.getKey(), maxIdleMillis);
+                }
+                continue;
+            }
+
+            try {
+                authenticator.renewIfNeeded();
+            } catch (RuntimeException e) {
+                logger.warn("Unexpected error during renewal of kerberos server subject", e);
+            }
+        }
+    }
+
+    protected CachedKerberosServerSubjectAuthenticator createAuthenticator(CommonKerberosConfig config) {
+        return new CachedKerberosServerSubjectAuthenticator(config);
+    }
+
+    public synchronized void close() {
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdownNow();
+            renewalExecutor = null;
+        }
+
+        for (CachedKerberosServerSubjectAuthenticator authenticator : authenticators.values()) {
+            authenticator.close();
+        }
+        authenticators.clear();
+    }
+
+    private void startRenewal() {
+        if (renewalExecutor != null) {
+            return;
+        }
+
+        renewalExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "kerberos-server-subject-renewal");
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        });
+
+        renewalExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                renewOrEvict();
+            }
+
+        }, RENEWAL_CHECK_PERIOD_SECONDS, RENEWAL_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+}
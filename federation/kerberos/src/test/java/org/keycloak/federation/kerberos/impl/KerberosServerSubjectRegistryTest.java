@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.kerberos.impl;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.spi.LoginModule;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.common.constants.KerberosConstants;
+import org.keycloak.federation.kerberos.CommonKerberosConfig;
+import org.keycloak.models.UserFederationProviderModel;
+
+public class KerberosServerSubjectRegistryTest {
+
+    private static final String SERVER_PRINCIPAL = "HTTP/localhost@KEYCLOAK.ORG";
+
+    private KerberosServerSubjectRegistry registry;
+
+    @Before
+    public void before() {
+        TestLoginModule.loginCount.set(0);
+        TestLoginModule.ticketStartOffset = 0;
+        TestLoginModule.ticketLifetime = TimeUnit.HOURS.toMillis(10);
+    }
+
+    @After
+    public void after() {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void testSubjectShared() throws Exception {
+        registry = new TestRegistry(TimeUnit.HOURS.toMillis(1));
+
+        KerberosServerSubjectAuthenticator authenticator = registry.getServerSubjectAuthenticator(createConfig("provider1", false));
+        Assert.assertSame(authenticator, registry.getServerSubjectAuthenticator(createConfig("provider1", false)));
+
+        Subject subject = authenticator.authenticateServerSubject();
+        authenticator.logoutServerSubject();
+        Assert.assertSame(subject, authenticator.authenticateServerSubject());
+        Assert.assertEquals(1, TestLoginModule.loginCount.get());
+
+        // Shared subject is not logged out by the authentication
+        Assert.assertFalse(subject.getPrivateCredentials(KerberosTicket.class).isEmpty());
+    }
+
+    @Test
+    public void testRenewal() throws Exception {
+        registry = new TestRegistry(TimeUnit.HOURS.toMillis(1));
+
+        // Just 1 hour of 10 hours ticket lifetime remains, so subject needs to be renewed
+        TestLoginModule.ticketStartOffset = -TimeUnit.HOURS.toMillis(9);
+        KerberosServerSubjectAuthenticator authenticator = registry.getServerSubjectAuthenticator(createConfig("provider1", false));
+        Subject subject1 = authenticator.authenticateServerSubject();
+        Assert.assertEquals(1, TestLoginModule.loginCount.get());
+
+        TestLoginModule.ticketStartOffset = 0;
+        registry.renewOrEvict();
+        Assert.assertEquals(2, TestLoginModule.loginCount.get());
+
+        Subject subject2 = authenticator.authenticateServerSubject();
+        Assert.assertNotSame(subject1, subject2);
+
+        // Previous subject may still be used by running authentications, so it's not logged out
+        Assert.assertFalse(subject1.getPrivateCredentials(KerberosTicket.class).isEmpty());
+
+        // Renewed subject is fresh
+        registry.renewOrEvict();
+        Assert.assertEquals(2, TestLoginModule.loginCount.get());
+        Assert.assertSame(subject2, authenticator.authenticateServerSubject());
+    }
+
+    @Test
+    public void testConfigChange() throws Exception {
+        registry = new TestRegistry(TimeUnit.HOURS.toMillis(1));
+
+        TestLoginModule.ticketStartOffset = -TimeUnit.HOURS.toMillis(9);
+        KerberosServerSubjectAuthenticator authenticator1 = registry.getServerSubjectAuthenticator(createConfig("provider1", false));
+        Subject subject1 = authenticator1.authenticateServerSubject();
+
+        KerberosServerSubjectAuthenticator authenticator2 = registry.getServerSubjectAuthenticator(createConfig("provider1", true));
+        Assert.assertNotSame(authenticator1, authenticator2);
+        Assert.assertSame(authenticator2, registry.getServerSubjectAuthenticator(createConfig("provider1", true)));
+
+        // Replaced subject is not logged out
+        Assert.assertFalse(subject1.getPrivateCredentials(KerberosTicket.class).isEmpty());
+        Assert.assertSame(subject1, authenticator1.authenticateServerSubject());
+
+        // Replaced subject is not renewed anymore. New one was not authenticated yet
+        registry.renewOrEvict();
+        Assert.assertEquals(1, TestLoginModule.loginCount.get());
+
+        Assert.assertNotSame(subject1, authenticator2.authenticateServerSubject());
+        Assert.assertEquals(2, TestLoginModule.loginCount.get());
+    }
+
+    @Test
+    public void testUnusedSubjectEvicted() throws Exception {
+        registry = new TestRegistry(0);
+
+        TestLoginModule.ticketStartOffset = -TimeUnit.HOURS.toMillis(9);
+        KerberosServerSubjectAuthenticator authenticator = registry.getServerSubjectAuthenticator(createConfig("provider1", false));
+        Subject subject = authenticator.authenticateServerSubject();
+
+        // Evicted subject is neither renewed nor logged out
+        registry.renewOrEvict();
+        Assert.assertEquals(1, TestLoginModule.loginCount.get());
+        Assert.assertFalse(subject.getPrivateCredentials(KerberosTicket.class).isEmpty());
+
+        Assert.assertNotSame(authenticator, registry.getServerSubjectAuthenticator(createConfig("provider1", false)));
+    }
+
+    private CommonKerberosConfig createConfig(String providerId, boolean debug) {
+        Map<String, String> config = new HashMap<>();
+        config.put(KerberosConstants.SERVER_PRINCIPAL, SERVER_PRINCIPAL);
+        config.put(KerberosConstants.DEBUG, String.valueOf(debug));
+
+        UserFederationProviderModel model = new UserFederationProviderModel(providerId, "kerberos", config, 0, providerId, -1, -1, 0);
+        return new CommonKerberosConfig(model) {
+        };
+    }
+
+
+    private static class TestRegistry extends KerberosServerSubjectRegistry {
+
+        private TestRegistry(long maxIdleMillis) {
+            super(maxIdleMillis);
+        }
+
+        @Override
+        protected CachedKerberosServerSubjectAuthenticator createAuthenticator(CommonKerberosConfig config) {
+            return new CachedKerberosServerSubjectAuthenticator(config) {
+
+                @Override
+                protected Configuration createJaasConfiguration() {
+                    return new Configuration() {
+
+                        @Override
+                        public AppConfigurationEntry[] getAppConfigurationEntry(String name) {
+                            AppConfigurationEntry entry = new AppConfigurationEntry(TestLoginModule.class.getName(), AppConfigurationEntry.LoginModuleControlFlag.REQUIRED, new HashMap<String, Object>());
+                            return new AppConfigurationEntry[] { entry };
+                        }
+
+                    };
+                }
+
+            };
+        }
+    }
+
+
+    // Adds single ticket with configured lifetime to the subject instead of real Kerberos login
+    public static class TestLoginModule implements LoginModule {
+
+        private static final AtomicInteger loginCount = new AtomicInteger();
+        private static volatile long ticketStartOffset;
+        private static volatile long ticketLifetime;
+
+        private Subject subject;
+
+        @Override
+        public void initialize(Subject subject, CallbackHandler callbackHandler, Map<String, ?> sharedState, Map<String, ?> options) {
+            this.subject = subject;
+        }
+
+        @Override
+        public boolean login() {
+            loginCount.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean commit() {
+            KerberosPrincipal principal = new KerberosPrincipal(SERVER_PRINCIPAL);
+            long start = System.currentTimeMillis() + ticketStartOffset;
+            KerberosTicket ticket = new KerberosTicket(new byte[] { 1 }, principal, principal, new byte[] { 1 }, 1, null,
+                    new Date(start), new Date(start), new Date(start + ticketLifetime), null, null);
+            subject.getPrivateCredentials().add(ticket);
+            return true;
+        }
+
+        @Override
+        public boolean abort() {
+            return true;
+        }
+
+        @Override
+        public boolean logout() {
+            subject.getPrivateCredentials().clear();
+            return true;
+        }
+    }
+
+}
@@ -109,6 +109,53 @@ public class LDAPConfig {
         return config.get(LDAPConstants.CONNECTION_POOLING);
     }
 
+    /**
+     * @return timeout of opening connection in milliseconds. 0 or less means no timeout
+     */
+    public long getConnectionTimeout() {
+        String timeout = config.get(LDAPConstants.CONNECTION_TIMEOUT);
+        return timeout != null && !timeout.trim().isEmpty() ? Long.parseLong(timeout.trim()) : LDAPConstants.DEFAULT_CONNECTION_TIMEOUT;
+    }
+
+    /**
+     * @return timeout of waiting for response of LDAP operation in milliseconds. 0 or less means no timeout
+     */
+    public long getReadTimeout() {
+        String timeout = config.get(LDAPConstants.READ_TIMEOUT);
+        return timeout != null && !timeout.trim().isEmpty() ? Long.parseLong(timeout.trim()) : LDAPConstants.DEFAULT_READ_TIMEOUT;
+    }
+
+    public int getBindConnectionPoolSize() {
+        String size = config.get(LDAPConstants.BIND_CONNECTION_POOL_SIZE);
+        return size != null && !size.trim().isEmpty() ? Integer.parseInt(size.trim()) : 0;
+    }
+
+    /**
+     * @return time after which idle connection used for verifying passwords is closed in milliseconds
+     */
+    public long getBindConnectionPoolIdleTimeout() {
+        String timeout = config.get(LDAPConstants.BIND_CONNECTION_POOL_IDLE_TIMEOUT);
+        long seconds = timeout != null && !timeout.trim().isEmpty() ? Long.parseLong(timeout.trim()) : LDAPConstants.DEFAULT_BIND_CONNECTION_POOL_IDLE_TIMEOUT;
+        return seconds * 1000;
+    }
+
+    public int getBindConnectionPoolMaxActive() {
+        String maxActive = config.get(LDAPConstants.BIND_CONNECTION_POOL_MAX_ACTIVE);
+        return maxActive != null && !maxActive.trim().isEmpty() ? Integer.parseInt(maxActive.trim()) : LDAPConstants.DEFAULT_BIND_CONNECTION_POOL_MAX_ACTIVE;
+    }
+
+    /**
+     * @return time in milliseconds for which password verification waits for a connection when max active count is reached
+     */
+    public long getBindConnectionPoolMaxWait() {
+        String maxWait = config.get(LDAPConstants.BIND_CONNECTION_POOL_MAX_WAIT);
+        return maxWait != null && !maxWait.trim().isEmpty() ? Long.parseLong(maxWait.trim()) : LDAPConstants.DEFAULT_BIND_CONNECTION_POOL_MAX_WAIT;
+    }
+
+    public boolean isStartTls() {
+        return Boolean.parseBoolean(config.get(LDAPConstants.START_TLS));
+    }
+
     public Properties getAdditionalConnectionProperties() {
         // not supported for now
         return null;
@@ -169,6 +216,22 @@ public class LDAPConfig {
         return null;
     }
 
+    /**
+     * @return TTL of users found in LDAP in validation cache in milliseconds
+     */
+    public long getValidationCacheTtl() {
+        String ttl = config.get(LDAPConstants.VALIDATION_CACHE_TTL);
+        return ttl != null && !ttl.trim().isEmpty() ? Long.parseLong(ttl.trim()) * 1000 : 0;
+    }
+
+    /**
+     * @return TTL of users not found in LDAP in validation cache in milliseconds
+     */
+    public long getValidationCacheNegativeTtl() {
+        String ttl = config.get(LDAPConstants.VALIDATION_CACHE_NEGATIVE_TTL);
+        return ttl != null && !ttl.trim().isEmpty() ? Long.parseLong(ttl.trim()) * 1000 : 0;
+    }
+
     public UserFederationProvider.EditMode getEditMode() {
         String editModeString = config.get(LDAPConstants.EDIT_MODE);
         if (editModeString == null) {
@@ -27,6 +27,7 @@ import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryConditionsBuilde
 import org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore;
 import org.keycloak.federation.ldap.kerberos.LDAPProviderKerberosConfig;
 import org.keycloak.federation.ldap.mappers.LDAPFederationMapper;
+import org.keycloak.models.ConcurrentUserFederationProvider;
 import org.keycloak.models.CredentialValidationOutput;
 import org.keycloak.models.GroupModel;
 import org.keycloak.models.KeycloakSession;
@@ -62,7 +63,7 @@ import javax.naming.AuthenticationException;
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class LDAPFederationProvider implements UserFederationProvider {
+public class LDAPFederationProvider implements ConcurrentUserFederationProvider {
     private static final Logger logger = Logger.getLogger(LDAPFederationProvider.class);
 
     protected LDAPFederationProviderFactory factory;
@@ -192,9 +193,23 @@ public class LDAPFederationProvider implements UserFederationProvider {
 
     @Override
     public List<UserModel> searchByAttributes(Map<String, String> attributes, RealmModel realm, int maxResults) {
+        List<LDAPObject> ldapUsers = searchLDAP(realm, attributes, maxResults);
+        return importSearchResults(realm, ldapUsers);
+    }
+
+    @Override
+    public RemoteSearch createSearchByAttributes(Map<String, String> attributes, RealmModel realm, int maxResults) {
+        return new LDAPRemoteSearch(realm, attributes);
+    }
+
+    @Override
+    public RemoteSearch createSearchByUsername(RealmModel realm, String username) {
+        return new LDAPRemoteSearch(realm, username);
+    }
+
+    protected List<UserModel> importSearchResults(RealmModel realm, List<LDAPObject> ldapUsers) {
         List<UserModel> searchResults =new LinkedList<UserModel>();
 
-        List<LDAPObject> ldapUsers = searchLDAP(realm, attributes, maxResults);
         for (LDAPObject ldapUser : ldapUsers) {
             String ldapUsername = LDAPUtils.getUsername(ldapUser, this.ldapIdentityStore.getConfig());
             if (session.userStorage().getUserByUsername(ldapUsername, realm) == null) {
@@ -253,17 +268,7 @@ public class LDAPFederationProvider implements UserFederationProvider {
         }
 
         if (attributes.containsKey(FIRST_NAME) || attributes.containsKey(LAST_NAME)) {
-            LDAPQuery ldapQuery = LDAPUtils.createQueryForUserSearch(this, realm);
-            LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
-
-            // Mapper should replace parameter with correct LDAP mapped attributes
-            if (attributes.containsKey(FIRST_NAME)) {
-                ldapQuery.addWhereCondition(conditionsBuilder.equal(FIRST_NAME, attributes.get(FIRST_NAME)));
-            }
-            if (attributes.containsKey(LAST_NAME)) {
-                ldapQuery.addWhereCondition(conditionsBuilder.equal(LAST_NAME, attributes.get(LAST_NAME)));
-            }
-
+            LDAPQuery ldapQuery = createQueryByName(realm, attributes);
             List<LDAPObject> ldapObjects = ldapQuery.getResultList();
             results.addAll(ldapObjects);
         }
@@ -271,6 +276,20 @@ public class LDAPFederationProvider implements UserFederationProvider {
         return results;
     }
 
+    protected LDAPQuery createQueryByName(RealmModel realm, Map<String, String> attributes) {
+        LDAPQuery ldapQuery = LDAPUtils.createQueryForUserSearch(this, realm);
+        LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
+
+        // Mapper should replace parameter with correct LDAP mapped attributes
+        if (attributes.containsKey(FIRST_NAME)) {
+            ldapQuery.addWhereCondition(conditionsBuilder.equal(FIRST_NAME, attributes.get(FIRST_NAME)));
+        }
+        if (attributes.containsKey(LAST_NAME)) {
+            ldapQuery.addWhereCondition(conditionsBuilder.equal(LAST_NAME, attributes.get(LAST_NAME)));
+        }
+        return ldapQuery;
+    }
+
     /**
      * @param local
      * @return ldapUser corresponding to local user or null if user is no longer in LDAP
@@ -332,6 +351,10 @@ public class LDAPFederationProvider implements UserFederationProvider {
     }
 
     protected LDAPObject queryByEmail(RealmModel realm, String email) {
+        return createQueryByEmail(realm, email).getFirstResult();
+    }
+
+    protected LDAPQuery createQueryByEmail(RealmModel realm, String email) {
         LDAPQuery ldapQuery = LDAPUtils.createQueryForUserSearch(this, realm);
         LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
 
@@ -339,7 +362,7 @@ public class LDAPFederationProvider implements UserFederationProvider {
         Condition emailCondition = conditionsBuilder.equal(UserModel.EMAIL, email);
         ldapQuery.addWhereCondition(emailCondition);
 
-        return ldapQuery.getFirstResult();
+        return ldapQuery;
     }
 
 
@@ -494,12 +517,19 @@ public class LDAPFederationProvider implements UserFederationProvider {
     }
 
     public LDAPObject loadLDAPUserByUsername(RealmModel realm, String username) {
-        LDAPQuery ldapQuery = LDAPUtils.createQueryForUserSearch(this, realm);
-        LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
+        LDAPUserCache userCache = ldapIdentityStore.getUserCache();
+        LDAPUserCache.Entry cached = userCache.get(username);
+        if (cached != null) {
+            return cached.getLdapUser();
+        }
 
-        String usernameMappedAttribute = this.ldapIdentityStore.getConfig().getUsernameLdapAttribute();
-        Condition usernameCondition = conditionsBuilder.equal(usernameMappedAttribute, username);
-        ldapQuery.addWhereCondition(usernameCondition);
+        LDAPObject ldapUser = searchLDAPUserByUsername(realm, username);
+        userCache.put(username, ldapUser);
+        return ldapUser;
+    }
+
+    protected LDAPObject searchLDAPUserByUsername(RealmModel realm, String username) {
+        LDAPQuery ldapQuery = createQueryByUsername(realm, username);
 
         LDAPObject ldapUser = ldapQuery.getFirstResult();
         if (ldapUser == null) {
@@ -509,6 +539,16 @@ public class LDAPFederationProvider implements UserFederationProvider {
         return ldapUser;
     }
 
+    protected LDAPQuery createQueryByUsername(RealmModel realm, String username) {
+        LDAPQuery ldapQuery = LDAPUtils.createQueryForUserSearch(this, realm);
+        LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
+
+        String usernameMappedAttribute = this.ldapIdentityStore.getConfig().getUsernameLdapAttribute();
+        Condition usernameCondition = conditionsBuilder.equal(usernameMappedAttribute, username);
+        ldapQuery.addWhereCondition(usernameCondition);
+        return ldapQuery;
+    }
+
     public LDAPFederationMapper getMapper(UserFederationMapperModel mapperModel) {
         LDAPFederationMapper ldapMapper = (LDAPFederationMapper) getSession().getProvider(UserFederationMapper.class, mapperModel.getFederationMapperType());
         if (ldapMapper == null) {
@@ -517,4 +557,91 @@ public class LDAPFederationProvider implements UserFederationProvider {
 
         return ldapMapper;
     }
+
+
+    /**
+     * LDAP queries are prepared and mappers applied to them in the constructor. Just the LDAP queries themselves are
+     * executed from the other thread
+     */
+    protected class LDAPRemoteSearch implements RemoteSearch {
+
+        private final RealmModel realm;
+        private final boolean byUsername;
+
+        private String username;
+        private LDAPQuery usernameQuery;
+        private LDAPQuery emailQuery;
+        private LDAPQuery nameQuery;
+
+        private final List<LDAPObject> results = new ArrayList<>();
+
+        protected LDAPRemoteSearch(RealmModel realm, String username) {
+            this.realm = realm;
+            this.byUsername = true;
+            prepareUsernameQuery(username);
+        }
+
+        protected LDAPRemoteSearch(RealmModel realm, Map<String, String> attributes) {
+            this.realm = realm;
+            this.byUsername = false;
+
+            if (attributes.containsKey(USERNAME)) {
+                prepareUsernameQuery(attributes.get(USERNAME));
+            }
+            if (attributes.containsKey(EMAIL)) {
+                emailQuery = createQueryByEmail(realm, attributes.get(EMAIL));
+                emailQuery.applyMappers();
+            }
+            if (attributes.containsKey(FIRST_NAME) || attributes.containsKey(LAST_NAME)) {
+                nameQuery = createQueryByName(realm, attributes);
+                nameQuery.applyMappers();
+            }
+        }
+
+        private void prepareUsernameQuery(String username) {
+            LDAPUserCache.Entry cached = ldapIdentityStore.getUserCache().get(username);
+            if (cached != null) {
+                if (cached.getLdapUser() != null) {
+                    results.add(cached.getLdapUser());
+                }
+            } else {
+                this.username = username;
+                usernameQuery = createQueryByUsername(realm, username);
+                usernameQuery.applyMappers();
+            }
+        }
+
+        @Override
+        public void execute() {
+            if (usernameQuery != null) {
+                LDAPObject ldapUser = usernameQuery.fetchFirstResult();
+                ldapIdentityStore.getUserCache().put(username, ldapUser);
+                if (ldapUser != null) {
+                    results.add(ldapUser);
+                }
+            }
+            if (emailQuery != null) {
+                LDAPObject ldapUser = emailQuery.fetchFirstResult();
+                if (ldapUser != null) {
+                    results.add(ldapUser);
+                }
+            }
+            if (nameQuery != null) {
+                results.addAll(nameQuery.fetchResultList());
+            }
+        }
+
+        @Override
+        public List<UserModel> importResults() {
+            if (byUsername) {
+                if (results.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(importUserFromLDAP(session, realm, results.get(0)));
+            } else {
+                return importSearchResults(realm, results);
+            }
+        }
+
+    }
 }
@@ -21,11 +21,13 @@ import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.federation.kerberos.CommonKerberosConfig;
 import org.keycloak.federation.kerberos.impl.KerberosServerSubjectAuthenticator;
+import org.keycloak.federation.kerberos.impl.KerberosServerSubjectRegistry;
 import org.keycloak.federation.kerberos.impl.KerberosUsernamePasswordAuthenticator;
 import org.keycloak.federation.kerberos.impl.SPNEGOAuthenticator;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
 import org.keycloak.federation.ldap.idm.query.Condition;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryResultIterator;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryConditionsBuilder;
 import org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore;
 import org.keycloak.federation.ldap.mappers.FullNameLDAPFederationMapper;
@@ -48,11 +50,22 @@ import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserFederationSyncResult;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.UserBulkQueries;
+import org.keycloak.timer.TimerProvider;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -63,7 +76,11 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
     private static final Logger logger = Logger.getLogger(LDAPFederationProviderFactory.class);
     public static final String PROVIDER_NAME = LDAPConstants.LDAP_PROVIDER;
 
-    private LDAPIdentityStoreRegistry ldapStoreRegistry;
+    // How often are idle connections used for verifying passwords evicted, in milliseconds
+    private static final long BIND_CONNECTION_EVICTION_INTERVAL = 60000;
+
+    private volatile LDAPIdentityStoreRegistry ldapStoreRegistry;
+    private KerberosServerSubjectRegistry serverSubjectRegistry;
 
     @Override
     public UserFederationProvider create(KeycloakSession session) {
@@ -79,11 +96,45 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
     @Override
     public void init(Config.Scope config) {
         this.ldapStoreRegistry = new LDAPIdentityStoreRegistry();
+        this.serverSubjectRegistry = new KerberosServerSubjectRegistry();
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        super.postInit(factory);
+
+        KeycloakSession session = factory.create();
+        try {
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            if (timer != null) {
+                timer.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        LDAPIdentityStoreRegistry registry = ldapStoreRegistry;
+                        if (registry != null) {
+                            registry.evictIdleBindConnections();
+                        }
+                    }
+
+                }, BIND_CONNECTION_EVICTION_INTERVAL, "EvictIdleLDAPBindConnections");
+            }
+        } finally {
+            session.close();
+        }
     }
 
     @Override
     public void close() {
+        if (this.ldapStoreRegistry != null) {
+            this.ldapStoreRegistry.close();
+        }
         this.ldapStoreRegistry = null;
+
+        if (this.serverSubjectRegistry != null) {
+            this.serverSubjectRegistry.close();
+        }
+        this.serverSubjectRegistry = null;
     }
 
     @Override
@@ -217,7 +268,7 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
 
     @Override
     public UserFederationSyncResult syncAllUsers(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel model) {
-        syncMappers(sessionFactory, realmId, model);
+        syncMappers(sessionFactory, realmId, model, null);
 
         logger.infof("Sync all users from LDAP to local store: realm: %s, federation provider: %s", realmId, model.getDisplayName());
 
@@ -226,13 +277,13 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
 
         // TODO: Remove all existing keycloak users, which have federation links, but are not in LDAP. Perhaps don't check users, which were just added or updated during this sync?
 
-        logger.infof("Sync all users finished: %s", syncResult.getStatus());
+        logger.infof("Sync all users finished in %d ms: %s", syncResult.getDuration(), syncResult.getStatus());
         return syncResult;
     }
 
     @Override
     public UserFederationSyncResult syncChangedUsers(KeycloakSessionFactory sessionFactory, String realmId, UserFederationProviderModel model, Date lastSync) {
-        syncMappers(sessionFactory, realmId, model);
+        syncMappers(sessionFactory, realmId, model, lastSync);
 
         logger.infof("Sync changed users from LDAP to local store: realm: %s, federation provider: %s, last sync time: " + lastSync, realmId, model.getDisplayName());
 
@@ -246,11 +297,14 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
         userQuery.addWhereCondition(orCondition);
         UserFederationSyncResult result = syncImpl(sessionFactory, userQuery, realmId, model);
 
-        logger.infof("Sync changed users finished: %s", result.getStatus());
+        logger.infof("Sync changed users finished in %d ms: %s", result.getDuration(), result.getStatus());
         return result;
     }
 
-    protected void syncMappers(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel model) {
+    /**
+     * @param lastSync if not null, mappers sync just data changed since lastSync when they support it
+     */
+    protected void syncMappers(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel model, final Date lastSync) {
         KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
 
             @Override
@@ -260,7 +314,12 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
                 Set<UserFederationMapperModel> mappers = realm.getUserFederationMappersByFederationProvider(model.getId());
                 for (UserFederationMapperModel mapperModel : mappers) {
                     UserFederationMapper ldapMapper = session.getProvider(UserFederationMapper.class, mapperModel.getFederationMapperType());
-                    UserFederationSyncResult syncResult = ldapMapper.syncDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm);
+                    UserFederationSyncResult syncResult;
+                    if (lastSync != null && ldapMapper instanceof LDAPFederationMapper) {
+                        syncResult = ((LDAPFederationMapper) ldapMapper).syncChangedDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm, lastSync);
+                    } else {
+                        syncResult = ldapMapper.syncDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm);
+                    }
                     if (syncResult.getAdded() > 0 || syncResult.getUpdated() > 0 || syncResult.getRemoved() > 0 || syncResult.getFailed() > 0) {
                         logger.infof("Sync of federation mapper '%s' finished. Status: %s", mapperModel.getName(), syncResult.toString());
                     }
@@ -272,32 +331,73 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
 
     protected UserFederationSyncResult syncImpl(KeycloakSessionFactory sessionFactory, LDAPQuery userQuery, final String realmId, final UserFederationProviderModel fedModel) {
 
+        // Users might have changed in LDAP, so don't trust previous lookups
+        LDAPIdentityStore ldapStore = this.ldapStoreRegistry.getLdapStore(fedModel);
+        ldapStore.getUserCache().clear();
+
+        // Group memberships are resolved just once for all users of this sync
+        LDAPMembershipCache membershipCache = ldapStore.startMembershipCache();
+
         final UserFederationSyncResult syncResult = new UserFederationSyncResult();
+        long start = System.currentTimeMillis();
 
-        boolean pagination = Boolean.parseBoolean(fedModel.getConfig().get(LDAPConstants.PAGINATION));
-        if (pagination) {
+        int syncThreads = getSyncThreads(fedModel);
+        ExecutorService executor = syncThreads > 1 ? Executors.newFixedThreadPool(syncThreads) : null;
 
+        try {
             String pageSizeConfig = fedModel.getConfig().get(LDAPConstants.BATCH_SIZE_FOR_SYNC);
             int pageSize = pageSizeConfig!=null ? Integer.parseInt(pageSizeConfig) : LDAPConstants.DEFAULT_BATCH_SIZE_FOR_SYNC;
 
-            boolean nextPage = true;
-            while (nextPage) {
+            boolean pagination = Boolean.parseBoolean(fedModel.getConfig().get(LDAPConstants.PAGINATION));
+            if (pagination) {
                 userQuery.setLimit(pageSize);
-                final List<LDAPObject> users = userQuery.getResultList();
-                nextPage = userQuery.getPaginationContext() != null;
-                UserFederationSyncResult currentPageSync = importLdapUsers(sessionFactory, realmId, fedModel, users);
-                syncResult.add(currentPageSync);
             }
-        } else {
-            // LDAP pagination not available. Do everything in single transaction
-            final List<LDAPObject> users = userQuery.getResultList();
-            UserFederationSyncResult currentSync = importLdapUsers(sessionFactory, realmId, fedModel, users);
-            syncResult.add(currentSync);
+
+            // Users are imported as they arrive from LDAP, so just single page of users is kept in memory
+            LDAPQueryResultIterator ldapUsers = userQuery.getResultIterator();
+            try {
+                List<LDAPObject> users = new ArrayList<>(pageSize);
+                while (ldapUsers.hasNext()) {
+                    users.add(ldapUsers.next());
+                    if (users.size() >= pageSize || !ldapUsers.hasNext()) {
+                        UserFederationSyncResult currentPageSync = importLdapUsers(sessionFactory, realmId, fedModel, users, executor, syncThreads);
+                        syncResult.add(currentPageSync);
+                        users = new ArrayList<>(pageSize);
+
+                        long duration = System.currentTimeMillis() - start;
+                        logger.debugf("Processed %d LDAP users in %d ms (%d users/s). Status: %s", syncResult.getProcessed(), duration,
+                                duration > 0 ? syncResult.getProcessed() * 1000L / duration : syncResult.getProcessed(), syncResult.getStatus());
+                    }
+                }
+            } finally {
+                ldapUsers.close();
+            }
+        } finally {
+            ldapStore.stopMembershipCache(membershipCache);
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
+        syncResult.setDuration(System.currentTimeMillis() - start);
         return syncResult;
     }
 
+    // Sync threads are at least 1, so misconfigured provider still syncs in single thread
+    protected int getSyncThreads(UserFederationProviderModel fedModel) {
+        String syncThreadsConfig = fedModel.getConfig().get(LDAPConstants.SYNC_THREADS);
+        if (syncThreadsConfig == null) {
+            return LDAPConstants.DEFAULT_SYNC_THREADS;
+        }
+
+        try {
+            return Math.max(1, Integer.parseInt(syncThreadsConfig.trim()));
+        } catch (NumberFormatException nfe) {
+            logger.warnf("Invalid count of sync threads '%s' for federation provider '%s'. Using %d", syncThreadsConfig, fedModel.getDisplayName(), LDAPConstants.DEFAULT_SYNC_THREADS);
+            return LDAPConstants.DEFAULT_SYNC_THREADS;
+        }
+    }
+
     private LDAPQuery createQuery(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel model) {
         class QueryHolder {
             LDAPQuery query;
@@ -317,7 +417,121 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
         return queryHolder.query;
     }
 
-    protected UserFederationSyncResult importLdapUsers(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers) {
+    /**
+     * Splits users into a batch per sync thread. Each batch is imported in single transaction.
+     *
+     * Groups and roles of the mappers are created by {@link #syncMappers} before any user is imported, so parallel batches
+     * just assign existing groups and roles. Group or role added to LDAP after the mappers sync can still be created by more
+     * batches at once. Duplicate role fails the batch on unique constraint and the batch is then imported user by user,
+     * but duplicate group is not detected, so the sync should run in single thread if the group mapper imports groups,
+     * which may be added to LDAP during sync.
+     */
+    protected UserFederationSyncResult importLdapUsers(final KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers,
+                                                       ExecutorService executor, int syncThreads) {
+        final UserFederationSyncResult syncResult = new UserFederationSyncResult();
+        if (ldapUsers.isEmpty()) {
+            return syncResult;
+        }
+
+        syncThreads = Math.max(1, syncThreads);
+        int batchSize = (ldapUsers.size() + syncThreads - 1) / syncThreads;
+        List<Future<UserFederationSyncResult>> futures = new LinkedList<>();
+
+        // Sync threads share membership cache of this sync
+        final LDAPMembershipCache membershipCache = LDAPMembershipCache.getCurrent();
+
+        for (int i = 0; i < ldapUsers.size(); i += batchSize) {
+            final List<LDAPObject> batch = ldapUsers.subList(i, Math.min(i + batchSize, ldapUsers.size()));
+
+            if (executor == null) {
+                syncResult.add(importLdapUsersBatch(sessionFactory, realmId, fedModel, batch));
+            } else {
+                futures.add(executor.submit(new Callable<UserFederationSyncResult>() {
+
+                    @Override
+                    public UserFederationSyncResult call() {
+                        LDAPMembershipCache.setCurrent(membershipCache);
+                        try {
+                            return importLdapUsersBatch(sessionFactory, realmId, fedModel, batch);
+                        } finally {
+                            LDAPMembershipCache.setCurrent(null);
+                        }
+                    }
+
+                }));
+            }
+        }
+
+        for (Future<UserFederationSyncResult> future : futures) {
+            try {
+                syncResult.add(future.get());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new ModelException("Interrupted during sync of LDAP users", ie);
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ee.getCause();
+                }
+                throw new ModelException("Failed during sync of LDAP users", ee.getCause());
+            }
+        }
+
+        return syncResult;
+    }
+
+    // Imports all users in single transaction. If it fails, falls back to transaction per user, so just broken users fail
+    protected UserFederationSyncResult importLdapUsersBatch(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel fedModel, final List<LDAPObject> ldapUsers) {
+        final UserFederationSyncResult batchResult = new UserFederationSyncResult();
+
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+
+                @Override
+                public void run(KeycloakSession session) {
+                    importLdapUsersInTransaction(session, realmId, fedModel, ldapUsers, batchResult);
+                }
+
+            });
+            return batchResult;
+        } catch (ModelException me) {
+            if (ldapUsers.size() == 1) {
+                logger.error("Failed during import user from LDAP", me);
+            } else {
+                logger.debugf(me, "Failed to import batch of %d LDAP users. Importing users one by one", ldapUsers.size());
+            }
+        }
+
+        return importLdapUsersOneByOne(sessionFactory, realmId, fedModel, ldapUsers);
+    }
+
+    protected void importLdapUsersInTransaction(KeycloakSession session, String realmId, UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers, UserFederationSyncResult batchResult) {
+        LDAPFederationProvider ldapFedProvider = getInstance(session, fedModel);
+        RealmModel currentRealm = session.realms().getRealm(realmId);
+        LDAPConfig ldapConfig = ldapFedProvider.getLdapIdentityStore().getConfig();
+
+        List<String> usernames = new ArrayList<>(ldapUsers.size());
+        for (LDAPObject ldapUser : ldapUsers) {
+            usernames.add(LDAPUtils.getUsername(ldapUser, ldapConfig));
+            LDAPUtils.checkUuid(ldapUser, ldapConfig);
+        }
+
+        // Load existing users of whole batch at once
+        Map<String, UserModel> existingUsers = new HashMap<>();
+        for (UserModel user : UserBulkQueries.getUsersByUsernames(session.userStorage(), usernames, currentRealm)) {
+            existingUsers.put(user.getUsername().toLowerCase(), user);
+        }
+
+        for (int i = 0; i < ldapUsers.size(); i++) {
+            String username = usernames.get(i);
+            UserModel currentUser = existingUsers.get(username.toLowerCase());
+            UserModel imported = importLdapUser(session, ldapFedProvider, currentRealm, fedModel, ldapUsers.get(i), username, currentUser, batchResult);
+            if (imported != null) {
+                existingUsers.put(username.toLowerCase(), imported);
+            }
+        }
+    }
+
+    protected UserFederationSyncResult importLdapUsersOneByOne(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers) {
         final UserFederationSyncResult syncResult = new UserFederationSyncResult();
 
         class BooleanHolder {
@@ -327,7 +541,10 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
 
         for (final LDAPObject ldapUser : ldapUsers) {
 
+            // Count the user just once the transaction is committed
+            final UserFederationSyncResult userResult = new UserFederationSyncResult();
             try {
+                exists.value = true;
 
                 // Process each user in it's own transaction to avoid global fail
                 KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
@@ -338,37 +555,15 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
                         RealmModel currentRealm = session.realms().getRealm(realmId);
 
                         String username = LDAPUtils.getUsername(ldapUser, ldapFedProvider.getLdapIdentityStore().getConfig());
-                        exists.value = true;
                         LDAPUtils.checkUuid(ldapUser, ldapFedProvider.getLdapIdentityStore().getConfig());
                         UserModel currentUser = session.userStorage().getUserByUsername(username, currentRealm);
+                        exists.value = currentUser != null;
 
-                        if (currentUser == null) {
-
-                            // Add new user to Keycloak
-                            exists.value = false;
-                            ldapFedProvider.importUserFromLDAP(session, currentRealm, ldapUser);
-                            syncResult.increaseAdded();
-
-                        } else {
-                            if ((fedModel.getId().equals(currentUser.getFederationLink())) && (ldapUser.getUuid().equals(currentUser.getFirstAttribute(LDAPConstants.LDAP_ID)))) {
-
-                                // Update keycloak user
-                                Set<UserFederationMapperModel> federationMappers = currentRealm.getUserFederationMappersByFederationProvider(fedModel.getId());
-                                for (UserFederationMapperModel mapperModel : federationMappers) {
-                                    LDAPFederationMapper ldapMapper = ldapFedProvider.getMapper(mapperModel);
-                                    ldapMapper.onImportUserFromLDAP(mapperModel, ldapFedProvider, ldapUser, currentUser, currentRealm, false);
-                                }
-
-                                logger.debugf("Updated user from LDAP: %s", currentUser.getUsername());
-                                syncResult.increaseUpdated();
-                            } else {
-                                logger.warnf("User '%s' is not updated during sync as he already exists in Keycloak database but is not linked to federation provider '%s'", username, fedModel.getDisplayName());
-                                syncResult.increaseFailed();
-                            }
-                        }
+                        importLdapUser(session, ldapFedProvider, currentRealm, fedModel, ldapUser, username, currentUser, userResult);
                     }
 
                 });
+                syncResult.add(userResult);
             } catch (ModelException me) {
                 logger.error("Failed during import user from LDAP", me);
                 syncResult.increaseFailed();
@@ -403,13 +598,47 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
         return syncResult;
     }
 
+    /**
+     * Imports new user or updates existing user linked to this provider.
+     *
+     * @return newly imported user or null if user already existed
+     */
+    protected UserModel importLdapUser(KeycloakSession session, LDAPFederationProvider ldapFedProvider, RealmModel currentRealm, UserFederationProviderModel fedModel,
+                                       LDAPObject ldapUser, String username, UserModel currentUser, UserFederationSyncResult syncResult) {
+        if (currentUser == null) {
+
+            // Add new user to Keycloak
+            UserModel imported = ldapFedProvider.importUserFromLDAP(session, currentRealm, ldapUser);
+            syncResult.increaseAdded();
+            return imported;
+
+        } else {
+            if ((fedModel.getId().equals(currentUser.getFederationLink())) && (ldapUser.getUuid().equals(currentUser.getFirstAttribute(LDAPConstants.LDAP_ID)))) {
+
+                // Update keycloak user
+                Set<UserFederationMapperModel> federationMappers = currentRealm.getUserFederationMappersByFederationProvider(fedModel.getId());
+                for (UserFederationMapperModel mapperModel : federationMappers) {
+                    LDAPFederationMapper ldapMapper = ldapFedProvider.getMapper(mapperModel);
+                    ldapMapper.onImportUserFromLDAP(mapperModel, ldapFedProvider, ldapUser, currentUser, currentRealm, false);
+                }
+
+                logger.debugf("Updated user from LDAP: %s", currentUser.getUsername());
+                syncResult.increaseUpdated();
+            } else {
+                logger.warnf("User '%s' is not updated during sync as he already exists in Keycloak database but is not linked to federation provider '%s'", username, fedModel.getDisplayName());
+                syncResult.increaseFailed();
+            }
+            return null;
+        }
+    }
+
     protected SPNEGOAuthenticator createSPNEGOAuthenticator(String spnegoToken, CommonKerberosConfig kerberosConfig) {
         KerberosServerSubjectAuthenticator kerberosAuth = createKerberosSubjectAuthenticator(kerberosConfig);
         return new SPNEGOAuthenticator(kerberosConfig, kerberosAuth, spnegoToken);
     }
 
     protected KerberosServerSubjectAuthenticator createKerberosSubjectAuthenticator(CommonKerberosConfig kerberosConfig) {
-        return new KerberosServerSubjectAuthenticator(kerberosConfig);
+        return serverSubjectRegistry.getServerSubjectAuthenticator(kerberosConfig);
     }
 
     protected KerberosUsernamePasswordAuthenticator createKerberosUsernamePasswordAuthenticator(CommonKerberosConfig kerberosConfig) {
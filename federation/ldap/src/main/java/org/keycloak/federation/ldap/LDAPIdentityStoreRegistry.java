@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.logging.Logger;
+import org.keycloak.federation.ldap.idm.store.ldap.LDAPBindConnectionPool;
 import org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore;
 import org.keycloak.models.LDAPConstants;
 import org.keycloak.models.UserFederationProviderModel;
@@ -44,12 +45,34 @@ public class LDAPIdentityStoreRegistry {
             logLDAPConfig(model.getDisplayName(), config);
 
             LDAPIdentityStore store = createLdapIdentityStore(config);
-            context = new LDAPIdentityStoreContext(config, store);
-            ldapStores.put(model.getId(), context);
+            LDAPIdentityStoreContext previous = ldapStores.put(model.getId(), new LDAPIdentityStoreContext(config, store));
+            if (previous != null) {
+                previous.store.close();
+            }
+            return store;
         }
         return context.store;
     }
 
+    /**
+     * Closes idle connections used for verifying passwords, so connections of providers without any logins are closed too
+     */
+    public void evictIdleBindConnections() {
+        for (LDAPIdentityStoreContext context : ldapStores.values()) {
+            LDAPBindConnectionPool bindConnectionPool = context.store.getBindConnectionPool();
+            if (bindConnectionPool != null) {
+                bindConnectionPool.evictIdle();
+            }
+        }
+    }
+
+    public void close() {
+        for (LDAPIdentityStoreContext context : ldapStores.values()) {
+            context.store.close();
+        }
+        ldapStores.clear();
+    }
+
     // Don't log LDAP password
     private void logLDAPConfig(String fedProviderDisplayName, Map<String, String> ldapConfig) {
         Map<String, String> copy = new HashMap<String, String>(ldapConfig);
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.keycloak.federation.ldap.idm.model.LDAPDn;
+import org.keycloak.federation.ldap.idm.model.LDAPObject;
+import org.keycloak.federation.ldap.mappers.membership.CommonLDAPGroupMapper;
+import org.keycloak.federation.ldap.mappers.membership.MembershipType;
+
+/**
+ * Cache of LDAP group memberships used during sync of users. Instead of sending LDAP query for groups of every imported user,
+ * all LDAP groups of the mapper are loaded just once and indexed by their members. Keycloak groups resolved for LDAP groups
+ * are cached as well.
+ * <p>
+ * Every sync has its own cache, which is bound to the threads importing users of the sync. Other requests never see it.
+ * Cache is cleared whenever something is written to LDAP through the provider.
+ *
+ * @see org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore#startMembershipCache()
+ */
+public class LDAPMembershipCache {
+
+    private static final Logger logger = Logger.getLogger(LDAPMembershipCache.class);
+
+    private static final ThreadLocal<LDAPMembershipCache> current = new ThreadLocal<>();
+
+    // Incremented on every clear, so that index loaded concurrently with the clear is not cached
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Key is ID of the mapper
+    private final ConcurrentHashMap<String, Map<String, List<LDAPObject>>> membershipIndexes = new ConcurrentHashMap<>();
+
+    // Key is ID of the mapper, value is map of lower-cased LDAP group DN to ID of Keycloak group
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> kcGroupIds = new ConcurrentHashMap<>();
+
+    /**
+     * @return cache of the sync running in current thread or null if current thread doesn't run sync
+     */
+    public static LDAPMembershipCache getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Binds cache to current thread. Threads importing users of the sync need to be bound to the cache of the sync. Null unbinds the cache
+     */
+    public static void setCurrent(LDAPMembershipCache membershipCache) {
+        if (membershipCache == null) {
+            current.remove();
+        } else {
+            current.set(membershipCache);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        membershipIndexes.clear();
+        kcGroupIds.clear();
+    }
+
+    /**
+     * @param memberValue value of membership attribute referencing the member. Either DN or uid of member according to membership type of the mapper
+     * @return LDAP groups where memberValue is member. All groups of the mapper are loaded from LDAP during first call for the mapper
+     */
+    public List<LDAPObject> getGroupsOfMember(CommonLDAPGroupMapper groupMapper, String memberValue) {
+        Map<String, List<LDAPObject>> index = getMembershipIndex(groupMapper);
+        List<LDAPObject> groups = index.get(normalizeMemberValue(groupMapper.getConfig().getMembershipTypeLdapAttribute(), memberValue));
+        return groups != null ? new ArrayList<>(groups) : Collections.<LDAPObject>emptyList();
+    }
+
+    /**
+     * @return ID of Keycloak group resolved for the LDAP group or null if not cached
+     */
+    public String getKcGroupId(String mapperId, LDAPDn ldapGroupDn) {
+        Map<String, String> groupIds = kcGroupIds.get(mapperId);
+        return groupIds != null ? groupIds.get(ldapGroupDn.toString().toLowerCase()) : null;
+    }
+
+    public void putKcGroupId(String mapperId, LDAPDn ldapGroupDn, String kcGroupId) {
+        ConcurrentHashMap<String, String> groupIds = kcGroupIds.get(mapperId);
+        if (groupIds == null) {
+            ConcurrentHashMap<String, String> newGroupIds = new ConcurrentHashMap<>();
+            groupIds = kcGroupIds.putIfAbsent(mapperId, newGroupIds);
+            if (groupIds == null) {
+                groupIds = newGroupIds;
+            }
+        }
+        groupIds.put(ldapGroupDn.toString().toLowerCase(), kcGroupId);
+    }
+
+    public void removeKcGroupId(String mapperId, LDAPDn ldapGroupDn) {
+        Map<String, String> groupIds = kcGroupIds.get(mapperId);
+        if (groupIds != null) {
+            groupIds.remove(ldapGroupDn.toString().toLowerCase());
+        }
+    }
+
+    private Map<String, List<LDAPObject>> getMembershipIndex(CommonLDAPGroupMapper groupMapper) {
+        String mapperId = groupMapper.getMapperModel().getId();
+        Map<String, List<LDAPObject>> index = membershipIndexes.get(mapperId);
+        if (index != null) {
+            return index;
+        }
+
+        // Sync threads would load same groups, so just first one loads them and others wait
+        synchronized (this) {
+            index = membershipIndexes.get(mapperId);
+            if (index == null) {
+                int currentGeneration = generation.get();
+                index = createMembershipIndex(groupMapper);
+                if (currentGeneration == generation.get()) {
+                    membershipIndexes.put(mapperId, index);
+                }
+            }
+            return index;
+        }
+    }
+
+    private static Map<String, List<LDAPObject>> createMembershipIndex(CommonLDAPGroupMapper groupMapper) {
+        long start = System.currentTimeMillis();
+
+        String membershipAttr = groupMapper.getConfig().getMembershipLdapAttribute();
+        MembershipType membershipType = groupMapper.getConfig().getMembershipTypeLdapAttribute();
+        List<LDAPObject> ldapGroups = groupMapper.createLDAPGroupQuery().getResultList();
+
+        Map<String, List<LDAPObject>> index = new HashMap<>();
+        for (LDAPObject ldapGroup : ldapGroups) {
+            Set<String> members = ldapGroup.getAttributeAsSet(membershipAttr);
+            if (members == null) {
+                continue;
+            }
+
+            for (String member : members) {
+                String key = normalizeMemberValue(membershipType, member);
+                List<LDAPObject> groupsOfMember = index.get(key);
+                if (groupsOfMember == null) {
+                    groupsOfMember = new LinkedList<>();
+                    index.put(key, groupsOfMember);
+                }
+                groupsOfMember.add(ldapGroup);
+            }
+        }
+
+        logger.debugf("Loaded %d LDAP groups with %d members of mapper '%s' in %d ms", ldapGroups.size(), index.size(),
+                groupMapper.getMapperModel().getName(), System.currentTimeMillis() - start);
+        return Collections.unmodifiableMap(index);
+    }
+
+    // Members are compared case-insensitive and DNs regardless of the whitespaces around separators
+    private static String normalizeMemberValue(MembershipType membershipType, String memberValue) {
+        if (membershipType == MembershipType.DN) {
+            try {
+                return LDAPDn.fromString(memberValue).toString().toLowerCase();
+            } catch (RuntimeException e) {
+                // Not valid DN. Just compare it as it is
+            }
+        }
+        return memberValue.trim().toLowerCase();
+    }
+
+}
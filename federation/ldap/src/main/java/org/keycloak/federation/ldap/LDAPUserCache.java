@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.keycloak.federation.ldap.idm.model.LDAPDn;
+import org.keycloak.federation.ldap.idm.model.LDAPObject;
+
+/**
+ * Short-living cache of LDAP users looked up by username, so repeated validation of the same user doesn't need to query
+ * LDAP every time. Users not found in LDAP are cached as well, but with separate (usually shorter) TTL. Cache is cleared
+ * whenever something is written to LDAP through this provider and before each sync.
+ */
+public class LDAPUserCache {
+
+    static final int MAX_ENTRIES = 10000;
+
+    private final long ttl;
+    private final long negativeTtl;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttl for how long found users are cached in milliseconds. 0 disables caching of found users
+     * @param negativeTtl for how long users not found in LDAP are cached in milliseconds. 0 disables caching of not found users
+     */
+    public LDAPUserCache(long ttl, long negativeTtl) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 || negativeTtl > 0;
+    }
+
+    /**
+     * @return cached entry or null if nothing is cached for the username
+     */
+    public Entry get(String username) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        String key = username.toLowerCase();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiration < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * @param ldapUser user found in LDAP or null if user doesn't exist in LDAP
+     */
+    public void put(String username, LDAPObject ldapUser) {
+        long entryTtl = ldapUser != null ? ttl : negativeTtl;
+        if (entryTtl <= 0) {
+            return;
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            removeExpired();
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+
+        entries.put(username.toLowerCase(), new Entry(ldapUser != null ? copy(ldapUser) : null, System.currentTimeMillis() + entryTtl));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> itr = entries.values().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().expiration < now) {
+                itr.remove();
+            }
+        }
+    }
+
+    // LDAPObject is mutable, so cache and hand out separate copies
+    private static LDAPObject copy(LDAPObject ldapObject) {
+        LDAPObject copy = new LDAPObject();
+        copy.setUuid(ldapObject.getUuid());
+        copy.setDn(ldapObject.getDn() != null ? LDAPDn.fromString(ldapObject.getDn().toString()) : null);
+        copy.setRdnAttributeName(ldapObject.getRdnAttributeName());
+        copy.setObjectClasses(ldapObject.getObjectClasses());
+        for (String readOnlyAttribute : ldapObject.getReadOnlyAttributeNames()) {
+            copy.addReadOnlyAttributeName(readOnlyAttribute);
+        }
+        for (Map.Entry<String, Set<String>> attribute : ldapObject.getAttributes().entrySet()) {
+            Set<String> values = attribute.getValue() != null ? new LinkedHashSet<>(attribute.getValue()) : null;
+            copy.setAttribute(attribute.getKey(), values);
+        }
+        return copy;
+    }
+
+    public static class Entry {
+
+        private final LDAPObject ldapUser;
+        private final long expiration;
+
+        private Entry(LDAPObject ldapUser, long expiration) {
+            this.ldapUser = ldapUser;
+            this.expiration = expiration;
+        }
+
+        /**
+         * @return copy of the cached user or null if user doesn't exist in LDAP
+         */
+        public LDAPObject getLdapUser() {
+            return ldapUser != null ? copy(ldapUser) : null;
+        }
+
+    }
+
+}
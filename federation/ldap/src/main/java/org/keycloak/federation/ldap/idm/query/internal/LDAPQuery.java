@@ -151,13 +151,26 @@ public class LDAPQuery {
 
 
     public List<LDAPObject> getResultList() {
+        applyMappers();
+        return fetchResultList();
+    }
 
-        // Apply mappers now
+    /**
+     * Let mappers update the query. Mappers are looked up from KeycloakSession, so this must be called by the thread,
+     * which owns the session
+     */
+    public void applyMappers() {
         for (UserFederationMapperModel mapperModel : mappers) {
             LDAPFederationMapper fedMapper = ldapFedProvider.getMapper(mapperModel);
             fedMapper.beforeLDAPQuery(mapperModel, this);
         }
+    }
 
+    /**
+     * Executes query without applying mappers. Doesn't use KeycloakSession, so it can be called from other thread after
+     * {@link #applyMappers()} was called
+     */
+    public List<LDAPObject> fetchResultList() {
         List<LDAPObject> result = new ArrayList<LDAPObject>();
 
         try {
@@ -171,9 +184,31 @@ public class LDAPQuery {
         return result;
     }
 
+    /**
+     * Results are read from LDAP lazily as the iterator is consumed. If pagination is enabled and the limit is set, the limit is
+     * used as page size and all the pages are read. Pagination context of this query is not used.
+     *
+     * @return iterator, which must be closed by the caller
+     */
+    public LDAPQueryResultIterator getResultIterator() {
+        applyMappers();
+        return ldapFedProvider.getLdapIdentityStore().fetchQueryResultsLazily(this);
+    }
+
     public LDAPObject getFirstResult() {
-        List<LDAPObject> results = getResultList();
+        return getFirstResult(getResultList());
+    }
+
+    /**
+     * Same like {@link #getFirstResult()}, but without applying mappers
+     *
+     * @see #fetchResultList()
+     */
+    public LDAPObject fetchFirstResult() {
+        return getFirstResult(fetchResultList());
+    }
 
+    private static LDAPObject getFirstResult(List<LDAPObject> results) {
         if (results.isEmpty()) {
             return null;
         } else if (results.size() == 1) {
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap.idm.query.internal;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import org.keycloak.federation.ldap.idm.model.LDAPObject;
+
+/**
+ * Results of LDAP query read lazily from the LDAP server. Next page is requested just when all entries of the previous page
+ * were consumed. Iterator keeps the LDAP connection opened until all results are read, so it must be always closed,
+ * especially when the caller doesn't read all the results.
+ */
+public interface LDAPQueryResultIterator extends Iterator<LDAPObject>, Closeable {
+
+    @Override
+    void close();
+
+}
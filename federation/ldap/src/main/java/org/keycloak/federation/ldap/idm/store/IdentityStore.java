@@ -24,6 +24,7 @@ import javax.naming.AuthenticationException;
 import org.keycloak.federation.ldap.LDAPConfig;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryResultIterator;
 
 /**
  * IdentityStore representation providing minimal SPI
@@ -69,6 +70,14 @@ public interface IdentityStore {
 
     List<LDAPObject> fetchQueryResults(LDAPQuery LDAPQuery);
 
+    /**
+     * Same like {@link #fetchQueryResults(LDAPQuery)}, but results are read from LDAP lazily. If pagination is enabled, the limit
+     * of the query is used as size of the page and all the pages are read.
+     *
+     * @return iterator, which must be closed by the caller
+     */
+    LDAPQueryResultIterator fetchQueryResultsLazily(LDAPQuery LDAPQuery);
+
     int countQueryResults(LDAPQuery LDAPQuery);
 
 //    // Relationship query
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap.idm.store.ldap;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.StartTlsRequest;
+import javax.naming.ldap.StartTlsResponse;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.LDAPConstants;
+
+/**
+ * Pool of connections used just for verifying passwords of LDAP users. Password is verified by binding as the user on
+ * an already opened connection, so the TCP (and TLS) handshake is done only once per connection and not for every login.
+ * <p>
+ * Connections are never shared with the JNDI connection pool and credentials are removed from the environment of the
+ * connection once the bind is done, so passwords are never kept by the pool. Connection, which failed with anything
+ * else than wrong credentials, is considered broken and is closed. Connections idle for longer than the idle timeout
+ * are closed too, both when connection is borrowed and by {@link #evictIdle()} called periodically.
+ * <p>
+ * Count of password verifications running at once is limited by max active count. When it's reached, verification
+ * waits for max wait time and then fails with {@link ServiceUnavailableException}. Idle connections are not validated
+ * before they are used. Connection closed by the server is detected by the bind itself and the bind is then repeated
+ * once on a new connection.
+ */
+public class LDAPBindConnectionPool {
+
+    private static final Logger logger = Logger.getLogger(LDAPBindConnectionPool.class);
+
+    // Same factory as used for ldaps connections, so the truststore configured for Keycloak is used for StartTLS too
+    private static final String TRUSTSTORE_SOCKET_FACTORY = "org.keycloak.truststore.SSLSocketFactory";
+
+    private final Map<String, Object> connectionProperties;
+    private final int maxIdle;
+    private final long idleTimeout;
+    private final long maxWait;
+    private final boolean startTls;
+
+    // Null if count of active connections is unlimited
+    private final Semaphore activePermits;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong bindCount = new AtomicLong();
+    private final AtomicLong bindTime = new AtomicLong();
+
+    /**
+     * @param connectionProperties JNDI environment used for creating connections. Security properties are ignored
+     * @param maxIdle max count of idle connections kept in the pool. With 0 every connection is closed after the bind
+     * @param idleTimeout time in milliseconds after which idle connection is closed
+     * @param maxActive max count of password verifications running at once. With 0 or less the count is unlimited
+     * @param maxWait time in milliseconds for which verification waits for a connection when max active count is reached
+     * @param startTls if StartTLS should be negotiated on every created connection before the first bind
+     */
+    public LDAPBindConnectionPool(Map<String, Object> connectionProperties, int maxIdle, long idleTimeout, int maxActive, long maxWait, boolean startTls) {
+        this.connectionProperties = connectionProperties;
+        this.maxIdle = maxIdle;
+        this.idleTimeout = idleTimeout;
+        this.maxWait = Math.max(0, maxWait);
+        this.startTls = startTls;
+        this.activePermits = maxActive > 0 ? new Semaphore(maxActive, true) : null;
+    }
+
+    /**
+     * Binds as given DN on pooled connection
+     *
+     * @throws AuthenticationException if credentials are not valid
+     * @throws ServiceUnavailableException if max active count was reached and no connection was released within max wait time
+     * @throws NamingException if it wasn't possible to connect to LDAP server
+     */
+    public void authenticate(String dn, String password) throws NamingException {
+        long start = System.nanoTime();
+
+        acquirePermit();
+        active.incrementAndGet();
+        try {
+            authenticateImpl(dn, password);
+        } finally {
+            active.decrementAndGet();
+            if (activePermits != null) {
+                activePermits.release();
+            }
+
+            bindCount.incrementAndGet();
+            bindTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void acquirePermit() throws NamingException {
+        if (activePermits == null) {
+            return;
+        }
+
+        try {
+            if (!activePermits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new ServiceUnavailableException("Timeout after " + maxWait + " ms waiting for LDAP bind connection");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for LDAP bind connection");
+        }
+    }
+
+    private void authenticateImpl(String dn, String password) throws NamingException {
+        PooledConnection connection = borrow();
+        boolean pooled = connection != null;
+        try {
+            if (connection == null) {
+                connection = create();
+            }
+
+            try {
+                connection.bind(dn, password);
+            } catch (CommunicationException | ServiceUnavailableException e) {
+                if (!pooled) {
+                    throw e;
+                }
+
+                // Pooled connection was closed by the server or by network. Try once again with fresh connection
+                logger.debugf(e, "Pooled LDAP connection is broken. Creating new connection");
+                discard(connection);
+                connection = null;
+                connection = create();
+                connection.bind(dn, password);
+            }
+
+            release(connection);
+            connection = null;
+        } finally {
+            if (connection != null) {
+                discard(connection);
+            }
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than idle timeout
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        Deque<PooledConnection> toClose = new ArrayDeque<>();
+
+        synchronized (idle) {
+            Iterator<PooledConnection> itr = idle.descendingIterator();
+            while (itr.hasNext()) {
+                PooledConnection connection = itr.next();
+                if (now - connection.lastUsed >= idleTimeout) {
+                    itr.remove();
+                    toClose.add(connection);
+                } else {
+                    // Remaining connections were used more recently
+                    break;
+                }
+            }
+        }
+
+        for (PooledConnection connection : toClose) {
+            evicted.incrementAndGet();
+            connection.close();
+        }
+
+        if (!toClose.isEmpty() && logger.isDebugEnabled()) {
+            logger.debugf("Evicted %d idle LDAP bind connections. %s", toClose.size(), this);
+        }
+    }
+
+    public void close() {
+        Deque<PooledConnection> toClose;
+        synchronized (idle) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+
+        for (PooledConnection connection : toClose) {
+            connection.close();
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return count of password verifications running right now
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return count of password verifications, which failed because no connection was released within max wait time
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getReusedCount() {
+        return reused.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * @return average time of password verification in milliseconds
+     */
+    public double getAverageBindTime() {
+        long count = bindCount.get();
+        return count == 0 ? 0 : bindTime.get() / 1000000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LDAP bind connection pool [ active: %d, idle: %d, created: %d, reused: %d, evicted: %d, discarded: %d, timeouts: %d, average bind time: %.2f ms ]",
+                getActiveCount(), getIdleCount(), getCreatedCount(), getReusedCount(), getEvictedCount(), getDiscardedCount(), getTimeoutCount(), getAverageBindTime());
+    }
+
+    private PooledConnection borrow() {
+        evictIdle();
+
+        synchronized (idle) {
+            PooledConnection connection = idle.pollFirst();
+            if (connection != null) {
+                reused.incrementAndGet();
+            }
+            return connection;
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        connection.lastUsed = System.currentTimeMillis();
+
+        synchronized (idle) {
+            if (!closed && idle.size() < maxIdle) {
+                idle.addFirst(connection);
+                return;
+            }
+        }
+
+        connection.close();
+    }
+
+    private void discard(PooledConnection connection) {
+        discarded.incrementAndGet();
+        connection.close();
+    }
+
+    private PooledConnection create() throws NamingException {
+        Hashtable<String, Object> env = new Hashtable<String, Object>(connectionProperties);
+
+        // Bind is done later on the opened connection
+        env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.AUTH_TYPE_NONE);
+        env.remove(Context.SECURITY_PRINCIPAL);
+        env.remove(Context.SECURITY_CREDENTIALS);
+
+        // Connections must never be shared with JNDI pool as they are bound as various users
+        env.put("com.sun.jndi.ldap.connect.pool", "false");
+
+        LdapContext ctx = new InitialLdapContext(env, null);
+        StartTlsResponse tls = null;
+        if (startTls) {
+            try {
+                tls = (StartTlsResponse) ctx.extendedOperation(new StartTlsRequest());
+                SSLSocketFactory socketFactory = getSocketFactory();
+                if (socketFactory != null) {
+                    tls.negotiate(socketFactory);
+                } else {
+                    tls.negotiate();
+                }
+            } catch (IOException | NamingException e) {
+                closeQuietly(ctx);
+
+                NamingException ne = new NamingException("Could not negotiate StartTLS");
+                ne.setRootCause(e);
+                throw ne;
+            }
+        }
+
+        created.incrementAndGet();
+        return new PooledConnection(ctx, tls);
+    }
+
+    private static SSLSocketFactory getSocketFactory() {
+        try {
+            Class<?> clazz = Class.forName(TRUSTSTORE_SOCKET_FACTORY, true, LDAPBindConnectionPool.class.getClassLoader());
+            return (SSLSocketFactory) clazz.getMethod("getDefault").invoke(null);
+        } catch (Exception e) {
+            logger.debugf("Truststore socket factory not available, using default SSLSocketFactory for StartTLS");
+            return null;
+        }
+    }
+
+    private static void closeQuietly(LdapContext ctx) {
+        try {
+            ctx.close();
+        } catch (NamingException ignore) {
+        }
+    }
+
+    private static class PooledConnection {
+
+        private final LdapContext ctx;
+        private final StartTlsResponse tls;
+        private volatile long lastUsed;
+
+        private PooledConnection(LdapContext ctx, StartTlsResponse tls) {
+            this.ctx = ctx;
+            this.tls = tls;
+        }
+
+        private void bind(String dn, String password) throws NamingException {
+            ctx.addToEnvironment(Context.SECURITY_AUTHENTICATION, LDAPConstants.AUTH_TYPE_SIMPLE);
+            ctx.addToEnvironment(Context.SECURITY_PRINCIPAL, dn);
+            ctx.addToEnvironment(Context.SECURITY_CREDENTIALS, password);
+            try {
+                // Sends bind request on the existing connection
+                ctx.reconnect(null);
+            } finally {
+                ctx.removeFromEnvironment(Context.SECURITY_CREDENTIALS);
+                ctx.removeFromEnvironment(Context.SECURITY_PRINCIPAL);
+            }
+        }
+
+        private void close() {
+            if (tls != null) {
+                try {
+                    tls.close();
+                } catch (IOException ignore) {
+                }
+            }
+            closeQuietly(ctx);
+        }
+
+    }
+
+}
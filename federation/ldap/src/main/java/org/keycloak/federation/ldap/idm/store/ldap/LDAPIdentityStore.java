@@ -21,12 +21,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.naming.AuthenticationException;
 import javax.naming.NamingEnumeration;
@@ -42,10 +44,13 @@ import javax.naming.directory.SearchResult;
 
 import org.jboss.logging.Logger;
 import org.keycloak.federation.ldap.LDAPConfig;
+import org.keycloak.federation.ldap.LDAPMembershipCache;
+import org.keycloak.federation.ldap.LDAPUserCache;
 import org.keycloak.federation.ldap.idm.model.LDAPDn;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
 import org.keycloak.federation.ldap.idm.query.Condition;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryResultIterator;
 import org.keycloak.federation.ldap.idm.query.internal.EqualCondition;
 import org.keycloak.federation.ldap.idm.store.IdentityStore;
 import org.keycloak.models.LDAPConstants;
@@ -64,9 +69,14 @@ public class LDAPIdentityStore implements IdentityStore {
 
     private final LDAPConfig config;
     private final LDAPOperationManager operationManager;
+    private final LDAPUserCache userCache;
+
+    // Membership caches of running syncs
+    private final Set<LDAPMembershipCache> membershipCaches = Collections.newSetFromMap(new ConcurrentHashMap<LDAPMembershipCache, Boolean>());
 
     public LDAPIdentityStore(LDAPConfig config) {
         this.config = config;
+        this.userCache = new LDAPUserCache(config.getValidationCacheTtl(), config.getValidationCacheNegativeTtl());
 
         try {
             this.operationManager = new LDAPOperationManager(config);
@@ -80,6 +90,47 @@ public class LDAPIdentityStore implements IdentityStore {
         return this.config;
     }
 
+    public LDAPUserCache getUserCache() {
+        return this.userCache;
+    }
+
+    /**
+     * Creates membership cache for the sync running in current thread and binds it to the thread. Cache is cleared
+     * whenever something is written to LDAP through this store until {@link #stopMembershipCache(LDAPMembershipCache)} is called
+     */
+    public LDAPMembershipCache startMembershipCache() {
+        LDAPMembershipCache membershipCache = new LDAPMembershipCache();
+        membershipCaches.add(membershipCache);
+        LDAPMembershipCache.setCurrent(membershipCache);
+        return membershipCache;
+    }
+
+    public void stopMembershipCache(LDAPMembershipCache membershipCache) {
+        LDAPMembershipCache.setCurrent(null);
+        membershipCaches.remove(membershipCache);
+        membershipCache.clear();
+    }
+
+    private void clearMembershipCaches() {
+        for (LDAPMembershipCache membershipCache : membershipCaches) {
+            membershipCache.clear();
+        }
+    }
+
+    /**
+     * @return pool of connections used for verifying passwords or null if the pool is disabled
+     */
+    public LDAPBindConnectionPool getBindConnectionPool() {
+        return this.operationManager.getBindConnectionPool();
+    }
+
+    /**
+     * Releases connections kept by this store. Called when the store is replaced because of changed configuration
+     */
+    public void close() {
+        this.operationManager.close();
+    }
+
     @Override
     public void add(LDAPObject ldapObject) {
         // id will be assigned by the ldap server
@@ -87,6 +138,9 @@ public class LDAPIdentityStore implements IdentityStore {
             throw new ModelException("Can't add object with already assigned uuid");
         }
 
+        userCache.clear();
+        clearMembershipCaches();
+
         String entryDN = ldapObject.getDn().toString();
         BasicAttributes ldapAttributes = extractAttributes(ldapObject, true);
         this.operationManager.createSubContext(entryDN, ldapAttributes);
@@ -99,6 +153,9 @@ public class LDAPIdentityStore implements IdentityStore {
 
     @Override
     public void update(LDAPObject ldapObject) {
+        userCache.clear();
+        clearMembershipCaches();
+
         BasicAttributes updatedAttributes = extractAttributes(ldapObject, false);
         NamingEnumeration<Attribute> attributes = updatedAttributes.getAll();
 
@@ -112,6 +169,9 @@ public class LDAPIdentityStore implements IdentityStore {
 
     @Override
     public void remove(LDAPObject ldapObject) {
+        userCache.clear();
+        clearMembershipCaches();
+
         this.operationManager.removeEntry(ldapObject.getDn().toString());
 
         if (logger.isDebugEnabled()) {
@@ -131,23 +191,17 @@ public class LDAPIdentityStore implements IdentityStore {
         try {
             String baseDN = identityQuery.getSearchDn();
 
-            for (Condition condition : identityQuery.getConditions()) {
+            // Check if we are searching by ID
+            EqualCondition idCondition = getIdCondition(identityQuery);
+            if (idCondition != null) {
+                SearchResult search = this.operationManager
+                        .lookupById(baseDN, idCondition.getValue().toString(), identityQuery.getReturningLdapAttributes());
 
-                // Check if we are searching by ID
-                String uuidAttrName = getConfig().getUuidLDAPAttributeName();
-                if (condition instanceof EqualCondition) {
-                    EqualCondition equalCondition = (EqualCondition) condition;
-                    if (equalCondition.getParameterName().equalsIgnoreCase(uuidAttrName)) {
-                        SearchResult search = this.operationManager
-                                .lookupById(baseDN, equalCondition.getValue().toString(), identityQuery.getReturningLdapAttributes());
-
-                        if (search != null) {
-                            results.add(populateAttributedType(search, identityQuery));
-                        }
-
-                        return results;
-                    }
+                if (search != null) {
+                    results.add(populateAttributedType(search, identityQuery));
                 }
+
+                return results;
             }
 
 
@@ -172,6 +226,108 @@ public class LDAPIdentityStore implements IdentityStore {
         return results;
     }
 
+    @Override
+    public LDAPQueryResultIterator fetchQueryResultsLazily(final LDAPQuery identityQuery) {
+        if (identityQuery.getSorting() != null && !identityQuery.getSorting().isEmpty()) {
+            throw new ModelException("LDAP Identity Store does not yet support sorted queries.");
+        }
+
+        final String baseDN = identityQuery.getSearchDn();
+
+        // Lookup by ID returns at most one object, so there is nothing to read lazily
+        if (getIdCondition(identityQuery) != null) {
+            return new ListResultIterator(fetchQueryResults(identityQuery));
+        }
+
+        final LDAPOperationManager.SearchResultIterator search;
+        try {
+            StringBuilder filter = createIdentityTypeSearchFilter(identityQuery);
+            int pageSize = getConfig().isPagination() && identityQuery.getLimit() > 0 ? identityQuery.getLimit() : 0;
+            search = this.operationManager.searchLazily(baseDN, filter.toString(), identityQuery.getReturningLdapAttributes(), identityQuery.getSearchScope(), pageSize);
+        } catch (Exception e) {
+            throw new ModelException("Querying of LDAP failed " + identityQuery, e);
+        }
+
+        return new LDAPQueryResultIterator() {
+
+            private LDAPObject next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && search.hasNext()) {
+                    SearchResult result = search.next();
+                    if (!result.getNameInNamespace().equalsIgnoreCase(baseDN)) {
+                        next = populateAttributedType(result, identityQuery);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public LDAPObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                LDAPObject result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                search.close();
+            }
+
+        };
+    }
+
+    private EqualCondition getIdCondition(LDAPQuery identityQuery) {
+        String uuidAttrName = getConfig().getUuidLDAPAttributeName();
+        for (Condition condition : identityQuery.getConditions()) {
+            if (condition instanceof EqualCondition) {
+                EqualCondition equalCondition = (EqualCondition) condition;
+                if (equalCondition.getParameterName().equalsIgnoreCase(uuidAttrName)) {
+                    return equalCondition;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class ListResultIterator implements LDAPQueryResultIterator {
+
+        private final Iterator<LDAPObject> delegate;
+
+        private ListResultIterator(List<LDAPObject> results) {
+            this.delegate = results.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public LDAPObject next() {
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     @Override
     public int countQueryResults(LDAPQuery identityQuery) {
         int limit = identityQuery.getLimit();
@@ -323,6 +479,16 @@ public class LDAPIdentityStore implements IdentityStore {
                         attrValues.add(attrVal);
                     }
 
+                    // Just part of the values was returned. Read the rest with ranged retrieval
+                    int rangeIndex = ldapAttributeName.toLowerCase().indexOf(LDAPConstants.RANGE_OPTION);
+                    if (rangeIndex != -1) {
+                        String rangeEnd = LDAPOperationManager.getRangeEnd(ldapAttributeName);
+                        ldapAttributeName = ldapAttributeName.substring(0, rangeIndex);
+                        if (rangeEnd != null) {
+                            this.operationManager.readRemainingAttributeValues(entryDN, ldapAttributeName, Integer.parseInt(rangeEnd) + 1, attrValues);
+                        }
+                    }
+
                     if (ldapAttributeName.equalsIgnoreCase(LDAPConstants.OBJECT_CLASS)) {
                         ldapObject.setObjectClasses(attrValues);
                     } else {
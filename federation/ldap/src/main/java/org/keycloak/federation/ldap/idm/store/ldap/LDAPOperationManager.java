@@ -17,6 +17,7 @@
 
 package org.keycloak.federation.ldap.idm.store.ldap;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -24,8 +25,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
 
@@ -44,6 +47,7 @@ import javax.naming.directory.SearchResult;
 import javax.naming.ldap.Control;
 import javax.naming.ldap.InitialLdapContext;
 import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.LdapName;
 import javax.naming.ldap.PagedResultsControl;
 import javax.naming.ldap.PagedResultsResponseControl;
 
@@ -65,10 +69,20 @@ public class LDAPOperationManager {
 
     private final LDAPConfig config;
     private final Map<String, Object> connectionProperties;
+    private final LDAPBindConnectionPool bindConnectionPool;
 
     public LDAPOperationManager(LDAPConfig config) throws NamingException {
         this.config = config;
         this.connectionProperties = Collections.unmodifiableMap(createConnectionProperties());
+
+        // StartTLS is negotiated by the pool, so with StartTLS the pool is used even if it doesn't keep any idle connections
+        int bindPoolSize = config.getBindConnectionPoolSize();
+        if (bindPoolSize > 0 || config.isStartTls()) {
+            this.bindConnectionPool = new LDAPBindConnectionPool(this.connectionProperties, bindPoolSize, config.getBindConnectionPoolIdleTimeout(),
+                    config.getBindConnectionPoolMaxActive(), config.getBindConnectionPoolMaxWait(), config.isStartTls());
+        } else {
+            this.bindConnectionPool = null;
+        }
     }
 
     /**
@@ -228,6 +242,28 @@ public class LDAPOperationManager {
         }
     }
 
+    /**
+     * Search, which reads results lazily. If pageSize is bigger than 0, then results are requested from the LDAP server in pages
+     * of this size and next page is requested when the previous one was consumed.
+     *
+     * @return iterator, which must be closed
+     */
+    public SearchResultIterator searchLazily(String baseDN, String filter, Collection<String> returningAttributes, int searchScope, int pageSize) throws NamingException {
+        SearchControls cons = getSearchControls(returningAttributes, searchScope);
+        LdapContext context = createLdapContext();
+        try {
+            return new SearchResultIterator(context, baseDN, filter, cons, pageSize);
+        } catch (IOException ioe) {
+            closeContext(context);
+            logger.errorf(ioe, "Could not query server with paginated query using DN [%s], filter [%s]", baseDN, filter);
+            throw new NamingException(ioe.getMessage());
+        } catch (NamingException ne) {
+            closeContext(context);
+            logger.errorf(ne, "Could not query server using DN [%s] and filter [%s]", baseDN, filter);
+            throw ne;
+        }
+    }
+
     private SearchControls getSearchControls(Collection<String> returningAttributes, int searchScope) {
         final SearchControls cons = new SearchControls();
 
@@ -240,6 +276,87 @@ public class LDAPOperationManager {
         return cons;
     }
 
+    /**
+     * Active Directory returns at most 1500 values of multi-valued attribute like "member". Attribute is returned with name like
+     * "member;range=0-1499" in that case and remaining values need to be requested by ranges explicitly.
+     *
+     * @param firstIndex index of first value, which wasn't returned yet
+     * @param values set where the remaining values are added
+     */
+    public void readRemainingAttributeValues(final String dn, final String attrName, final int firstIndex, final Set<String> values) {
+        final String lowerCasedAttrName = attrName.toLowerCase();
+        final String rangedAttrPrefix = lowerCasedAttrName + LDAPConstants.RANGE_OPTION;
+
+        try {
+            execute(new LdapOperation<Void>() {
+                @Override
+                public Void execute(LdapContext context) throws NamingException {
+                    int start = firstIndex;
+                    while (true) {
+                        String[] returningAttributes = { attrName + LDAPConstants.RANGE_OPTION + start + "-*" };
+                        Attributes attributes = context.getAttributes(new LdapName(dn), returningAttributes);
+
+                        Attribute rangedAttribute = null;
+                        NamingEnumeration<? extends Attribute> all = attributes.getAll();
+                        while (all.hasMore()) {
+                            Attribute attribute = all.next();
+                            // Server may return the remaining values without range as well
+                            String attrId = attribute.getID().toLowerCase();
+                            if (attrId.startsWith(rangedAttrPrefix) || attrId.equals(lowerCasedAttrName)) {
+                                rangedAttribute = attribute;
+                            }
+                        }
+
+                        if (rangedAttribute == null) {
+                            return null;
+                        }
+
+                        NamingEnumeration<?> attrValues = rangedAttribute.getAll();
+                        while (attrValues.hasMore()) {
+                            values.add(attrValues.next().toString().trim());
+                        }
+
+                        // Last range is returned like "member;range=3000-*"
+                        String rangeEnd = getRangeEnd(rangedAttribute.getID());
+                        if (rangeEnd == null) {
+                            return null;
+                        }
+
+                        // Don't request same range again if server doesn't move forward
+                        int nextStart = Integer.parseInt(rangeEnd) + 1;
+                        if (nextStart <= start) {
+                            logger.warnf("Server returned range [%s] when values from index %d were requested. Stop reading values of [%s]", rangedAttribute.getID(), start, dn);
+                            return null;
+                        }
+                        start = nextStart;
+                    }
+                }
+            });
+        } catch (NamingException e) {
+            throw new ModelException("Could not read values of attribute [" + attrName + "] of entry [" + dn + "]", e);
+        }
+    }
+
+    /**
+     * @return end of the range from attribute name like "member;range=0-1499" or null if it was the last range or attribute name
+     * doesn't contain the range
+     */
+    public static String getRangeEnd(String rangedAttrName) {
+        int rangeIndex = rangedAttrName.toLowerCase().indexOf(LDAPConstants.RANGE_OPTION);
+        if (rangeIndex == -1) {
+            return null;
+        }
+
+        String range = rangedAttrName.substring(rangeIndex + LDAPConstants.RANGE_OPTION.length());
+        int dashIndex = range.indexOf('-');
+        if (dashIndex == -1) {
+            return null;
+        }
+
+        String rangeEnd = range.substring(dashIndex + 1);
+        return "*".equals(rangeEnd) ? null : rangeEnd;
+    }
+
     public String getFilterById(String id) {
         String filter = null;
 
@@ -349,6 +466,11 @@ public class LDAPOperationManager {
                 throw new AuthenticationException("Empty password used");
             }
 
+            if (bindConnectionPool != null) {
+                bindConnectionPool.authenticate(dn, password);
+                return;
+            }
+
             Hashtable<String, Object> env = new Hashtable<String, Object>(this.connectionProperties);
 
             env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.AUTH_TYPE_SIMPLE);
@@ -380,6 +502,19 @@ public class LDAPOperationManager {
         }
     }
 
+    /**
+     * @return pool of connections used for verifying passwords or null if neither pooling of these connections nor StartTLS is enabled
+     */
+    public LDAPBindConnectionPool getBindConnectionPool() {
+        return bindConnectionPool;
+    }
+
+    public void close() {
+        if (bindConnectionPool != null) {
+            bindConnectionPool.close();
+        }
+    }
+
     public void modifyAttributes(final String dn, final ModificationItem[] mods) {
         try {
             if (logger.isTraceEnabled()) {
@@ -515,6 +650,16 @@ public class LDAPOperationManager {
             env.put("com.sun.jndi.ldap.connect.pool", connectionPooling);
         }
 
+        // Cancelled search doesn't interrupt the thread blocked in JNDI call, so the call must finish on its own
+        long connectionTimeout = this.config.getConnectionTimeout();
+        if (connectionTimeout > 0) {
+            env.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(connectionTimeout));
+        }
+        long readTimeout = this.config.getReadTimeout();
+        if (readTimeout > 0) {
+            env.put("com.sun.jndi.ldap.read.timeout", String.valueOf(readTimeout));
+        }
+
         // Just dump the additional properties
         Properties additionalProperties = this.config.getAdditionalConnectionProperties();
         if (additionalProperties != null) {
@@ -553,6 +698,127 @@ public class LDAPOperationManager {
         }
     }
 
+    private static void closeContext(LdapContext context) {
+        try {
+            context.close();
+        } catch (NamingException ne) {
+            logger.error("Could not close Ldap context.", ne);
+        }
+    }
+
+    /**
+     * Iterates over results of single search. Holds opened LDAP context until it's closed or all results are read
+     */
+    public static class SearchResultIterator implements Iterator<SearchResult>, Closeable {
+
+        private final LdapContext context;
+        private final String baseDN;
+        private final String filter;
+        private final SearchControls cons;
+        private final int pageSize;
+
+        private NamingEnumeration<SearchResult> current;
+        private SearchResult next;
+        private boolean closed;
+
+        private SearchResultIterator(LdapContext context, String baseDN, String filter, SearchControls cons, int pageSize) throws NamingException, IOException {
+            this.context = context;
+            this.baseDN = baseDN;
+            this.filter = filter;
+            this.cons = cons;
+            this.pageSize = pageSize;
+            search(null);
+        }
+
+        private void search(byte[] cookie) throws NamingException, IOException {
+            if (pageSize > 0) {
+                context.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
+            }
+            current = context.search(baseDN, filter, cons);
+        }
+
+        // Returns cookie for the next page or null if this was the last page
+        private byte[] getNextPageCookie() throws NamingException {
+            if (pageSize <= 0) {
+                return null;
+            }
+
+            Control[] responseControls = context.getResponseControls();
+            if (responseControls != null) {
+                for (Control respControl : responseControls) {
+                    if (respControl instanceof PagedResultsResponseControl) {
+                        byte[] cookie = ((PagedResultsResponseControl) respControl).getCookie();
+                        return cookie != null && cookie.length > 0 ? cookie : null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+
+            try {
+                while (true) {
+                    if (current.hasMore()) {
+                        next = current.next();
+                        return true;
+                    }
+
+                    current.close();
+                    byte[] cookie = getNextPageCookie();
+                    if (cookie == null) {
+                        close();
+                        return false;
+                    }
+
+                    search(cookie);
+                }
+            } catch (NamingException | IOException e) {
+                close();
+                logger.errorf(e, "Could not read results from server using DN [%s] and filter [%s]", baseDN, filter);
+                throw new ModelException("Querying of LDAP failed", e);
+            }
+        }
+
+        @Override
+        public SearchResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            SearchResult result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                current.close();
+            } catch (NamingException ne) {
+                logger.debug("Could not close LDAP search results", ne);
+            }
+            closeContext(context);
+        }
+    }
+
     private interface LdapOperation<R> {
         R execute(LdapContext context) throws NamingException;
     }
@@ -18,6 +18,7 @@
 package org.keycloak.federation.ldap.mappers;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import javax.naming.AuthenticationException;
@@ -58,6 +59,13 @@ public abstract class AbstractLDAPFederationMapper {
         return new UserFederationSyncResult();
     }
 
+    /**
+     * @see LDAPFederationMapper#syncChangedDataFromFederationProviderToKeycloak(UserFederationMapperModel, LDAPFederationProvider, KeycloakSession, RealmModel, Date)
+     */
+    public UserFederationSyncResult syncChangedDataFromFederationProviderToKeycloak(Date lastSync) {
+        return syncDataFromFederationProviderToKeycloak();
+    }
+
     /**
      * @see UserFederationMapper#syncDataFromKeycloakToFederationProvider(UserFederationMapperModel, UserFederationProvider, KeycloakSession, RealmModel)
      */
@@ -99,6 +107,10 @@ public abstract class AbstractLDAPFederationMapper {
         return Boolean.parseBoolean(paramm);
     }
 
+    public UserFederationMapperModel getMapperModel() {
+        return mapperModel;
+    }
+
     public LDAPFederationProvider getLdapProvider() {
         return ldapProvider;
     }
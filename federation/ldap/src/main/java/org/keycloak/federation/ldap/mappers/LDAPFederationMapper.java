@@ -17,14 +17,18 @@
 
 package org.keycloak.federation.ldap.mappers;
 
+import java.util.Date;
+
 import javax.naming.AuthenticationException;
 
 import org.keycloak.federation.ldap.LDAPFederationProvider;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.mappers.UserFederationMapper;
 import org.keycloak.models.UserFederationMapperModel;
+import org.keycloak.models.UserFederationSyncResult;
 import org.keycloak.models.UserModel;
 
 /**
@@ -32,6 +36,20 @@ import org.keycloak.models.UserModel;
  */
 public interface LDAPFederationMapper extends UserFederationMapper {
 
+    /**
+     * Sync data changed in LDAP since last sync into Keycloak DB. Called during sync of changed users instead of
+     * {@link #syncDataFromFederationProviderToKeycloak(UserFederationMapperModel, org.keycloak.models.UserFederationProvider, KeycloakSession, RealmModel)}.
+     * Mappers, which can't detect changes, do full sync.
+     *
+     * @param mapperModel
+     * @param ldapProvider
+     * @param session
+     * @param realm
+     * @param lastSync time of the last sync of the federation provider
+     * @return
+     */
+    UserFederationSyncResult syncChangedDataFromFederationProviderToKeycloak(UserFederationMapperModel mapperModel, LDAPFederationProvider ldapProvider, KeycloakSession session, RealmModel realm, Date lastSync);
+
 
     /**
      * Called when importing user from LDAP to local keycloak DB.
@@ -17,6 +17,7 @@
 
 package org.keycloak.federation.ldap.mappers;
 
+import java.util.Date;
 import java.util.List;
 
 import javax.naming.AuthenticationException;
@@ -51,6 +52,11 @@ public class LDAPFederationMapperBridge implements LDAPFederationMapper {
         return getDelegate(mapperModel, federationProvider, realm).syncDataFromFederationProviderToKeycloak();
     }
 
+    @Override
+    public UserFederationSyncResult syncChangedDataFromFederationProviderToKeycloak(UserFederationMapperModel mapperModel, LDAPFederationProvider ldapProvider, KeycloakSession session, RealmModel realm, Date lastSync) {
+        return getDelegate(mapperModel, ldapProvider, realm).syncChangedDataFromFederationProviderToKeycloak(lastSync);
+    }
+
     @Override
     public UserFederationSyncResult syncDataFromKeycloakToFederationProvider(UserFederationMapperModel mapperModel, UserFederationProvider federationProvider, KeycloakSession session, RealmModel realm) {
         return getDelegate(mapperModel, federationProvider, realm).syncDataFromKeycloakToFederationProvider();
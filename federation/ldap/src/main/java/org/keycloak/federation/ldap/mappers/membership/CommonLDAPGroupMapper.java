@@ -17,7 +17,9 @@
 
 package org.keycloak.federation.ldap.mappers.membership;
 
+import org.keycloak.federation.ldap.LDAPFederationProvider;
 import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.models.UserFederationMapperModel;
 
 /**
  * Mapper related to mapping of LDAP groups to keycloak model objects (either keycloak roles or keycloak groups)
@@ -29,4 +31,8 @@ public interface CommonLDAPGroupMapper {
     LDAPQuery createLDAPGroupQuery();
 
     CommonLDAPGroupMapperConfig getConfig();
+
+    UserFederationMapperModel getMapperModel();
+
+    LDAPFederationProvider getLdapProvider();
 }
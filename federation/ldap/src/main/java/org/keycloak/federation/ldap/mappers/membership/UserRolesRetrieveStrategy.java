@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.keycloak.federation.ldap.LDAPMembershipCache;
 import org.keycloak.federation.ldap.LDAPUtils;
 import org.keycloak.federation.ldap.idm.model.LDAPDn;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
@@ -53,11 +54,17 @@ public interface UserRolesRetrieveStrategy {
 
         @Override
         public List<LDAPObject> getLDAPRoleMappings(CommonLDAPGroupMapper roleOrGroupMapper, LDAPObject ldapUser) {
+            String userMembership = LDAPUtils.getMemberValueOfChildObject(ldapUser, roleOrGroupMapper.getConfig().getMembershipTypeLdapAttribute());
+
+            // During sync, look into memberships of all groups loaded just once instead of querying LDAP for every user
+            LDAPMembershipCache membershipCache = LDAPMembershipCache.getCurrent();
+            if (membershipCache != null && isMembershipCacheSupported()) {
+                return membershipCache.getGroupsOfMember(roleOrGroupMapper, userMembership);
+            }
+
             LDAPQuery ldapQuery = roleOrGroupMapper.createLDAPGroupQuery();
             String membershipAttr = roleOrGroupMapper.getConfig().getMembershipLdapAttribute();
 
-            String userMembership = LDAPUtils.getMemberValueOfChildObject(ldapUser, roleOrGroupMapper.getConfig().getMembershipTypeLdapAttribute());
-
             Condition membershipCondition = getMembershipCondition(membershipAttr, userMembership);
             ldapQuery.addWhereCondition(membershipCondition);
             return ldapQuery.getResultList();
@@ -71,6 +78,10 @@ public interface UserRolesRetrieveStrategy {
             return new LDAPQueryConditionsBuilder().equal(membershipAttr, userMembership);
         }
 
+        protected boolean isMembershipCacheSupported() {
+            return true;
+        }
+
     };
 
     /**
@@ -123,6 +134,12 @@ public interface UserRolesRetrieveStrategy {
             return new LDAPQueryConditionsBuilder().equal(membershipAttr + LDAPConstants.LDAP_MATCHING_RULE_IN_CHAIN, userMembership);
         }
 
+        // Cache contains just direct members of the groups
+        @Override
+        protected boolean isMembershipCacheSupported() {
+            return false;
+        }
+
     };
 
 }
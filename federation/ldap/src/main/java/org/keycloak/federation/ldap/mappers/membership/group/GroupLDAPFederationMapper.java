@@ -19,6 +19,7 @@ package org.keycloak.federation.ldap.mappers.membership.group;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -28,6 +29,7 @@ import java.util.Set;
 
 import org.jboss.logging.Logger;
 import org.keycloak.federation.ldap.LDAPFederationProvider;
+import org.keycloak.federation.ldap.LDAPMembershipCache;
 import org.keycloak.federation.ldap.LDAPUtils;
 import org.keycloak.federation.ldap.idm.model.LDAPDn;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
@@ -41,6 +43,7 @@ import org.keycloak.federation.ldap.mappers.membership.LDAPGroupMapperMode;
 import org.keycloak.federation.ldap.mappers.membership.MembershipType;
 import org.keycloak.federation.ldap.mappers.membership.UserRolesRetrieveStrategy;
 import org.keycloak.models.GroupModel;
+import org.keycloak.models.LDAPConstants;
 import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserFederationMapperModel;
@@ -137,14 +140,7 @@ public class GroupLDAPFederationMapper extends AbstractLDAPFederationMapper impl
     // Sync from Ldap to KC
 
     public UserFederationSyncResult syncDataFromFederationProviderToKeycloak() {
-        UserFederationSyncResult syncResult = new UserFederationSyncResult() {
-
-            @Override
-            public String getStatus() {
-                return String.format("%d imported groups, %d updated groups, %d removed groups", getAdded(), getUpdated(), getRemoved());
-            }
-
-        };
+        UserFederationSyncResult syncResult = createFederationProviderToKeycloakSyncResult();
 
         logger.debugf("Syncing groups from LDAP into Keycloak DB. Mapper is [%s], LDAP provider is [%s]", mapperModel.getName(), ldapProvider.getModel().getDisplayName());
 
@@ -182,22 +178,7 @@ public class GroupLDAPFederationMapper extends AbstractLDAPFederationMapper impl
             Set<String> visitedGroupIds = new HashSet<>();
 
             // Just add flat structure of groups with all groups at top-level
-            for (Map.Entry<String, LDAPObject> groupEntry : ldapGroupsMap.entrySet()) {
-                String groupName = groupEntry.getKey();
-                GroupModel kcExistingGroup = KeycloakModelUtils.findGroupByPath(realm, "/" + groupName);
-
-                if (kcExistingGroup != null) {
-                    updateAttributesOfKCGroup(kcExistingGroup, groupEntry.getValue());
-                    syncResult.increaseUpdated();
-                    visitedGroupIds.add(kcExistingGroup.getId());
-                } else {
-                    GroupModel kcGroup = realm.createGroup(groupName);
-                    updateAttributesOfKCGroup(kcGroup, groupEntry.getValue());
-                    realm.moveGroup(kcGroup, null);
-                    syncResult.increaseAdded();
-                    visitedGroupIds.add(kcGroup.getId());
-                }
-            }
+            updateKeycloakFlatGroups(ldapGroupsMap, syncResult, visitedGroupIds);
 
             // Possibly remove keycloak groups, which doesn't exists in LDAP
             if (config.isDropNonExistingGroupsDuringSync()) {
@@ -210,6 +191,252 @@ public class GroupLDAPFederationMapper extends AbstractLDAPFederationMapper impl
         return syncResult;
     }
 
+    /**
+     * Sync just LDAP groups created or modified since lastSync and subgroup memberships of these groups. Groups removed
+     * from LDAP can't be detected this way, so Keycloak groups are never dropped here. The whole tree is resolved and
+     * validated just by {@link #syncDataFromFederationProviderToKeycloak()}
+     */
+    public UserFederationSyncResult syncChangedDataFromFederationProviderToKeycloak(Date lastSync) {
+        UserFederationSyncResult syncResult = createFederationProviderToKeycloakSyncResult();
+
+        logger.debugf("Syncing groups changed since %s from LDAP into Keycloak DB. Mapper is [%s], LDAP provider is [%s]", lastSync, mapperModel.getName(), ldapProvider.getModel().getDisplayName());
+
+        // Get LDAP groups created or updated since last sync. Adding or removing of group member updates the group too
+        LDAPQuery ldapQuery = createGroupQuery();
+        LDAPQueryConditionsBuilder conditionsBuilder = new LDAPQueryConditionsBuilder();
+        Condition createCondition = conditionsBuilder.greaterThanOrEqualTo(LDAPConstants.CREATE_TIMESTAMP, lastSync);
+        Condition modifyCondition = conditionsBuilder.greaterThanOrEqualTo(LDAPConstants.MODIFY_TIMESTAMP, lastSync);
+        ldapQuery.addWhereCondition(conditionsBuilder.orCondition(createCondition, modifyCondition));
+        List<LDAPObject> ldapGroups = ldapQuery.getResultList();
+
+        if (ldapGroups.isEmpty()) {
+            return syncResult;
+        }
+
+        Map<String, LDAPObject> ldapGroupsMap = new HashMap<>();
+        String groupsRdnAttr = config.getGroupNameLdapAttribute();
+        for (LDAPObject ldapGroup : ldapGroups) {
+            ldapGroupsMap.put(ldapGroup.getAttributeAsString(groupsRdnAttr), ldapGroup);
+        }
+
+        if (config.isPreserveGroupsInheritance()) {
+            updateChangedKeycloakGroupTree(ldapGroupsMap, syncResult);
+        } else {
+            updateKeycloakFlatGroups(ldapGroupsMap, syncResult, new HashSet<String>());
+        }
+
+        return syncResult;
+    }
+
+    private UserFederationSyncResult createFederationProviderToKeycloakSyncResult() {
+        return new UserFederationSyncResult() {
+
+            @Override
+            public String getStatus() {
+                return String.format("%d imported groups, %d updated groups, %d removed groups", getAdded(), getUpdated(), getRemoved());
+            }
+
+        };
+    }
+
+    private void updateKeycloakFlatGroups(Map<String, LDAPObject> ldapGroupsMap, UserFederationSyncResult syncResult, Set<String> visitedGroupIds) {
+        for (Map.Entry<String, LDAPObject> groupEntry : ldapGroupsMap.entrySet()) {
+            String groupName = groupEntry.getKey();
+            GroupModel kcExistingGroup = KeycloakModelUtils.findGroupByPath(realm, "/" + groupName);
+
+            if (kcExistingGroup != null) {
+                updateAttributesOfKCGroup(kcExistingGroup, groupEntry.getValue());
+                syncResult.increaseUpdated();
+                visitedGroupIds.add(kcExistingGroup.getId());
+            } else {
+                GroupModel kcGroup = realm.createGroup(groupName);
+                updateAttributesOfKCGroup(kcGroup, groupEntry.getValue());
+                realm.moveGroup(kcGroup, null);
+                syncResult.increaseAdded();
+                visitedGroupIds.add(kcGroup.getId());
+            }
+        }
+    }
+
+    private void updateChangedKeycloakGroupTree(Map<String, LDAPObject> changedLdapGroups, UserFederationSyncResult syncResult) {
+        ChangedGroupTree tree = new ChangedGroupTree(changedLdapGroups);
+
+        // Existing group is counted as updated just once and just if its attributes or parent were changed
+        Set<String> updatedGroupIds = new HashSet<>();
+
+        // Create or update changed groups. New groups are created as top-level and moved to their parent later
+        Map<String, Set<String>> ldapSubgroupNames = new HashMap<>();
+        for (Map.Entry<String, LDAPObject> groupEntry : changedLdapGroups.entrySet()) {
+            String groupName = groupEntry.getKey();
+            importOrUpdateKCGroup(groupName, groupEntry.getValue(), tree, syncResult, updatedGroupIds);
+
+            Set<String> subgroupNames = new HashSet<>();
+            for (LDAPDn groupDn : getLDAPSubgroups(groupEntry.getValue())) {
+                subgroupNames.add(groupDn.getFirstRdnAttrValue());
+            }
+            ldapSubgroupNames.put(groupName, subgroupNames);
+        }
+
+        // Subgroups removed from the changed LDAP groups become top-level groups, unless they are added to another changed group below.
+        // Local Keycloak subgroups, which don't exist in LDAP, are left where they are
+        for (Map.Entry<String, Set<String>> entry : ldapSubgroupNames.entrySet()) {
+            GroupModel kcParent = tree.getKcGroup(entry.getKey());
+            for (GroupModel kcSubgroup : new HashSet<>(kcParent.getSubGroups())) {
+                if (!entry.getValue().contains(kcSubgroup.getName()) && tree.getLDAPGroup(kcSubgroup.getName()) != null) {
+                    logger.debugf("Group '%s' was removed from group '%s' in LDAP. Moving it to top-level", kcSubgroup.getName(), kcParent.getName());
+                    realm.moveGroup(kcSubgroup, null);
+                    updatedGroupIds.add(kcSubgroup.getId());
+                }
+            }
+        }
+
+        // Move subgroups of the changed LDAP groups under their parent
+        for (Map.Entry<String, Set<String>> entry : ldapSubgroupNames.entrySet()) {
+            GroupModel kcParent = tree.getKcGroup(entry.getKey());
+            for (String subgroupName : entry.getValue()) {
+                GroupModel kcSubgroup = tree.getKcGroup(subgroupName);
+                if (kcSubgroup == null) {
+                    LDAPObject ldapSubgroup = tree.getLDAPGroup(subgroupName);
+                    if (ldapSubgroup == null) {
+                        logger.warnf("Group '%s' is member of group '%s', which doesn't exist in LDAP", subgroupName, kcParent.getName());
+                        continue;
+                    }
+                    kcSubgroup = importOrUpdateKCGroup(subgroupName, ldapSubgroup, tree, syncResult, updatedGroupIds);
+                }
+
+                if (!kcParent.getId().equals(kcSubgroup.getParentId())) {
+                    checkNotAncestor(kcSubgroup, kcParent);
+                    logger.debugf("Moving group '%s' from LDAP as child of group '%s'", kcSubgroup.getName(), kcParent.getName());
+                    realm.moveGroup(kcSubgroup, kcParent);
+                    updatedGroupIds.add(kcSubgroup.getId());
+                }
+            }
+        }
+
+        // Groups imported during this sync are counted just as added
+        updatedGroupIds.removeAll(tree.getImportedGroupIds());
+        syncResult.setUpdated(syncResult.getUpdated() + updatedGroupIds.size());
+    }
+
+    private GroupModel importOrUpdateKCGroup(String groupName, LDAPObject ldapGroup, ChangedGroupTree tree, UserFederationSyncResult syncResult, Set<String> updatedGroupIds) {
+        GroupModel kcGroup = tree.getKcGroup(groupName);
+        if (kcGroup != null) {
+            if (updateAttributesOfKCGroup(kcGroup, ldapGroup)) {
+                logger.debugf("Updated Keycloak group '%s' from LDAP", groupName);
+                updatedGroupIds.add(kcGroup.getId());
+            }
+        } else {
+            kcGroup = realm.createGroup(groupName);
+            realm.moveGroup(kcGroup, null);
+            tree.addImportedKcGroup(kcGroup);
+            logger.debugf("Imported top-level group '%s' from LDAP", groupName);
+            syncResult.increaseAdded();
+            updateAttributesOfKCGroup(kcGroup, ldapGroup);
+        }
+
+        return kcGroup;
+    }
+
+    private static String buildGroupPath(GroupModel kcGroup) {
+        StringBuilder path = new StringBuilder();
+        for (GroupModel group = kcGroup; group != null; group = group.getParent()) {
+            path.insert(0, "/" + group.getName());
+        }
+        return path.toString();
+    }
+
+    /**
+     * Keycloak groups indexed by full path, as group names are unique just among siblings. Group imported from LDAP is the one,
+     * whose path consists just of names of LDAP groups. Other groups with the same name are local groups and they are never touched
+     */
+    private class ChangedGroupTree {
+
+        private final Map<String, GroupModel> kcGroupsByPath = new HashMap<>();
+        private final Map<String, List<String>> kcGroupPathsByName = new HashMap<>();
+
+        // Values are null for names, which don't exist in LDAP
+        private final Map<String, LDAPObject> ldapGroups;
+
+        private final Map<String, GroupModel> kcGroupsFromLDAP = new HashMap<>();
+
+        // Groups created during this sync
+        private final Set<String> importedGroupIds = new HashSet<>();
+
+        private ChangedGroupTree(Map<String, LDAPObject> changedLdapGroups) {
+            this.ldapGroups = new HashMap<>(changedLdapGroups);
+
+            for (GroupModel kcGroup : realm.getGroups()) {
+                String path = buildGroupPath(kcGroup);
+                kcGroupsByPath.put(path, kcGroup);
+
+                List<String> paths = kcGroupPathsByName.get(kcGroup.getName());
+                if (paths == null) {
+                    paths = new LinkedList<>();
+                    kcGroupPathsByName.put(kcGroup.getName(), paths);
+                }
+                paths.add(path);
+            }
+        }
+
+        private LDAPObject getLDAPGroup(String groupName) {
+            if (!ldapGroups.containsKey(groupName)) {
+                ldapGroups.put(groupName, loadLDAPGroupByName(groupName));
+            }
+            return ldapGroups.get(groupName);
+        }
+
+        private GroupModel getKcGroup(String groupName) {
+            if (kcGroupsFromLDAP.containsKey(groupName)) {
+                return kcGroupsFromLDAP.get(groupName);
+            }
+
+            // Prefer the shallowest group if more of them match
+            String found = null;
+            List<String> paths = kcGroupPathsByName.get(groupName);
+            if (paths != null) {
+                for (String path : paths) {
+                    if ((found == null || path.length() < found.length()) && isPathFromLDAP(path)) {
+                        found = path;
+                    }
+                }
+            }
+
+            GroupModel kcGroup = found == null ? null : kcGroupsByPath.get(found);
+            if (kcGroup != null) {
+                kcGroupsFromLDAP.put(groupName, kcGroup);
+            }
+            return kcGroup;
+        }
+
+        private void addImportedKcGroup(GroupModel kcGroup) {
+            kcGroupsFromLDAP.put(kcGroup.getName(), kcGroup);
+            importedGroupIds.add(kcGroup.getId());
+        }
+
+        private Set<String> getImportedGroupIds() {
+            return importedGroupIds;
+        }
+
+        private boolean isPathFromLDAP(String path) {
+            for (String groupName : path.substring(1).split("/")) {
+                if (getLDAPGroup(groupName) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Same check as GroupTreeResolver does during full sync
+    private void checkNotAncestor(GroupModel kcGroup, GroupModel kcParent) {
+        for (GroupModel ancestor = kcParent; ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor.getId().equals(kcGroup.getId())) {
+                throw new ModelException("Couldn't resolve groups from LDAP. Fix LDAP or skip preserve inheritance. Details: Recursion detected when trying to add group '"
+                        + kcGroup.getName() + "' as child of group '" + kcParent.getName() + "'");
+            }
+        }
+    }
+
     private void updateKeycloakGroupTree(List<GroupTreeResolver.GroupTreeEntry> groupTrees, Map<String, LDAPObject> ldapGroups, UserFederationSyncResult syncResult) {
         Set<String> visitedGroupIds = new HashSet<>();
 
@@ -273,27 +500,53 @@ public class GroupLDAPFederationMapper extends AbstractLDAPFederationMapper impl
         }
     }
 
-    private void updateAttributesOfKCGroup(GroupModel kcGroup, LDAPObject ldapGroup) {
+    // Returns true if some attribute of Keycloak group was changed. Attributes, which are the same, are not written
+    private boolean updateAttributesOfKCGroup(GroupModel kcGroup, LDAPObject ldapGroup) {
         Collection<String> groupAttributes = config.getGroupAttributes();
+        boolean changed = false;
 
         for (String attrName : groupAttributes) {
             Set<String> attrValues = ldapGroup.getAttributeAsSet(attrName);
+            List<String> kcAttrValues = kcGroup.getAttribute(attrName);
             if (attrValues==null) {
-                kcGroup.removeAttribute(attrName);
-            } else {
+                if (kcAttrValues != null && !kcAttrValues.isEmpty()) {
+                    kcGroup.removeAttribute(attrName);
+                    changed = true;
+                }
+            } else if (kcAttrValues == null || !attrValues.equals(new HashSet<>(kcAttrValues))) {
                 kcGroup.setAttribute(attrName, new LinkedList<>(attrValues));
+                changed = true;
             }
         }
+        return changed;
     }
 
     // Override if better effectivity or different algorithm is needed
     protected GroupModel findKcGroupByLDAPGroup(LDAPObject ldapGroup) {
+        // During sync, Keycloak group is looked up among all groups of the realm just once for every LDAP group
+        LDAPMembershipCache membershipCache = LDAPMembershipCache.getCurrent();
+        if (membershipCache != null) {
+            String kcGroupId = membershipCache.getKcGroupId(mapperModel.getId(), ldapGroup.getDn());
+            if (kcGroupId != null) {
+                GroupModel kcGroup = realm.getGroupById(kcGroupId);
+                if (kcGroup != null) {
+                    return kcGroup;
+                }
+
+                // Group was removed in the meantime
+                membershipCache.removeKcGroupId(mapperModel.getId(), ldapGroup.getDn());
+            }
+        }
+
         String groupNameAttr = config.getGroupNameLdapAttribute();
         String groupName = ldapGroup.getAttributeAsString(groupNameAttr);
 
         List<GroupModel> groups = realm.getGroups();
         for (GroupModel group : groups) {
             if (group.getName().equals(groupName)) {
+                if (membershipCache != null) {
+                    membershipCache.putKcGroupId(mapperModel.getId(), ldapGroup.getDn(), group.getId());
+                }
                 return group;
             }
         }
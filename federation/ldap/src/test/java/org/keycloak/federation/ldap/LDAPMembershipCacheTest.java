@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.federation.ldap.idm.model.LDAPDn;
+
+public class LDAPMembershipCacheTest {
+
+    @Test
+    public void testCacheBoundToThread() throws Exception {
+        LDAPMembershipCache membershipCache = new LDAPMembershipCache();
+        LDAPMembershipCache.setCurrent(membershipCache);
+        try {
+            Assert.assertSame(membershipCache, LDAPMembershipCache.getCurrent());
+
+            // Other threads don't see cache of the sync
+            final AtomicReference<LDAPMembershipCache> otherThreadCache = new AtomicReference<>(membershipCache);
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    otherThreadCache.set(LDAPMembershipCache.getCurrent());
+                }
+
+            };
+            thread.start();
+            thread.join();
+            Assert.assertNull(otherThreadCache.get());
+        } finally {
+            LDAPMembershipCache.setCurrent(null);
+        }
+
+        Assert.assertNull(LDAPMembershipCache.getCurrent());
+    }
+
+    @Test
+    public void testKcGroupIds() {
+        LDAPDn group1Dn = LDAPDn.fromString("cn=Group1,ou=Groups,dc=keycloak,dc=org");
+
+        LDAPMembershipCache membershipCache = new LDAPMembershipCache();
+        membershipCache.putKcGroupId("mapper1", group1Dn, "123");
+
+        Assert.assertEquals("123", membershipCache.getKcGroupId("mapper1", LDAPDn.fromString("CN=group1,OU=Groups,DC=keycloak,DC=org")));
+        Assert.assertNull(membershipCache.getKcGroupId("mapper2", group1Dn));
+
+        membershipCache.removeKcGroupId("mapper1", group1Dn);
+        Assert.assertNull(membershipCache.getKcGroupId("mapper1", group1Dn));
+    }
+
+    @Test
+    public void testSyncsDontAffectEachOther() {
+        LDAPDn group1Dn = LDAPDn.fromString("cn=group1,ou=Groups,dc=keycloak,dc=org");
+
+        LDAPMembershipCache sync1Cache = new LDAPMembershipCache();
+        LDAPMembershipCache sync2Cache = new LDAPMembershipCache();
+        sync1Cache.putKcGroupId("mapper1", group1Dn, "123");
+        sync2Cache.putKcGroupId("mapper1", group1Dn, "123");
+
+        sync1Cache.clear();
+        Assert.assertNull(sync1Cache.getKcGroupId("mapper1", group1Dn));
+        Assert.assertEquals("123", sync2Cache.getKcGroupId("mapper1", group1Dn));
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.federation.ldap.idm.model.LDAPObject;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.models.LDAPConstants;
+import org.keycloak.models.ModelException;
+import org.keycloak.models.UserFederationProviderModel;
+import org.keycloak.models.UserFederationSyncResult;
+
+public class LDAPSyncThreadsTest {
+
+    @Test
+    public void testSyncThreadsConfig() {
+        LDAPFederationProviderFactory factory = new LDAPFederationProviderFactory();
+        UserFederationProviderModel fedModel = new UserFederationProviderModel();
+
+        Assert.assertEquals(LDAPConstants.DEFAULT_SYNC_THREADS, factory.getSyncThreads(fedModel));
+
+        fedModel.getConfig().put(LDAPConstants.SYNC_THREADS, "4");
+        Assert.assertEquals(4, factory.getSyncThreads(fedModel));
+
+        fedModel.getConfig().put(LDAPConstants.SYNC_THREADS, "0");
+        Assert.assertEquals(1, factory.getSyncThreads(fedModel));
+
+        fedModel.getConfig().put(LDAPConstants.SYNC_THREADS, "-2");
+        Assert.assertEquals(1, factory.getSyncThreads(fedModel));
+
+        fedModel.getConfig().put(LDAPConstants.SYNC_THREADS, "foo");
+        Assert.assertEquals(LDAPConstants.DEFAULT_SYNC_THREADS, factory.getSyncThreads(fedModel));
+    }
+
+    @Test
+    public void testZeroSyncThreads() {
+        TestSyncFactory factory = new TestSyncFactory();
+        UserFederationSyncResult result = factory.importLdapUsers(createSessionFactory(), "test", new UserFederationProviderModel(), createLdapUsers(5), null, 0);
+
+        Assert.assertEquals(5, result.getAdded());
+        Assert.assertEquals(Collections.singletonList(5), factory.batchSizes);
+    }
+
+    @Test
+    public void testMoreSyncThreads() throws Exception {
+        TestSyncFactory factory = new TestSyncFactory();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            UserFederationSyncResult result = factory.importLdapUsers(createSessionFactory(), "test", new UserFederationProviderModel(), createLdapUsers(7), executor, 3);
+
+            Assert.assertEquals(7, result.getAdded());
+            Assert.assertEquals(0, result.getFailed());
+            Assert.assertEquals(3, factory.batchSizes.size());
+            Assert.assertTrue(factory.batchSizes.containsAll(Arrays.asList(3, 1)));
+
+            // Batches imported by sync threads, not by caller
+            Assert.assertFalse(factory.threads.contains(Thread.currentThread().getName()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedBatchImportedOneByOne() throws Exception {
+        TestSyncFactory factory = new TestSyncFactory();
+        factory.brokenUser = "user4";
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            UserFederationSyncResult result = factory.importLdapUsers(createSessionFactory(), "test", new UserFederationProviderModel(), createLdapUsers(6), executor, 2);
+
+            // Batch of user3, user4 and user5 failed, so its users were imported one by one and just user4 failed
+            Assert.assertEquals(5, result.getAdded());
+            Assert.assertEquals(1, result.getFailed());
+            Assert.assertEquals(Arrays.asList("user3", "user4", "user5"), factory.importedOneByOne);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<LDAPObject> createLdapUsers(int count) {
+        List<LDAPObject> ldapUsers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LDAPObject ldapUser = new LDAPObject();
+            ldapUser.setUuid("user" + i);
+            ldapUsers.add(ldapUser);
+        }
+        return ldapUsers;
+    }
+
+    // Transactions of the sync, which do nothing
+    private static KeycloakSessionFactory createSessionFactory() {
+        final KeycloakTransactionManager tx = (KeycloakTransactionManager) Proxy.newProxyInstance(LDAPSyncThreadsTest.class.getClassLoader(),
+                new Class<?>[] { KeycloakTransactionManager.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return method.getName().equals("isActive") ? Boolean.TRUE : method.getName().equals("getRollbackOnly") ? Boolean.FALSE : null;
+            }
+
+        });
+        final KeycloakSession session = (KeycloakSession) Proxy.newProxyInstance(LDAPSyncThreadsTest.class.getClassLoader(),
+                new Class<?>[] { KeycloakSession.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return method.getName().equals("getTransaction") ? tx : null;
+            }
+
+        });
+        return (KeycloakSessionFactory) Proxy.newProxyInstance(LDAPSyncThreadsTest.class.getClassLoader(),
+                new Class<?>[] { KeycloakSessionFactory.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return method.getName().equals("create") ? session : null;
+            }
+
+        });
+    }
+
+    private static class TestSyncFactory extends LDAPFederationProviderFactory {
+
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        private final List<String> importedOneByOne = Collections.synchronizedList(new ArrayList<String>());
+        private String brokenUser;
+
+        @Override
+        protected void importLdapUsersInTransaction(KeycloakSession session, String realmId, UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers, UserFederationSyncResult batchResult) {
+            batchSizes.add(ldapUsers.size());
+            threads.add(Thread.currentThread().getName());
+            for (LDAPObject ldapUser : ldapUsers) {
+                if (ldapUser.getUuid().equals(brokenUser)) {
+                    throw new ModelException("Broken user " + brokenUser);
+                }
+                batchResult.increaseAdded();
+            }
+        }
+
+        @Override
+        protected UserFederationSyncResult importLdapUsersOneByOne(KeycloakSessionFactory sessionFactory, String realmId, UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers) {
+            UserFederationSyncResult result = new UserFederationSyncResult();
+            for (LDAPObject ldapUser : ldapUsers) {
+                importedOneByOne.add(ldapUser.getUuid());
+                if (ldapUser.getUuid().equals(brokenUser)) {
+                    result.increaseFailed();
+                } else {
+                    result.increaseAdded();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.federation.ldap.idm.model.LDAPDn;
+import org.keycloak.federation.ldap.idm.model.LDAPObject;
+
+public class LDAPUserCacheTest {
+
+    @Test
+    public void testCachedUsers() throws Exception {
+        LDAPUserCache cache = new LDAPUserCache(60000, 60000);
+
+        cache.put("John", createUser("john"));
+        cache.put("missing", null);
+
+        LDAPUserCache.Entry john = cache.get("JOHN");
+        Assert.assertNotNull(john);
+        Assert.assertEquals("123", john.getLdapUser().getUuid());
+        Assert.assertEquals("uid=john,ou=People,dc=keycloak,dc=org", john.getLdapUser().getDn().toString());
+        Assert.assertEquals("john", john.getLdapUser().getAttributeAsString("uid"));
+
+        // Modification of returned user doesn't affect the cache
+        john.getLdapUser().setSingleAttribute("uid", "changed");
+        Assert.assertEquals("john", cache.get("john").getLdapUser().getAttributeAsString("uid"));
+
+        LDAPUserCache.Entry missing = cache.get("missing");
+        Assert.assertNotNull(missing);
+        Assert.assertNull(missing.getLdapUser());
+
+        Assert.assertNull(cache.get("unknown"));
+
+        cache.clear();
+        Assert.assertNull(cache.get("john"));
+        Assert.assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        LDAPUserCache cache = new LDAPUserCache(60000, 0);
+        cache.put("missing", null);
+        Assert.assertNull(cache.get("missing"));
+
+        cache = new LDAPUserCache(0, 0);
+        Assert.assertFalse(cache.isEnabled());
+        cache.put("john", createUser("john"));
+        Assert.assertNull(cache.get("john"));
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        LDAPUserCache cache = new LDAPUserCache(1, 1);
+        cache.put("john", createUser("john"));
+        Thread.sleep(10);
+        Assert.assertNull(cache.get("john"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private LDAPObject createUser(String username) {
+        LDAPObject user = new LDAPObject();
+        user.setUuid("123");
+        LDAPDn dn = LDAPDn.fromString("ou=People,dc=keycloak,dc=org");
+        dn.addFirst("uid", username);
+        user.setDn(dn);
+        user.setRdnAttributeName("uid");
+        user.setSingleAttribute("uid", username);
+        return user;
+    }
+
+}
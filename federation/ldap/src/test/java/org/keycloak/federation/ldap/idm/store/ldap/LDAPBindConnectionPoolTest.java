@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap.idm.store.ldap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.LdapContext;
+import javax.naming.spi.InitialContextFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LDAPBindConnectionPoolTest {
+
+    // Binds are blocked until the latch is released
+    private static volatile CountDownLatch bindLatch = new CountDownLatch(0);
+
+    @Test
+    public void testMaxActive() throws Exception {
+        final LDAPBindConnectionPool pool = new LDAPBindConnectionPool(createConnectionProperties(), 1, 60000, 1, 100, false);
+        bindLatch = new CountDownLatch(1);
+
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    pool.authenticate("uid=john,dc=keycloak,dc=org", "password");
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            }
+
+        };
+        thread.start();
+        while (pool.getActiveCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        // Max active count reached, so the bind fails after max wait time
+        try {
+            pool.authenticate("uid=mary,dc=keycloak,dc=org", "password");
+            Assert.fail("Expected timeout waiting for connection");
+        } catch (ServiceUnavailableException expected) {
+        }
+        Assert.assertEquals(1, pool.getTimeoutCount());
+
+        bindLatch.countDown();
+        thread.join();
+        Assert.assertNull(error.get());
+        Assert.assertEquals(0, pool.getActiveCount());
+
+        // Released connection is reused
+        pool.authenticate("uid=mary,dc=keycloak,dc=org", "password");
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getReusedCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    public void testIdleConnectionsEvicted() throws Exception {
+        LDAPBindConnectionPool pool = new LDAPBindConnectionPool(createConnectionProperties(), 2, 50, 0, 0, false);
+
+        pool.authenticate("uid=john,dc=keycloak,dc=org", "password");
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        Thread.sleep(100);
+        pool.evictIdle();
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertEquals(1, pool.getEvictedCount());
+
+        // Expired connection is not reused
+        pool.authenticate("uid=john,dc=keycloak,dc=org", "password");
+        Thread.sleep(100);
+        pool.authenticate("uid=john,dc=keycloak,dc=org", "password");
+        Assert.assertEquals(3, pool.getCreatedCount());
+        Assert.assertEquals(0, pool.getReusedCount());
+        pool.close();
+    }
+
+    private static Map<String, Object> createConnectionProperties() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(Context.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+        props.put(Context.PROVIDER_URL, "ldap://localhost:10389");
+        return props;
+    }
+
+    public static class TestContextFactory implements InitialContextFactory {
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) throws NamingException {
+            return (Context) Proxy.newProxyInstance(LDAPBindConnectionPoolTest.class.getClassLoader(), new Class<?>[] { LdapContext.class }, new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (method.getName().equals("reconnect") && !bindLatch.await(10, TimeUnit.SECONDS)) {
+                        throw new ServiceUnavailableException("Bind not released");
+                    }
+                    return null;
+                }
+
+            });
+        }
+
+    }
+
+}
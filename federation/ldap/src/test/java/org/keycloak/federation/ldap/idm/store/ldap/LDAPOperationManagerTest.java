@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.federation.ldap.idm.store.ldap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapContext;
+import javax.naming.spi.InitialContextFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.federation.ldap.LDAPConfig;
+import org.keycloak.models.LDAPConstants;
+
+public class LDAPOperationManagerTest {
+
+    @Test
+    public void testBindConnectionPoolDisabled() throws Exception {
+        LDAPOperationManager operationManager = new LDAPOperationManager(new LDAPConfig(createConfig()));
+        Assert.assertNull(operationManager.getBindConnectionPool());
+    }
+
+    @Test
+    public void testStartTlsWithoutBindConnectionPool() throws Exception {
+        Map<String, String> config = createConfig();
+        config.put(LDAPConstants.START_TLS, "true");
+
+        // StartTLS is negotiated by the pool, which just doesn't keep any idle connections
+        LDAPOperationManager operationManager = new LDAPOperationManager(new LDAPConfig(config));
+        LDAPBindConnectionPool pool = operationManager.getBindConnectionPool();
+        Assert.assertNotNull(pool);
+        Assert.assertEquals(0, pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    public void testGetRangeEnd() {
+        Assert.assertEquals("1499", LDAPOperationManager.getRangeEnd("member;range=0-1499"));
+        Assert.assertEquals("2999", LDAPOperationManager.getRangeEnd("member;Range=1500-2999"));
+
+        // Last range
+        Assert.assertNull(LDAPOperationManager.getRangeEnd("member;range=3000-*"));
+
+        // Missing range suffix
+        Assert.assertNull(LDAPOperationManager.getRangeEnd("member"));
+        Assert.assertNull(LDAPOperationManager.getRangeEnd("msDS-PrincipalName"));
+        Assert.assertNull(LDAPOperationManager.getRangeEnd("member;range=3000"));
+    }
+
+    @Test
+    public void testReadRemainingValuesUntilLastRange() throws Exception {
+        RangedValuesContextFactory.init(8, 3, RangedValuesContextFactory.PAGED);
+
+        Set<String> values = new LinkedHashSet<>(Arrays.asList("value0", "value1", "value2"));
+        createRangedValuesOperationManager().readRemainingAttributeValues("cn=group1,dc=keycloak,dc=org", "member", 3, values);
+
+        Assert.assertEquals(Arrays.asList("member;range=3-*", "member;range=6-*"), RangedValuesContextFactory.requestedAttributes);
+        Assert.assertEquals(Arrays.asList("value0", "value1", "value2", "value3", "value4", "value5", "value6", "value7"), new ArrayList<>(values));
+    }
+
+    @Test
+    public void testReadRemainingValuesWithoutRangeSuffix() throws Exception {
+        RangedValuesContextFactory.init(8, 3, RangedValuesContextFactory.NO_RANGE_SUFFIX);
+
+        // All remaining values are returned in attribute without range, so nothing else is requested
+        Set<String> values = new LinkedHashSet<>();
+        createRangedValuesOperationManager().readRemainingAttributeValues("cn=group1,dc=keycloak,dc=org", "member", 3, values);
+
+        Assert.assertEquals(Arrays.asList("member;range=3-*"), RangedValuesContextFactory.requestedAttributes);
+        Assert.assertEquals(5, values.size());
+    }
+
+    @Test
+    public void testReadRemainingValuesStopsOnSameRange() throws Exception {
+        RangedValuesContextFactory.init(8, 3, RangedValuesContextFactory.SAME_RANGE);
+
+        Set<String> values = new LinkedHashSet<>();
+        createRangedValuesOperationManager().readRemainingAttributeValues("cn=group1,dc=keycloak,dc=org", "member", 3, values);
+
+        Assert.assertEquals(Arrays.asList("member;range=3-*"), RangedValuesContextFactory.requestedAttributes);
+        Assert.assertEquals(3, values.size());
+    }
+
+    private static LDAPOperationManager createRangedValuesOperationManager() throws NamingException {
+        LDAPConfig config = new LDAPConfig(createConfig()) {
+
+            @Override
+            public String getFactoryName() {
+                return RangedValuesContextFactory.class.getName();
+            }
+
+        };
+        return new LDAPOperationManager(config);
+    }
+
+    private static Map<String, String> createConfig() {
+        Map<String, String> config = new HashMap<>();
+        config.put(LDAPConstants.CONNECTION_URL, "ldap://localhost:10389");
+        config.put(LDAPConstants.AUTH_TYPE, LDAPConstants.AUTH_TYPE_NONE);
+        return config;
+    }
+
+    /**
+     * Returns values of multi-valued attribute by ranges like Active Directory
+     */
+    public static class RangedValuesContextFactory implements InitialContextFactory {
+
+        static final int PAGED = 0;
+        static final int NO_RANGE_SUFFIX = 1;
+        static final int SAME_RANGE = 2;
+
+        static int valuesCount;
+        static int pageSize;
+        static int mode;
+        static List<String> requestedAttributes;
+
+        static void init(int valuesCount, int pageSize, int mode) {
+            RangedValuesContextFactory.valuesCount = valuesCount;
+            RangedValuesContextFactory.pageSize = pageSize;
+            RangedValuesContextFactory.mode = mode;
+            RangedValuesContextFactory.requestedAttributes = new ArrayList<>();
+        }
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) throws NamingException {
+            return (Context) Proxy.newProxyInstance(LDAPOperationManagerTest.class.getClassLoader(), new Class<?>[] { LdapContext.class }, new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (!method.getName().equals("getAttributes")) {
+                        return null;
+                    }
+
+                    // Requested like "member;range=3-*"
+                    String requested = ((String[]) args[1])[0];
+                    requestedAttributes.add(requested);
+                    String attrName = requested.substring(0, requested.indexOf(';'));
+                    int start = Integer.parseInt(requested.substring(requested.indexOf('=') + 1, requested.indexOf('-')));
+
+                    int end;
+                    String returnedName;
+                    if (mode == NO_RANGE_SUFFIX) {
+                        end = valuesCount - 1;
+                        returnedName = attrName;
+                    } else if (mode == SAME_RANGE) {
+                        end = start + pageSize - 1;
+                        returnedName = attrName + ";range=0-" + (pageSize - 1);
+                    } else {
+                        end = Math.min(start + pageSize, valuesCount) - 1;
+                        returnedName = attrName + ";range=" + start + "-" + (end == valuesCount - 1 ? "*" : String.valueOf(end));
+                    }
+
+                    BasicAttribute attribute = new BasicAttribute(returnedName);
+                    for (int i = start; i <= end; i++) {
+                        attribute.add("value" + i);
+                    }
+                    BasicAttributes attributes = new BasicAttributes(true);
+                    attributes.put(attribute);
+                    return attributes;
+                }
+
+            });
+        }
+
+    }
+}
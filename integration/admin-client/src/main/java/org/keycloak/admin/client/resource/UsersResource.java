@@ -47,10 +47,32 @@ public interface UsersResource {
                                            @QueryParam("first") Integer firstResult,
                                            @QueryParam("max") Integer maxResults);
 
+    /**
+     * Response contains list of users. If the page is full, header "X-Next-Page-Cursor" contains the cursor of next page
+     *
+     * @param search if null, all users are returned
+     * @param after cursor of the page or null for the first page
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Response searchAfter(@QueryParam("search") String search,
+                         @QueryParam("after") String after,
+                         @QueryParam("max") Integer maxResults);
+
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     Response create(UserRepresentation userRepresentation);
 
+    /**
+     * @param users user representations, one JSON per line
+     * @return results of the lines, one JSON per line
+     */
+    @POST
+    @Path("bulk")
+    @Consumes("application/x-ndjson")
+    @Produces("application/x-ndjson")
+    String createBulk(String users);
+
     @Path("{id}")
     UserResource get(@PathParam("id") String id);
 
@@ -21,6 +21,7 @@ import org.keycloak.models.*;
 import org.keycloak.models.cache.CacheUserProvider;
 import org.keycloak.models.cache.UserCache;
 import org.keycloak.models.cache.entities.CachedUser;
+import org.keycloak.models.utils.UserBulkQueries;
 
 import java.util.*;
 
@@ -28,8 +29,9 @@ import java.util.*;
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class DefaultCacheUserProvider implements CacheUserProvider {
+public class DefaultCacheUserProvider implements CacheUserProvider, UserBulkQueryProvider {
     protected UserCache cache;
+    protected UsersCountCache usersCount;
     protected KeycloakSession session;
     protected UserProvider delegate;
     protected boolean transactionActive;
@@ -39,8 +41,12 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     protected Set<String> realmInvalidations = new HashSet<>();
     protected Map<String, UserModel> managedUsers = new HashMap<>();
 
-    public DefaultCacheUserProvider(UserCache cache, KeycloakSession session) {
+    // Key is ID of realm, value is count of users added minus count of users removed in this transaction
+    protected Map<String, Integer> usersCountUpdates = new HashMap<>();
+
+    public DefaultCacheUserProvider(UserCache cache, UsersCountCache usersCount, KeycloakSession session) {
         this.cache = cache;
+        this.usersCount = usersCount;
         this.session = session;
 
         session.getTransaction().enlistAfterCompletion(getTransaction());
@@ -49,6 +55,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     @Override
     public void clear() {
         cache.clear();
+        usersCount.clear();
     }
 
     @Override
@@ -70,6 +77,20 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         }
         for (String realmId : realmInvalidations) {
             cache.invalidateRealmUsers(realmId);
+            usersCount.invalidate(realmId);
+        }
+    }
+
+    protected void updateUsersCount(RealmModel realm, int delta) {
+        Integer updates = usersCountUpdates.get(realm.getId());
+        usersCountUpdates.put(realm.getId(), updates != null ? updates + delta : delta);
+    }
+
+    protected void runUsersCountUpdates() {
+        for (Map.Entry<String, Integer> update : usersCountUpdates.entrySet()) {
+            if (!realmInvalidations.contains(update.getKey())) {
+                usersCount.add(update.getKey(), update.getValue());
+            }
         }
     }
 
@@ -84,6 +105,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
             public void commit() {
                 if (delegate == null) return;
                 runInvalidations();
+                runUsersCountUpdates();
                 transactionActive = false;
             }
 
@@ -163,6 +185,16 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         return adapter;
     }
 
+    @Override
+    public List<UserModel> getUsersByUsernames(Collection<String> usernames, RealmModel realm) {
+        // Users are loaded directly from the delegate and likely to be updated, so make sure they are not stale in cache
+        List<UserModel> users = UserBulkQueries.getUsersByUsernames(getDelegate(), usernames, realm);
+        for (UserModel user : users) {
+            registerUserInvalidation(realm, user.getId());
+        }
+        return users;
+    }
+
     @Override
     public UserModel getUserByEmail(String email, RealmModel realm) {
         if (email == null) return null;
@@ -221,7 +253,17 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
 
     @Override
     public int getUsersCount(RealmModel realm) {
-        return getDelegate().getUsersCount(realm);
+        // Count from the storage contains uncommitted changes of this transaction, so it can't be cached
+        if (realmInvalidations.contains(realm.getId()) || usersCountUpdates.containsKey(realm.getId())) {
+            return getDelegate().getUsersCount(realm);
+        }
+
+        Integer count = usersCount.get(realm.getId());
+        if (count == null) {
+            count = getDelegate().getUsersCount(realm);
+            usersCount.put(realm.getId(), count);
+        }
+        return count;
     }
 
     @Override
@@ -229,6 +271,11 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         return getDelegate().getUsers(realm, firstResult, maxResults, includeServiceAccounts);
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String afterUsername, int maxResults, boolean includeServiceAccounts) {
+        return UserBulkQueries.getUsersAfter(getDelegate(), realm, afterUsername, maxResults, includeServiceAccounts);
+    }
+
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm) {
         return getDelegate().searchForUser(search, realm);
@@ -239,6 +286,11 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         return getDelegate().searchForUser(search, realm, firstResult, maxResults);
     }
 
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String afterUsername, int maxResults) {
+        return UserBulkQueries.searchForUserAfter(getDelegate(), search, realm, afterUsername, maxResults);
+    }
+
     @Override
     public List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm) {
         return getDelegate().searchForUserByAttributes(attributes, realm);
@@ -268,6 +320,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     public UserModel addUser(RealmModel realm, String id, String username, boolean addDefaultRoles, boolean addDefaultRequiredActions) {
         UserModel user = getDelegate().addUser(realm, id, username, addDefaultRoles, addDefaultRoles);
         managedUsers.put(user.getId(), user);
+        updateUsersCount(realm, 1);
         return user;
     }
 
@@ -275,13 +328,18 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     public UserModel addUser(RealmModel realm, String username) {
         UserModel user = getDelegate().addUser(realm, username);
         managedUsers.put(user.getId(), user);
+        updateUsersCount(realm, 1);
         return user;
     }
 
     @Override
     public boolean removeUser(RealmModel realm, UserModel user) {
         registerUserInvalidation(realm, user.getId());
-        return getDelegate().removeUser(realm, user);
+        boolean removed = getDelegate().removeUser(realm, user);
+        if (removed) {
+            updateUsersCount(realm, -1);
+        }
+        return removed;
     }
 
     @Override
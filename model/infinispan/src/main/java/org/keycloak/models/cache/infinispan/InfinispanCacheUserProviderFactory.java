@@ -26,10 +26,16 @@ import org.keycloak.Config;
 import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserProvider;
 import org.keycloak.models.cache.CacheUserProvider;
 import org.keycloak.models.cache.CacheUserProviderFactory;
 import org.keycloak.models.cache.entities.CachedUser;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.TimerProvider;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -39,8 +45,14 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
 
     private static final Logger log = Logger.getLogger(InfinispanCacheUserProviderFactory.class);
 
+    public static final int DEFAULT_USERS_COUNT_RECONCILE_INTERVAL = 300;
+
     protected volatile InfinispanUserCache userCache;
 
+    protected final UsersCountCache usersCount = new UsersCountCache();
+
+    protected int usersCountReconcileInterval;
+
     protected final RealmLookup usernameLookup = new RealmLookup();
 
     protected final RealmLookup emailLookup = new RealmLookup();
@@ -48,7 +60,7 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
     @Override
     public CacheUserProvider create(KeycloakSession session) {
         lazyInit(session);
-        return new DefaultCacheUserProvider(userCache, session);
+        return new DefaultCacheUserProvider(userCache, usersCount, session);
     }
 
     private void lazyInit(KeycloakSession session) {
@@ -65,11 +77,71 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
 
     @Override
     public void init(Config.Scope config) {
+        usersCountReconcileInterval = config.getInt("usersCountReconcileInterval", DEFAULT_USERS_COUNT_RECONCILE_INTERVAL);
     }
 
     @Override
-    public void postInit(KeycloakSessionFactory factory) {
+    public void postInit(final KeycloakSessionFactory factory) {
+        if (usersCountReconcileInterval <= 0) {
+            return;
+        }
+
+        KeycloakSession session = factory.create();
+        try {
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            if (timer != null) {
+                timer.schedule(new Runnable() {
 
+                    @Override
+                    public void run() {
+                        reconcileUsersCount(factory);
+                    }
+
+                }, usersCountReconcileInterval * 1000L, "ReconcileUsersCount");
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    // Reload counts of users from the storage, so the users added or removed on other cluster nodes are counted as well
+    protected void reconcileUsersCount(KeycloakSessionFactory factory) {
+        final Set<String> realmIds = usersCount.getRealmIds();
+        if (realmIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            KeycloakModelUtils.runJobInTransaction(factory, new KeycloakSessionTask() {
+
+                @Override
+                public void run(KeycloakSession session) {
+                    UserProvider userProvider = session.getProvider(UserProvider.class);
+                    for (String realmId : realmIds) {
+                        RealmModel realm = session.realms().getRealm(realmId);
+                        if (realm == null) {
+                            usersCount.invalidate(realmId);
+                            continue;
+                        }
+
+                        // Read before the storage, so the updates done while the storage is queried are detected
+                        Integer expected = usersCount.get(realmId);
+                        if (expected == null) {
+                            continue;
+                        }
+
+                        int count = userProvider.getUsersCount(realm);
+                        if (!usersCount.reconcile(realmId, expected, count)) {
+                            log.debugf("Count of users of realm '%s' changed during reconciliation. It's reconciled next time", realmId);
+                        }
+                    }
+                }
+
+            });
+            log.debugf("Reconciled count of users of %d realms", realmIds.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to reconcile count of users", e);
+        }
     }
 
     @Override
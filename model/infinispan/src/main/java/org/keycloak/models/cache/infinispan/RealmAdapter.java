@@ -292,6 +292,48 @@ public class RealmAdapter implements RealmModel {
         updated.setRevokeRefreshToken(revokeRefreshToken);
     }
 
+    @Override
+    public boolean isRefreshTokenSymmetricSigning() {
+        if (updated != null) return updated.isRefreshTokenSymmetricSigning();
+        return cached.isRefreshTokenSymmetricSigning();
+    }
+
+    @Override
+    public void setRefreshTokenSymmetricSigning(boolean refreshTokenSymmetricSigning) {
+        getDelegateForUpdate();
+        updated.setRefreshTokenSymmetricSigning(refreshTokenSymmetricSigning);
+    }
+
+    @Override
+    public String getRefreshTokenSecretKid() {
+        if (updated != null) return updated.getRefreshTokenSecretKid();
+        return cached.getRefreshTokenSecretKid();
+    }
+
+    @Override
+    public void setRefreshTokenSecretKid(String kid) {
+        getDelegateForUpdate();
+        updated.setRefreshTokenSecretKid(kid);
+    }
+
+    @Override
+    public Map<String, String> getRefreshTokenSecrets() {
+        if (updated != null) return updated.getRefreshTokenSecrets();
+        return Collections.unmodifiableMap(cached.getRefreshTokenSecrets());
+    }
+
+    @Override
+    public void addRefreshTokenSecret(String kid, String secret) {
+        getDelegateForUpdate();
+        updated.addRefreshTokenSecret(kid, secret);
+    }
+
+    @Override
+    public void removeRefreshTokenSecret(String kid) {
+        getDelegateForUpdate();
+        updated.removeRefreshTokenSecret(kid);
+    }
+
     @Override
     public int getSsoSessionIdleTimeout() {
         if (updated != null) return updated.getSsoSessionIdleTimeout();
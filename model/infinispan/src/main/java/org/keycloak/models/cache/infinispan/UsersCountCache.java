@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts of users per realm. Count is loaded from the user storage when it's requested first time and then it's just updated
+ * with the users added and removed on this node. Users added or removed on other cluster nodes aren't seen, so counts are
+ * periodically reconciled with the user storage. Callers, which need exact count, read it from the user storage directly.
+ * <p>
+ * Count is approximate even on single node. Local changes are added after their transaction is committed, so reconciliation
+ * running between the commit and the update counts them twice. Such error lasts just until next reconciliation.
+ */
+public class UsersCountCache {
+
+    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @return count of users or null if count for the realm isn't known yet
+     */
+    public Integer get(String realmId) {
+        AtomicInteger count = counts.get(realmId);
+        return count != null ? count.get() : null;
+    }
+
+    /**
+     * Sets count loaded from the user storage. Ignored if the count is already known, as it may contain newer changes
+     */
+    public void put(String realmId, int count) {
+        counts.putIfAbsent(realmId, new AtomicInteger(count));
+    }
+
+    /**
+     * Replaces count with the count loaded from the user storage, unless the count was updated since it was read as
+     * {@code expected}. Changes done meanwhile could be lost otherwise
+     *
+     * @return true if the count was replaced
+     */
+    public boolean reconcile(String realmId, int expected, int count) {
+        AtomicInteger current = counts.get(realmId);
+        return current != null && current.compareAndSet(expected, count);
+    }
+
+    /**
+     * Updates count of users of the realm. Ignored if count for the realm isn't known yet, as it will be loaded with the change
+     */
+    public void add(String realmId, int delta) {
+        AtomicInteger count = counts.get(realmId);
+        if (count != null) {
+            count.addAndGet(delta);
+        }
+    }
+
+    public void invalidate(String realmId) {
+        counts.remove(realmId);
+    }
+
+    public Set<String> getRealmIds() {
+        return new HashSet<>(counts.keySet());
+    }
+
+    public void clear() {
+        counts.clear();
+    }
+
+}
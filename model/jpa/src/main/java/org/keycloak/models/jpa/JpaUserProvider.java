@@ -26,6 +26,7 @@ import org.keycloak.models.ProtocolMapperModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RequiredActionProviderModel;
 import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserBulkQueryProvider;
 import org.keycloak.models.UserCredentialModel;
 import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserModel;
@@ -39,6 +40,7 @@ import org.keycloak.models.utils.KeycloakModelUtils;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,12 +50,13 @@ import java.util.Set;
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class JpaUserProvider implements UserProvider {
+public class JpaUserProvider implements UserProvider, UserBulkQueryProvider {
 
     private static final String EMAIL = "email";
     private static final String USERNAME = "username";
     private static final String FIRST_NAME = "firstName";
     private static final String LAST_NAME = "lastName";
+    private static final int MAX_IN_PARAMETERS = 1000;
 
     private final KeycloakSession session;
     protected EntityManager em;
@@ -292,6 +295,26 @@ public class JpaUserProvider implements UserProvider {
         return new UserAdapter(session, realm, em, results.get(0));
     }
 
+    @Override
+    public List<UserModel> getUsersByUsernames(Collection<String> usernames, RealmModel realm) {
+        List<String> lowerCased = new ArrayList<String>();
+        for (String username : usernames) {
+            lowerCased.add(username.toLowerCase());
+        }
+
+        List<UserModel> users = new ArrayList<UserModel>();
+        // Some databases limit the number of IN parameters
+        for (int i = 0; i < lowerCased.size(); i += MAX_IN_PARAMETERS) {
+            TypedQuery<UserEntity> query = em.createNamedQuery("getRealmUsersByUsernames", UserEntity.class);
+            query.setParameter("usernames", lowerCased.subList(i, Math.min(i + MAX_IN_PARAMETERS, lowerCased.size())));
+            query.setParameter("realmId", realm.getId());
+            for (UserEntity entity : query.getResultList()) {
+                users.add(new UserAdapter(session, realm, em, entity));
+            }
+        }
+        return users;
+    }
+
     @Override
     public UserModel getUserByEmail(String email, RealmModel realm) {
         TypedQuery<UserEntity> query = em.createNamedQuery("getRealmUserByEmail", UserEntity.class);
@@ -371,6 +394,26 @@ public class JpaUserProvider implements UserProvider {
         return users;
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String afterUsername, int maxResults, boolean includeServiceAccounts) {
+        if (afterUsername == null) {
+            return getUsers(realm, -1, maxResults, includeServiceAccounts);
+        }
+
+        String queryName = includeServiceAccounts ? "getAllUsersByRealmAfter" : "getAllUsersByRealmExcludeServiceAccountAfter";
+
+        TypedQuery<UserEntity> query = em.createNamedQuery(queryName, UserEntity.class);
+        query.setParameter("realmId", realm.getId());
+        query.setParameter(USERNAME, afterUsername);
+        if (maxResults != -1) {
+            query.setMaxResults(maxResults);
+        }
+        List<UserEntity> results = query.getResultList();
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
+        return users;
+    }
+
     @Override
     public List<UserModel> getGroupMembers(RealmModel realm, GroupModel group, int firstResult, int maxResults) {
         TypedQuery<UserEntity> query = em.createNamedQuery("groupMembership", UserEntity.class);
@@ -398,8 +441,7 @@ public class JpaUserProvider implements UserProvider {
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm, int firstResult, int maxResults) {
         TypedQuery<UserEntity> query = em.createNamedQuery("searchForUser", UserEntity.class);
-        query.setParameter("realmId", realm.getId());
-        query.setParameter("search", "%" + search.toLowerCase() + "%");
+        setSearchParameters(query, search, realm);
         if (firstResult != -1) {
             query.setFirstResult(firstResult);
         }
@@ -412,6 +454,44 @@ public class JpaUserProvider implements UserProvider {
         return users;
     }
 
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String afterUsername, int maxResults) {
+        if (afterUsername == null) {
+            return searchForUser(search, realm, -1, maxResults);
+        }
+
+        TypedQuery<UserEntity> query = em.createNamedQuery("searchForUserAfter", UserEntity.class);
+        setSearchParameters(query, search, realm);
+        query.setParameter(USERNAME, afterUsername);
+        if (maxResults != -1) {
+            query.setMaxResults(maxResults);
+        }
+        List<UserEntity> results = query.getResultList();
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
+        return users;
+    }
+
+    private void setSearchParameters(TypedQuery<UserEntity> query, String search, RealmModel realm) {
+        search = search.trim();
+        query.setParameter("realmId", realm.getId());
+        query.setParameter("search", toSearchPattern(search));
+
+        // "ohn Do" matches user with first name ending with "ohn" and last name starting with "do"
+        int spaceIndex = search.lastIndexOf(' ');
+        if (spaceIndex > -1) {
+            String lastName = search.substring(spaceIndex + 1).toLowerCase();
+            if (isPrefixSearch(lastName)) {
+                lastName = lastName.substring(0, lastName.length() - 1);
+            }
+            query.setParameter(FIRST_NAME, "%" + search.substring(0, spaceIndex).trim().toLowerCase());
+            query.setParameter(LAST_NAME, lastName + "%");
+        } else {
+            query.setParameter(FIRST_NAME, toSearchPattern(search));
+            query.setParameter(LAST_NAME, toSearchPattern(search));
+        }
+    }
+
     @Override
     public List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm) {
         return searchForUserByAttributes(attributes, realm, -1, -1);
@@ -424,16 +504,16 @@ public class JpaUserProvider implements UserProvider {
             String attribute = null;
             String parameterName = null;
             if (entry.getKey().equals(UserModel.USERNAME)) {
-                attribute = "lower(u.username)";
+                attribute = "u.username";
                 parameterName = JpaUserProvider.USERNAME;
             } else if (entry.getKey().equalsIgnoreCase(UserModel.FIRST_NAME)) {
-                attribute = "lower(u.firstName)";
+                attribute = "u.firstNameLower";
                 parameterName = JpaUserProvider.FIRST_NAME;
             } else if (entry.getKey().equalsIgnoreCase(UserModel.LAST_NAME)) {
-                attribute = "lower(u.lastName)";
+                attribute = "u.lastNameLower";
                 parameterName = JpaUserProvider.LAST_NAME;
             } else if (entry.getKey().equalsIgnoreCase(UserModel.EMAIL)) {
-                attribute = "lower(u.email)";
+                attribute = "u.email";
                 parameterName = JpaUserProvider.EMAIL;
             }
             if (attribute == null) continue;
@@ -456,7 +536,7 @@ public class JpaUserProvider implements UserProvider {
                 parameterName = JpaUserProvider.EMAIL;
             }
             if (parameterName == null) continue;
-            query.setParameter(parameterName, "%" + entry.getValue().toLowerCase() + "%");
+            query.setParameter(parameterName, toSearchPattern(entry.getValue()));
         }
         if (firstResult != -1) {
             query.setFirstResult(firstResult);
@@ -470,6 +550,22 @@ public class JpaUserProvider implements UserProvider {
         return users;
     }
 
+    /**
+     * Searched values are matched anywhere in the column. Value ending with wildcard '*' (e.g. "doe*") is matched as prefix
+     * instead, so the database can use index on the column.
+     */
+    static String toSearchPattern(String search) {
+        String value = search.trim().toLowerCase();
+        if (isPrefixSearch(value)) {
+            return value.substring(0, value.length() - 1) + "%";
+        }
+        return "%" + value + "%";
+    }
+
+    static boolean isPrefixSearch(String search) {
+        return search.endsWith("*");
+    }
+
     @Override
     public List<UserModel> searchForUserByUserAttribute(String attrName, String attrValue, RealmModel realm) {
         TypedQuery<UserAttributeEntity> query = em.createNamedQuery("getAttributesByNameAndValue", UserAttributeEntity.class);
@@ -374,6 +374,47 @@ public class RealmAdapter implements RealmModel {
         realm.setRevokeRefreshToken(revokeRefreshToken);
     }
 
+    @Override
+    public boolean isRefreshTokenSymmetricSigning() {
+        return getAttribute(RealmAttributes.REFRESH_TOKEN_SYMMETRIC_SIGNING, false);
+    }
+
+    @Override
+    public void setRefreshTokenSymmetricSigning(boolean refreshTokenSymmetricSigning) {
+        setAttribute(RealmAttributes.REFRESH_TOKEN_SYMMETRIC_SIGNING, refreshTokenSymmetricSigning);
+    }
+
+    @Override
+    public String getRefreshTokenSecretKid() {
+        return getAttribute(RealmAttributes.REFRESH_TOKEN_SECRET_KID);
+    }
+
+    @Override
+    public void setRefreshTokenSecretKid(String kid) {
+        setAttribute(RealmAttributes.REFRESH_TOKEN_SECRET_KID, kid);
+    }
+
+    @Override
+    public Map<String, String> getRefreshTokenSecrets() {
+        Map<String, String> secrets = new HashMap<String, String>();
+        for (RealmAttributeEntity attr : realm.getAttributes()) {
+            if (attr.getName().startsWith(RealmAttributes.REFRESH_TOKEN_SECRET_PREFIX)) {
+                secrets.put(attr.getName().substring(RealmAttributes.REFRESH_TOKEN_SECRET_PREFIX.length()), attr.getValue());
+            }
+        }
+        return secrets;
+    }
+
+    @Override
+    public void addRefreshTokenSecret(String kid, String secret) {
+        setAttribute(RealmAttributes.REFRESH_TOKEN_SECRET_PREFIX + kid, secret);
+    }
+
+    @Override
+    public void removeRefreshTokenSecret(String kid) {
+        removeAttribute(RealmAttributes.REFRESH_TOKEN_SECRET_PREFIX + kid);
+    }
+
     @Override
     public int getAccessTokenLifespan() {
         return realm.getAccessTokenLifespan();
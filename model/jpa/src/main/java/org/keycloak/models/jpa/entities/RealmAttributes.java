@@ -26,4 +26,10 @@ public interface RealmAttributes {
 
     String DISPLAY_NAME_HTML = "displayNameHtml";
 
+    String REFRESH_TOKEN_SYMMETRIC_SIGNING = "refreshTokenSymmetricSigning";
+
+    String REFRESH_TOKEN_SECRET_KID = "refreshTokenSecretKid";
+
+    String REFRESH_TOKEN_SECRET_PREFIX = "refreshTokenSecret.";
+
 }
@@ -41,10 +41,17 @@ import java.util.Collection;
 @NamedQueries({
         @NamedQuery(name="getAllUsersByRealm", query="select u from UserEntity u where u.realmId = :realmId order by u.username"),
         @NamedQuery(name="getAllUsersByRealmExcludeServiceAccount", query="select u from UserEntity u where u.realmId = :realmId and (u.serviceAccountClientLink is null) order by u.username"),
+        @NamedQuery(name="getAllUsersByRealmAfter", query="select u from UserEntity u where u.realmId = :realmId and u.username > :username order by u.username"),
+        @NamedQuery(name="getAllUsersByRealmExcludeServiceAccountAfter", query="select u from UserEntity u where u.realmId = :realmId and (u.serviceAccountClientLink is null) and u.username > :username order by u.username"),
         @NamedQuery(name="searchForUser", query="select u from UserEntity u where u.realmId = :realmId and (u.serviceAccountClientLink is null) and " +
-                "( lower(u.username) like :search or lower(concat(u.firstName, ' ', u.lastName)) like :search or u.email like :search ) order by u.username"),
+                "( u.username like :search or u.email like :search or u.firstNameLower like :search or u.lastNameLower like :search " +
+                "or ( u.firstNameLower like :firstName and u.lastNameLower like :lastName ) ) order by u.username"),
+        @NamedQuery(name="searchForUserAfter", query="select u from UserEntity u where u.realmId = :realmId and (u.serviceAccountClientLink is null) and " +
+                "( u.username like :search or u.email like :search or u.firstNameLower like :search or u.lastNameLower like :search " +
+                "or ( u.firstNameLower like :firstName and u.lastNameLower like :lastName ) ) and u.username > :username order by u.username"),
         @NamedQuery(name="getRealmUserById", query="select u from UserEntity u where u.id = :id and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByUsername", query="select u from UserEntity u where u.username = :username and u.realmId = :realmId"),
+        @NamedQuery(name="getRealmUsersByUsernames", query="select u from UserEntity u where u.username in :usernames and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByEmail", query="select u from UserEntity u where u.email = :email and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByLastName", query="select u from UserEntity u where u.lastName = :lastName and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByFirstLastName", query="select u from UserEntity u where u.firstName = :first and u.lastName = :last and u.realmId = :realmId"),
@@ -72,6 +79,12 @@ public class UserEntity {
     protected Long createdTimestamp;
     @Column(name = "LAST_NAME")
     protected String lastName;
+
+    // Lower-cased names are used for case-insensitive search, which can use index
+    @Column(name = "FIRST_NAME_LOWER")
+    protected String firstNameLower;
+    @Column(name = "LAST_NAME_LOWER")
+    protected String lastNameLower;
     @Column(name = "EMAIL")
     protected String email;
     @Column(name = "ENABLED")
@@ -133,6 +146,7 @@ public class UserEntity {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        this.firstNameLower = KeycloakModelUtils.toLowerCaseSafe(firstName);
     }
 
     public String getLastName() {
@@ -141,6 +155,23 @@ public class UserEntity {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        this.lastNameLower = KeycloakModelUtils.toLowerCaseSafe(lastName);
+    }
+
+    public String getFirstNameLower() {
+        return firstNameLower;
+    }
+
+    public void setFirstNameLower(String firstNameLower) {
+        this.firstNameLower = firstNameLower;
+    }
+
+    public String getLastNameLower() {
+        return lastNameLower;
+    }
+
+    public void setLastNameLower(String lastNameLower) {
+        this.lastNameLower = lastNameLower;
     }
 
     public String getEmail() {
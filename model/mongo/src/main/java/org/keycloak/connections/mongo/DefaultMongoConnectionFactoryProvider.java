@@ -28,11 +28,16 @@ import javax.net.ssl.SSLSocketFactory;
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.connections.mongo.api.MongoStore;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
 import org.keycloak.connections.mongo.impl.MongoStoreImpl;
 import org.keycloak.connections.mongo.impl.context.TransactionMongoStoreInvocationContext;
 import org.keycloak.connections.mongo.updater.MongoUpdaterProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.mongo.keycloak.mappers.BasicDBObjectToCredentialEntityMapper;
+import org.keycloak.models.mongo.keycloak.mappers.BasicDBObjectToMongoUserEntityMapper;
+import org.keycloak.models.mongo.keycloak.mappers.CredentialEntityMapper;
+import org.keycloak.models.mongo.keycloak.mappers.MongoUserEntityMapper;
 import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
 import com.mongodb.DB;
@@ -131,7 +136,9 @@ public class DefaultMongoConnectionFactoryProvider implements MongoConnectionPro
                             }
                         }
 
-                        this.mongoStore = new MongoStoreImpl(db, getManagedEntities());
+                        MongoStoreImpl mongoStoreImpl = new MongoStoreImpl(db, getManagedEntities());
+                        addEntityMappers(mongoStoreImpl);
+                        this.mongoStore = mongoStoreImpl;
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -140,6 +147,15 @@ public class DefaultMongoConnectionFactoryProvider implements MongoConnectionPro
         }
     }
 
+    // Hand-written mappers of entities converted on every login. They replace generic reflection-based mappers
+    private void addEntityMappers(MongoStoreImpl mongoStoreImpl) {
+        MapperRegistry mapperRegistry = mongoStoreImpl.getMapperRegistry();
+        mongoStoreImpl.addAppObjectConverter(new MongoUserEntityMapper(mapperRegistry));
+        mongoStoreImpl.addDBObjectConverter(new BasicDBObjectToMongoUserEntityMapper(mongoStoreImpl, mapperRegistry));
+        mongoStoreImpl.addAppObjectConverter(new CredentialEntityMapper(mapperRegistry));
+        mongoStoreImpl.addDBObjectConverter(new BasicDBObjectToCredentialEntityMapper(mapperRegistry));
+    }
+
     private Class[] getManagedEntities() throws ClassNotFoundException {
        Class[] entityClasses = new Class[entities.length];
         for (int i = 0; i < entities.length; i++) {
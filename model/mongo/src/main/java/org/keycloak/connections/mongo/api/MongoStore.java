@@ -19,8 +19,11 @@ package org.keycloak.connections.mongo.api;
 
 import com.mongodb.DBObject;
 import org.keycloak.connections.mongo.api.context.MongoStoreInvocationContext;
+import org.keycloak.connections.mongo.api.context.MongoTask;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -93,4 +96,12 @@ public interface MongoStore {
 
     <S> boolean pullItemFromList(MongoIdentifiableEntity entity, String listPropertyName, S itemToPull, MongoStoreInvocationContext context);
 
+    /**
+     * Execute pending update tasks. Tasks of same entity may be merged into single update and sent to DB together with updates
+     * of other entities
+     *
+     * @param tasks pending tasks per entity
+     */
+    void executeUpdateTasks(Map<MongoIdentifiableEntity, Set<MongoTask>> tasks);
+
 }
@@ -19,6 +19,8 @@ package org.keycloak.connections.mongo.api.types;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Registry of mappers, which allow to convert application object to database objects. MapperRegistry is main entry point to be used by application.
@@ -32,6 +34,9 @@ public class MapperRegistry {
     // Mappers of Application objects to DB objects
     private Map<Class<?>, Mapper<?, ?>> appObjectMappers = new HashMap<Class<?>, Mapper<?, ?>>();
 
+    // Mappers of Application objects resolved from the type hierarchy. Avoids walking supertypes for every converted object
+    private final ConcurrentMap<Class<?>, Mapper<?, ?>> resolvedAppObjectMappers = new ConcurrentHashMap<Class<?>, Mapper<?, ?>>();
+
     // Mappers of DB objects to Application objects
     private Map<Class<?>, Map<Class<?>, Mapper<?, ?>>> dbObjectMappers = new HashMap<Class<?>, Map<Class<?>, Mapper<?,?>>>();
 
@@ -43,6 +48,7 @@ public class MapperRegistry {
      */
     public void addAppObjectMapper(Mapper<?, ?> mapper) {
         appObjectMappers.put(mapper.getTypeOfObjectToConvert(), mapper);
+        resolvedAppObjectMappers.clear();
     }
 
 
@@ -100,7 +106,13 @@ public class MapperRegistry {
         }
 
         Class<?> appObjectType = applicationObject.getClass();
-        Mapper<Object, S> mapper = (Mapper<Object, S>)getAppConverterForType(appObjectType, appObjectMappers);
+        Mapper<Object, S> mapper = (Mapper<Object, S>)resolvedAppObjectMappers.get(appObjectType);
+        if (mapper == null) {
+            mapper = (Mapper<Object, S>)getAppConverterForType(appObjectType, appObjectMappers);
+            if (mapper != null) {
+                resolvedAppObjectMappers.put(appObjectType, mapper);
+            }
+        }
         if (mapper == null) {
             throw new IllegalArgumentException("Can't found converter for type " + appObjectType + " in registered appObjectMappers");
         }
@@ -17,12 +17,26 @@
 
 package org.keycloak.connections.mongo.impl;
 
+import org.keycloak.common.util.reflections.Types;
+import org.keycloak.connections.mongo.api.MongoIdentifiableEntity;
 import org.keycloak.models.utils.reflection.Property;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * Metadata of mongo entity. Everything, which can be computed from the entity class just once (constructor, types of
+ * properties), is computed when EntityInfo is created, so that it's not needed to introspect the class again when
+ * converting every single document.
+ *
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
 public class EntityInfo {
@@ -33,10 +47,31 @@ public class EntityInfo {
 
     private final Map<String, Property<Object>> properties;
 
+    private final Constructor<?> constructor;
+
+    private final Map<String, PropertyInfo> propertyInfos;
+
+    // Properties written to DB. Doesn't contain "id" of identifiable entities as it's saved as "_id"
+    private final List<PropertyInfo> persistedProperties;
+
     public EntityInfo(Class<?> entityClass, String dbCollectionName, Map<String, Property<Object>> properties) {
         this.entityClass = entityClass;
         this.dbCollectionName = dbCollectionName;
         this.properties = properties;
+        this.constructor = getConstructor(entityClass);
+
+        boolean identifiable = MongoIdentifiableEntity.class.isAssignableFrom(entityClass);
+        Map<String, PropertyInfo> propertyInfos = new HashMap<>();
+        List<PropertyInfo> persistedProperties = new ArrayList<>();
+        for (Property<Object> property : properties.values()) {
+            PropertyInfo propertyInfo = new PropertyInfo(property);
+            propertyInfos.put(property.getName(), propertyInfo);
+            if (!identifiable || !"id".equals(property.getName())) {
+                persistedProperties.add(propertyInfo);
+            }
+        }
+        this.propertyInfos = propertyInfos;
+        this.persistedProperties = Collections.unmodifiableList(persistedProperties);
     }
 
     public Class<?> getEntityClass() {
@@ -54,4 +89,88 @@ public class EntityInfo {
     public Property<Object> getPropertyByName(String propertyName) {
         return properties.get(propertyName);
     }
+
+    public PropertyInfo getPropertyInfoByName(String propertyName) {
+        return propertyInfos.get(propertyName);
+    }
+
+    public List<PropertyInfo> getPersistedProperties() {
+        return persistedProperties;
+    }
+
+    public Object newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException("Class " + entityClass + " doesn't have no-arg constructor");
+        }
+
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Constructor<?> getConstructor(Class<?> entityClass) {
+        try {
+            Constructor<?> constructor = entityClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            // Could be abstract type or interface, which is never instantiated
+            return null;
+        }
+    }
+
+    /**
+     * Property together with the types needed to convert the value from DB
+     */
+    public static class PropertyInfo {
+
+        private final Property<Object> property;
+
+        // Type of the property. For parameterized types (like "List<String>") it's the raw type
+        private final Class<?> expectedReturnType;
+
+        // Generic arguments of parameterized type. Null for non-parameterized types
+        private final List<Type> genericTypes;
+
+        private final Class<?> boxedJavaClass;
+
+        public PropertyInfo(Property<Object> property) {
+            this.property = property;
+
+            Type type = property.getBaseType();
+            if (type instanceof ParameterizedType) {
+                ParameterizedType parameterized = (ParameterizedType) type;
+                this.expectedReturnType = (Class<?>) parameterized.getRawType();
+                this.genericTypes = Collections.unmodifiableList(Arrays.asList(parameterized.getActualTypeArguments()));
+            } else {
+                // handle primitives
+                this.expectedReturnType = Types.boxedClass((Class<?>) type);
+                this.genericTypes = null;
+            }
+
+            this.boxedJavaClass = Types.boxedClass(property.getJavaClass());
+        }
+
+        public Property<Object> getProperty() {
+            return property;
+        }
+
+        public String getName() {
+            return property.getName();
+        }
+
+        public Class<?> getExpectedReturnType() {
+            return expectedReturnType;
+        }
+
+        public List<Type> getGenericTypes() {
+            return genericTypes;
+        }
+
+        public Class<?> getBoxedJavaClass() {
+            return boxedJavaClass;
+        }
+    }
 }
@@ -48,6 +48,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -152,23 +153,16 @@ public class MongoStoreImpl implements MongoStore {
 
     @Override
     public void updateEntity(final MongoIdentifiableEntity entity, MongoStoreInvocationContext context) {
-        MongoTask fullUpdateTask = new MongoTask() {
+        MongoTask fullUpdateTask = new EntityUpdateTask(entity) {
 
             @Override
-            public void execute() {
-                Class<? extends MongoEntity> clazz = entity.getClass();
-                EntityInfo entityInfo = getEntityInfo(clazz);
-                BasicDBObject dbObject = mapperRegistry.convertApplicationObjectToDBObject(entity, BasicDBObject.class);
-                DBCollection dbCollection = database.getCollection(entityInfo.getDbCollectionName());
-
-                String currentId = entity.getId();
-
-                if (currentId == null) {
+            protected void addToUpdate(DocumentUpdate update) {
+                if (entity.getId() == null) {
                     throw new IllegalStateException("Can't update entity without id: " + entity);
-                } else {
-                    BasicDBObject query = new BasicDBObject("_id", currentId);
-                    dbCollection.update(query, dbObject);
                 }
+
+                BasicDBObject dbObject = mapperRegistry.convertApplicationObjectToDBObject(entity, BasicDBObject.class);
+                update.replace(dbObject);
             }
 
             @Override
@@ -181,6 +175,73 @@ public class MongoStoreImpl implements MongoStore {
         context.addUpdateTask(entity, fullUpdateTask);
     }
 
+    @Override
+    public void executeUpdateTasks(Map<MongoIdentifiableEntity, Set<MongoTask>> tasks) {
+        // All updates of single entity are merged into one update request. Requests to same collection are sent together. As there
+        // is at most one request per document, the order of requests doesn't matter and unordered bulk is used
+        Map<String, BulkWriteOperation> bulks = new LinkedHashMap<String, BulkWriteOperation>();
+        int requestsCount = 0;
+
+        for (Map.Entry<MongoIdentifiableEntity, Set<MongoTask>> entry : tasks.entrySet()) {
+            MongoIdentifiableEntity entity = entry.getKey();
+            Set<MongoTask> entityTasks = entry.getValue();
+
+            if (!canMerge(entityTasks)) {
+                for (MongoTask task : entityTasks) {
+                    task.execute();
+                }
+                continue;
+            }
+
+            DocumentUpdate update = new DocumentUpdate();
+            for (MongoTask task : entityTasks) {
+                ((EntityUpdateTask) task).addToUpdate(update);
+            }
+
+            DBObject updateObject = update.toUpdateObject();
+            if (updateObject == null) {
+                continue;
+            }
+
+            DBCollection dbCollection = getDBCollectionForType(entity.getClass());
+            BulkWriteOperation bulk = bulks.get(dbCollection.getName());
+            if (bulk == null) {
+                bulk = dbCollection.initializeUnorderedBulkOperation();
+                bulks.put(dbCollection.getName(), bulk);
+            }
+
+            BulkWriteRequestBuilder request = bulk.find(new BasicDBObject("_id", entity.getId()));
+            if (update.isReplacement()) {
+                request.replaceOne(updateObject);
+            } else {
+                request.updateOne(updateObject);
+            }
+            requestsCount++;
+        }
+
+        if (requestsCount == 0) {
+            return;
+        }
+
+        logger.debugf("Executing %d merged updates in %d bulk writes", requestsCount, bulks.size());
+        for (BulkWriteOperation bulk : bulks.values()) {
+            try {
+                bulk.execute();
+            } catch (MongoException e) {
+                throw convertException(e);
+            }
+        }
+    }
+
+    private static boolean canMerge(Set<MongoTask> tasks) {
+        for (MongoTask task : tasks) {
+            if (!(task instanceof EntityUpdateTask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public <T extends MongoIdentifiableEntity> int updateEntities(Class<T> type, DBObject query, DBObject update, MongoStoreInvocationContext context) {
         context.beforeDBBulkUpdateOrRemove(type);
@@ -352,17 +413,12 @@ public class MongoStoreImpl implements MongoStore {
 
         // Add update of list to pending tasks
         final List<S> listt = list;
-        context.addUpdateTask(entity, new MongoTask() {
+        context.addUpdateTask(entity, new EntityUpdateTask(entity) {
 
             @Override
-            public void execute() {
+            protected void addToUpdate(DocumentUpdate update) {
                 // Now DB update of new list with usage of $set
-                BasicDBList dbList = mapperRegistry.convertApplicationObjectToDBObject(listt, BasicDBList.class);
-
-                BasicDBObject query = new BasicDBObject("_id", entity.getId());
-                BasicDBObject listObject = new BasicDBObject(listPropertyName, dbList);
-                BasicDBObject setCommand = new BasicDBObject("$set", listObject);
-                getDBCollectionForType(type).update(query, setCommand);
+                update.set(listPropertyName, listt);
             }
 
             @Override
@@ -396,16 +452,13 @@ public class MongoStoreImpl implements MongoStore {
             list.remove(itemToPull);
 
             // Add update of list to pending tasks
-            context.addUpdateTask(entity, new MongoTask() {
+            final List<S> listt = list;
+            context.addUpdateTask(entity, new EntityUpdateTask(entity) {
 
                 @Override
-                public void execute() {
+                protected void addToUpdate(DocumentUpdate update) {
                     // Pull item from DB
-                    Object dbItemToPull = mapperRegistry.convertApplicationObjectToDBObject(itemToPull, Object.class);
-                    BasicDBObject query = new BasicDBObject("_id", entity.getId());
-                    BasicDBObject pullObject = new BasicDBObject(listPropertyName, dbItemToPull);
-                    BasicDBObject pullCommand = new BasicDBObject("$pull", pullObject);
-                    getDBCollectionForType(type).update(query, pullCommand);
+                    update.pull(listPropertyName, itemToPull, listt);
                 }
 
                 @Override
@@ -427,6 +480,10 @@ public class MongoStoreImpl implements MongoStore {
         mapperRegistry.addDBObjectMapper(mapper);
     }
 
+    public MapperRegistry getMapperRegistry() {
+        return mapperRegistry;
+    }
+
     public EntityInfo getEntityInfo(Class<?> entityClass) {
         EntityInfo entityInfo = entityInfoCache.get(entityClass);
         if (entityInfo == null) {
@@ -480,4 +537,106 @@ public class MongoStoreImpl implements MongoStore {
         String dbCollectionName = entityInfo.getDbCollectionName();
         return dbCollectionName==null ? null : database.getCollection(dbCollectionName);
     }
+
+    /**
+     * Update of single entity, which can be merged with other updates of same entity into single update request
+     */
+    protected abstract class EntityUpdateTask implements MongoTask {
+
+        private final MongoIdentifiableEntity entity;
+
+        protected EntityUpdateTask(MongoIdentifiableEntity entity) {
+            this.entity = entity;
+        }
+
+        protected abstract void addToUpdate(DocumentUpdate update);
+
+        @Override
+        public void execute() {
+            DocumentUpdate update = new DocumentUpdate();
+            addToUpdate(update);
+            update.execute(getDBCollectionForType(entity.getClass()), entity.getId());
+        }
+    }
+
+    /**
+     * Merged update of single document. Either full replacement of the document or combination of $set and $pull
+     */
+    protected class DocumentUpdate {
+
+        private BasicDBObject replacement;
+
+        // Values are converted when the update is sent, so the latest state of lists is used
+        private final Map<String, Object> set = new LinkedHashMap<String, Object>();
+        private final Map<String, List<Object>> pulledItems = new LinkedHashMap<String, List<Object>>();
+        private final Map<String, List<?>> pulledLists = new HashMap<String, List<?>>();
+
+        public void replace(BasicDBObject dbObject) {
+            this.replacement = dbObject;
+        }
+
+        public void set(String propertyName, Object value) {
+            set.put(propertyName, value);
+        }
+
+        public void pull(String propertyName, Object item, List<?> list) {
+            List<Object> items = pulledItems.get(propertyName);
+            if (items == null) {
+                items = new ArrayList<Object>();
+                pulledItems.put(propertyName, items);
+            }
+            items.add(item);
+            pulledLists.put(propertyName, list);
+        }
+
+        /**
+         * @return update document or null if there is nothing to update
+         */
+        protected DBObject toUpdateObject() {
+            if (replacement != null) {
+                return replacement;
+            }
+
+            BasicDBObject setObject = new BasicDBObject();
+            for (Map.Entry<String, Object> entry : set.entrySet()) {
+                setObject.put(entry.getKey(), mapperRegistry.convertApplicationObjectToDBObject(entry.getValue(), Object.class));
+            }
+
+            BasicDBObject pullObject = new BasicDBObject();
+            for (Map.Entry<String, List<Object>> entry : pulledItems.entrySet()) {
+                String propertyName = entry.getKey();
+                if (setObject.containsField(propertyName)) {
+                    // Whole list is set and it doesn't contain pulled items anymore. Same field can't be in both $set and $pull
+                    continue;
+                }
+
+                if (entry.getValue().size() == 1) {
+                    pullObject.put(propertyName, mapperRegistry.convertApplicationObjectToDBObject(entry.getValue().get(0), Object.class));
+                } else {
+                    // Can't pull more items in single $pull. Whole list, which doesn't contain pulled items anymore, is set instead
+                    setObject.put(propertyName, mapperRegistry.convertApplicationObjectToDBObject(pulledLists.get(propertyName), Object.class));
+                }
+            }
+
+            BasicDBObject updateObject = new BasicDBObject();
+            if (!setObject.isEmpty()) {
+                updateObject.put("$set", setObject);
+            }
+            if (!pullObject.isEmpty()) {
+                updateObject.put("$pull", pullObject);
+            }
+            return updateObject.isEmpty() ? null : updateObject;
+        }
+
+        public boolean isReplacement() {
+            return replacement != null;
+        }
+
+        protected void execute(DBCollection dbCollection, String id) {
+            DBObject updateObject = toUpdateObject();
+            if (updateObject != null) {
+                dbCollection.update(new BasicDBObject("_id", id), updateObject);
+            }
+        }
+    }
 }
@@ -100,21 +100,22 @@ public class TransactionMongoStoreInvocationContext implements MongoStoreInvocat
     @Override
     public void beforeDBSearch(Class<? extends MongoIdentifiableEntity> entityType) {
         // Now execute pending update tasks of type, which will be searched
-        Set<MongoIdentifiableEntity> toRemove = new HashSet<MongoIdentifiableEntity>();
+        Map<MongoIdentifiableEntity, Set<MongoTask>> toExecute = new HashMap<MongoIdentifiableEntity, Set<MongoTask>>();
 
-        for (MongoIdentifiableEntity currentEntity : pendingUpdateTasks.keySet()) {
-            if (currentEntity.getClass().equals(entityType)) {
-                Set<MongoTask> mongoTasks = pendingUpdateTasks.get(currentEntity);
-                for (MongoTask currentTask : mongoTasks) {
-                    currentTask.execute();
-                }
-
-                toRemove.add(currentEntity);
+        for (Map.Entry<MongoIdentifiableEntity, Set<MongoTask>> entry : pendingUpdateTasks.entrySet()) {
+            if (entry.getKey().getClass().equals(entityType)) {
+                toExecute.put(entry.getKey(), entry.getValue());
             }
         }
 
+        if (toExecute.isEmpty()) {
+            return;
+        }
+
+        mongoStore.executeUpdateTasks(toExecute);
+
         // Now remove all done tasks
-        for (MongoIdentifiableEntity entity : toRemove) {
+        for (MongoIdentifiableEntity entity : toExecute.keySet()) {
             pendingUpdateTasks.remove(entity);
         }
     }
@@ -145,12 +146,8 @@ public class TransactionMongoStoreInvocationContext implements MongoStoreInvocat
 
     @Override
     public void commit() {
-        // Now execute all pending update tasks
-        for (Set<MongoTask> mongoTasks : pendingUpdateTasks.values()) {
-            for (MongoTask currentTask : mongoTasks) {
-                currentTask.execute();
-            }
-        }
+        // Now execute all pending update tasks. Updates are sent to DB in bulk
+        mongoStore.executeUpdateTasks(pendingUpdateTasks);
 
         // And clear it
         loadedObjects.clear();
@@ -18,15 +18,11 @@
 package org.keycloak.connections.mongo.impl.types;
 
 import com.mongodb.BasicDBObject;
-import org.keycloak.connections.mongo.api.MongoIdentifiableEntity;
 import org.keycloak.connections.mongo.api.types.Mapper;
 import org.keycloak.connections.mongo.api.types.MapperContext;
 import org.keycloak.connections.mongo.api.types.MapperRegistry;
 import org.keycloak.connections.mongo.impl.EntityInfo;
 import org.keycloak.connections.mongo.impl.MongoStoreImpl;
-import org.keycloak.models.utils.reflection.Property;
-
-import java.util.Collection;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -51,17 +47,12 @@ public class MongoEntityMapper<T> implements Mapper<T, BasicDBObject> {
 
         // Create instance of BasicDBObject and add all declared properties to it
         BasicDBObject dbObject = new BasicDBObject();
-        Collection<Property<Object>> props = entityInfo.getProperties();
-        for (Property<Object> property : props) {
-            String propName = property.getName();
-
-            // Ignore "id" property
-            if (!"id".equals(propName) || !(applicationObject instanceof MongoIdentifiableEntity)) {
-                Object propValue = property.getValue(applicationObject);
-                if (propValue != null) {
-                    Object dbValue = propValue == null ? null : mapperRegistry.convertApplicationObjectToDBObject(propValue, Object.class);
-                    dbObject.put(propName, dbValue);
-                }
+        // "id" property of identifiable entities is not included
+        for (EntityInfo.PropertyInfo property : entityInfo.getPersistedProperties()) {
+            Object propValue = property.getProperty().getValue(applicationObject);
+            if (propValue != null) {
+                Object dbValue = mapperRegistry.convertApplicationObjectToDBObject(propValue, Object.class);
+                dbObject.put(property.getName(), dbValue);
             }
         }
 
@@ -32,6 +32,7 @@ import org.keycloak.models.ProtocolMapperModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RequiredActionProviderModel;
 import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserBulkQueryProvider;
 import org.keycloak.models.UserCredentialModel;
 import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserModel;
@@ -42,6 +43,7 @@ import org.keycloak.models.mongo.keycloak.entities.MongoUserEntity;
 import org.keycloak.models.utils.CredentialValidation;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -52,7 +54,7 @@ import java.util.regex.Pattern;
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
-public class MongoUserProvider implements UserProvider {
+public class MongoUserProvider implements UserProvider, UserBulkQueryProvider {
 
     private final MongoStoreInvocationContext invocationContext;
     private final KeycloakSession session;
@@ -93,6 +95,21 @@ public class MongoUserProvider implements UserProvider {
         }
     }
 
+    @Override
+    public List<UserModel> getUsersByUsernames(Collection<String> usernames, RealmModel realm) {
+        List<String> lowerCased = new ArrayList<String>();
+        for (String username : usernames) {
+            lowerCased.add(username.toLowerCase());
+        }
+
+        DBObject query = new QueryBuilder()
+                .and("username").in(lowerCased)
+                .and("realmId").is(realm.getId())
+                .get();
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, query, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
     @Override
     public UserModel getUserByEmail(String email, RealmModel realm) {
         DBObject query = new QueryBuilder()
@@ -173,17 +190,32 @@ public class MongoUserProvider implements UserProvider {
 
     @Override
     public List<UserModel> getUsers(RealmModel realm, int firstResult, int maxResults, boolean includeServiceAccounts) {
+        DBObject query = createUsersQuery(realm, includeServiceAccounts).get();
+        DBObject sort = new BasicDBObject("username", 1);
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, query, sort, firstResult, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String afterUsername, int maxResults, boolean includeServiceAccounts) {
+        QueryBuilder queryBuilder = createUsersQuery(realm, includeServiceAccounts);
+        if (afterUsername != null) {
+            queryBuilder = queryBuilder.and("username").greaterThan(afterUsername);
+        }
+
+        DBObject sort = new BasicDBObject("username", 1);
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, queryBuilder.get(), sort, -1, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    private QueryBuilder createUsersQuery(RealmModel realm, boolean includeServiceAccounts) {
         QueryBuilder queryBuilder = new QueryBuilder()
                 .and("realmId").is(realm.getId());
 
         if (!includeServiceAccounts) {
             queryBuilder = queryBuilder.and("serviceAccountClientLink").is(null);
         }
-
-        DBObject query = queryBuilder.get();
-        DBObject sort = new BasicDBObject("username", 1);
-        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, query, sort, firstResult, maxResults, invocationContext);
-        return convertUserEntities(realm, users);
+        return queryBuilder;
     }
 
     @Override
@@ -193,8 +225,45 @@ public class MongoUserProvider implements UserProvider {
 
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm, int firstResult, int maxResults) {
+        QueryBuilder builder = new QueryBuilder().and(
+                new QueryBuilder().and("realmId").is(realm.getId()).get(),
+                new QueryBuilder().and("serviceAccountClientLink").is(null).get(),
+                createSearchQuery(search)
+        );
+
+        DBObject sort = new BasicDBObject("username", 1);
+
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, firstResult, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String afterUsername, int maxResults) {
+        if (afterUsername == null) {
+            return searchForUser(search, realm, -1, maxResults);
+        }
+
+        QueryBuilder builder = new QueryBuilder().and(
+                new QueryBuilder().and("realmId").is(realm.getId()).get(),
+                new QueryBuilder().and("serviceAccountClientLink").is(null).get(),
+                new QueryBuilder().and("username").greaterThan(afterUsername).get(),
+                createSearchQuery(search)
+        );
+
+        DBObject sort = new BasicDBObject("username", 1);
+
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, -1, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    private DBObject createSearchQuery(String search) {
+        // Values are matched anywhere. Search ending with wildcard '*' is matched as prefix, like in other stores
         search = search.trim();
-        Pattern caseInsensitivePattern = Pattern.compile("(?i:" + search + ")");
+        boolean prefixSearch = isPrefixSearch(search);
+        if (prefixSearch) {
+            search = search.substring(0, search.length() - 1);
+        }
+        Pattern caseInsensitivePattern = Pattern.compile("(?i:" + (prefixSearch ? "^" : "") + search + ")");
 
         QueryBuilder nameBuilder;
         int spaceInd = search.lastIndexOf(" ");
@@ -217,21 +286,11 @@ public class MongoUserProvider implements UserProvider {
             );
         }
 
-        QueryBuilder builder = new QueryBuilder().and(
-                new QueryBuilder().and("realmId").is(realm.getId()).get(),
-                new QueryBuilder().and("serviceAccountClientLink").is(null).get(),
-                new QueryBuilder().or(
-                        new QueryBuilder().put("username").regex(caseInsensitivePattern).get(),
-                        new QueryBuilder().put("email").regex(caseInsensitivePattern).get(),
-                        nameBuilder.get()
-
-                ).get()
-        );
-
-        DBObject sort = new BasicDBObject("username", 1);
-
-        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, firstResult, maxResults, invocationContext);
-        return convertUserEntities(realm, users);
+        return new QueryBuilder().or(
+                new QueryBuilder().put("username").regex(caseInsensitivePattern).get(),
+                new QueryBuilder().put("email").regex(caseInsensitivePattern).get(),
+                nameBuilder.get()
+        ).get();
     }
 
     @Override
@@ -246,15 +305,15 @@ public class MongoUserProvider implements UserProvider {
 
         for (Map.Entry<String, String> entry : attributes.entrySet()) {
             if (entry.getKey().equalsIgnoreCase(UserModel.USERNAME)) {
-                queryBuilder.and(UserModel.USERNAME).regex(Pattern.compile(".*" + entry.getValue() + ".*", Pattern.CASE_INSENSITIVE));
+                queryBuilder.and(UserModel.USERNAME).regex(toSearchPattern(entry.getValue()));
             } else if (entry.getKey().equalsIgnoreCase(UserModel.FIRST_NAME)) {
-                queryBuilder.and(UserModel.FIRST_NAME).regex(Pattern.compile(".*" + entry.getValue() + ".*", Pattern.CASE_INSENSITIVE));
+                queryBuilder.and(UserModel.FIRST_NAME).regex(toSearchPattern(entry.getValue()));
 
             } else if (entry.getKey().equalsIgnoreCase(UserModel.LAST_NAME)) {
-                queryBuilder.and(UserModel.LAST_NAME).regex(Pattern.compile(".*" + entry.getValue() + ".*", Pattern.CASE_INSENSITIVE));
+                queryBuilder.and(UserModel.LAST_NAME).regex(toSearchPattern(entry.getValue()));
 
             } else if (entry.getKey().equalsIgnoreCase(UserModel.EMAIL)) {
-                queryBuilder.and(UserModel.EMAIL).regex(Pattern.compile(".*" + entry.getValue() + ".*", Pattern.CASE_INSENSITIVE));
+                queryBuilder.and(UserModel.EMAIL).regex(toSearchPattern(entry.getValue()));
             }
         }
 
@@ -264,6 +323,19 @@ public class MongoUserProvider implements UserProvider {
         return convertUserEntities(realm, users);
     }
 
+    // Value ending with wildcard '*' (e.g. "doe*") is matched as prefix, other values are matched anywhere
+    private static Pattern toSearchPattern(String value) {
+        value = value.trim();
+        if (isPrefixSearch(value)) {
+            return Pattern.compile("^" + value.substring(0, value.length() - 1), Pattern.CASE_INSENSITIVE);
+        }
+        return Pattern.compile(".*" + value + ".*", Pattern.CASE_INSENSITIVE);
+    }
+
+    private static boolean isPrefixSearch(String value) {
+        return value.endsWith("*");
+    }
+
     @Override
     public List<UserModel> searchForUserByUserAttribute(String attrName, String attrValue, RealmModel realm) {
         QueryBuilder queryBuilder = new QueryBuilder()
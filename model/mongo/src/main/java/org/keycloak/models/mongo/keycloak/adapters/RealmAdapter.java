@@ -364,6 +364,50 @@ public class RealmAdapter extends AbstractMongoAdapter<MongoRealmEntity> impleme
         updateRealm();
     }
 
+    @Override
+    public boolean isRefreshTokenSymmetricSigning() {
+        return realm.isRefreshTokenSymmetricSigning();
+    }
+
+    @Override
+    public void setRefreshTokenSymmetricSigning(boolean refreshTokenSymmetricSigning) {
+        realm.setRefreshTokenSymmetricSigning(refreshTokenSymmetricSigning);
+        updateRealm();
+    }
+
+    @Override
+    public String getRefreshTokenSecretKid() {
+        return realm.getRefreshTokenSecretKid();
+    }
+
+    @Override
+    public void setRefreshTokenSecretKid(String kid) {
+        realm.setRefreshTokenSecretKid(kid);
+        updateRealm();
+    }
+
+    @Override
+    public Map<String, String> getRefreshTokenSecrets() {
+        Map<String, String> secrets = realm.getRefreshTokenSecrets();
+        return secrets == null ? new HashMap<String, String>() : new HashMap<String, String>(secrets);
+    }
+
+    @Override
+    public void addRefreshTokenSecret(String kid, String secret) {
+        if (realm.getRefreshTokenSecrets() == null) {
+            realm.setRefreshTokenSecrets(new HashMap<String, String>());
+        }
+        realm.getRefreshTokenSecrets().put(kid, secret);
+        updateRealm();
+    }
+
+    @Override
+    public void removeRefreshTokenSecret(String kid) {
+        if (realm.getRefreshTokenSecrets() == null) return;
+        realm.getRefreshTokenSecrets().remove(kid);
+        updateRealm();
+    }
+
     @Override
     public int getSsoSessionIdleTimeout() {
         return realm.getSsoSessionIdleTimeout();
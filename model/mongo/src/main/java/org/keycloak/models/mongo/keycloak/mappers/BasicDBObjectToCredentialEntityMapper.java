@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.mongo.keycloak.mappers;
+
+import com.mongodb.BasicDBObject;
+import org.jboss.logging.Logger;
+import org.keycloak.connections.mongo.api.types.Mapper;
+import org.keycloak.connections.mongo.api.types.MapperContext;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
+import org.keycloak.models.entities.CredentialEntity;
+import org.keycloak.models.entities.UserEntity;
+
+import java.util.Map;
+
+/**
+ * Converts DB object to credential without reflection
+ */
+public class BasicDBObjectToCredentialEntityMapper implements Mapper<BasicDBObject, CredentialEntity> {
+
+    private static final Logger logger = Logger.getLogger(BasicDBObjectToCredentialEntityMapper.class);
+
+    private final MapperRegistry mapperRegistry;
+
+    public BasicDBObjectToCredentialEntityMapper(MapperRegistry mapperRegistry) {
+        this.mapperRegistry = mapperRegistry;
+    }
+
+    @Override
+    public CredentialEntity convertObject(MapperContext<BasicDBObject, CredentialEntity> context) {
+        BasicDBObject dbObject = context.getObjectToConvert();
+        if (dbObject == null) {
+            return null;
+        }
+
+        CredentialEntity credential = new CredentialEntity();
+        for (Map.Entry<String, Object> dbEntry : dbObject.entrySet()) {
+            String key = dbEntry.getKey();
+            Object value = dbEntry.getValue();
+
+            switch (key) {
+                case "_id":
+                    // Not identifiable entity
+                    break;
+                case "id":
+                    credential.setId((String) value);
+                    break;
+                case "type":
+                    credential.setType((String) value);
+                    break;
+                case "value":
+                    credential.setValue((String) value);
+                    break;
+                case "device":
+                    credential.setDevice((String) value);
+                    break;
+                case "salt":
+                    credential.setSalt((byte[]) value);
+                    break;
+                case "hashIterations":
+                    credential.setHashIterations((Integer) value);
+                    break;
+                case "createdDate":
+                    credential.setCreatedDate((Long) value);
+                    break;
+                case "user":
+                    credential.setUser(value == null ? null : mapperRegistry.convertDBObjectToApplicationObject(
+                            new MapperContext<Object, UserEntity>(value, UserEntity.class, null)));
+                    break;
+                case "counter":
+                    credential.setCounter((Integer) value);
+                    break;
+                case "algorithm":
+                    credential.setAlgorithm((String) value);
+                    break;
+                case "digits":
+                    credential.setDigits((Integer) value);
+                    break;
+                case "period":
+                    credential.setPeriod((Integer) value);
+                    break;
+                default:
+                    logger.warn("Property with key " + key + " not known for type " + CredentialEntity.class);
+            }
+        }
+
+        return credential;
+    }
+
+    @Override
+    public Class<? extends BasicDBObject> getTypeOfObjectToConvert() {
+        return BasicDBObject.class;
+    }
+
+    @Override
+    public Class<CredentialEntity> getExpectedReturnType() {
+        return CredentialEntity.class;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.mongo.keycloak.mappers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.jboss.logging.Logger;
+import org.keycloak.connections.mongo.api.types.Mapper;
+import org.keycloak.connections.mongo.api.types.MapperContext;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
+import org.keycloak.connections.mongo.impl.MongoStoreImpl;
+import org.keycloak.models.entities.CredentialEntity;
+import org.keycloak.models.entities.FederatedIdentityEntity;
+import org.keycloak.models.mongo.keycloak.entities.MongoUserEntity;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts DB object to user without reflection as users are loaded on every login. Same entity is created like by generic
+ * {@link org.keycloak.connections.mongo.impl.types.BasicDBObjectMapper}
+ */
+public class BasicDBObjectToMongoUserEntityMapper implements Mapper<BasicDBObject, MongoUserEntity> {
+
+    private static final Logger logger = Logger.getLogger(BasicDBObjectToMongoUserEntityMapper.class);
+
+    private final MapperRegistry mapperRegistry;
+
+    // Generic arguments of Map<String, List<String>>
+    private final List<Type> attributesGenericTypes;
+
+    public BasicDBObjectToMongoUserEntityMapper(MongoStoreImpl mongoStoreImpl, MapperRegistry mapperRegistry) {
+        this.mapperRegistry = mapperRegistry;
+        this.attributesGenericTypes = mongoStoreImpl.getEntityInfo(MongoUserEntity.class).getPropertyInfoByName("attributes").getGenericTypes();
+    }
+
+    @Override
+    public MongoUserEntity convertObject(MapperContext<BasicDBObject, MongoUserEntity> context) {
+        BasicDBObject dbObject = context.getObjectToConvert();
+        if (dbObject == null) {
+            return null;
+        }
+
+        MongoUserEntity user = new MongoUserEntity();
+        for (Map.Entry<String, Object> dbEntry : dbObject.entrySet()) {
+            String key = dbEntry.getKey();
+            Object value = dbEntry.getValue();
+
+            switch (key) {
+                case "_id":
+                    user.setId(value.toString());
+                    break;
+                case "username":
+                    user.setUsername((String) value);
+                    break;
+                case "createdTimestamp":
+                    user.setCreatedTimestamp((Long) value);
+                    break;
+                case "firstName":
+                    user.setFirstName((String) value);
+                    break;
+                case "lastName":
+                    user.setLastName((String) value);
+                    break;
+                case "email":
+                    user.setEmail((String) value);
+                    break;
+                case "emailVerified":
+                    user.setEmailVerified((Boolean) value);
+                    break;
+                case "totp":
+                    user.setTotp((Boolean) value);
+                    break;
+                case "enabled":
+                    user.setEnabled((Boolean) value);
+                    break;
+                case "realmId":
+                    user.setRealmId((String) value);
+                    break;
+                case "roleIds":
+                    user.setRoleIds(toStringList(value));
+                    break;
+                case "groupIds":
+                    user.setGroupIds(toStringList(value));
+                    break;
+                case "requiredActions":
+                    user.setRequiredActions(toStringList(value));
+                    break;
+                case "federationLink":
+                    user.setFederationLink((String) value);
+                    break;
+                case "serviceAccountClientLink":
+                    user.setServiceAccountClientLink((String) value);
+                    break;
+                case "emailIndex":
+                    // Computed from email
+                    break;
+                case "attributes":
+                    user.setAttributes(value == null ? null : (Map<String, List<String>>) mapperRegistry.convertDBObjectToApplicationObject(
+                            new MapperContext<Object, Object>(value, Map.class, attributesGenericTypes)));
+                    break;
+                case "credentials":
+                    user.setCredentials(toEntityList(value, CredentialEntity.class));
+                    break;
+                case "federatedIdentities":
+                    user.setFederatedIdentities(toEntityList(value, FederatedIdentityEntity.class));
+                    break;
+                default:
+                    logger.warn("Property with key " + key + " not known for type " + MongoUserEntity.class);
+            }
+        }
+
+        return user;
+    }
+
+    private static List<String> toStringList(Object dbValue) {
+        if (dbValue == null) {
+            return null;
+        }
+
+        BasicDBList dbList = (BasicDBList) dbValue;
+        List<String> values = new ArrayList<>(dbList.size());
+        for (Object item : dbList) {
+            values.add((String) item);
+        }
+        return values;
+    }
+
+    private <T> List<T> toEntityList(Object dbValue, Class<T> entityType) {
+        if (dbValue == null) {
+            return null;
+        }
+
+        BasicDBList dbList = (BasicDBList) dbValue;
+        List<T> entities = new ArrayList<>(dbList.size());
+        for (Object item : dbList) {
+            entities.add(mapperRegistry.convertDBObjectToApplicationObject(new MapperContext<Object, T>(item, entityType, null)));
+        }
+        return entities;
+    }
+
+    @Override
+    public Class<? extends BasicDBObject> getTypeOfObjectToConvert() {
+        return BasicDBObject.class;
+    }
+
+    @Override
+    public Class<MongoUserEntity> getExpectedReturnType() {
+        return MongoUserEntity.class;
+    }
+}
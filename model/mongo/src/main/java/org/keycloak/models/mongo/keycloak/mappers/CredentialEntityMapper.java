@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.mongo.keycloak.mappers;
+
+import com.mongodb.BasicDBObject;
+import org.keycloak.connections.mongo.api.types.Mapper;
+import org.keycloak.connections.mongo.api.types.MapperContext;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
+import org.keycloak.models.entities.CredentialEntity;
+
+/**
+ * Converts credential to DB object without reflection. Credentials are embedded in user document, so they are converted
+ * together with every saved user
+ */
+public class CredentialEntityMapper implements Mapper<CredentialEntity, BasicDBObject> {
+
+    private final MapperRegistry mapperRegistry;
+
+    public CredentialEntityMapper(MapperRegistry mapperRegistry) {
+        this.mapperRegistry = mapperRegistry;
+    }
+
+    @Override
+    public BasicDBObject convertObject(MapperContext<CredentialEntity, BasicDBObject> context) {
+        CredentialEntity credential = context.getObjectToConvert();
+
+        // Credential isn't identifiable entity, so "id" is saved as regular property
+        BasicDBObject dbObject = new BasicDBObject();
+        putIfNotNull(dbObject, "id", credential.getId());
+        putIfNotNull(dbObject, "type", credential.getType());
+        putIfNotNull(dbObject, "value", credential.getValue());
+        putIfNotNull(dbObject, "device", credential.getDevice());
+        putIfNotNull(dbObject, "salt", credential.getSalt());
+        dbObject.put("hashIterations", credential.getHashIterations());
+        putIfNotNull(dbObject, "createdDate", credential.getCreatedDate());
+        if (credential.getUser() != null) {
+            dbObject.put("user", mapperRegistry.convertApplicationObjectToDBObject(credential.getUser(), Object.class));
+        }
+        dbObject.put("counter", credential.getCounter());
+        putIfNotNull(dbObject, "algorithm", credential.getAlgorithm());
+        dbObject.put("digits", credential.getDigits());
+        dbObject.put("period", credential.getPeriod());
+        return dbObject;
+    }
+
+    private static void putIfNotNull(BasicDBObject dbObject, String key, Object value) {
+        if (value != null) {
+            dbObject.put(key, value);
+        }
+    }
+
+    @Override
+    public Class<? extends CredentialEntity> getTypeOfObjectToConvert() {
+        return CredentialEntity.class;
+    }
+
+    @Override
+    public Class<BasicDBObject> getExpectedReturnType() {
+        return BasicDBObject.class;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.mongo.keycloak.mappers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.keycloak.connections.mongo.api.types.Mapper;
+import org.keycloak.connections.mongo.api.types.MapperContext;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
+import org.keycloak.models.mongo.keycloak.entities.MongoUserEntity;
+
+import java.util.Collection;
+
+/**
+ * Converts user to DB object without reflection as users are saved much more often than other entities. Same document is
+ * created like by generic {@link org.keycloak.connections.mongo.impl.types.MongoEntityMapper}, so new property of
+ * {@link org.keycloak.models.entities.UserEntity} must be added here and to {@link BasicDBObjectToMongoUserEntityMapper} too.
+ */
+public class MongoUserEntityMapper implements Mapper<MongoUserEntity, BasicDBObject> {
+
+    private final MapperRegistry mapperRegistry;
+
+    public MongoUserEntityMapper(MapperRegistry mapperRegistry) {
+        this.mapperRegistry = mapperRegistry;
+    }
+
+    @Override
+    public BasicDBObject convertObject(MapperContext<MongoUserEntity, BasicDBObject> context) {
+        MongoUserEntity user = context.getObjectToConvert();
+
+        // "id" is saved as "_id" by MongoStoreImpl
+        BasicDBObject dbObject = new BasicDBObject();
+        putIfNotNull(dbObject, "username", user.getUsername());
+        putIfNotNull(dbObject, "createdTimestamp", user.getCreatedTimestamp());
+        putIfNotNull(dbObject, "firstName", user.getFirstName());
+        putIfNotNull(dbObject, "lastName", user.getLastName());
+        putIfNotNull(dbObject, "email", user.getEmail());
+        dbObject.put("emailVerified", user.isEmailVerified());
+        dbObject.put("totp", user.isTotp());
+        dbObject.put("enabled", user.isEnabled());
+        putIfNotNull(dbObject, "realmId", user.getRealmId());
+        putIfNotNull(dbObject, "roleIds", toDBList(user.getRoleIds()));
+        putIfNotNull(dbObject, "groupIds", toDBList(user.getGroupIds()));
+        putIfNotNull(dbObject, "requiredActions", toDBList(user.getRequiredActions()));
+        putIfNotNull(dbObject, "federationLink", user.getFederationLink());
+        putIfNotNull(dbObject, "serviceAccountClientLink", user.getServiceAccountClientLink());
+        putIfNotNull(dbObject, "emailIndex", user.getEmailIndex());
+
+        // Nested values are converted by registered mappers
+        putIfNotNull(dbObject, "attributes", mapperRegistry.convertApplicationObjectToDBObject(user.getAttributes(), Object.class));
+        putIfNotNull(dbObject, "credentials", mapperRegistry.convertApplicationObjectToDBObject(user.getCredentials(), Object.class));
+        putIfNotNull(dbObject, "federatedIdentities", mapperRegistry.convertApplicationObjectToDBObject(user.getFederatedIdentities(), Object.class));
+
+        return dbObject;
+    }
+
+    private static void putIfNotNull(BasicDBObject dbObject, String key, Object value) {
+        if (value != null) {
+            dbObject.put(key, value);
+        }
+    }
+
+    private static BasicDBList toDBList(Collection<String> values) {
+        if (values == null) {
+            return null;
+        }
+
+        BasicDBList dbList = new BasicDBList();
+        dbList.addAll(values);
+        return dbList;
+    }
+
+    @Override
+    public Class<? extends MongoUserEntity> getTypeOfObjectToConvert() {
+        return MongoUserEntity.class;
+    }
+
+    @Override
+    public Class<BasicDBObject> getExpectedReturnType() {
+        return BasicDBObject.class;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.connections.mongo.api.types;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MapperRegistryTest {
+
+    @Test
+    public void testMapperResolvedFromSuperclass() {
+        MapperRegistry registry = new MapperRegistry();
+        TestMapper<Number> numberMapper = new TestMapper<>(Number.class, "number:");
+        registry.addAppObjectMapper(numberMapper);
+
+        Assert.assertEquals("number:1", registry.convertApplicationObjectToDBObject(1, String.class));
+        Assert.assertEquals("number:2", registry.convertApplicationObjectToDBObject(2, String.class));
+        Assert.assertEquals("number:3", registry.convertApplicationObjectToDBObject(3L, String.class));
+        Assert.assertEquals(3, numberMapper.count);
+    }
+
+    @Test
+    public void testMapperResolvedFromInterface() {
+        MapperRegistry registry = new MapperRegistry();
+        registry.addAppObjectMapper(new TestMapper<>(CharSequence.class, "chars:"));
+
+        Assert.assertEquals("chars:foo", registry.convertApplicationObjectToDBObject("foo", String.class));
+        Assert.assertEquals("chars:bar", registry.convertApplicationObjectToDBObject(new StringBuilder("bar"), String.class));
+    }
+
+    @Test
+    public void testAddedMapperReplacesResolvedMapper() {
+        MapperRegistry registry = new MapperRegistry();
+        registry.addAppObjectMapper(new TestMapper<>(Number.class, "number:"));
+        Assert.assertEquals("number:1", registry.convertApplicationObjectToDBObject(1, String.class));
+
+        // More specific mapper registered later must be used instead of the one resolved before
+        registry.addAppObjectMapper(new TestMapper<>(Integer.class, "integer:"));
+        Assert.assertEquals("integer:1", registry.convertApplicationObjectToDBObject(1, String.class));
+        Assert.assertEquals("number:1", registry.convertApplicationObjectToDBObject(1L, String.class));
+    }
+
+    @Test
+    public void testMissingMapper() {
+        MapperRegistry registry = new MapperRegistry();
+        registry.addAppObjectMapper(new TestMapper<>(Number.class, "number:"));
+
+        try {
+            registry.convertApplicationObjectToDBObject("foo", String.class);
+            Assert.fail("Not expected to find mapper for String");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Missing mapper is not remembered
+        registry.addAppObjectMapper(new TestMapper<>(String.class, "string:"));
+        Assert.assertEquals("string:foo", registry.convertApplicationObjectToDBObject("foo", String.class));
+    }
+
+    @Test
+    public void testUnexpectedReturnType() {
+        MapperRegistry registry = new MapperRegistry();
+        registry.addAppObjectMapper(new TestMapper<>(Number.class, "number:"));
+        Assert.assertEquals("number:1", registry.convertApplicationObjectToDBObject(1, String.class));
+
+        try {
+            registry.convertApplicationObjectToDBObject(1, Integer.class);
+            Assert.fail("Not expected to convert to Integer");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+
+    private static class TestMapper<T> implements Mapper<T, String> {
+
+        private final Class<T> type;
+        private final String prefix;
+        private int count;
+
+        private TestMapper(Class<T> type, String prefix) {
+            this.type = type;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String convertObject(MapperContext<T, String> mapperContext) {
+            count++;
+            return prefix + mapperContext.getObjectToConvert();
+        }
+
+        @Override
+        public Class<? extends T> getTypeOfObjectToConvert() {
+            return type;
+        }
+
+        @Override
+        public Class<String> getExpectedReturnType() {
+            return String.class;
+        }
+    }
+}
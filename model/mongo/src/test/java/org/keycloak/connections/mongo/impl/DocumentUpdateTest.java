@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.connections.mongo.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DocumentUpdateTest {
+
+    private final MongoStoreImpl mongoStore = new MongoStoreImpl(null, new Class<?>[0]);
+
+    @Test
+    public void testEmptyUpdate() {
+        Assert.assertNull(mongoStore.new DocumentUpdate().toUpdateObject());
+    }
+
+    @Test
+    public void testSinglePull() {
+        List<String> roles = new ArrayList<>(Arrays.asList("role2"));
+
+        MongoStoreImpl.DocumentUpdate update = mongoStore.new DocumentUpdate();
+        update.pull("roleIds", "role1", roles);
+
+        DBObject updateObject = update.toUpdateObject();
+        Assert.assertEquals(new BasicDBObject("roleIds", "role1"), updateObject.get("$pull"));
+        Assert.assertNull(updateObject.get("$set"));
+    }
+
+    @Test
+    public void testMorePullsCollapsedToSet() {
+        List<String> roles = new ArrayList<>(Arrays.asList("role1", "role2", "role3"));
+
+        MongoStoreImpl.DocumentUpdate update = mongoStore.new DocumentUpdate();
+        roles.remove("role1");
+        update.pull("roleIds", "role1", roles);
+        roles.remove("role3");
+        update.pull("roleIds", "role3", roles);
+
+        // Single $pull can't remove more items, so remaining items are set
+        DBObject updateObject = update.toUpdateObject();
+        Assert.assertNull(updateObject.get("$pull"));
+        BasicDBObject setObject = (BasicDBObject) updateObject.get("$set");
+        Assert.assertEquals(1, setObject.size());
+        Assert.assertEquals(Arrays.asList("role2"), setObject.get("roleIds"));
+    }
+
+    @Test
+    public void testSetAndPullOfSameField() {
+        List<String> roles = new ArrayList<>(Arrays.asList("role1"));
+
+        MongoStoreImpl.DocumentUpdate update = mongoStore.new DocumentUpdate();
+        roles.add("role2");
+        update.set("roleIds", roles);
+        roles.remove("role1");
+        update.pull("roleIds", "role1", roles);
+
+        // Same field can't be in both $set and $pull. Latest state of the list is set
+        DBObject updateObject = update.toUpdateObject();
+        Assert.assertNull(updateObject.get("$pull"));
+        Assert.assertEquals(new BasicDBObject("roleIds", Arrays.asList("role2")), updateObject.get("$set"));
+    }
+
+    @Test
+    public void testSetAndPullOfDifferentFields() {
+        List<String> roles = new ArrayList<>(Arrays.asList("role2"));
+        List<String> groups = new ArrayList<>(Arrays.asList("group1"));
+
+        MongoStoreImpl.DocumentUpdate update = mongoStore.new DocumentUpdate();
+        update.set("groupIds", groups);
+        update.pull("roleIds", "role1", roles);
+
+        DBObject updateObject = update.toUpdateObject();
+        Assert.assertEquals(new BasicDBObject("groupIds", Arrays.asList("group1")), updateObject.get("$set"));
+        Assert.assertEquals(new BasicDBObject("roleIds", "role1"), updateObject.get("$pull"));
+    }
+
+    @Test
+    public void testReplacementWins() {
+        BasicDBObject replacement = new BasicDBObject("username", "john");
+
+        MongoStoreImpl.DocumentUpdate update = mongoStore.new DocumentUpdate();
+        update.set("roleIds", new ArrayList<>(Arrays.asList("role1")));
+        update.pull("groupIds", "group1", new ArrayList<String>());
+        update.replace(replacement);
+
+        Assert.assertTrue(update.isReplacement());
+        Assert.assertSame(replacement, update.toUpdateObject());
+    }
+}
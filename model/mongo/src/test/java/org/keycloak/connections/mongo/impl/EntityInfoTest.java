@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.connections.mongo.impl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.connections.mongo.api.MongoIdentifiableEntity;
+import org.keycloak.connections.mongo.api.context.MongoStoreInvocationContext;
+import org.keycloak.models.utils.reflection.PropertyQueries;
+
+public class EntityInfoTest {
+
+    @Test
+    public void testPersistedProperties() {
+        EntityInfo entityInfo = createEntityInfo(TestEntity.class);
+
+        Set<String> persisted = new HashSet<>();
+        for (EntityInfo.PropertyInfo propertyInfo : entityInfo.getPersistedProperties()) {
+            persisted.add(propertyInfo.getName());
+        }
+
+        // Id is saved as "_id"
+        Assert.assertEquals(new HashSet<>(Arrays.asList("name", "enabled", "roles")), persisted);
+        Assert.assertNotNull(entityInfo.getPropertyInfoByName("id"));
+    }
+
+    @Test
+    public void testPropertyTypes() {
+        EntityInfo entityInfo = createEntityInfo(TestEntity.class);
+
+        EntityInfo.PropertyInfo name = entityInfo.getPropertyInfoByName("name");
+        Assert.assertEquals(String.class, name.getExpectedReturnType());
+        Assert.assertEquals(String.class, name.getBoxedJavaClass());
+        Assert.assertNull(name.getGenericTypes());
+
+        // Primitives are boxed
+        EntityInfo.PropertyInfo enabled = entityInfo.getPropertyInfoByName("enabled");
+        Assert.assertEquals(Boolean.class, enabled.getExpectedReturnType());
+        Assert.assertEquals(Boolean.class, enabled.getBoxedJavaClass());
+
+        // Parameterized types are resolved to raw type and generic arguments
+        EntityInfo.PropertyInfo roles = entityInfo.getPropertyInfoByName("roles");
+        Assert.assertEquals(List.class, roles.getExpectedReturnType());
+        Assert.assertEquals(Arrays.asList(String.class), roles.getGenericTypes());
+    }
+
+    @Test
+    public void testNewInstance() {
+        EntityInfo entityInfo = createEntityInfo(TestEntity.class);
+
+        Object entity1 = entityInfo.newInstance();
+        Object entity2 = entityInfo.newInstance();
+        Assert.assertTrue(entity1 instanceof TestEntity);
+        Assert.assertNotSame(entity1, entity2);
+
+        EntityInfo noConstructorInfo = createEntityInfo(NoConstructorEntity.class);
+        try {
+            noConstructorInfo.newInstance();
+            Assert.fail("Not expected to instantiate class without no-arg constructor");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private EntityInfo createEntityInfo(Class<?> entityClass) {
+        return new EntityInfo(entityClass, "test", PropertyQueries.createQuery(entityClass).getWritableResultList());
+    }
+
+
+    public static class TestEntity implements MongoIdentifiableEntity {
+
+        private String id;
+        private String name;
+        private boolean enabled;
+        private List<String> roles;
+
+        // Private constructor is enough for the mapping
+        private TestEntity() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        public void setRoles(List<String> roles) {
+            this.roles = roles;
+        }
+
+        @Override
+        public void afterRemove(MongoStoreInvocationContext invocationContext) {
+        }
+    }
+
+    public static class NoConstructorEntity {
+
+        private String name;
+
+        public NoConstructorEntity(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
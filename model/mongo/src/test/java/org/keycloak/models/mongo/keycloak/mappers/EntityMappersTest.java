@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.mongo.keycloak.mappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mongodb.BasicDBObject;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.connections.mongo.api.types.MapperContext;
+import org.keycloak.connections.mongo.api.types.MapperRegistry;
+import org.keycloak.connections.mongo.impl.MongoStoreImpl;
+import org.keycloak.models.entities.CredentialEntity;
+import org.keycloak.models.entities.FederatedIdentityEntity;
+import org.keycloak.models.mongo.keycloak.entities.MongoUserEntity;
+
+/**
+ * Hand-written mappers must produce same documents and entities like generic reflection-based mappers
+ */
+public class EntityMappersTest {
+
+    private static final Logger logger = Logger.getLogger(EntityMappersTest.class);
+
+    private static final Class<?>[] MANAGED_ENTITIES = { MongoUserEntity.class, CredentialEntity.class, FederatedIdentityEntity.class };
+
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void testSameDocumentAsGenericMapper() {
+        MongoUserEntity user = createUser();
+
+        BasicDBObject genericDBObject = toDBObject(createStore(false), user);
+        BasicDBObject dbObject = toDBObject(createStore(true), user);
+
+        Assert.assertEquals(genericDBObject, dbObject);
+        Assert.assertFalse(dbObject.containsKey("id"));
+        Assert.assertEquals("realm1//john@email.org", dbObject.get("emailIndex"));
+        Assert.assertEquals("cred1", ((BasicDBObject) ((List) dbObject.get("credentials")).get(0)).get("id"));
+        Assert.assertTrue(((BasicDBObject) dbObject.get("attributes")).containsKey("address###street"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        MongoStoreImpl genericStore = createStore(false);
+        MongoStoreImpl store = createStore(true);
+        BasicDBObject dbObject = toDBObject(genericStore, createUser());
+        dbObject.put("_id", "user1");
+
+        MongoUserEntity user = fromDBObject(store, dbObject);
+        Assert.assertEquals("user1", user.getId());
+        Assert.assertEquals("john", user.getUsername());
+        Assert.assertEquals(Long.valueOf(1000L), user.getCreatedTimestamp());
+        Assert.assertTrue(user.isEnabled());
+        Assert.assertFalse(user.isTotp());
+        Assert.assertEquals(Arrays.asList("role1", "role2"), user.getRoleIds());
+        Assert.assertEquals(Arrays.asList("street 1"), user.getAttributes().get("address.street"));
+        Assert.assertEquals(2, user.getCredentials().size());
+        Assert.assertEquals(27000, user.getCredentials().get(0).getHashIterations());
+        Assert.assertEquals("github", user.getFederatedIdentities().get(0).getIdentityProvider());
+
+        // Entity read by hand-written mapper is same like the one read by generic mapper
+        MongoUserEntity genericUser = fromDBObject(genericStore, dbObject);
+        BasicDBObject expected = toDBObject(genericStore, genericUser);
+        Assert.assertEquals(expected, toDBObject(genericStore, user));
+        Assert.assertEquals(expected, toDBObject(store, user));
+        Assert.assertEquals(user.getId(), genericUser.getId());
+    }
+
+    @Test
+    public void testMappingCost() {
+        MongoStoreImpl genericStore = createStore(false);
+        MongoStoreImpl store = createStore(true);
+        MongoUserEntity user = createUser();
+        BasicDBObject dbObject = toDBObject(genericStore, user);
+
+        // Warm up both paths first
+        long genericTime = measure(genericStore, user, dbObject);
+        long time = measure(store, user, dbObject);
+        genericTime = measure(genericStore, user, dbObject);
+        time = measure(store, user, dbObject);
+
+        // Just reported as timing isn't reliable on shared build machines
+        logger.infof("%d user round-trips: generic mappers %d ms, hand-written mappers %d ms", ITERATIONS, genericTime / 1000000, time / 1000000);
+    }
+
+    private long measure(MongoStoreImpl store, MongoUserEntity user, BasicDBObject dbObject) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            toDBObject(store, user);
+            fromDBObject(store, dbObject);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private MongoStoreImpl createStore(boolean handWrittenMappers) {
+        MongoStoreImpl store = new MongoStoreImpl(null, MANAGED_ENTITIES);
+        if (handWrittenMappers) {
+            MapperRegistry mapperRegistry = store.getMapperRegistry();
+            store.addAppObjectConverter(new MongoUserEntityMapper(mapperRegistry));
+            store.addDBObjectConverter(new BasicDBObjectToMongoUserEntityMapper(store, mapperRegistry));
+            store.addAppObjectConverter(new CredentialEntityMapper(mapperRegistry));
+            store.addDBObjectConverter(new BasicDBObjectToCredentialEntityMapper(mapperRegistry));
+        }
+        return store;
+    }
+
+    private BasicDBObject toDBObject(MongoStoreImpl store, MongoUserEntity user) {
+        return store.getMapperRegistry().convertApplicationObjectToDBObject(user, BasicDBObject.class);
+    }
+
+    private MongoUserEntity fromDBObject(MongoStoreImpl store, BasicDBObject dbObject) {
+        return store.getMapperRegistry().convertDBObjectToApplicationObject(new MapperContext<Object, MongoUserEntity>(dbObject, MongoUserEntity.class, null));
+    }
+
+    private MongoUserEntity createUser() {
+        MongoUserEntity user = new MongoUserEntity();
+        user.setId("user1");
+        user.setUsername("john");
+        user.setCreatedTimestamp(1000L);
+        user.setFirstName("John");
+        user.setEmail("john@email.org");
+        user.setEmailVerified(true);
+        user.setEnabled(true);
+        user.setRealmId("realm1");
+        user.setRoleIds(new ArrayList<>(Arrays.asList("role1", "role2")));
+        user.setGroupIds(new ArrayList<String>());
+        user.setRequiredActions(new ArrayList<>(Arrays.asList("UPDATE_PASSWORD")));
+        user.setFederationLink("ldap1");
+
+        Map<String, List<String>> attributes = new HashMap<>();
+        attributes.put("address.street", new ArrayList<>(Arrays.asList("street 1")));
+        attributes.put("phone", new ArrayList<>(Arrays.asList("123", "456")));
+        user.setAttributes(attributes);
+
+        List<CredentialEntity> credentials = new ArrayList<>();
+        credentials.add(createCredential("cred1", "password"));
+        credentials.add(createCredential("cred2", "totp"));
+        credentials.get(1).setSalt(null);
+        user.setCredentials(credentials);
+
+        FederatedIdentityEntity federatedIdentity = new FederatedIdentityEntity();
+        federatedIdentity.setIdentityProvider("github");
+        federatedIdentity.setUserId("123");
+        federatedIdentity.setUserName("john-github");
+        user.setFederatedIdentities(new ArrayList<>(Arrays.asList(federatedIdentity)));
+        return user;
+    }
+
+    private CredentialEntity createCredential(String id, String type) {
+        CredentialEntity credential = new CredentialEntity();
+        credential.setId(id);
+        credential.setType(type);
+        credential.setValue("secret");
+        credential.setSalt(new byte[] { 1, 2, 3 });
+        credential.setHashIterations(27000);
+        credential.setCreatedDate(2000L);
+        credential.setAlgorithm("pbkdf2");
+        credential.setDigits(6);
+        credential.setPeriod(30);
+        return credential;
+    }
+}
@@ -32,6 +32,7 @@ public enum AuthenticationFlowError {
     USER_DISABLED,
     USER_CONFLICT,
     USER_TEMPORARILY_DISABLED,
+    TOO_MANY_REQUESTS,
     INTERNAL_ERROR,
     UNKNOWN_USER,
     FORK_FLOW,
@@ -17,6 +17,21 @@
 
 package org.keycloak.broker.provider.util;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.keycloak.connections.httpclient.HttpClientProvider;
+import org.keycloak.models.KeycloakSession;
+
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
@@ -26,9 +41,12 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
@@ -47,9 +65,22 @@ public class SimpleHttp {
     private SSLSocketFactory sslFactory;
     private HostnameVerifier hostnameVerifier;
 
+    private final HttpClient client;
+
+    /**
+     * Uses pooled HTTP client of the session of current request if there is any
+     */
     protected SimpleHttp(String url, String method) {
+        this(url, method, getHttpClient(ResteasyProviderFactory.getContextData(KeycloakSession.class)));
+    }
+
+    /**
+     * @param client client used to send the request. If null, new connection is opened for the request
+     */
+    protected SimpleHttp(String url, String method, HttpClient client) {
         this.url = url;
         this.method = method;
+        this.client = client;
     }
 
     public static SimpleHttp doGet(String url) {
@@ -60,6 +91,29 @@ public class SimpleHttp {
         return new SimpleHttp(url, "POST");
     }
 
+    public static SimpleHttp doGet(String url, KeycloakSession session) {
+        return new SimpleHttp(url, "GET", getHttpClient(session));
+    }
+
+    public static SimpleHttp doPost(String url, KeycloakSession session) {
+        return new SimpleHttp(url, "POST", getHttpClient(session));
+    }
+
+    /**
+     * Useful for the calls done outside of the request, where KeycloakSession isn't available
+     */
+    public static SimpleHttp doGet(String url, HttpClient client) {
+        return new SimpleHttp(url, "GET", client);
+    }
+
+    public static HttpClient getHttpClient(KeycloakSession session) {
+        if (session == null) {
+            return null;
+        }
+        HttpClientProvider provider = session.getProvider(HttpClientProvider.class);
+        return provider != null ? provider.getHttpClient() : null;
+    }
+
     public SimpleHttp header(String name, String value) {
         if (headers == null) {
             headers = new HashMap<String, String>();
@@ -87,6 +141,17 @@ public class SimpleHttp {
     }
 
     public String asString() throws IOException {
+        if (client != null) {
+            HttpResponse response = execute();
+            try {
+                checkStatus(response);
+                HttpEntity entity = response.getEntity();
+                return entity != null ? EntityUtils.toString(entity, "UTF-8") : null;
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+
         boolean get = method.equals("GET");
         boolean post = method.equals("POST");
 
@@ -174,6 +239,15 @@ public class SimpleHttp {
     }
 
     public int asStatus() throws IOException {
+        if (client != null) {
+            HttpResponse response = execute();
+            try {
+                return response.getStatusLine().getStatusCode();
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+
         boolean get = method.equals("GET");
         boolean post = method.equals("POST");
 
@@ -256,6 +330,52 @@ public class SimpleHttp {
         }
     }
 
+    // Connection is returned to the pool once the entity of the response is consumed
+    private HttpResponse execute() throws IOException {
+        HttpRequestBase request;
+        if (method.equals("POST")) {
+            HttpPost post = new HttpPost(url);
+            if (params != null) {
+                post.setEntity(new UrlEncodedFormEntity(getParams(), "UTF-8"));
+            }
+            request = post;
+        } else {
+            try {
+                URIBuilder uri = new URIBuilder(url);
+                if (params != null) {
+                    uri.addParameters(getParams());
+                }
+                request = new HttpGet(uri.build());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid URL: " + url, e);
+            }
+        }
+
+        if (headers != null) {
+            for (Map.Entry<String, String> h : headers.entrySet()) {
+                request.setHeader(h.getKey(), h.getValue());
+            }
+        }
+
+        return client.execute(request);
+    }
+
+    private List<NameValuePair> getParams() {
+        List<NameValuePair> result = new ArrayList<NameValuePair>();
+        for (Map.Entry<String, String> p : params.entrySet()) {
+            result.add(new BasicNameValuePair(p.getKey(), p.getValue()));
+        }
+        return result;
+    }
+
+    // Same like HttpURLConnection, which fails when reading response of error status
+    private void checkStatus(HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        if (status >= 400) {
+            throw new IOException("Server returned HTTP response code: " + status + " for URL: " + url);
+        }
+    }
+
     private String toString(InputStream is) throws IOException {
         InputStreamReader reader = new InputStreamReader(is);
 
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.executors;
+
+import java.util.concurrent.ExecutorService;
+
+import org.keycloak.provider.Provider;
+
+/**
+ * Thread pools shared by all sessions. Pools are created on first use and are shut down together with the provider factory,
+ * so components don't need to manage lifecycle of their own threads.
+ */
+public interface ExecutorsProvider extends Provider {
+
+    /**
+     * Returns pool of given name. Pool is created on first call for the name, so threads and queueSize of later calls are ignored.
+     *
+     * @param name of the pool. Used as prefix of thread names
+     * @param threads count of threads of the pool
+     * @param queueSize max count of tasks waiting for free thread. 0 or less means the queue is unbounded. When the queue is full,
+     *                  tasks are rejected with {@link java.util.concurrent.RejectedExecutionException}
+     */
+    ExecutorService getExecutor(String name, int threads, int queueSize);
+
+}
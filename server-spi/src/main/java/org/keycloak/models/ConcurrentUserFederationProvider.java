@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional interface for federation providers, which allow to query remote storage concurrently with other providers.
+ * <p>
+ * KeycloakSession is not thread-safe, so search is split into 3 phases. Search is created and its results are imported
+ * by the thread, which owns the session. Just {@link RemoteSearch#execute()} is called from the other thread and it must
+ * not use KeycloakSession or any model objects.
+ */
+public interface ConcurrentUserFederationProvider extends UserFederationProvider {
+
+    /**
+     * Prepare search with same semantics as {@link #searchByAttributes(Map, RealmModel, int)}
+     */
+    RemoteSearch createSearchByAttributes(Map<String, String> attributes, RealmModel realm, int maxResults);
+
+    /**
+     * Prepare search with same semantics as {@link #getUserByUsername(RealmModel, String)}
+     */
+    RemoteSearch createSearchByUsername(RealmModel realm, String username);
+
+    interface RemoteSearch {
+
+        /**
+         * Query remote storage. Called from other thread than the one, which created the search
+         */
+        void execute();
+
+        /**
+         * Import users found by {@link #execute()} to Keycloak storage. Called from the thread, which created the search
+         *
+         * @return imported users. For search by username, it's list with at most one user
+         */
+        List<UserModel> importResults();
+
+    }
+}
@@ -52,12 +52,46 @@ public class LDAPConstants {
     public static final String CONNECTION_POOLING = "connectionPooling";
     public static final String PAGINATION = "pagination";
 
+    // Max count of idle connections kept for verifying passwords of users. 0 means a new connection is opened for every verification
+    public static final String BIND_CONNECTION_POOL_SIZE = "bindConnectionPoolSize";
+
+    // After how many seconds is an idle connection used for verifying passwords closed
+    public static final String BIND_CONNECTION_POOL_IDLE_TIMEOUT = "bindConnectionPoolIdleTimeout";
+    public static final int DEFAULT_BIND_CONNECTION_POOL_IDLE_TIMEOUT = 300;
+
+    // Max count of password verifications running at once, so max count of connections in use. 0 means unlimited
+    public static final String BIND_CONNECTION_POOL_MAX_ACTIVE = "bindConnectionPoolMaxActive";
+    public static final int DEFAULT_BIND_CONNECTION_POOL_MAX_ACTIVE = 100;
+
+    // How many milliseconds is password verification waiting for a connection when max active count is reached
+    public static final String BIND_CONNECTION_POOL_MAX_WAIT = "bindConnectionPoolMaxWait";
+    public static final int DEFAULT_BIND_CONNECTION_POOL_MAX_WAIT = 5000;
+
+    // Timeouts of opening LDAP connection and of waiting for LDAP response in milliseconds, so threads are never blocked forever by unresponsive LDAP server
+    public static final String CONNECTION_TIMEOUT = "connectionTimeout";
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 10000;
+    public static final String READ_TIMEOUT = "readTimeout";
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+    // Config option to specify if StartTLS is negotiated on connections used for verifying passwords of users
+    public static final String START_TLS = "startTls";
+
     public static final String EDIT_MODE = "editMode";
 
     // Count of users processed per single transaction during sync process
     public static final String BATCH_SIZE_FOR_SYNC = "batchSizeForSync";
     public static final int DEFAULT_BATCH_SIZE_FOR_SYNC = 1000;
 
+    // Count of threads importing users during sync process. Every thread imports its part of the batch in single transaction
+    public static final String SYNC_THREADS = "syncThreads";
+    public static final int DEFAULT_SYNC_THREADS = 1;
+
+    // For how long (in seconds) are users found in LDAP cached, so their validation doesn't need to query LDAP. 0 means caching is disabled
+    public static final String VALIDATION_CACHE_TTL = "validationCacheTtl";
+
+    // For how long (in seconds) are users, which don't exist in LDAP, cached. 0 means caching is disabled
+    public static final String VALIDATION_CACHE_NEGATIVE_TTL = "validationCacheNegativeTtl";
+
     // Config option to specify if registrations will be synced or not
     public static final String SYNC_REGISTRATIONS = "syncRegistrations";
 
@@ -103,6 +137,9 @@ public class LDAPConstants {
 
     public static final String LDAP_MATCHING_RULE_IN_CHAIN = ":1.2.840.113556.1.4.1941:";
 
+    // Option of multi-valued attribute returned just partially (for example "member;range=0-1499" in Active Directory)
+    public static final String RANGE_OPTION = ";range=";
+
     public static String getUuidAttributeName(String vendor) {
         if (vendor != null) {
             switch (vendor) {
@@ -113,6 +113,25 @@ public interface RealmModel extends RoleContainerModel {
     boolean isRevokeRefreshToken();
     void setRevokeRefreshToken(boolean revokeRefreshToken);
 
+    /**
+     * If true, refresh and offline tokens are signed with a server-side HMAC secret instead of the realm private key
+     */
+    boolean isRefreshTokenSymmetricSigning();
+    void setRefreshTokenSymmetricSigning(boolean refreshTokenSymmetricSigning);
+
+    /**
+     * @return kid of the HMAC secret used to sign newly issued refresh tokens
+     */
+    String getRefreshTokenSecretKid();
+    void setRefreshTokenSecretKid(String kid);
+
+    /**
+     * @return all HMAC secrets accepted for refresh token verification, keyed by kid
+     */
+    Map<String, String> getRefreshTokenSecrets();
+    void addRefreshTokenSecret(String kid, String secret);
+    void removeRefreshTokenSecret(String kid);
+
     int getSsoSessionIdleTimeout();
     void setSsoSessionIdleTimeout(int seconds);
 
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Optional bulk and keyset queries, which {@link UserProvider} can implement in a more efficient way than the queries of
+ * {@link UserProvider} allow. Callers should use {@link org.keycloak.models.utils.UserBulkQueries}, which falls back to
+ * {@link UserProvider} queries for providers not implementing this interface.
+ */
+public interface UserBulkQueryProvider {
+
+    /**
+     * Loads all users with given usernames at once. Users, which don't exist, are skipped. Meant for bulk operations
+     * like federation sync, so returned users are not cached.
+     */
+    List<UserModel> getUsersByUsernames(Collection<String> usernames, RealmModel realm);
+
+    /**
+     * Keyset pagination of users ordered by username. Unlike with firstResult, cost of the query doesn't grow with the number
+     * of previous pages.
+     *
+     * @param afterUsername username of the last user from previous page or null for the first page
+     * @param maxResults page size or -1 for all remaining users
+     */
+    List<UserModel> getUsersAfter(RealmModel realm, String afterUsername, int maxResults, boolean includeServiceAccounts);
+
+    /**
+     * Same like {@link #getUsersAfter(RealmModel, String, int, boolean)}, but just users matching the search are returned
+     */
+    List<UserModel> searchForUserAfter(String search, RealmModel realm, String afterUsername, int maxResults);
+
+}
@@ -18,11 +18,15 @@
 package org.keycloak.models;
 
 import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.executors.ExecutorsProvider;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.UserBulkQueries;
 import org.keycloak.services.managers.UserManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -30,17 +34,28 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class UserFederationManager implements UserProvider {
+public class UserFederationManager implements UserProvider, UserBulkQueryProvider {
 
     private static final Logger logger = Logger.getLogger(UserFederationManager.class);
 
     protected KeycloakSession session;
 
+    private static final long DEFAULT_SEARCH_TIMEOUT = 10000;
+    private static final int DEFAULT_SEARCH_THREADS = 16;
+
+    private static final String SEARCH_EXECUTOR = "user-federation-search";
+
     // Set of already validated/proxied federation users during this session. Key is user ID
     private Map<String, UserModel> managedUsers = new HashMap<>();
 
@@ -228,18 +243,53 @@ public class UserFederationManager implements UserProvider {
     }
 
     @Override
-    public UserModel getUserByUsername(String username, RealmModel realm) {
+    public UserModel getUserByUsername(final String username, RealmModel realm) {
         UserModel user = session.userStorage().getUserByUsername(username.toLowerCase(), realm);
         if (user != null) {
             user = validateAndProxyUser(realm, user);
             if (user != null) return user;
         }
-        for (UserFederationProviderModel federation : realm.getUserFederationProviders()) {
-            UserFederationProvider fed = getFederationProvider(federation);
-            user = fed.getUserByUsername(realm, username);
-            if (user != null) return user;
+
+        List<UserFederationProviderModel> federationModels = realm.getUserFederationProviders();
+        List<UserFederationProvider> providers = getFederationProviders(federationModels);
+        PendingSearch[] searches = startSearches(federationModels, providers, new RemoteSearchFactory() {
+
+            @Override
+            public ConcurrentUserFederationProvider.RemoteSearch create(ConcurrentUserFederationProvider provider, RealmModel realm) {
+                return provider.createSearchByUsername(realm, username);
+            }
+
+        }, realm);
+
+        try {
+            // Providers are checked in the order of priority, so the user is always found in the same provider like with sequential search
+            for (int i = 0; i < providers.size(); i++) {
+                if (searches[i] != null) {
+                    List<UserModel> found = searches[i].getResults();
+                    user = found.isEmpty() ? null : found.get(0);
+                } else {
+                    user = providers.get(i).getUserByUsername(realm, username);
+                }
+                if (user != null) return user;
+            }
+            return user;
+        } finally {
+            // Searches in providers with lower priority are not needed anymore
+            cancel(searches);
         }
-        return user;
+    }
+
+    /**
+     * Federation providers are not queried for users missing in local storage
+     */
+    @Override
+    public List<UserModel> getUsersByUsernames(Collection<String> usernames, RealmModel realm) {
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (UserModel user : UserBulkQueries.getUsersByUsernames(session.userStorage(), usernames, realm)) {
+            user = validateAndProxyUser(realm, user);
+            if (user != null) users.add(user);
+        }
+        return users;
     }
 
     @Override
@@ -307,12 +357,44 @@ public class UserFederationManager implements UserProvider {
             }
             if (results.size() == maxResults) return results;
             if (query.size() < max) return results;
-            first = query.size();
+            first += query.size();
             max -= added;
             if (max <= 0) return results;
         } while (true);
     }
 
+    interface KeysetQuery {
+        List<UserModel> query(RealmModel realm, String afterUsername, int max);
+    }
+
+    // Users skipped by validation are replaced with users from next page, so the page is full unless there are no more users
+    protected List<UserModel> query(KeysetQuery keysetQuery, RealmModel realm, String afterUsername, int maxResults) {
+        List<UserModel> results = new LinkedList<UserModel>();
+        if (maxResults == 0) return results;
+        String after = afterUsername;
+        do {
+            int max = maxResults == -1 ? -1 : maxResults - results.size();
+            List<UserModel> query = keysetQuery.query(realm, after, max);
+            for (UserModel user : query) {
+                after = user.getUsername();
+                user = validateAndProxyUser(realm, user);
+                if (user != null) results.add(user);
+            }
+            if (max == -1 || query.size() < max) return results;
+        } while (results.size() < maxResults);
+        return results;
+    }
+
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String afterUsername, int maxResults, final boolean includeServiceAccounts) {
+        return query(new KeysetQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, String afterUsername, int max) {
+                return UserBulkQueries.getUsersAfter(session.userStorage(), realm, afterUsername, max, includeServiceAccounts);
+            }
+        }, realm, afterUsername, maxResults);
+    }
+
     @Override
     public List<UserModel> getUsers(RealmModel realm, int firstResult, int maxResults, final boolean includeServiceAccounts) {
         return query(new PaginatedQuery() {
@@ -328,15 +410,196 @@ public class UserFederationManager implements UserProvider {
         return searchForUser(search, realm, 0, Integer.MAX_VALUE - 1);
     }
 
-    void federationLoad(RealmModel realm, Map<String, String> attributes) {
-        for (UserFederationProviderModel federation : realm.getUserFederationProviders()) {
-            UserFederationProvider fed = getFederationProvider(federation);
-            fed.searchByAttributes(attributes, realm, 30);
+    void federationLoad(RealmModel realm, final Map<String, String> attributes) {
+        List<UserFederationProviderModel> federationModels = realm.getUserFederationProviders();
+        List<UserFederationProvider> providers = getFederationProviders(federationModels);
+        PendingSearch[] searches = startSearches(federationModels, providers, new RemoteSearchFactory() {
+
+            @Override
+            public ConcurrentUserFederationProvider.RemoteSearch create(ConcurrentUserFederationProvider provider, RealmModel realm) {
+                return provider.createSearchByAttributes(attributes, realm, 30);
+            }
+
+        }, realm);
+
+        try {
+            // Results are imported one provider after another in the order of priority. Provider doesn't import users already
+            // imported by the provider with higher priority
+            for (int i = 0; i < providers.size(); i++) {
+                if (searches[i] != null) {
+                    searches[i].getResults();
+                } else {
+                    providers.get(i).searchByAttributes(attributes, realm, 30);
+                }
+            }
+        } finally {
+            cancel(searches);
         }
     }
 
+    protected List<UserFederationProvider> getFederationProviders(List<UserFederationProviderModel> federationModels) {
+        List<UserFederationProvider> providers = new ArrayList<>(federationModels.size());
+        for (UserFederationProviderModel federation : federationModels) {
+            providers.add(getFederationProvider(federation));
+        }
+        return providers;
+    }
+
+    /**
+     * Start remote search in all providers supporting concurrent search. Searches are started just if there are at least 2 such
+     * providers as there is nothing to run concurrently otherwise.
+     *
+     * @return array of same size like providers. Element is null for providers, which need to be searched sequentially
+     */
+    protected PendingSearch[] startSearches(List<UserFederationProviderModel> federationModels, List<UserFederationProvider> providers,
+                                            RemoteSearchFactory searchFactory, RealmModel realm) {
+        PendingSearch[] searches = new PendingSearch[providers.size()];
+
+        int concurrentCount = 0;
+        for (UserFederationProvider provider : providers) {
+            if (provider instanceof ConcurrentUserFederationProvider) {
+                concurrentCount++;
+            }
+        }
+        ExecutorService executor = getSearchExecutor();
+        if (concurrentCount < 2 || executor == null) {
+            return searches;
+        }
+
+        long deadline = System.currentTimeMillis() + getSearchTimeout();
+        try {
+            for (int i = 0; i < providers.size(); i++) {
+                UserFederationProvider provider = providers.get(i);
+                if (provider instanceof ConcurrentUserFederationProvider) {
+                    final ConcurrentUserFederationProvider.RemoteSearch search = searchFactory.create((ConcurrentUserFederationProvider) provider, realm);
+                    String providerName = federationModels.get(i).getDisplayName();
+                    Future<?> future;
+                    try {
+                        future = executor.submit(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                search.execute();
+                            }
+
+                        });
+                    } catch (RejectedExecutionException ree) {
+                        // Searching in the request thread wouldn't be limited by the timeout, so the provider is skipped like if it didn't respond in time
+                        logger.warnf("Too many concurrent searches. Results of federation provider '%s' are skipped", providerName);
+                        future = null;
+                    }
+                    searches[i] = new PendingSearch(providerName, search, future, deadline);
+                }
+            }
+        } catch (RuntimeException e) {
+            cancel(searches);
+            throw e;
+        }
+        return searches;
+    }
+
+    protected void cancel(PendingSearch[] searches) {
+        for (PendingSearch search : searches) {
+            if (search != null && search.future != null) {
+                search.future.cancel(true);
+            }
+        }
+    }
+
+    protected static long getSearchTimeout() {
+        return Config.scope("userFederation").getLong("searchTimeout", DEFAULT_SEARCH_TIMEOUT);
+    }
+
+    /**
+     * @return pool shared by all sessions or null if executors are not available, so providers are searched sequentially
+     */
+    protected ExecutorService getSearchExecutor() {
+        ExecutorsProvider executors = session.getProvider(ExecutorsProvider.class);
+        if (executors == null) {
+            return null;
+        }
+
+        int threads = Config.scope("userFederation").getInt("searchThreads", DEFAULT_SEARCH_THREADS);
+        return executors.getExecutor(SEARCH_EXECUTOR, threads, threads * 4);
+    }
+
+    protected interface RemoteSearchFactory {
+        ConcurrentUserFederationProvider.RemoteSearch create(ConcurrentUserFederationProvider provider, RealmModel realm);
+    }
+
+    protected static class PendingSearch {
+
+        private final String providerName;
+        private final ConcurrentUserFederationProvider.RemoteSearch search;
+        private final Future<?> future;
+        private final long deadline;
+
+        protected PendingSearch(String providerName, ConcurrentUserFederationProvider.RemoteSearch search, Future<?> future, long deadline) {
+            this.providerName = providerName;
+            this.search = search;
+            this.future = future;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Wait until the remote search is finished and import its results
+         *
+         * @return imported users or empty list if provider didn't respond in time or the search was rejected
+         */
+        protected List<UserModel> getResults() {
+            if (future == null) {
+                return Collections.emptyList();
+            }
+
+            try {
+                future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                logger.warnf("Search in federation provider '%s' not finished in time. Results of the provider are skipped", providerName);
+                return Collections.emptyList();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new ModelException("Interrupted during search in federation provider '" + providerName + "'", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ModelException("Search in federation provider '" + providerName + "' failed", cause);
+            }
+
+            return search.importResults();
+        }
+
+    }
+
     @Override
     public List<UserModel> searchForUser(final String search, RealmModel realm, int firstResult, int maxResults) {
+        federationLoad(realm, getSearchAttributes(search));
+        return query(new PaginatedQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, int first, int max) {
+                return session.userStorage().searchForUser(search, realm, first, max);
+            }
+        }, realm, firstResult, maxResults);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(final String search, RealmModel realm, String afterUsername, int maxResults) {
+        // Matching users were imported from federation providers when the first page was loaded
+        if (afterUsername == null) {
+            federationLoad(realm, getSearchAttributes(search));
+        }
+        return query(new KeysetQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, String afterUsername, int max) {
+                return UserBulkQueries.searchForUserAfter(session.userStorage(), search, realm, afterUsername, max);
+            }
+        }, realm, afterUsername, maxResults);
+    }
+
+    protected Map<String, String> getSearchAttributes(String search) {
         Map<String, String> attributes = new HashMap<String, String>();
         int spaceIndex = search.lastIndexOf(' ');
         if (spaceIndex > -1) {
@@ -351,13 +614,7 @@ public class UserFederationManager implements UserProvider {
             attributes.put(UserModel.LAST_NAME, search.trim());
             attributes.put(UserModel.USERNAME, search.trim().toLowerCase());
         }
-        federationLoad(realm, attributes);
-        return query(new PaginatedQuery() {
-            @Override
-            public List<UserModel> query(RealmModel realm, int first, int max) {
-                return session.userStorage().searchForUser(search, realm, first, max);
-            }
-        }, realm, firstResult, maxResults);
+        return attributes;
     }
 
     @Override
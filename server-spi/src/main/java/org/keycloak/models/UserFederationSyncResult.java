@@ -26,6 +26,7 @@ public class UserFederationSyncResult {
     private int updated;
     private int removed;
     private int failed;
+    private long duration;
 
     public int getAdded() {
         return added;
@@ -59,6 +60,24 @@ public class UserFederationSyncResult {
         this.failed = failed;
     }
 
+    /**
+     * @return duration of the sync in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return count of users, which were imported, updated or failed so far
+     */
+    public int getProcessed() {
+        return added + updated + failed;
+    }
+
     public void increaseAdded() {
         added++;
     }
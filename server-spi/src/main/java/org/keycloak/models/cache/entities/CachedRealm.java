@@ -81,6 +81,9 @@ public class CachedRealm implements Serializable {
     //--- end brute force settings
 
     protected boolean revokeRefreshToken;
+    protected boolean refreshTokenSymmetricSigning;
+    protected String refreshTokenSecretKid;
+    protected Map<String, String> refreshTokenSecrets = new HashMap<String, String>();
     protected int ssoSessionIdleTimeout;
     protected int ssoSessionMaxLifespan;
     protected int offlineSessionIdleTimeout;
@@ -173,6 +176,9 @@ public class CachedRealm implements Serializable {
         //--- end brute force settings
 
         revokeRefreshToken = model.isRevokeRefreshToken();
+        refreshTokenSymmetricSigning = model.isRefreshTokenSymmetricSigning();
+        refreshTokenSecretKid = model.getRefreshTokenSecretKid();
+        refreshTokenSecrets.putAll(model.getRefreshTokenSecrets());
         ssoSessionIdleTimeout = model.getSsoSessionIdleTimeout();
         ssoSessionMaxLifespan = model.getSsoSessionMaxLifespan();
         offlineSessionIdleTimeout = model.getOfflineSessionIdleTimeout();
@@ -392,6 +398,18 @@ public class CachedRealm implements Serializable {
         return revokeRefreshToken;
     }
 
+    public boolean isRefreshTokenSymmetricSigning() {
+        return refreshTokenSymmetricSigning;
+    }
+
+    public String getRefreshTokenSecretKid() {
+        return refreshTokenSecretKid;
+    }
+
+    public Map<String, String> getRefreshTokenSecrets() {
+        return refreshTokenSecrets;
+    }
+
     public int getSsoSessionIdleTimeout() {
         return ssoSessionIdleTimeout;
     }
@@ -59,6 +59,9 @@ public class RealmEntity extends AbstractIdentifiableEntity {
     //--- end brute force settings
 
     private boolean revokeRefreshToken;
+    private boolean refreshTokenSymmetricSigning;
+    private String refreshTokenSecretKid;
+    private Map<String, String> refreshTokenSecrets = new HashMap<String, String>();
     private int ssoSessionIdleTimeout;
     private int ssoSessionMaxLifespan;
     private int offlineSessionIdleTimeout;
@@ -276,6 +279,30 @@ public class RealmEntity extends AbstractIdentifiableEntity {
         this.revokeRefreshToken = revokeRefreshToken;
     }
 
+    public boolean isRefreshTokenSymmetricSigning() {
+        return refreshTokenSymmetricSigning;
+    }
+
+    public void setRefreshTokenSymmetricSigning(boolean refreshTokenSymmetricSigning) {
+        this.refreshTokenSymmetricSigning = refreshTokenSymmetricSigning;
+    }
+
+    public String getRefreshTokenSecretKid() {
+        return refreshTokenSecretKid;
+    }
+
+    public void setRefreshTokenSecretKid(String refreshTokenSecretKid) {
+        this.refreshTokenSecretKid = refreshTokenSecretKid;
+    }
+
+    public Map<String, String> getRefreshTokenSecrets() {
+        return refreshTokenSecrets;
+    }
+
+    public void setRefreshTokenSecrets(Map<String, String> refreshTokenSecrets) {
+        this.refreshTokenSecrets = refreshTokenSecrets;
+    }
+
     public int getSsoSessionIdleTimeout() {
         return ssoSessionIdleTimeout;
     }
@@ -222,6 +222,16 @@ public final class KeycloakModelUtils {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Generates new HMAC secret for refresh tokens and makes it the active one. Previous secrets are kept, so already
+     * issued refresh tokens remain valid until their secret is removed.
+     */
+    public static void generateRefreshTokenSecret(RealmModel realm) {
+        String kid = generateId();
+        realm.addRefreshTokenSecret(kid, generateSecret());
+        realm.setRefreshTokenSecretKid(kid);
+    }
+
     public static ClientModel createClient(RealmModel realm, String name) {
         ClientModel app = realm.addClient(name);
         app.setClientAuthenticatorType(getDefaultClientAuthenticatorType());
@@ -237,6 +237,7 @@ public class ModelToRepresentation {
                 KeycloakModelUtils.generateRealmCertificate(realm);
             }
             rep.setCodeSecret(realm.getCodeSecret());
+            rep.setRefreshTokenSecrets(realm.getRefreshTokenSecrets());
         }
         rep.setCertificate(realm.getCertificatePem());
         rep.setRegistrationAllowed(realm.isRegistrationAllowed());
@@ -268,6 +269,8 @@ public class ModelToRepresentation {
         rep.setResetPasswordAllowed(realm.isResetPasswordAllowed());
         rep.setEditUsernameAllowed(realm.isEditUsernameAllowed());
         rep.setRevokeRefreshToken(realm.isRevokeRefreshToken());
+        rep.setRefreshTokenSymmetricSigning(realm.isRefreshTokenSymmetricSigning());
+        rep.setRefreshTokenSecretKid(realm.getRefreshTokenSecretKid());
         rep.setAccessTokenLifespan(realm.getAccessTokenLifespan());
         rep.setAccessTokenLifespanForImplicitFlow(realm.getAccessTokenLifespanForImplicitFlow());
         rep.setSsoSessionIdleTimeout(realm.getSsoSessionIdleTimeout());
@@ -126,6 +126,9 @@ public class RepresentationToModel {
         if (rep.getRevokeRefreshToken() != null) newRealm.setRevokeRefreshToken(rep.getRevokeRefreshToken());
         else newRealm.setRevokeRefreshToken(false);
 
+        if (rep.getRefreshTokenSymmetricSigning() != null) newRealm.setRefreshTokenSymmetricSigning(rep.getRefreshTokenSymmetricSigning());
+        else newRealm.setRefreshTokenSymmetricSigning(false);
+
         if (rep.getAccessTokenLifespan() != null) newRealm.setAccessTokenLifespan(rep.getAccessTokenLifespan());
         else newRealm.setAccessTokenLifespan(300);
 
@@ -174,6 +177,14 @@ public class RepresentationToModel {
         } else {
             newRealm.setCodeSecret(rep.getCodeSecret());
         }
+        if (rep.getRefreshTokenSecrets() == null || rep.getRefreshTokenSecrets().isEmpty()) {
+            KeycloakModelUtils.generateRefreshTokenSecret(newRealm);
+        } else {
+            for (Map.Entry<String, String> secret : rep.getRefreshTokenSecrets().entrySet()) {
+                newRealm.addRefreshTokenSecret(secret.getKey(), secret.getValue());
+            }
+            if (rep.getRefreshTokenSecretKid() != null) newRealm.setRefreshTokenSecretKid(rep.getRefreshTokenSecretKid());
+        }
 
         if (rep.getLoginTheme() != null) newRealm.setLoginTheme(rep.getLoginTheme());
         if (rep.getAccountTheme() != null) newRealm.setAccountTheme(rep.getAccountTheme());
@@ -652,6 +663,7 @@ public class RepresentationToModel {
         if (rep.getAccessCodeLifespanLogin() != null) realm.setAccessCodeLifespanLogin(rep.getAccessCodeLifespanLogin());
         if (rep.getNotBefore() != null) realm.setNotBefore(rep.getNotBefore());
         if (rep.getRevokeRefreshToken() != null) realm.setRevokeRefreshToken(rep.getRevokeRefreshToken());
+        if (rep.getRefreshTokenSymmetricSigning() != null) realm.setRefreshTokenSymmetricSigning(rep.getRefreshTokenSymmetricSigning());
         if (rep.getAccessTokenLifespan() != null) realm.setAccessTokenLifespan(rep.getAccessTokenLifespan());
         if (rep.getAccessTokenLifespanForImplicitFlow() != null) realm.setAccessTokenLifespanForImplicitFlow(rep.getAccessTokenLifespanForImplicitFlow());
         if (rep.getSsoSessionIdleTimeout() != null) realm.setSsoSessionIdleTimeout(rep.getSsoSessionIdleTimeout());
@@ -698,6 +710,10 @@ public class RepresentationToModel {
             KeycloakModelUtils.generateRealmKeys(realm);
         }
 
+        if ("GENERATE".equals(rep.getRefreshTokenSecretKid()) || realm.getRefreshTokenSecretKid() == null) {
+            KeycloakModelUtils.generateRefreshTokenSecret(realm);
+        }
+
         if(rep.isInternationalizationEnabled() != null){
             realm.setInternationalizationEnabled(rep.isInternationalizationEnabled());
         }
@@ -1256,7 +1272,7 @@ public class RepresentationToModel {
     }
 
     // Detect if it is "plain-text" or "hashed" representation and update model according to it
-    private static void updateCredential(UserModel user, CredentialRepresentation cred) {
+    public static void updateCredential(UserModel user, CredentialRepresentation cred) {
         if (cred.getValue() != null) {
             UserCredentialModel plainTextCred = convertCredential(cred);
             user.updateCredential(plainTextCred);
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.utils;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserBulkQueryProvider;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Calls queries of {@link UserBulkQueryProvider}. If the provider doesn't implement them, users are loaded with the queries
+ * of {@link UserProvider}. Keyset pages are then read with offset pages ordered by username, which skip users up to the
+ * previous page. That works, but it's as slow for deep pages as the offset pagination.
+ */
+public final class UserBulkQueries {
+
+    private static final int FALLBACK_BATCH_SIZE = 100;
+
+    private UserBulkQueries() {
+    }
+
+    public static List<UserModel> getUsersByUsernames(UserProvider users, Collection<String> usernames, RealmModel realm) {
+        if (users instanceof UserBulkQueryProvider) {
+            return ((UserBulkQueryProvider) users).getUsersByUsernames(usernames, realm);
+        }
+
+        List<UserModel> result = new ArrayList<UserModel>();
+        for (String username : usernames) {
+            UserModel user = users.getUserByUsername(username, realm);
+            if (user != null) result.add(user);
+        }
+        return result;
+    }
+
+    public static List<UserModel> getUsersAfter(final UserProvider users, RealmModel realm, String afterUsername, int maxResults, final boolean includeServiceAccounts) {
+        if (users instanceof UserBulkQueryProvider) {
+            return ((UserBulkQueryProvider) users).getUsersAfter(realm, afterUsername, maxResults, includeServiceAccounts);
+        }
+
+        return query(new PaginatedQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, int first, int max) {
+                return users.getUsers(realm, first, max, includeServiceAccounts);
+            }
+        }, realm, afterUsername, maxResults);
+    }
+
+    public static List<UserModel> searchForUserAfter(final UserProvider users, final String search, RealmModel realm, String afterUsername, int maxResults) {
+        if (users instanceof UserBulkQueryProvider) {
+            return ((UserBulkQueryProvider) users).searchForUserAfter(search, realm, afterUsername, maxResults);
+        }
+
+        return query(new PaginatedQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, int first, int max) {
+                return users.searchForUser(search, realm, first, max);
+            }
+        }, realm, afterUsername, maxResults);
+    }
+
+    private static List<UserModel> query(PaginatedQuery query, RealmModel realm, String afterUsername, int maxResults) {
+        List<UserModel> results = new ArrayList<UserModel>();
+        if (maxResults == 0) return results;
+
+        int first = 0;
+        List<UserModel> batch;
+        do {
+            batch = query.query(realm, first, FALLBACK_BATCH_SIZE);
+            first += batch.size();
+            for (UserModel user : batch) {
+                if (afterUsername != null && user.getUsername().compareTo(afterUsername) <= 0) continue;
+                results.add(user);
+                if (results.size() == maxResults) return results;
+            }
+        } while (batch.size() == FALLBACK_BATCH_SIZE);
+        return results;
+    }
+
+    private interface PaginatedQuery {
+        List<UserModel> query(RealmModel realm, int first, int max);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.protocol.oidc;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.Provider;
+
+/**
+ * Cache of token introspection responses, so resource servers introspecting same token for every request don't need to
+ * verify it every time.
+ */
+public interface TokenIntrospectionCacheProvider extends Provider {
+
+    /**
+     * @return cached response or null if the token wasn't introspected recently or its user session doesn't exist anymore
+     */
+    byte[] get(RealmModel realm, String tokenType, String token);
+
+    /**
+     * @param sessionState ID of user session the token belongs to. Null if the token is not bound to any session
+     * @param tokenExpiration expiration of the token in seconds or 0 if it doesn't expire
+     */
+    void put(RealmModel realm, String tokenType, String token, String sessionState, int tokenExpiration, byte[] response);
+
+    /**
+     * Removes responses for tokens of the user session. Called when the user session is logged out
+     */
+    void removeUserSession(RealmModel realm, String sessionState);
+
+    void removeRealm(RealmModel realm);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.keycloak.services.managers;
+
+import org.keycloak.common.ClientConnection;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.Provider;
+
+/**
+ * Limits number of login attempts regardless of the username, so expensive verification of credentials isn't done for
+ * floods of requests. Limits are checked before credentials are verified.
+ */
+public interface RateLimiter extends Provider {
+
+    /**
+     * Records login attempt.
+     *
+     * @param client client used for login or null if not known
+     * @return false if some of the limits was exceeded and the attempt should be rejected without verifying credentials
+     */
+    boolean tryAcquire(RealmModel realm, ClientModel client, ClientConnection clientConnection);
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.broker.provider.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Requests sent through shared pooled client must release the connection, so it's reused by next requests
+ */
+public class SimpleHttpTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient client;
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", new TestHandler(200, "hello"));
+        server.createContext("/error", new TestHandler(500, "failure"));
+        server.createContext("/empty", new TestHandler(204, null));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        // Single pooled connection. Any leaked connection makes next request fail on timeout
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(1);
+        connectionManager.setDefaultMaxPerRoute(1);
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(2000).setSocketTimeout(5000).build())
+                .build();
+    }
+
+    @After
+    public void after() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionReusedAndReleased() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("hello", SimpleHttp.doGet(baseUrl + "/ok", client).param("i", String.valueOf(i)).asString());
+            Assert.assertEquals(200, SimpleHttp.doGet(baseUrl + "/ok", client).asStatus());
+            Assert.assertNull(SimpleHttp.doGet(baseUrl + "/empty", client).asString());
+
+            try {
+                SimpleHttp.doGet(baseUrl + "/error", client).asString();
+                Assert.fail("Expected to fail on error response");
+            } catch (IOException expected) {
+                Assert.assertTrue(expected.getMessage().contains("500"));
+            }
+            Assert.assertEquals(500, SimpleHttp.doGet(baseUrl + "/error", client).asStatus());
+
+            Assert.assertEquals(0, connectionManager.getTotalStats().getLeased());
+        }
+
+        // All requests were sent over the same kept-alive connection
+        Assert.assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        Assert.assertEquals(1, clientPorts.size());
+    }
+
+    private class TestHandler implements HttpHandler {
+
+        private final int status;
+        private final byte[] body;
+
+        private TestHandler(int status, String body) {
+            this.status = status;
+            this.body = body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+            exchange.close();
+        }
+
+    }
+
+}
@@ -44,6 +44,7 @@ import org.keycloak.services.ErrorPage;
 import org.keycloak.services.ServicesLogger;
 import org.keycloak.services.managers.AuthenticationManager;
 import org.keycloak.services.managers.BruteForceProtector;
+import org.keycloak.services.managers.RateLimiter;
 import org.keycloak.services.managers.ClientSessionCode;
 import org.keycloak.services.messages.Messages;
 import org.keycloak.services.resources.LoginActionsService;
@@ -76,6 +77,7 @@ public class AuthenticationProcessor {
     protected String flowPath;
     protected boolean browserFlow;
     protected BruteForceProtector protector;
+    protected RateLimiter rateLimiter;
     protected boolean oneActionWasSuccessful;
     /**
      * This could be an error message forwarded from another authenticator
@@ -104,6 +106,23 @@ public class AuthenticationProcessor {
         return this;
     }
 
+    public RateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = session.getProvider(RateLimiter.class);
+        }
+        return rateLimiter;
+    }
+
+    /**
+     * Rejects the request before credentials are verified if there are too many login attempts from same IP address, of
+     * same client or in the realm
+     */
+    public void checkRateLimit() {
+        if (!getRateLimiter().tryAcquire(realm, clientSession != null ? clientSession.getClient() : null, connection)) {
+            throw new AuthenticationFlowException(AuthenticationFlowError.TOO_MANY_REQUESTS);
+        }
+    }
+
     public BruteForceProtector getBruteForceProtector() {
         if (protector == null) {
             protector = session.getProvider(BruteForceProtector.class);
@@ -571,6 +590,11 @@ public class AuthenticationProcessor {
                 event.error(Errors.USER_TEMPORARILY_DISABLED);
                 return ErrorPage.error(session, Messages.ACCOUNT_TEMPORARILY_DISABLED);
 
+            } else if (e.getError() == AuthenticationFlowError.TOO_MANY_REQUESTS) {
+                logger.failedAuthentication(e);
+                event.error(Errors.TOO_MANY_REQUESTS);
+                return ErrorPage.error(session, Messages.TOO_MANY_LOGIN_ATTEMPTS);
+
             } else if (e.getError() == AuthenticationFlowError.INVALID_CLIENT_SESSION) {
                 logger.failedAuthentication(e);
                 event.error(Errors.INVALID_CODE);
@@ -735,6 +759,7 @@ public class AuthenticationProcessor {
             //resetFlow(clientSession);
             return authenticate();
         }
+        checkRateLimit();
         UserModel authUser = clientSession.getAuthenticatedUser();
         validateUser(authUser);
         AuthenticationExecutionModel model = realm.getAuthenticationExecutionById(execution);
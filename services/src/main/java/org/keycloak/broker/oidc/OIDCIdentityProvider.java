@@ -18,6 +18,7 @@ package org.keycloak.broker.oidc;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.keycloak.broker.oidc.mappers.AbstractJsonUserAttributeMapper;
 import org.keycloak.broker.oidc.util.JsonSimpleHttp;
 import org.keycloak.broker.provider.util.SimpleHttp;
@@ -31,6 +32,7 @@ import org.keycloak.jose.jws.JWSInput;
 import org.keycloak.jose.jws.JWSInputException;
 import org.keycloak.jose.jws.crypto.RSAProvider;
 import org.keycloak.models.ClientSessionModel;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.representations.AccessTokenResponse;
@@ -42,7 +44,6 @@ import org.keycloak.services.messages.Messages;
 import org.keycloak.services.resources.IdentityBrokerService;
 import org.keycloak.services.resources.RealmsResource;
 import org.keycloak.util.JsonSerialization;
-import org.keycloak.common.util.PemUtils;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -85,19 +86,24 @@ public class OIDCIdentityProvider extends AbstractOAuth2IdentityProvider<OIDCIde
 
     protected PublicKey getExternalIdpKey() {
         String signingCert = getConfig().getCertificateSignatureVerifier();
-        try {
-            if (signingCert != null && !signingCert.trim().equals("")) {
-                return PemUtils.decodeCertificate(signingCert).getPublicKey();
-            } else if (getConfig().getPublicKeySignatureVerifier() != null && !getConfig().getPublicKeySignatureVerifier().trim().equals("")) {
-                return PemUtils.decodePublicKey(getConfig().getPublicKeySignatureVerifier());
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        if (signingCert != null && !signingCert.trim().equals("")) {
+            return OIDCIdentityProviderKeyCache.getInstance().getPemPublicKey(signingCert, true);
+        } else if (getConfig().getPublicKeySignatureVerifier() != null && !getConfig().getPublicKeySignatureVerifier().trim().equals("")) {
+            return OIDCIdentityProviderKeyCache.getInstance().getPemPublicKey(getConfig().getPublicKeySignatureVerifier(), false);
         }
         return null;
 
     }
 
+    /**
+     * @return key from JWKS of external IDP with the kid from the token header or null if there is no such key
+     */
+    protected PublicKey getExternalIdpKey(JWSInput jws) {
+        KeycloakSession session = ResteasyProviderFactory.getContextData(KeycloakSession.class);
+        return OIDCIdentityProviderKeyCache.getInstance().getPublicKey(SimpleHttp.getHttpClient(session),
+                OIDCIdentityProviderKeyCache.getRefreshExecutor(session), getConfig().getJwksUrl(), jws.getHeader().getKeyId());
+    }
+
     protected class OIDCEndpoint extends Endpoint {
         public OIDCEndpoint(AuthenticationCallback callback, RealmModel realm, EventBuilder event) {
             super(callback, realm, event);
@@ -271,8 +277,12 @@ public class OIDCIdentityProvider extends AbstractOAuth2IdentityProvider<OIDCIde
     }
 
     protected boolean verify(JWSInput jws, PublicKey key) {
-        if (key == null) return true;
         if (!getConfig().isValidateSignature()) return true;
+        if (getConfig().isUseJwksUrl() && getConfig().getJwksUrl() != null) {
+            PublicKey jwksKey = getExternalIdpKey(jws);
+            return jwksKey != null && RSAProvider.verify(jws, jwksKey);
+        }
+        if (key == null) return true;
         return RSAProvider.verify(jws, key);
 
     }
@@ -61,6 +61,22 @@ public class OIDCIdentityProviderConfig extends OAuth2IdentityProviderConfig {
         getConfig().put("publicKeySignatureVerifier", signingCertificate);
     }
 
+    public boolean isUseJwksUrl() {
+        return Boolean.valueOf(getConfig().get("useJwksUrl"));
+    }
+
+    public void setUseJwksUrl(boolean useJwksUrl) {
+        getConfig().put("useJwksUrl", String.valueOf(useJwksUrl));
+    }
+
+    public String getJwksUrl() {
+        return getConfig().get("jwksUrl");
+    }
+
+    public void setJwksUrl(String jwksUrl) {
+        getConfig().put("jwksUrl", jwksUrl);
+    }
+
     public boolean isValidateSignature() {
         return Boolean.valueOf(getConfig().get("validateSignature"));
     }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.broker.oidc;
+
+import org.apache.http.client.HttpClient;
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.broker.provider.util.SimpleHttp;
+import org.keycloak.common.util.PemUtils;
+import org.keycloak.common.util.Time;
+import org.keycloak.executors.ExecutorsProvider;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKParser;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.protocol.oidc.representations.JSONWebKeySet;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache of public keys of external OIDC identity providers. Keys downloaded from JWKS URL are indexed by their kid and
+ * refreshed in the background once they are older than "keysMaxAge". Token signed with unknown kid triggers immediate
+ * refresh, but the JWKS URL isn't requested more often than once per "minTimeBetweenRequests". Both options are in seconds
+ * and are configured in "oidcIdentityProviderKeys" scope. Background refresh runs on the pool of {@link ExecutorsProvider},
+ * so the threads are stopped together with the session factory.
+ * <p>
+ * Keys configured in PEM format are cached too, so they are not parsed for every brokered login.
+ */
+public class OIDCIdentityProviderKeyCache {
+
+    private static final Logger logger = Logger.getLogger(OIDCIdentityProviderKeyCache.class);
+
+    public static final int DEFAULT_MIN_TIME_BETWEEN_REQUESTS = 10;
+    public static final int DEFAULT_KEYS_MAX_AGE = 3600;
+
+    static final int MAX_ENTRIES = 1000;
+
+    private static final String REFRESH_EXECUTOR_NAME = "oidc-idp-keys-refresh";
+    private static final int REFRESH_QUEUE_SIZE = 100;
+
+    // Used for keys without kid
+    private static final String NO_KID = "";
+
+    private final int minTimeBetweenRequests;
+    private final int keysMaxAge;
+
+    private final ConcurrentHashMap<String, JWKSEntry> jwksEntries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PublicKey> pemKeys = new ConcurrentHashMap<>();
+
+    public OIDCIdentityProviderKeyCache(int minTimeBetweenRequests, int keysMaxAge) {
+        this.minTimeBetweenRequests = minTimeBetweenRequests;
+        this.keysMaxAge = keysMaxAge;
+    }
+
+    public static OIDCIdentityProviderKeyCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return pool of {@link ExecutorsProvider} for background refresh of keys or null if it's not available
+     */
+    public static Executor getRefreshExecutor(KeycloakSession session) {
+        ExecutorsProvider executors = session != null ? session.getProvider(ExecutorsProvider.class) : null;
+        return executors != null ? executors.getExecutor(REFRESH_EXECUTOR_NAME, 1, REFRESH_QUEUE_SIZE) : null;
+    }
+
+    /**
+     * @param client client used to download the keys. It's used from background thread as well, so it must not be bound to the request
+     * @param refreshExecutor executor used to refresh old keys in background. If null, old keys are refreshed in current thread
+     * @param kid kid from the header of the token. If null, the key is returned just if there is one without kid or the JWKS contains single key
+     * @return key or null if there is no such key even after refresh
+     */
+    public PublicKey getPublicKey(HttpClient client, Executor refreshExecutor, String jwksUrl, String kid) {
+        JWKSEntry entry = getEntry(jwksUrl);
+
+        PublicKey key = entry.getKey(kid);
+        if (key != null) {
+            if (Time.currentTime() - entry.lastRefresh >= keysMaxAge) {
+                scheduleRefresh(entry, client, refreshExecutor);
+            }
+            return key;
+        }
+
+        // Unknown kid. Keys might have been rotated
+        synchronized (entry) {
+            key = entry.getKey(kid);
+            if (key == null && Time.currentTime() - entry.lastRequest >= minTimeBetweenRequests) {
+                refresh(entry, client);
+                key = entry.getKey(kid);
+            }
+        }
+
+        if (key == null) {
+            logger.debugf("No key with kid '%s' found in JWKS from '%s'", kid, jwksUrl);
+        }
+        return key;
+    }
+
+    /**
+     * @param pem public key or certificate in PEM format
+     */
+    public PublicKey getPemPublicKey(String pem, boolean certificate) {
+        String cacheKey = (certificate ? "cert:" : "key:") + pem;
+        PublicKey key = pemKeys.get(cacheKey);
+        if (key != null) {
+            return key;
+        }
+
+        try {
+            key = certificate ? PemUtils.decodeCertificate(pem).getPublicKey() : PemUtils.decodePublicKey(pem);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        if (pemKeys.size() < MAX_ENTRIES) {
+            pemKeys.put(cacheKey, key);
+        }
+        return key;
+    }
+
+    private JWKSEntry getEntry(String jwksUrl) {
+        JWKSEntry entry = jwksEntries.get(jwksUrl);
+        if (entry == null) {
+            if (jwksEntries.size() >= MAX_ENTRIES) {
+                jwksEntries.clear();
+            }
+            JWKSEntry newEntry = new JWKSEntry(jwksUrl);
+            entry = jwksEntries.putIfAbsent(jwksUrl, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    private void scheduleRefresh(final JWKSEntry entry, final HttpClient client, Executor refreshExecutor) {
+        if (!entry.refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        Runnable refreshTask = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    synchronized (entry) {
+                        if (Time.currentTime() - entry.lastRequest >= minTimeBetweenRequests) {
+                            refresh(entry, client);
+                        }
+                    }
+                } finally {
+                    entry.refreshScheduled.set(false);
+                }
+            }
+
+        };
+
+        if (refreshExecutor == null) {
+            refreshTask.run();
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(refreshTask);
+        } catch (RejectedExecutionException e) {
+            // Old keys are still used. Refresh is scheduled again by next request
+            entry.refreshScheduled.set(false);
+            logger.debugf("Refresh of keys from '%s' rejected: %s", entry.jwksUrl, e.getMessage());
+        }
+    }
+
+    // Must be called with lock on entry. If download fails, previous keys are kept
+    private void refresh(JWKSEntry entry, HttpClient client) {
+        entry.lastRequest = Time.currentTime();
+        try {
+            String keySetString = downloadKeySet(entry.jwksUrl, client);
+            JSONWebKeySet keySet = JsonSerialization.readValue(keySetString, JSONWebKeySet.class);
+
+            Map<String, PublicKey> keys = new HashMap<>();
+            if (keySet.getKeys() != null) {
+                for (JWK jwk : keySet.getKeys()) {
+                    String use = jwk.getPublicKeyUse();
+                    if ((use == null || use.equals(JWK.SIG_USE)) && OIDCIdentityProviderFactory.keyTypeSupported(jwk.getKeyType())) {
+                        keys.put(jwk.getKeyId() != null ? jwk.getKeyId() : NO_KID, JWKParser.create(jwk).toPublicKey());
+                    }
+                }
+            }
+
+            entry.keys = Collections.unmodifiableMap(keys);
+            entry.lastRefresh = entry.lastRequest;
+            logger.debugf("Loaded %d keys from '%s'", keys.size(), entry.jwksUrl);
+        } catch (Exception e) {
+            logger.warnf("Failed to load keys from '%s': %s", entry.jwksUrl, e.getMessage());
+        }
+    }
+
+    protected String downloadKeySet(String jwksUrl, HttpClient client) throws IOException {
+        return SimpleHttp.doGet(jwksUrl, client).asString();
+    }
+
+    private static class JWKSEntry {
+
+        private final String jwksUrl;
+        private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+        private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+        private volatile int lastRefresh;
+        private volatile int lastRequest;
+
+        private JWKSEntry(String jwksUrl) {
+            this.jwksUrl = jwksUrl;
+        }
+
+        private PublicKey getKey(String kid) {
+            Map<String, PublicKey> keys = this.keys;
+            PublicKey key = keys.get(kid != null ? kid : NO_KID);
+            if (key == null && kid == null && keys.size() == 1) {
+                key = keys.values().iterator().next();
+            }
+            return key;
+        }
+
+    }
+
+    private static class InstanceHolder {
+
+        private static final OIDCIdentityProviderKeyCache INSTANCE;
+
+        static {
+            Config.Scope config = Config.scope("oidcIdentityProviderKeys");
+            INSTANCE = new OIDCIdentityProviderKeyCache(config.getInt("minTimeBetweenRequests", DEFAULT_MIN_TIME_BETWEEN_REQUESTS),
+                    config.getInt("keysMaxAge", DEFAULT_KEYS_MAX_AGE));
+        }
+
+    }
+
+}
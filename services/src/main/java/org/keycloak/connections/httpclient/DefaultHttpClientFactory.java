@@ -45,6 +45,10 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
 
     private static final Logger logger = Logger.getLogger(DefaultHttpClientFactory.class);
 
+    public static final long DEFAULT_SOCKET_TIMEOUT = 30000L;
+    public static final long DEFAULT_ESTABLISH_CONNECTION_TIMEOUT = 10000L;
+    public static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000L;
+
     private volatile CloseableHttpClient httpClient;
     private Config.Scope config;
 
@@ -117,8 +121,10 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
         if (httpClient == null) {
             synchronized(this) {
                 if (httpClient == null) {
-                    long socketTimeout = config.getLong("socket-timeout-millis", -1L);
-                    long establishConnectionTimeout = config.getLong("establish-connection-timeout-millis", -1L);
+                    // Requests to unresponsive servers must not block request threads forever. -1 disables the timeout
+                    long socketTimeout = config.getLong("socket-timeout-millis", DEFAULT_SOCKET_TIMEOUT);
+                    long establishConnectionTimeout = config.getLong("establish-connection-timeout-millis", DEFAULT_ESTABLISH_CONNECTION_TIMEOUT);
+                    long connectionRequestTimeout = config.getLong("connection-request-timeout-millis", DEFAULT_CONNECTION_REQUEST_TIMEOUT);
                     int maxPooledPerRoute = config.getInt("max-pooled-per-route", 64);
                     int connectionPoolSize = config.getInt("connection-pool-size", 128);
                     long connectionTTL = config.getLong("connection-ttl-millis", -1L);
@@ -139,6 +145,7 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
                     HttpClientBuilder builder = new HttpClientBuilder();
                     builder.socketTimeout(socketTimeout, TimeUnit.MILLISECONDS)
                             .establishConnectionTimeout(establishConnectionTimeout, TimeUnit.MILLISECONDS)
+                            .connectionRequestTimeout(connectionRequestTimeout, TimeUnit.MILLISECONDS)
                             .maxPooledPerRoute(maxPooledPerRoute)
                             .connectionPoolSize(connectionPoolSize)
                             .connectionTTL(connectionTTL, TimeUnit.MILLISECONDS)
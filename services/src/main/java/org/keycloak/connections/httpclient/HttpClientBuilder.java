@@ -103,6 +103,8 @@ public class HttpClientBuilder {
     protected TimeUnit socketTimeoutUnits = TimeUnit.MILLISECONDS;
     protected long establishConnectionTimeout = -1;
     protected TimeUnit establishConnectionTimeoutUnits = TimeUnit.MILLISECONDS;
+    protected long connectionRequestTimeout = -1;
+    protected TimeUnit connectionRequestTimeoutUnits = TimeUnit.MILLISECONDS;
     protected boolean disableCookies = false;
 
 
@@ -134,6 +136,20 @@ public class HttpClientBuilder {
         return this;
     }
 
+    /**
+     * How long to wait for a connection from the pool when all pooled connections are in use?
+     *
+     * @param timeout
+     * @param unit
+     * @return
+     */
+    public HttpClientBuilder connectionRequestTimeout(long timeout, TimeUnit unit)
+    {
+        this.connectionRequestTimeout = timeout;
+        this.connectionRequestTimeoutUnits = unit;
+        return this;
+    }
+
     public HttpClientBuilder connectionTTL(long ttl, TimeUnit unit) {
         this.connectionTTL = ttl;
         this.connectionTTLUnit = unit;
@@ -273,8 +289,9 @@ public class HttpClientBuilder {
                 sslsf = new SSLConnectionSocketFactory(tlsContext, verifier);
             }
             RequestConfig requestConfig = RequestConfig.custom()
-                    .setConnectTimeout((int) establishConnectionTimeout)
-                    .setSocketTimeout((int) socketTimeout).build();
+                    .setConnectTimeout(toMillis(establishConnectionTimeout, establishConnectionTimeoutUnits))
+                    .setSocketTimeout(toMillis(socketTimeout, socketTimeoutUnits))
+                    .setConnectionRequestTimeout(toMillis(connectionRequestTimeout, connectionRequestTimeoutUnits)).build();
 
             org.apache.http.impl.client.HttpClientBuilder builder = HttpClients.custom()
                     .setDefaultRequestConfig(requestConfig)
@@ -295,6 +312,11 @@ public class HttpClientBuilder {
         }
     }
 
+    // Negative value means no timeout
+    private static int toMillis(long timeout, TimeUnit unit) {
+        return timeout < 0 ? -1 : (int) unit.toMillis(timeout);
+    }
+
     private SSLContext createSslContext(
             final String algorithm,
             final KeyStore keystore,
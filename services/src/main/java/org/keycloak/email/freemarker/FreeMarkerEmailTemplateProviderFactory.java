@@ -23,12 +23,20 @@ import org.keycloak.email.EmailTemplateProviderFactory;
 import org.keycloak.theme.FreeMarkerUtil;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.theme.Theme;
+
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
 public class FreeMarkerEmailTemplateProviderFactory implements EmailTemplateProviderFactory {
 
+    private static final String[] TEMPLATES = { "email-verification.ftl", "event-login_error.ftl", "event-remove_totp.ftl",
+            "event-update_password.ftl", "event-update_totp.ftl", "executeActions.ftl", "identity-provider-link.ftl",
+            "password-reset.ftl" };
+
     private FreeMarkerUtil freeMarker;
 
     @Override
@@ -43,6 +51,12 @@ public class FreeMarkerEmailTemplateProviderFactory implements EmailTemplateProv
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
+        List<String> templates = new LinkedList<>();
+        for (String template : TEMPLATES) {
+            templates.add("text/" + template);
+            templates.add("html/" + template);
+        }
+        freeMarker.precompileTemplates(factory, Theme.Type.EMAIL, templates);
     }
 
     @Override
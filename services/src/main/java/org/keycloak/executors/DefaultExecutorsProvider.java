@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.executors;
+
+import java.util.concurrent.ExecutorService;
+
+public class DefaultExecutorsProvider implements ExecutorsProvider {
+
+    private final DefaultExecutorsProviderFactory factory;
+
+    public DefaultExecutorsProvider(DefaultExecutorsProviderFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public ExecutorService getExecutor(String name, int threads, int queueSize) {
+        return factory.getExecutor(name, threads, queueSize);
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.executors;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+
+/**
+ * Threads of the pools are daemon threads, which are stopped after 60 seconds of inactivity. All pools are shut down when
+ * the server is stopped.
+ */
+public class DefaultExecutorsProviderFactory implements ExecutorsProviderFactory {
+
+    private static final Logger logger = Logger.getLogger(DefaultExecutorsProviderFactory.class);
+
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private boolean closed;
+
+    @Override
+    public ExecutorsProvider create(KeycloakSession session) {
+        return new DefaultExecutorsProvider(this);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
+            logger.debugf("Shutting down executor '%s'", entry.getKey());
+            entry.getValue().shutdownNow();
+        }
+        executors.clear();
+    }
+
+    @Override
+    public String getId() {
+        return "default";
+    }
+
+    protected ExecutorService getExecutor(String name, int threads, int queueSize) {
+        ExecutorService executor = executors.get(name);
+        if (executor == null) {
+            executor = createExecutor(name, threads, queueSize);
+        }
+        return executor;
+    }
+
+    private synchronized ExecutorService createExecutor(final String name, int threads, int queueSize) {
+        if (closed) {
+            throw new IllegalStateException("Executors already shut down");
+        }
+
+        ExecutorService executor = executors.get(name);
+        if (executor != null) {
+            return executor;
+        }
+
+        threads = Math.max(1, threads);
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize) : new LinkedBlockingQueue<Runnable>();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, new ThreadFactory() {
+
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        }, new ThreadPoolExecutor.AbortPolicy());
+        threadPool.allowCoreThreadTimeOut(true);
+
+        logger.debugf("Created executor '%s' with %d threads", name, threads);
+        executors.put(name, threadPool);
+        return threadPool;
+    }
+
+}
@@ -27,7 +27,9 @@ import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.KeycloakSessionTask;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.UserBulkQueries;
 import org.keycloak.representations.idm.RealmRepresentation;
 
 import java.io.IOException;
@@ -82,9 +84,9 @@ public abstract class MultipleStepsExportProvider implements ExportProvider {
                 writeRealm(realmName + "-realm.json", rep);
                 logger.info("Realm '" + realmName + "' - data exported");
 
-                // Count total number of users
+                // Count total number of users. Cached count may be stale, so it's read from the user storage
                 if (!exportUsersIntoRealmFile) {
-                    usersHolder.totalCount = session.users().getUsersCount(realm);
+                    usersHolder.totalCount = session.getProvider(UserProvider.class).getUsersCount(realm);
                 }
             }
 
@@ -109,7 +111,11 @@ public abstract class MultipleStepsExportProvider implements ExportProvider {
                     @Override
                     protected void runExportImportTask(KeycloakSession session) throws IOException {
                         RealmModel realm = session.realms().getRealmByName(realmName);
-                        usersHolder.users = session.users().getUsers(realm, usersHolder.currentPageStart, usersHolder.currentPageEnd - usersHolder.currentPageStart, true);
+                        // Page starts after the last exported user, so the cost of the query doesn't grow with every page
+                        usersHolder.users = UserBulkQueries.getUsersAfter(session.users(), realm, usersHolder.lastUsername, usersHolder.currentPageEnd - usersHolder.currentPageStart, true);
+                        if (!usersHolder.users.isEmpty()) {
+                            usersHolder.lastUsername = usersHolder.users.get(usersHolder.users.size() - 1).getUsername();
+                        }
 
                         writeUsers(realmName + "-users-" + (usersHolder.currentPageStart / countPerPage) + ".json", session, realm, usersHolder.users);
 
@@ -139,5 +145,6 @@ public abstract class MultipleStepsExportProvider implements ExportProvider {
         int totalCount;
         int currentPageStart;
         int currentPageEnd;
+        String lastUsername;
     }
 }
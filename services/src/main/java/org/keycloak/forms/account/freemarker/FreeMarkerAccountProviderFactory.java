@@ -18,11 +18,16 @@
 package org.keycloak.forms.account.freemarker;
 
 import org.keycloak.Config;
+import org.keycloak.forms.account.AccountPages;
 import org.keycloak.forms.account.AccountProvider;
 import org.keycloak.forms.account.AccountProviderFactory;
 import org.keycloak.theme.FreeMarkerUtil;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.theme.Theme;
+
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
@@ -43,8 +48,13 @@ public class FreeMarkerAccountProviderFactory implements AccountProviderFactory
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-
+        List<String> templates = new LinkedList<>();
+        for (AccountPages page : AccountPages.values()) {
+            templates.add(Templates.getTemplate(page));
+        }
+        freeMarker.precompileTemplates(factory, Theme.Type.ACCOUNT, templates);
     }
+
     @Override
     public void close() {
         freeMarker = null;
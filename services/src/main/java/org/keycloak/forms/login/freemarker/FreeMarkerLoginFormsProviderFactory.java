@@ -19,10 +19,15 @@ package org.keycloak.forms.login.freemarker;
 
 import org.keycloak.Config;
 import org.keycloak.theme.FreeMarkerUtil;
+import org.keycloak.forms.login.LoginFormsPages;
 import org.keycloak.forms.login.LoginFormsProvider;
 import org.keycloak.forms.login.LoginFormsProviderFactory;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.theme.Theme;
+
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
@@ -43,8 +48,13 @@ public class FreeMarkerLoginFormsProviderFactory implements LoginFormsProviderFa
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-
+        List<String> templates = new LinkedList<>();
+        for (LoginFormsPages page : LoginFormsPages.values()) {
+            templates.add(Templates.getTemplate(page));
+        }
+        freeMarker.precompileTemplates(factory, Theme.Type.LOGIN, templates);
     }
+
     @Override
     public void close() {
         freeMarker = null;
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.protocol.oidc;
+
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Responses are kept in node local {@link TokenIntrospectionCache}. User session of the token is looked up for every cache hit,
+ * so the response isn't returned after the session was logged out, expired or removed on other cluster node.
+ */
+public class DefaultTokenIntrospectionCacheProvider implements TokenIntrospectionCacheProvider {
+
+    private final KeycloakSession session;
+    private final TokenIntrospectionCache cache;
+
+    public DefaultTokenIntrospectionCacheProvider(KeycloakSession session, TokenIntrospectionCache cache) {
+        this.session = session;
+        this.cache = cache;
+    }
+
+    @Override
+    public byte[] get(RealmModel realm, String tokenType, String token) {
+        TokenIntrospectionCache.Entry entry = cache.get(realm.getId(), tokenType, token);
+        if (entry == null) {
+            return null;
+        }
+
+        String sessionState = entry.getSessionState();
+        if (sessionState != null && session.sessions().getUserSession(realm, sessionState) == null
+                && session.sessions().getOfflineUserSession(realm, sessionState) == null) {
+            cache.remove(realm.getId(), tokenType, token);
+            return null;
+        }
+
+        return entry.getResponse();
+    }
+
+    @Override
+    public void put(RealmModel realm, String tokenType, String token, String sessionState, int tokenExpiration, byte[] response) {
+        cache.put(realm.getId(), tokenType, token, sessionState, tokenExpiration, response);
+    }
+
+    @Override
+    public void removeUserSession(RealmModel realm, String sessionState) {
+        cache.removeUserSession(realm.getId(), sessionState);
+    }
+
+    @Override
+    public void removeRealm(RealmModel realm) {
+        cache.removeRealm(realm.getId());
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
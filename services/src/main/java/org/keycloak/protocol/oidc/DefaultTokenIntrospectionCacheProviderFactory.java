@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.protocol.oidc;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.timer.TimerProvider;
+
+/**
+ * TTL of cached responses is configured with option "ttl" (in seconds). 0 disables the cache.
+ */
+public class DefaultTokenIntrospectionCacheProviderFactory implements TokenIntrospectionCacheProviderFactory {
+
+    private static final long REMOVE_EXPIRED_INTERVAL = 60000;
+
+    private TokenIntrospectionCache cache;
+
+    @Override
+    public TokenIntrospectionCacheProvider create(KeycloakSession session) {
+        return new DefaultTokenIntrospectionCacheProvider(session, cache);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        cache = new TokenIntrospectionCache(config.getInt("ttl", TokenIntrospectionCache.DEFAULT_TTL_SECONDS));
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        if (!cache.isEnabled()) {
+            return;
+        }
+
+        KeycloakSession session = factory.create();
+        try {
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            if (timer != null) {
+                timer.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        cache.removeExpired();
+                    }
+
+                }, REMOVE_EXPIRED_INTERVAL, "RemoveExpiredTokenIntrospections");
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        cache.clear();
+    }
+
+    @Override
+    public String getId() {
+        return "default";
+    }
+}
@@ -17,7 +17,6 @@
 
 package org.keycloak.protocol.oidc;
 
-import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.events.EventBuilder;
@@ -34,6 +33,8 @@ import org.keycloak.protocol.oidc.endpoints.UserInfoEndpoint;
 import org.keycloak.protocol.oidc.representations.JSONWebKeySet;
 import org.keycloak.services.ServicesLogger;
 import org.keycloak.services.resources.RealmsResource;
+import org.keycloak.services.util.CacheControlUtil;
+import org.keycloak.services.util.JsonDocumentCache;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -42,6 +43,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -56,6 +58,8 @@ public class OIDCLoginProtocolService {
 
     protected static final ServicesLogger logger = ServicesLogger.ROOT_LOGGER;
 
+    private static final JsonDocumentCache certsCache = new JsonDocumentCache(1000);
+
     private RealmModel realm;
     private TokenManager tokenManager;
     private EventBuilder event;
@@ -69,6 +73,9 @@ public class OIDCLoginProtocolService {
     @Context
     private HttpHeaders headers;
 
+    @Context
+    private Request request;
+
     public OIDCLoginProtocolService(RealmModel realm, EventBuilder event) {
         this.realm = realm;
         this.tokenManager = new TokenManager();
@@ -163,11 +170,16 @@ public class OIDCLoginProtocolService {
     @GET
     @Path("certs")
     @Produces(MediaType.APPLICATION_JSON)
-    @NoCache
-    public JSONWebKeySet certs() {
-        JSONWebKeySet keySet = new JSONWebKeySet();
-        keySet.setKeys(new JWK[]{JWKBuilder.create().rs256(realm.getPublicKey())});
-        return keySet;
+    public Response certs() {
+        JsonDocumentCache.Document document = certsCache.get(realm.getId(), realm.getPublicKeyPem(), new JsonDocumentCache.DocumentBuilder() {
+            @Override
+            public Object build() {
+                JSONWebKeySet keySet = new JSONWebKeySet();
+                keySet.setKeys(new JWK[]{JWKBuilder.create().rs256(realm.getPublicKey())});
+                return keySet;
+            }
+        });
+        return document.toResponse(request, CacheControlUtil.getMetadataCacheControl());
     }
 
     @Path("userinfo")
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.keycloak.protocol.oidc;
+
+import org.keycloak.common.util.Time;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-living node local store of token introspection responses. Entries never live longer than the token itself. It's
+ * shared by all {@link DefaultTokenIntrospectionCacheProvider} instances, which check that user session of the token still
+ * exists before the cached response is used.
+ */
+public class TokenIntrospectionCache {
+
+    public static final int DEFAULT_TTL_SECONDS = 10;
+
+    static final int MAX_ENTRIES = 10000;
+
+    private final int ttl;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttl for how long responses are cached in seconds
+     */
+    public TokenIntrospectionCache(int ttl) {
+        this.ttl = ttl;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * @return cached entry or null if the token wasn't introspected recently
+     */
+    public Entry get(String realmId, String tokenType, String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        String key = getKey(realmId, tokenType, token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiration < Time.currentTime()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void remove(String realmId, String tokenType, String token) {
+        entries.remove(getKey(realmId, tokenType, token));
+    }
+
+    /**
+     * @param sessionState ID of user session the token belongs to. Null if the token is not bound to any session
+     * @param tokenExpiration expiration of the token in seconds or 0 if it doesn't expire
+     */
+    public void put(String realmId, String tokenType, String token, String sessionState, int tokenExpiration, byte[] response) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        int expiration = Time.currentTime() + ttl;
+        if (tokenExpiration > 0) {
+            expiration = Math.min(expiration, tokenExpiration);
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            removeExpired();
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+
+        entries.put(getKey(realmId, tokenType, token), new Entry(realmId, sessionState, expiration, response));
+    }
+
+    /**
+     * Removes responses for tokens of the user session. Called when the user session is logged out
+     */
+    public void removeUserSession(String realmId, String sessionState) {
+        Iterator<Entry> itr = entries.values().iterator();
+        while (itr.hasNext()) {
+            Entry entry = itr.next();
+            if (sessionState.equals(entry.sessionState) && realmId.equals(entry.realmId)) {
+                itr.remove();
+            }
+        }
+    }
+
+    public void removeRealm(String realmId) {
+        Iterator<Entry> itr = entries.values().iterator();
+        while (itr.hasNext()) {
+            if (realmId.equals(itr.next().realmId)) {
+                itr.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public void removeExpired() {
+        int now = Time.currentTime();
+        Iterator<Entry> itr = entries.values().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().expiration < now) {
+                itr.remove();
+            }
+        }
+    }
+
+    private static String getKey(String realmId, String tokenType, String token) {
+        return realmId + "." + tokenType + "." + token;
+    }
+
+    public static class Entry {
+
+        private final String realmId;
+        private final String sessionState;
+        private final int expiration;
+        private final byte[] response;
+
+        private Entry(String realmId, String sessionState, int expiration, byte[] response) {
+            this.realmId = realmId;
+            this.sessionState = sessionState;
+            this.expiration = expiration;
+            this.response = response;
+        }
+
+        public String getSessionState() {
+            return sessionState;
+        }
+
+        public byte[] getResponse() {
+            return response;
+        }
+
+    }
+
+}
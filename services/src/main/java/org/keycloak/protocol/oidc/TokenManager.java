@@ -23,9 +23,11 @@ import org.keycloak.OAuthErrorException;
 import org.keycloak.events.Details;
 import org.keycloak.events.Errors;
 import org.keycloak.events.EventBuilder;
+import org.keycloak.jose.jws.Algorithm;
 import org.keycloak.jose.jws.JWSBuilder;
 import org.keycloak.jose.jws.JWSInput;
 import org.keycloak.jose.jws.JWSInputException;
+import org.keycloak.jose.jws.crypto.HMACProvider;
 import org.keycloak.jose.jws.crypto.RSAProvider;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.ClientSessionModel;
@@ -57,6 +59,7 @@ import org.keycloak.services.managers.UserSessionManager;
 import org.keycloak.util.TokenUtil;
 import org.keycloak.common.util.Time;
 
+import javax.crypto.SecretKey;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -233,13 +236,37 @@ public class TokenManager {
     public RefreshToken toRefreshToken(RealmModel realm, String encodedRefreshToken) throws JWSInputException, OAuthErrorException {
         JWSInput jws = new JWSInput(encodedRefreshToken);
 
-        if (!RSAProvider.verify(jws, realm.getPublicKey())) {
+        if (!verifyRefreshTokenSignature(realm, jws)) {
             throw new OAuthErrorException(OAuthErrorException.INVALID_GRANT, "Invalid refresh token");
         }
 
         return jws.readJsonContent(RefreshToken.class);
     }
 
+    protected boolean verifyRefreshTokenSignature(RealmModel realm, JWSInput jws) {
+        if (jws.getHeader().getAlgorithm() == Algorithm.HS256) {
+            // Only secrets known to the realm are accepted, so the token can't pick its own key
+            String kid = jws.getHeader().getKeyId();
+            String secret = kid != null ? realm.getRefreshTokenSecrets().get(kid) : null;
+            return secret != null && HMACProvider.verify(jws, (SecretKey) KeycloakModelUtils.getSecretKey(secret));
+        }
+
+        return RSAProvider.verify(jws, realm.getPublicKey());
+    }
+
+    public static String encodeRefreshToken(RealmModel realm, RefreshToken refreshToken) {
+        if (realm.isRefreshTokenSymmetricSigning()) {
+            String kid = realm.getRefreshTokenSecretKid();
+            String secret = kid != null ? realm.getRefreshTokenSecrets().get(kid) : null;
+            if (secret != null) {
+                return new JWSBuilder().kid(kid).jsonContent(refreshToken).hmac256((SecretKey) KeycloakModelUtils.getSecretKey(secret));
+            }
+            logger.debugf("No active refresh token secret in realm '%s'. Falling back to realm private key", realm.getName());
+        }
+
+        return new JWSBuilder().jsonContent(refreshToken).rsa256(realm.getPrivateKey());
+    }
+
     public IDToken verifyIDToken(RealmModel realm, String encodedIDToken) throws OAuthErrorException {
         try {
             JWSInput jws = new JWSInput(encodedIDToken);
@@ -669,7 +696,7 @@ public class TokenManager {
                 }
             }
             if (refreshToken != null) {
-                String encodedToken = new JWSBuilder().jsonContent(refreshToken).rsa256(realm.getPrivateKey());
+                String encodedToken = encodeRefreshToken(realm, refreshToken);
                 res.setRefreshToken(encodedToken);
                 if (refreshToken.getExpiration() != 0) {
                     res.setRefreshExpiresIn(refreshToken.getExpiration() - Time.currentTime());
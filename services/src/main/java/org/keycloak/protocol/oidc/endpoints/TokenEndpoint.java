@@ -48,6 +48,7 @@ import org.keycloak.services.managers.AuthenticationManager;
 import org.keycloak.services.managers.ClientManager;
 import org.keycloak.services.managers.ClientSessionCode;
 import org.keycloak.services.managers.RealmManager;
+import org.keycloak.services.managers.RateLimiter;
 import org.keycloak.services.resources.Cors;
 import org.keycloak.services.Urls;
 
@@ -356,6 +357,13 @@ public class TokenEndpoint {
             event.error(Errors.CONSENT_DENIED);
             throw new ErrorResponseException("invalid_client", "Client requires user consent", Response.Status.BAD_REQUEST);
         }
+
+        // Reject floods of requests before verifying credentials
+        if (!session.getProvider(RateLimiter.class).tryAcquire(realm, client, clientConnection)) {
+            event.error(Errors.TOO_MANY_REQUESTS);
+            throw new ErrorResponseException(Errors.TOO_MANY_REQUESTS, "Too many login attempts", 429);
+        }
+
         String scope = formParams.getFirst(OAuth2Constants.SCOPE);
 
         UserSessionProvider sessions = session.sessions();
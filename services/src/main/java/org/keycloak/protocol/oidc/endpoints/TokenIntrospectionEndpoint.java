@@ -30,6 +30,7 @@ import org.keycloak.jose.jws.JWSInputException;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
+import org.keycloak.protocol.oidc.TokenIntrospectionCacheProvider;
 import org.keycloak.protocol.oidc.TokenManager;
 import org.keycloak.protocol.oidc.utils.AuthorizeClientUtil;
 import org.keycloak.representations.AccessToken;
@@ -37,12 +38,17 @@ import org.keycloak.services.ErrorResponseException;
 import org.keycloak.util.JsonSerialization;
 
 import javax.ws.rs.POST;
+import javax.ws.rs.Path;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * A token introspection endpoint based on RFC-7662.
@@ -56,6 +62,9 @@ public class TokenIntrospectionEndpoint {
     private static final String PARAM_TOKEN_TYPE_HINT = "token_type_hint";
     private static final String PARAM_TOKEN = "token";
 
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final byte[] INACTIVE_TOKEN = "{\"active\":false}".getBytes(StandardCharsets.UTF_8);
+
     @Context
     private KeycloakSession session;
     @Context
@@ -90,11 +99,7 @@ public class TokenIntrospectionEndpoint {
         authorizeClient();
 
         MultivaluedMap<String, String> formParams = request.getDecodedFormParameters();
-        String tokenTypeHint = formParams.getFirst(PARAM_TOKEN_TYPE_HINT);
-
-        if (tokenTypeHint == null) {
-            tokenTypeHint = TOKEN_TYPE_ACCESS_TOKEN;
-        }
+        String tokenTypeHint = getTokenTypeHint(formParams);
 
         String token = formParams.getFirst(PARAM_TOKEN);
 
@@ -103,27 +108,114 @@ public class TokenIntrospectionEndpoint {
         }
 
         try {
-            AccessToken toIntrospect = toAccessToken(tokenTypeHint, token);
-            ObjectNode tokenMetadata;
-
-            if (toIntrospect.isActive()) {
-                tokenMetadata = JsonSerialization.createObjectNode(toIntrospect);
-                tokenMetadata.put("client_id", toIntrospect.getIssuedFor());
-                tokenMetadata.put("username", toIntrospect.getPreferredUsername());
-            } else {
-                tokenMetadata = JsonSerialization.createObjectNode();
-            }
-
-            tokenMetadata.put("active", toIntrospect.isActive());
+            byte[] tokenMetadata = introspectToken(tokenTypeHint, token);
 
             this.event.success();
 
-            return Response.ok(JsonSerialization.writeValueAsBytes(tokenMetadata)).build();
+            return Response.ok(tokenMetadata).build();
         } catch (Exception e) {
             throw throwErrorResponseException(Errors.INVALID_REQUEST, "Failed to introspect token.", Status.BAD_REQUEST);
         }
     }
 
+    /**
+     * Introspects all tokens sent as "token" parameters. Response is JSON array with result for each token in same order
+     * like the tokens in the request. Tokens, which can't be verified, are reported as not active.
+     */
+    @Path("batch")
+    @POST
+    @NoCache
+    public Response introspectBatch() {
+        event.event(EventType.INTROSPECT_TOKEN);
+
+        checkSsl();
+        checkRealm();
+        authorizeClient();
+
+        MultivaluedMap<String, String> formParams = request.getDecodedFormParameters();
+        String tokenTypeHint = getTokenTypeHint(formParams);
+
+        if (!TOKEN_TYPE_ACCESS_TOKEN.equals(tokenTypeHint) && !TOKEN_TYPE_REFRESH_TOKEN.equals(tokenTypeHint)) {
+            throw throwErrorResponseException(Errors.INVALID_REQUEST, "Unsupported token type [" + tokenTypeHint + "].", Status.BAD_REQUEST);
+        }
+
+        List<String> tokens = formParams.get(PARAM_TOKEN);
+
+        if (tokens == null || tokens.isEmpty()) {
+            throw throwErrorResponseException(Errors.INVALID_REQUEST, "Token not provided.", Status.BAD_REQUEST);
+        }
+
+        if (tokens.size() > MAX_BATCH_SIZE) {
+            throw throwErrorResponseException(Errors.INVALID_REQUEST, "Too many tokens. Max is " + MAX_BATCH_SIZE + ".", Status.BAD_REQUEST);
+        }
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write('[');
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                response.write(',');
+            }
+
+            byte[] tokenMetadata;
+            try {
+                tokenMetadata = introspectToken(tokenTypeHint, tokens.get(i));
+            } catch (Exception e) {
+                tokenMetadata = INACTIVE_TOKEN;
+            }
+            response.write(tokenMetadata, 0, tokenMetadata.length);
+        }
+        response.write(']');
+
+        this.event.detail("tokens", String.valueOf(tokens.size())).success();
+
+        return Response.ok(response.toByteArray()).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    private String getTokenTypeHint(MultivaluedMap<String, String> formParams) {
+        String tokenTypeHint = formParams.getFirst(PARAM_TOKEN_TYPE_HINT);
+        return tokenTypeHint != null ? tokenTypeHint : TOKEN_TYPE_ACCESS_TOKEN;
+    }
+
+    // Serialized response is cached, so repeated introspection of same token just returns it
+    private byte[] introspectToken(String tokenTypeHint, String token) throws Exception {
+        TokenIntrospectionCacheProvider cache = session.getProvider(TokenIntrospectionCacheProvider.class);
+        byte[] cached = cache.get(realm, tokenTypeHint, token);
+        if (cached != null) {
+            return cached;
+        }
+
+        AccessToken toIntrospect = toAccessToken(tokenTypeHint, token);
+        boolean active = toIntrospect.isActive() && isUserSessionActive(toIntrospect.getSessionState());
+        ObjectNode tokenMetadata;
+
+        if (active) {
+            tokenMetadata = JsonSerialization.createObjectNode(toIntrospect);
+            tokenMetadata.put("client_id", toIntrospect.getIssuedFor());
+            tokenMetadata.put("username", toIntrospect.getPreferredUsername());
+        } else {
+            tokenMetadata = JsonSerialization.createObjectNode();
+        }
+
+        tokenMetadata.put("active", active);
+
+        byte[] response = JsonSerialization.writeValueAsBytes(tokenMetadata);
+
+        if (active) {
+            cache.put(realm, tokenTypeHint, token, toIntrospect.getSessionState(), toIntrospect.getExpiration(), response);
+        }
+
+        return response;
+    }
+
+    // Token isn't active after logout even if it's not expired yet. Offline tokens belong to offline sessions
+    private boolean isUserSessionActive(String sessionState) {
+        if (sessionState == null) {
+            return true;
+        }
+        return session.sessions().getUserSession(realm, sessionState) != null
+                || session.sessions().getOfflineUserSession(realm, sessionState) != null;
+    }
+
     private AccessToken toAccessToken(String tokenTypeHint, String token) throws JWSInputException, OAuthErrorException {
         if (TOKEN_TYPE_ACCESS_TOKEN.equals(tokenTypeHint)) {
             return toAccessToken(token);
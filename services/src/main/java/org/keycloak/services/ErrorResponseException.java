@@ -32,9 +32,13 @@ public class ErrorResponseException extends WebApplicationException {
 
     private final String error;
     private final String errorDescription;
-    private final Response.Status status;
+    private final int status;
 
     public ErrorResponseException(String error, String errorDescription, Response.Status status) {
+        this(error, errorDescription, status.getStatusCode());
+    }
+
+    public ErrorResponseException(String error, String errorDescription, int status) {
         this.error = error;
         this.errorDescription = errorDescription;
         this.status = status;
@@ -22,6 +22,7 @@ package org.keycloak.services.filters;
 
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
@@ -35,6 +36,11 @@ public class KeycloakTransactionCommitter implements ContainerResponseFilter {
 
     @Override
     public void filter(ContainerRequestContext containerRequestContext, ContainerResponseContext containerResponseContext) throws IOException {
+        // Streamed models are read when the response is written, so the output ends the transaction itself
+        if (containerResponseContext.getEntity() instanceof JsonArrayStreamingOutput) {
+            return;
+        }
+
         KeycloakTransaction tx = ResteasyProviderFactory.getContextData(KeycloakTransaction.class);
         if (tx != null && tx.isActive()) {
             if (tx.getRollbackOnly()) {
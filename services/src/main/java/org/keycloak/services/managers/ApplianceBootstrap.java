@@ -47,7 +47,7 @@ public class ApplianceBootstrap {
 
     public boolean isNoMasterUser() {
         RealmModel realm = session.realms().getRealm(Config.getAdminRealm());
-        return session.users().getUsersCount(realm) == 0;
+        return getStorageUsersCount(realm) == 0;
     }
 
     public boolean createMasterRealm(String contextPath) {
@@ -84,7 +84,7 @@ public class ApplianceBootstrap {
 
     public void createMasterRealmUser(String username, String password) {
         RealmModel realm = session.realms().getRealm(Config.getAdminRealm());
-        if (session.users().getUsersCount(realm) > 0) {
+        if (getStorageUsersCount(realm) > 0) {
             throw new IllegalStateException("Can't create initial user as users already exists");
         }
 
@@ -100,4 +100,9 @@ public class ApplianceBootstrap {
         adminUser.grantRole(adminRole);
     }
 
+    // Cached count may miss users created on other cluster nodes, so count is read from the user storage
+    private int getStorageUsersCount(RealmModel realm) {
+        return session.getProvider(UserProvider.class).getUsersCount(realm);
+    }
+
 }
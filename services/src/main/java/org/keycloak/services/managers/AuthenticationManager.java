@@ -36,6 +36,7 @@ import org.keycloak.models.*;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.protocol.LoginProtocol;
 import org.keycloak.protocol.LoginProtocol.Error;
+import org.keycloak.protocol.oidc.TokenIntrospectionCacheProvider;
 import org.keycloak.protocol.oidc.TokenManager;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.services.ServicesLogger;
@@ -132,6 +133,7 @@ public class AuthenticationManager {
         }
         userSession.setState(UserSessionModel.State.LOGGED_OUT);
         session.sessions().removeUserSession(realm, userSession);
+        session.getProvider(TokenIntrospectionCacheProvider.class).removeUserSession(realm, userSession.getId());
     }
 
     public static void backchannelLogoutClientSession(KeycloakSession session, RealmModel realm, ClientSessionModel clientSession, UserSessionModel userSession, UriInfo uriInfo, HttpHeaders headers) {
@@ -242,6 +244,7 @@ public class AuthenticationManager {
                 .setEventBuilder(event);
         Response response = protocol.finishLogout(userSession);
         session.sessions().removeUserSession(realm, userSession);
+        session.getProvider(TokenIntrospectionCacheProvider.class).removeUserSession(realm, userSession.getId());
         return response;
     }
 
@@ -27,36 +27,48 @@ import org.keycloak.services.ServicesLogger;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A single thread will log failures.  This is so that we can avoid concurrent writes as we want an accurate failure count
+ * Failures are logged by worker threads. Each username of realm is always processed by the same worker, so failures of
+ * single user are processed in order and we can avoid concurrent writes as we want an accurate failure count. Failures of
+ * different users are processed concurrently by different workers.
  *
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class DefaultBruteForceProtector implements Runnable, BruteForceProtector {
+public class DefaultBruteForceProtector implements BruteForceProtector {
     protected static ServicesLogger logger = ServicesLogger.ROOT_LOGGER;
 
     protected volatile boolean run = true;
     protected int maxDeltaTimeSeconds = 60 * 60 * 12; // 12 hours
     protected KeycloakSessionFactory factory;
-    protected CountDownLatch shutdownLatch = new CountDownLatch(1);
+    protected final CountDownLatch shutdownLatch;
+    protected volatile boolean started;
 
     protected volatile long failures;
     protected volatile long lastFailure;
     protected volatile long totalTime;
 
-    protected LinkedBlockingQueue<LoginEvent> queue = new LinkedBlockingQueue<LoginEvent>();
+    protected final Worker[] workers;
     public static final int TRANSACTION_SIZE = 20;
+    public static final int DEFAULT_WORKERS = 4;
+
+    // Time between adding failed login to the queue and processing it
+    protected final AtomicLong processedEvents = new AtomicLong();
+    protected final AtomicLong totalProcessingTime = new AtomicLong();
+    protected final AtomicLong maxProcessingTime = new AtomicLong();
 
 
     protected abstract class LoginEvent implements Comparable<LoginEvent> {
         protected final String realmId;
         protected final String username;
         protected final String ip;
+        protected final long created = System.currentTimeMillis();
 
         protected LoginEvent(String realmId, String username, String ip) {
             this.realmId = realmId;
@@ -66,6 +78,10 @@ public class DefaultBruteForceProtector implements Runnable, BruteForceProtector
 
         @Override
         public int compareTo(LoginEvent o) {
+            // Shutdown event doesn't have username
+            if (username == null || o.username == null) {
+                return username == null ? (o.username == null ? 0 : 1) : -1;
+            }
             return username.compareTo(o.username);
         }
     }
@@ -85,7 +101,16 @@ public class DefaultBruteForceProtector implements Runnable, BruteForceProtector
     }
 
     public DefaultBruteForceProtector(KeycloakSessionFactory factory) {
+        this(factory, DEFAULT_WORKERS);
+    }
+
+    public DefaultBruteForceProtector(KeycloakSessionFactory factory, int workers) {
         this.factory = factory;
+        this.workers = new Worker[Math.max(1, workers)];
+        for (int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new Worker();
+        }
+        this.shutdownLatch = new CountDownLatch(this.workers.length);
     }
 
     public void failure(KeycloakSession session, LoginEvent event) {
@@ -149,69 +174,148 @@ public class DefaultBruteForceProtector implements Runnable, BruteForceProtector
         return realm;
     }
 
-    public void start() {
-        new Thread(this, "Brute Force Protector").start();
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (int i = 0; i < workers.length; i++) {
+            new Thread(workers[i], "Brute Force Protector " + (i + 1)).start();
+        }
     }
 
     public void shutdown() {
         run = false;
+        if (!started) {
+            return;
+        }
         try {
-            queue.offer(new ShutdownEvent());
+            for (Worker worker : workers) {
+                worker.queue.offer(new ShutdownEvent());
+            }
             shutdownLatch.await(10, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void run() {
-        final ArrayList<LoginEvent> events = new ArrayList<LoginEvent>(TRANSACTION_SIZE + 1);
+    /**
+     * @return number of failed logins waiting for processing
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (Worker worker : workers) {
+            size += worker.queue.size();
+        }
+        return size;
+    }
+
+    public int getWorkersCount() {
+        return workers.length;
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents.get();
+    }
+
+    /**
+     * @return average time in milliseconds between failed login and updating login failure of the user
+     */
+    public long getAverageProcessingTime() {
+        long processed = processedEvents.get();
+        return processed > 0 ? totalProcessingTime.get() / processed : 0;
+    }
+
+    /**
+     * @return maximum time in milliseconds between failed login and updating login failure of the user
+     */
+    public long getMaxProcessingTime() {
+        return maxProcessingTime.get();
+    }
+
+    protected Worker getWorker(String realmId, String username) {
+        int hash = (realmId + ":" + username.toLowerCase()).hashCode();
+        return workers[(hash & Integer.MAX_VALUE) % workers.length];
+    }
+
+    protected void processed(LoginEvent event) {
+        long processingTime = System.currentTimeMillis() - event.created;
+        processedEvents.incrementAndGet();
+        totalProcessingTime.addAndGet(processingTime);
+
+        long max = maxProcessingTime.get();
+        while (processingTime > max && !maxProcessingTime.compareAndSet(max, processingTime)) {
+            max = maxProcessingTime.get();
+        }
+    }
+
+    // Events of single worker are processed in one transaction
+    protected void processFailures(List<LoginEvent> events) {
+        KeycloakSession session = factory.create();
+        session.getTransaction().begin();
         try {
-            while (run) {
-                try {
-                    LoginEvent take = queue.poll(2, TimeUnit.SECONDS);
-                    if (take == null) {
-                        continue;
-                    }
+            for (LoginEvent event : events) {
+                if (event instanceof FailedLogin) {
+                    failure(session, event);
+                }
+            }
+            session.getTransaction().commit();
+        } catch (RuntimeException e) {
+            session.getTransaction().rollback();
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    protected class Worker implements Runnable {
+
+        protected final LinkedBlockingQueue<LoginEvent> queue = new LinkedBlockingQueue<LoginEvent>();
+
+        public void run() {
+            final ArrayList<LoginEvent> events = new ArrayList<LoginEvent>(TRANSACTION_SIZE + 1);
+            try {
+                boolean running = true;
+                while (run && running) {
                     try {
-                        events.add(take);
-                        queue.drainTo(events, TRANSACTION_SIZE);
-                        Collections.sort(events); // we sort to avoid deadlock due to ordered updates.  Maybe I'm overthinking this.
-                        KeycloakSession session = factory.create();
-                        session.getTransaction().begin();
+                        LoginEvent take = queue.poll(2, TimeUnit.SECONDS);
+                        if (take == null) {
+                            continue;
+                        }
                         try {
-                            for (LoginEvent event : events) {
-                                if (event instanceof FailedLogin) {
-                                    failure(session, event);
-                                } else if (event instanceof ShutdownEvent) {
-                                    run = false;
+                            events.add(take);
+                            queue.drainTo(events, TRANSACTION_SIZE);
+                            Collections.sort(events); // we sort to avoid deadlock due to ordered updates.  Maybe I'm overthinking this.
+                            try {
+                                processFailures(events);
+                            } finally {
+                                for (LoginEvent event : events) {
+                                    if (event instanceof FailedLogin) {
+                                        processed(event);
+                                        ((FailedLogin) event).latch.countDown();
+                                    } else if (event instanceof ShutdownEvent) {
+                                        running = false;
+                                    }
                                 }
+                                events.clear();
                             }
-                            session.getTransaction().commit();
+
+                            logger.debugv("Processed failed logins. Queue size: {0}, average processing time: {1} ms", queue.size(), getAverageProcessingTime());
                         } catch (Exception e) {
-                            session.getTransaction().rollback();
-                            throw e;
-                        } finally {
-                            for (LoginEvent event : events) {
-                                if (event instanceof FailedLogin) {
-                                    ((FailedLogin) event).latch.countDown();
-                                }
-                            }
-                            events.clear();
-                            session.close();
+                            logger.failedProcessingType(e);
                         }
-                    } catch (Exception e) {
-                        logger.failedProcessingType(e);
+                    } catch (InterruptedException e) {
+                        break;
                     }
-                } catch (InterruptedException e) {
-                    break;
                 }
+            } finally {
+                shutdownLatch.countDown();
             }
-        } finally {
-            shutdownLatch.countDown();
         }
     }
 
-    protected void logFailure(LoginEvent event) {
+    // Called by all workers
+    protected synchronized void logFailure(LoginEvent event) {
         logger.loginFailure(event.username, event.ip);
         failures++;
         long delta = 0;
@@ -228,9 +332,13 @@ public class DefaultBruteForceProtector implements Runnable, BruteForceProtector
 
     @Override
     public void failedLogin(RealmModel realm, String username, ClientConnection clientConnection) {
+        failedLogin(realm.getId(), username, clientConnection.getRemoteAddr());
+    }
+
+    protected void failedLogin(String realmId, String username, String ip) {
         try {
-            FailedLogin event = new FailedLogin(realm.getId(), username, clientConnection.getRemoteAddr());
-            queue.offer(event);
+            FailedLogin event = new FailedLogin(realmId, username, ip);
+            getWorker(event.realmId, event.username).queue.offer(event);
             // wait a minimum of seconds for type to process so that a hacker
             // cannot flood with failed logins and overwhelm the queue and not have notBefore updated to block next requests
             // todo failure HTTP responses should be queued via async HTTP
@@ -17,16 +17,21 @@
 
 package org.keycloak.services.managers;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.keycloak.Config;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class DefaultBruteForceProtectorFactory implements BruteForceProtectorFactory {
+public class DefaultBruteForceProtectorFactory implements BruteForceProtectorFactory, ServerInfoAwareProviderFactory {
     DefaultBruteForceProtector protector;
+    int workers;
 
     @Override
     public BruteForceProtector create(KeycloakSession session) {
@@ -35,12 +40,12 @@ public class DefaultBruteForceProtectorFactory implements BruteForceProtectorFac
 
     @Override
     public void init(Config.Scope config) {
-
+        workers = config.getInt("workers", DefaultBruteForceProtector.DEFAULT_WORKERS);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-        protector = new DefaultBruteForceProtector(factory);
+        protector = new DefaultBruteForceProtector(factory, workers);
         protector.start();
 
     }
@@ -55,4 +60,16 @@ public class DefaultBruteForceProtectorFactory implements BruteForceProtectorFac
     public String getId() {
         return "default-brute-force-detector";
     }
+
+    // Shown on "Server Info" page of admin console
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("workers", String.valueOf(protector.getWorkersCount()));
+        info.put("queueSize", String.valueOf(protector.getQueueSize()));
+        info.put("processedFailures", String.valueOf(protector.getProcessedEvents()));
+        info.put("averageProcessingTimeMs", String.valueOf(protector.getAverageProcessingTime()));
+        info.put("maxProcessingTimeMs", String.valueOf(protector.getMaxProcessingTime()));
+        return info;
+    }
 }
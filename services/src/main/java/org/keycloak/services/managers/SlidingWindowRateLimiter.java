@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.keycloak.services.managers;
+
+import org.keycloak.common.ClientConnection;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.services.ServicesLogger;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts login attempts per IP address, per client and per realm on this node. Number of attempts in the sliding window is
+ * estimated from the count in current fixed window and weighted count from the previous window, so just two counters
+ * are kept for each key and no locking is needed.
+ * <p>
+ * Number of tracked keys is bounded. Expired keys are removed periodically and at most once per window when the limit
+ * is reached. Attempts with new keys are rejected while all tracked keys are still in use, as that happens just when
+ * flooded from many addresses.
+ */
+public class SlidingWindowRateLimiter implements RateLimiter {
+
+    protected static final ServicesLogger logger = ServicesLogger.ROOT_LOGGER;
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    private final long windowMillis;
+    private final int ipLimit;
+    private final int clientLimit;
+    private final int realmLimit;
+    private final int maxEntries;
+
+    // Time of the next removal of expired windows triggered when there are too many keys
+    private final AtomicLong nextRemoveExpired = new AtomicLong();
+
+    private final ConcurrentHashMap<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowSeconds length of sliding window
+     * @param ipLimit max number of attempts from single IP address in the realm during the window. 0 means unlimited
+     * @param clientLimit max number of attempts of single client during the window. 0 means unlimited
+     * @param realmLimit max number of attempts in the realm during the window. 0 means unlimited
+     */
+    public SlidingWindowRateLimiter(int windowSeconds, int ipLimit, int clientLimit, int realmLimit) {
+        this(windowSeconds, ipLimit, clientLimit, realmLimit, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries max number of tracked keys
+     */
+    public SlidingWindowRateLimiter(int windowSeconds, int ipLimit, int clientLimit, int realmLimit, int maxEntries) {
+        this.windowMillis = windowSeconds * 1000L;
+        this.ipLimit = ipLimit;
+        this.clientLimit = clientLimit;
+        this.realmLimit = realmLimit;
+        this.maxEntries = maxEntries;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public boolean isEnabled() {
+        return windowMillis > 0 && (ipLimit > 0 || clientLimit > 0 || realmLimit > 0);
+    }
+
+    @Override
+    public boolean tryAcquire(RealmModel realm, ClientModel client, ClientConnection clientConnection) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (ipLimit > 0 && clientConnection != null && !tryAcquire("ip:" + realm.getId() + ":" + clientConnection.getRemoteAddr(), ipLimit, now)) {
+            logger.debugv("Login attempts from IP {0} in realm {1} exceeded the limit", clientConnection.getRemoteAddr(), realm.getName());
+            return false;
+        }
+        if (clientLimit > 0 && client != null && !tryAcquire("client:" + client.getId(), clientLimit, now)) {
+            logger.debugv("Login attempts of client {0} in realm {1} exceeded the limit", client.getClientId(), realm.getName());
+            return false;
+        }
+        if (realmLimit > 0 && !tryAcquire("realm:" + realm.getId(), realmLimit, now)) {
+            logger.debugv("Login attempts in realm {0} exceeded the limit", realm.getName());
+            return false;
+        }
+        return true;
+    }
+
+    public boolean tryAcquire(String key, int limit, long now) {
+        SlidingWindow window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxEntries) {
+                long next = nextRemoveExpired.get();
+                if (now >= next && nextRemoveExpired.compareAndSet(next, now + windowMillis)) {
+                    removeExpired(now);
+                }
+                if (windows.size() >= maxEntries) {
+                    logger.debugv("Too many keys tracked by rate limiter. Rejected login attempt with key {0}", key);
+                    return false;
+                }
+            }
+
+            SlidingWindow newWindow = new SlidingWindow();
+            window = windows.putIfAbsent(key, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        return window.tryAcquire(now, windowMillis, limit);
+    }
+
+    public int size() {
+        return windows.size();
+    }
+
+    public void clear() {
+        windows.clear();
+    }
+
+    // Windows without attempts in last two windows don't affect anything
+    public void removeExpired(long now) {
+        long expiredStart = now - now % windowMillis - windowMillis;
+        Iterator<SlidingWindow> itr = windows.values().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().current.get().start < expiredStart) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    static class SlidingWindow {
+
+        final AtomicReference<Bucket> current = new AtomicReference<>(new Bucket(0, 0));
+
+        boolean tryAcquire(long now, long windowMillis, int limit) {
+            long start = now - now % windowMillis;
+
+            Bucket bucket = current.get();
+            while (bucket.start < start) {
+                int previousCount = bucket.start == start - windowMillis ? bucket.count.get() : 0;
+                Bucket newBucket = new Bucket(start, previousCount);
+                if (current.compareAndSet(bucket, newBucket)) {
+                    bucket = newBucket;
+                } else {
+                    bucket = current.get();
+                }
+            }
+
+            // Part of previous window, which is still in the sliding window
+            double previousWeight = Math.max(0.0, Math.min(1.0, 1.0 - (double) (now - bucket.start) / windowMillis));
+            int count = bucket.count.incrementAndGet();
+            if (count + (int) (bucket.previousCount * previousWeight) > limit) {
+                // Rejected attempts are counted as well, so continuous flood stays rejected
+                return false;
+            }
+            return true;
+        }
+
+    }
+
+    static class Bucket {
+
+        final long start;
+        final int previousCount;
+        final AtomicInteger count = new AtomicInteger();
+
+        Bucket(long start, int previousCount) {
+            this.start = start;
+            this.previousCount = previousCount;
+        }
+
+    }
+
+}
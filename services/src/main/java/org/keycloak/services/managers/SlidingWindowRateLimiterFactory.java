@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.keycloak.services.managers;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.timer.TimerProvider;
+
+/**
+ * Limits are disabled by default. They can be configured with options "window" (in seconds), "ipLimit", "clientLimit"
+ * and "realmLimit" of the rateLimiter SPI. Option "maxEntries" limits number of tracked keys.
+ */
+public class SlidingWindowRateLimiterFactory implements RateLimiterFactory {
+
+    public static final int DEFAULT_WINDOW_SECONDS = 60;
+
+    private SlidingWindowRateLimiter rateLimiter;
+
+    @Override
+    public RateLimiter create(KeycloakSession session) {
+        return rateLimiter;
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        rateLimiter = new SlidingWindowRateLimiter(config.getInt("window", DEFAULT_WINDOW_SECONDS), config.getInt("ipLimit", 0),
+                config.getInt("clientLimit", 0), config.getInt("realmLimit", 0), config.getInt("maxEntries", SlidingWindowRateLimiter.DEFAULT_MAX_ENTRIES));
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        if (!rateLimiter.isEnabled()) {
+            return;
+        }
+
+        KeycloakSession session = factory.create();
+        try {
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            if (timer != null) {
+                timer.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        rateLimiter.removeExpired(System.currentTimeMillis());
+                    }
+
+                }, rateLimiter.getWindowMillis(), "RemoveExpiredRateLimiterWindows");
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        rateLimiter.clear();
+    }
+
+    @Override
+    public String getId() {
+        return "sliding-window";
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.services.managers;
+
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.common.ClientConnection;
+import org.keycloak.common.util.Time;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.executors.ExecutorsProvider;
+import org.keycloak.hash.PasswordHashManager;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
+import org.keycloak.models.PasswordPolicy;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserCredentialValueModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.RepresentationToModel;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.AdminEventBuilder;
+import org.keycloak.services.resources.admin.UsersResource;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Creates users read from NDJSON stream, where every line contains one user representation. Users are created in batches,
+ * each batch in separate transaction, and plain-text passwords of the batch are hashed in parallel before its transaction
+ * is started. Result of every line is written as one line of NDJSON once its batch is committed. If the transaction of the
+ * batch fails, users of the batch are created again one by one, so the failure is reported just for the users causing it.
+ * Admin events are sent just for committed users.
+ * <p>
+ * Size of the batch and count of hashing threads are configured in "userBulkProvisioning" scope.
+ */
+public class UserBulkProvisioner {
+
+    private static final Logger logger = Logger.getLogger(UserBulkProvisioner.class);
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final String HASH_EXECUTOR = "user-provisioning-hash";
+
+    private final KeycloakSessionFactory sessionFactory;
+    private final String realmId;
+    private final PasswordPolicy passwordPolicy;
+    private final AdminAuth auth;
+    private final ClientConnection clientConnection;
+    private final int batchSize;
+    private final ExecutorService hashExecutor;
+
+    public UserBulkProvisioner(KeycloakSession session, RealmModel realm, AdminAuth auth, ClientConnection clientConnection, int batchSize) {
+        this.sessionFactory = session.getKeycloakSessionFactory();
+        this.realmId = realm.getId();
+        this.passwordPolicy = realm.getPasswordPolicy();
+        this.auth = auth;
+        this.clientConnection = clientConnection;
+        this.batchSize = batchSize;
+        this.hashExecutor = getHashExecutor(session);
+    }
+
+    public UserBulkProvisioner(KeycloakSession session, RealmModel realm, AdminAuth auth, ClientConnection clientConnection) {
+        this(session, realm, auth, clientConnection, Holder.BATCH_SIZE);
+    }
+
+    public void provision(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+
+        List<Record> batch = new ArrayList<>(batchSize);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            batch.add(parse(lineNumber, line));
+            if (batch.size() == batchSize) {
+                processBatch(batch, output);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            processBatch(batch, output);
+        }
+    }
+
+    private static Record parse(int line, String json) {
+        Record record = new Record(line);
+        try {
+            record.rep = JsonSerialization.readValue(json, UserRepresentation.class);
+        } catch (IOException e) {
+            record.error = "Invalid user representation";
+            return record;
+        }
+
+        if (record.rep.getUsername() == null || record.rep.getUsername().trim().isEmpty()) {
+            record.error = "Username is missing";
+            return record;
+        }
+
+        if (record.rep.getCredentials() != null) {
+            for (CredentialRepresentation cred : record.rep.getCredentials()) {
+                if (CredentialRepresentation.PASSWORD.equals(cred.getType()) && cred.getValue() != null) {
+                    record.password = cred;
+                }
+            }
+        }
+        return record;
+    }
+
+    private void processBatch(List<Record> batch, OutputStream output) throws IOException {
+        hashPasswords(batch);
+
+        List<Record> valid = new LinkedList<>();
+        for (Record record : batch) {
+            if (record.error == null) {
+                valid.add(record);
+            }
+        }
+
+        try {
+            createUsers(valid);
+        } catch (RuntimeException e) {
+            logger.debugf(e, "Failed to create batch of %d users. Creating them one by one", valid.size());
+
+            for (Record record : valid) {
+                record.userId = null;
+                record.error = null;
+                try {
+                    createUsers(Collections.singletonList(record));
+                } catch (RuntimeException re) {
+                    record.userId = null;
+                    record.error = re.getMessage() != null ? re.getMessage() : re.getClass().getName();
+                }
+            }
+        }
+
+        for (Record record : batch) {
+            output.write(JsonSerialization.writeValueAsBytes(record.toResult()));
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    private void hashPasswords(List<Record> batch) {
+        // Without policy the passwords are just hashed by the user storage
+        if (passwordPolicy == null) {
+            return;
+        }
+
+        List<Future<?>> futures = new LinkedList<>();
+        for (final Record record : batch) {
+            if (record.error == null && record.password != null) {
+                if (hashExecutor == null) {
+                    hashPassword(record);
+                    continue;
+                }
+
+                try {
+                    futures.add(hashExecutor.submit(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            hashPassword(record);
+                        }
+
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // Pool is busy with other requests, so the password is hashed in the request thread
+                    hashPassword(record);
+                }
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private void hashPassword(Record record) {
+        KeycloakSession session = sessionFactory.create();
+        try {
+            String password = record.password.getValue();
+            PasswordPolicy.Error error = passwordPolicy.validate(session, record.rep.getUsername(), password);
+            if (error != null) {
+                record.error = error.getMessage();
+                return;
+            }
+
+            UserCredentialValueModel hashed = PasswordHashManager.encode(session, passwordPolicy, password);
+            hashed.setCreatedDate(Time.toMillis(Time.currentTime()));
+            record.hashedPassword = hashed;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to hash password of user " + record.rep.getUsername(), e);
+            record.error = "Failed to hash password";
+        } finally {
+            session.close();
+        }
+    }
+
+    private void createUsers(final List<Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+
+            @Override
+            public void run(KeycloakSession session) {
+                RealmModel realm = session.realms().getRealm(realmId);
+                for (Record record : records) {
+                    createUser(session, realm, record);
+                }
+            }
+
+        });
+
+        // Events are sent after the commit, so users of failed batch are not reported again when they are created one by one
+        sendAdminEvents(records);
+    }
+
+    private void sendAdminEvents(final List<Record> records) {
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+
+                @Override
+                public void run(KeycloakSession session) {
+                    RealmModel realm = session.realms().getRealm(realmId);
+                    AdminEventBuilder adminEvent = new AdminEventBuilder(realm, auth, session, clientConnection);
+                    for (Record record : records) {
+                        if (record.userId == null) {
+                            continue;
+                        }
+
+                        // Passwords are not part of admin event
+                        List<CredentialRepresentation> credentials = record.rep.getCredentials();
+                        record.rep.setCredentials(null);
+                        adminEvent.operation(OperationType.CREATE).resourcePath("users", record.userId).representation(record.rep).success();
+                        record.rep.setCredentials(credentials);
+                    }
+                }
+
+            });
+        } catch (RuntimeException e) {
+            // Users are already committed, so their results are still reported as created
+            logger.warn("Failed to send admin events of created users", e);
+        }
+    }
+
+    private static void createUser(KeycloakSession session, RealmModel realm, Record record) {
+        UserRepresentation rep = record.rep;
+
+        // Same checks like for single user, but just the record fails instead of whole batch
+        if (session.users().getUserByUsername(rep.getUsername(), realm) != null) {
+            record.error = "User exists with same username";
+            return;
+        }
+        if (rep.getEmail() != null && session.users().getUserByEmail(rep.getEmail(), realm) != null) {
+            record.error = "User exists with same email";
+            return;
+        }
+
+        List<RoleModel> roles = new LinkedList<>();
+        List<GroupModel> groups = new LinkedList<>();
+        record.error = resolveRoleMappings(realm, rep, roles);
+        if (record.error == null) {
+            record.error = resolveGroups(realm, rep, groups);
+        }
+        if (record.error != null) {
+            return;
+        }
+
+        UserModel user = session.users().addUser(realm, rep.getUsername());
+        Set<String> emptySet = Collections.emptySet();
+        UsersResource.updateUserFromRep(user, rep, emptySet, realm, session);
+        updateCredentials(session, realm, user, record);
+        for (RoleModel role : roles) {
+            user.grantRole(role);
+        }
+        for (GroupModel group : groups) {
+            user.joinGroup(group);
+        }
+
+        record.userId = user.getId();
+    }
+
+    private static void updateCredentials(KeycloakSession session, RealmModel realm, UserModel user, Record record) {
+        if (record.rep.getCredentials() == null) {
+            return;
+        }
+
+        for (CredentialRepresentation cred : record.rep.getCredentials()) {
+            if (cred == record.password && record.hashedPassword != null && user.getFederationLink() == null) {
+                user.updateCredentialDirectly(record.hashedPassword);
+            } else if (CredentialRepresentation.PASSWORD.equals(cred.getType()) && cred.getValue() != null) {
+                // Validated by password policy and propagated to federation provider
+                session.users().updateCredential(realm, user, RepresentationToModel.convertCredential(cred));
+            } else {
+                RepresentationToModel.updateCredential(user, cred);
+            }
+        }
+    }
+
+    private static String resolveRoleMappings(RealmModel realm, UserRepresentation rep, List<RoleModel> roles) {
+        if (rep.getRealmRoles() != null) {
+            for (String roleName : rep.getRealmRoles()) {
+                RoleModel role = realm.getRole(roleName.trim());
+                if (role == null) {
+                    return "Realm role '" + roleName + "' not found";
+                }
+                roles.add(role);
+            }
+        }
+        if (rep.getClientRoles() != null) {
+            for (Map.Entry<String, List<String>> entry : rep.getClientRoles().entrySet()) {
+                ClientModel client = realm.getClientByClientId(entry.getKey());
+                if (client == null) {
+                    return "Client '" + entry.getKey() + "' not found";
+                }
+                for (String roleName : entry.getValue()) {
+                    RoleModel role = client.getRole(roleName.trim());
+                    if (role == null) {
+                        return "Role '" + roleName + "' of client '" + entry.getKey() + "' not found";
+                    }
+                    roles.add(role);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String resolveGroups(RealmModel realm, UserRepresentation rep, List<GroupModel> groups) {
+        if (rep.getGroups() != null) {
+            for (String path : rep.getGroups()) {
+                GroupModel group = KeycloakModelUtils.findGroupByPath(realm, path);
+                if (group == null) {
+                    return "Group '" + path + "' not found";
+                }
+                groups.add(group);
+            }
+        }
+        return null;
+    }
+
+    private static class Record {
+
+        private final int line;
+        private UserRepresentation rep;
+        private CredentialRepresentation password;
+        private UserCredentialValueModel hashedPassword;
+        private String userId;
+        private String error;
+
+        private Record(int line) {
+            this.line = line;
+        }
+
+        private Result toResult() {
+            Result result = new Result();
+            result.setLine(line);
+            result.setUsername(rep != null ? rep.getUsername() : null);
+            result.setId(userId);
+            result.setStatus(error == null ? Status.CREATED : Status.FAILED);
+            result.setError(error);
+            return result;
+        }
+
+    }
+
+    public enum Status {
+        CREATED, FAILED
+    }
+
+    /**
+     * Result of one line of the input
+     */
+    public static class Result {
+
+        private int line;
+        private String username;
+        private String id;
+        private Status status;
+        private String error;
+
+        public int getLine() {
+            return line;
+        }
+
+        public void setLine(int line) {
+            this.line = line;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+    }
+
+    /**
+     * @return pool shared by all sessions or null if executors are not available, so passwords are hashed sequentially
+     */
+    private static ExecutorService getHashExecutor(KeycloakSession session) {
+        ExecutorsProvider executors = session.getProvider(ExecutorsProvider.class);
+        if (executors == null) {
+            return null;
+        }
+
+        return executors.getExecutor(HASH_EXECUTOR, Holder.HASH_THREADS, Holder.HASH_THREADS * 4);
+    }
+
+    private static class Holder {
+
+        private static final Config.Scope CONFIG = Config.scope("userBulkProvisioning");
+
+        private static final int BATCH_SIZE = CONFIG.getInt("batchSize", DEFAULT_BATCH_SIZE);
+
+        private static final int HASH_THREADS = CONFIG.getInt("hashThreads", Runtime.getRuntime().availableProcessors());
+
+    }
+
+}
@@ -31,6 +31,8 @@ public class Messages {
 
     public static final String ACCOUNT_TEMPORARILY_DISABLED = "accountTemporarilyDisabledMessage";
 
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "tooManyLoginAttemptsMessage";
+
     public static final String EXPIRED_CODE = "expiredCodeMessage";
 
     public static final String MISSING_FIRST_NAME = "missingFirstNameMessage";
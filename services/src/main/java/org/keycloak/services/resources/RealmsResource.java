@@ -32,6 +32,7 @@ import org.keycloak.services.ServicesLogger;
 import org.keycloak.services.clientregistration.ClientRegistrationService;
 import org.keycloak.services.managers.RealmManager;
 import org.keycloak.services.util.CacheControlUtil;
+import org.keycloak.services.util.JsonDocumentCache;
 import org.keycloak.wellknown.WellKnownProvider;
 
 import javax.ws.rs.GET;
@@ -49,12 +50,18 @@ import javax.ws.rs.core.*;
 public class RealmsResource {
     protected static ServicesLogger logger = ServicesLogger.ROOT_LOGGER;
 
+    // Well-known documents are realm metadata, which depend on the realm name and the URL the realm is accessed through
+    private static final JsonDocumentCache wellKnownCache = new JsonDocumentCache(1000);
+
     @Context
     protected KeycloakSession session;
 
     @Context
     protected ClientConnection clientConnection;
 
+    @Context
+    protected Request request;
+
     public static UriBuilder realmBaseUrl(UriInfo uriInfo) {
         UriBuilder baseUriBuilder = uriInfo.getBaseUriBuilder();
         return realmBaseUrl(baseUriBuilder);
@@ -177,10 +184,17 @@ public class RealmsResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getWellKnown(final @PathParam("realm") String name,
                               final @PathParam("provider") String providerName) {
-        init(name);
+        RealmModel realm = init(name);
 
-        WellKnownProvider wellKnown = session.getProvider(WellKnownProvider.class, providerName);
-        return Response.ok(wellKnown.getConfig()).cacheControl(CacheControlUtil.getDefaultCacheControl()).build();
+        final WellKnownProvider wellKnown = session.getProvider(WellKnownProvider.class, providerName);
+        String key = providerName + "|" + realm.getId() + "|" + session.getContext().getUri().getBaseUri();
+        JsonDocumentCache.Document document = wellKnownCache.get(key, realm.getName(), new JsonDocumentCache.DocumentBuilder() {
+            @Override
+            public Object build() {
+                return wellKnown.getConfig();
+            }
+        });
+        return document.toResponse(request, CacheControlUtil.getMetadataCacheControl());
     }
 
 }
@@ -17,8 +17,10 @@
 package org.keycloak.services.resources;
 
 import org.keycloak.common.Version;
+import org.keycloak.theme.ExtendingThemeManager;
 import org.keycloak.theme.Theme;
 import org.keycloak.theme.ThemeProvider;
+import org.keycloak.theme.ThemeResourceCache;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.common.util.MimeTypeUtil;
 import org.keycloak.services.ServicesLogger;
@@ -28,8 +30,12 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Theme resource
@@ -44,6 +50,12 @@ public class ThemeResource {
     @Context
     private KeycloakSession session;
 
+    @Context
+    private Request request;
+
+    @Context
+    private HttpHeaders headers;
+
     /**
      * Get theme content
      *
@@ -61,10 +73,32 @@ public class ThemeResource {
 
         try {
             ThemeProvider themeProvider = session.getProvider(ThemeProvider.class, "extending");
-            Theme theme = themeProvider.getTheme(themeName, Theme.Type.valueOf(themType.toUpperCase()));
+            Theme.Type type = Theme.Type.valueOf(themType.toUpperCase());
+
+            ThemeResourceCache resourceCache = themeProvider instanceof ExtendingThemeManager ? ((ExtendingThemeManager) themeProvider).getResourceCache() : null;
+            String key = null;
+            if (resourceCache != null) {
+                key = ThemeResourceCache.key(version, type, themeName, path);
+                ThemeResourceCache.Resource cached = resourceCache.get(key);
+                if (cached != null) {
+                    return toResponse(cached);
+                }
+            }
+
+            Theme theme = themeProvider.getTheme(themeName, type);
             InputStream resource = theme.getResourceAsStream(path);
             if (resource != null) {
-                return Response.ok(resource).type(MimeTypeUtil.getContentType(path)).cacheControl(CacheControlUtil.getDefaultCacheControl()).build();
+                String contentType = MimeTypeUtil.getContentType(path);
+                if (resourceCache != null) {
+                    ThemeResourceCache.Resource cached = resourceCache.put(key, resource, contentType);
+                    if (cached != null) {
+                        return toResponse(cached);
+                    }
+
+                    // Too big to be cached, stream is closed already so re-open it
+                    resource = theme.getResourceAsStream(path);
+                }
+                return Response.ok(resource).type(contentType).cacheControl(CacheControlUtil.getDefaultCacheControl()).build();
             } else {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
@@ -74,4 +108,68 @@ public class ThemeResource {
         }
     }
 
+    // Resource is validated just by ETag (hash of the content), so it's the same on all nodes and after restart
+    private Response toResponse(ThemeResourceCache.Resource resource) {
+        boolean gzip = resource.getGzippedContent() != null && acceptsGzip(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        EntityTag entityTag = gzip ? resource.getGzippedEntityTag() : resource.getEntityTag();
+
+        Response.ResponseBuilder builder = request.evaluatePreconditions(entityTag);
+        if (builder == null) {
+            builder = Response.ok(gzip ? resource.getGzippedContent() : resource.getContent()).type(resource.getContentType());
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+        }
+
+        if (resource.getGzippedContent() != null) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        return builder.tag(entityTag)
+                .cacheControl(CacheControlUtil.getDefaultCacheControl())
+                .build();
+    }
+
+    /**
+     * Checks if gzip is acceptable according to Accept-Encoding headers. Codings with "q=0" are not acceptable.
+     */
+    public static boolean acceptsGzip(List<String> acceptEncodings) {
+        if (acceptEncodings == null) {
+            return false;
+        }
+
+        Float gzipQuality = null;
+        Float anyQuality = null;
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] params = coding.split(";");
+                String name = params[0].trim().toLowerCase();
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzipQuality = getQuality(params);
+                } else if (name.equals("*")) {
+                    anyQuality = getQuality(params);
+                }
+            }
+        }
+
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    private static float getQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
 }
@@ -45,6 +45,7 @@ import org.keycloak.services.managers.RealmManager;
 import org.keycloak.services.managers.ResourceAdminManager;
 import org.keycloak.services.resources.KeycloakApplication;
 import org.keycloak.services.ErrorResponse;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
 import org.keycloak.util.JsonSerialization;
 import org.keycloak.common.util.Time;
 
@@ -60,10 +61,10 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -438,16 +439,23 @@ public class ClientResource {
     @GET
     @NoCache
     @Produces(MediaType.APPLICATION_JSON)
-    public List<UserSessionRepresentation> getUserSessions(@QueryParam("first") Integer firstResult, @QueryParam("max") Integer maxResults) {
+    public StreamingOutput getUserSessions(@QueryParam("first") Integer firstResult, @QueryParam("max") Integer maxResults) {
         auth.requireView();
         firstResult = firstResult != null ? firstResult : -1;
         maxResults = maxResults != null ? maxResults : -1;
-        List<UserSessionRepresentation> sessions = new ArrayList<UserSessionRepresentation>();
-        for (UserSessionModel userSession : session.sessions().getUserSessions(client.getRealm(), client, firstResult, maxResults)) {
-            UserSessionRepresentation rep = ModelToRepresentation.toRepresentation(userSession);
-            sessions.add(rep);
-        }
-        return sessions;
+        return new JsonArrayStreamingOutput.PaginatedOutput<UserSessionModel>(firstResult, maxResults) {
+
+            @Override
+            protected List<UserSessionModel> getBatch(int first, int max) {
+                return session.sessions().getUserSessions(client.getRealm(), client, first, max);
+            }
+
+            @Override
+            protected Object toRepresentation(UserSessionModel userSession) {
+                return ModelToRepresentation.toRepresentation(userSession);
+            }
+
+        };
     }
 
     /**
@@ -485,26 +493,32 @@ public class ClientResource {
     @GET
     @NoCache
     @Produces(MediaType.APPLICATION_JSON)
-    public List<UserSessionRepresentation> getOfflineUserSessions(@QueryParam("first") Integer firstResult, @QueryParam("max") Integer maxResults) {
+    public StreamingOutput getOfflineUserSessions(@QueryParam("first") Integer firstResult, @QueryParam("max") Integer maxResults) {
         auth.requireView();
         firstResult = firstResult != null ? firstResult : -1;
         maxResults = maxResults != null ? maxResults : -1;
-        List<UserSessionRepresentation> sessions = new ArrayList<UserSessionRepresentation>();
-        List<UserSessionModel> userSessions = session.sessions().getOfflineUserSessions(client.getRealm(), client, firstResult, maxResults);
-        for (UserSessionModel userSession : userSessions) {
-            UserSessionRepresentation rep = ModelToRepresentation.toRepresentation(userSession);
-
-            // Update lastSessionRefresh with the timestamp from clientSession
-            for (ClientSessionModel clientSession : userSession.getClientSessions()) {
-                if (client.getId().equals(clientSession.getClient().getId())) {
-                    rep.setLastAccess(Time.toMillis(clientSession.getTimestamp()));
-                    break;
+        return new JsonArrayStreamingOutput.PaginatedOutput<UserSessionModel>(firstResult, maxResults) {
+
+            @Override
+            protected List<UserSessionModel> getBatch(int first, int max) {
+                return session.sessions().getOfflineUserSessions(client.getRealm(), client, first, max);
+            }
+
+            @Override
+            protected Object toRepresentation(UserSessionModel userSession) {
+                UserSessionRepresentation rep = ModelToRepresentation.toRepresentation(userSession);
+
+                // Update lastSessionRefresh with the timestamp from clientSession
+                for (ClientSessionModel clientSession : userSession.getClientSessions()) {
+                    if (client.getId().equals(clientSession.getClient().getId())) {
+                        rep.setLastAccess(Time.toMillis(clientSession.getTimestamp()));
+                        break;
+                    }
                 }
+                return rep;
             }
 
-            sessions.add(rep);
-        }
-        return sessions;
+        };
     }
 
 
@@ -29,6 +29,7 @@ import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.services.ErrorResponse;
 import org.keycloak.services.ServicesLogger;
 import org.keycloak.services.managers.ClientManager;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -39,10 +40,9 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Base resource class for managing a realm's clients.
@@ -75,25 +75,26 @@ public class ClientsResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @NoCache
-    public List<ClientRepresentation> getClients() {
+    public StreamingOutput getClients() {
         auth.requireAny();
 
-        List<ClientRepresentation> rep = new ArrayList<>();
-        List<ClientModel> clientModels = realm.getClients();
-
-        boolean view = auth.hasView();
-        for (ClientModel clientModel : clientModels) {
-            if (view) {
-                rep.add(ModelToRepresentation.toRepresentation(clientModel));
-            } else {
-                ClientRepresentation client = new ClientRepresentation();
-                client.setId(clientModel.getId());
-                client.setClientId(clientModel.getClientId());
-                client.setDescription(clientModel.getDescription());
-                rep.add(client);
+        final boolean view = auth.hasView();
+        return new JsonArrayStreamingOutput.CollectionOutput<ClientModel>(realm.getClients()) {
+
+            @Override
+            protected Object toRepresentation(ClientModel clientModel) {
+                if (view) {
+                    return ModelToRepresentation.toRepresentation(clientModel);
+                } else {
+                    ClientRepresentation client = new ClientRepresentation();
+                    client.setId(clientModel.getId());
+                    client.setClientId(clientModel.getClientId());
+                    client.setDescription(clientModel.getDescription());
+                    return client;
+                }
             }
-        }
-        return rep;
+
+        };
     }
 
     /**
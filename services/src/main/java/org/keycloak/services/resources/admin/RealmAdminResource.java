@@ -42,6 +42,7 @@ import org.keycloak.models.cache.CacheUserProvider;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.models.utils.ModelToRepresentation;
 import org.keycloak.models.utils.RepresentationToModel;
+import org.keycloak.protocol.oidc.TokenIntrospectionCacheProvider;
 import org.keycloak.protocol.oidc.TokenManager;
 import org.keycloak.provider.ProviderFactory;
 import org.keycloak.representations.adapters.action.GlobalRequestResult;
@@ -321,6 +322,7 @@ public class RealmAdminResource {
     @POST
     public GlobalRequestResult pushRevocation() {
         auth.requireManage();
+        session.getProvider(TokenIntrospectionCacheProvider.class).removeRealm(realm);
         adminEvent.operation(OperationType.ACTION).resourcePath(uriInfo).success();
         return new ResourceAdminManager(session).pushRealmRevocationPolicy(uriInfo.getRequestUri(), realm);
     }
@@ -335,6 +337,7 @@ public class RealmAdminResource {
     public GlobalRequestResult logoutAll() {
         auth.init(RealmAuth.Resource.USER).requireManage();
         session.sessions().removeUserSessions(realm);
+        session.getProvider(TokenIntrospectionCacheProvider.class).removeRealm(realm);
         adminEvent.operation(OperationType.ACTION).resourcePath(uriInfo).success();
         return new ResourceAdminManager(session).logoutAll(uriInfo.getRequestUri(), realm);
     }
@@ -28,6 +28,7 @@ import org.keycloak.models.RoleModel;
 import org.keycloak.models.utils.ModelToRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.services.ErrorResponse;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -40,9 +41,9 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -74,15 +75,17 @@ public class RoleContainerResource extends RoleResource {
     @GET
     @NoCache
     @Produces(MediaType.APPLICATION_JSON)
-    public List<RoleRepresentation> getRoles() {
+    public StreamingOutput getRoles() {
         auth.requireAny();
 
-        Set<RoleModel> roleModels = roleContainer.getRoles();
-        List<RoleRepresentation> roles = new ArrayList<RoleRepresentation>();
-        for (RoleModel roleModel : roleModels) {
-            roles.add(ModelToRepresentation.toRepresentation(roleModel));
-        }
-        return roles;
+        return new JsonArrayStreamingOutput.CollectionOutput<RoleModel>(roleContainer.getRoles()) {
+
+            @Override
+            protected Object toRepresentation(RoleModel roleModel) {
+                return ModelToRepresentation.toRepresentation(roleModel);
+            }
+
+        };
     }
 
     /**
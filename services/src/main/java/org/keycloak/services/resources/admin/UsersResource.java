@@ -21,6 +21,7 @@ import org.jboss.resteasy.spi.BadRequestException;
 import org.jboss.resteasy.spi.NotFoundException;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.keycloak.common.ClientConnection;
+import org.keycloak.common.util.Base64Url;
 import org.keycloak.authentication.RequiredActionProvider;
 import org.keycloak.email.EmailException;
 import org.keycloak.email.EmailTemplateProvider;
@@ -44,6 +45,7 @@ import org.keycloak.models.UserModel;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.utils.ModelToRepresentation;
 import org.keycloak.models.utils.RepresentationToModel;
+import org.keycloak.models.utils.UserBulkQueries;
 import org.keycloak.protocol.oidc.OIDCLoginProtocol;
 import org.keycloak.protocol.oidc.TokenManager;
 import org.keycloak.protocol.oidc.utils.RedirectUtils;
@@ -56,6 +58,7 @@ import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.representations.idm.UserSessionRepresentation;
 import org.keycloak.services.managers.AuthenticationManager;
 import org.keycloak.services.managers.ClientSessionCode;
+import org.keycloak.services.managers.UserBulkProvisioner;
 import org.keycloak.services.managers.UserManager;
 import org.keycloak.services.ErrorResponse;
 import org.keycloak.services.ServicesLogger;
@@ -74,10 +77,15 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.WebApplicationException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -92,6 +100,7 @@ import org.keycloak.models.UsernameLoginFailureModel;
 import org.keycloak.services.managers.BruteForceProtector;
 import org.keycloak.services.managers.UserSessionManager;
 import org.keycloak.services.resources.AccountService;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
 import org.keycloak.common.util.Time;
 
 /**
@@ -103,6 +112,11 @@ import org.keycloak.common.util.Time;
 public class UsersResource {
     protected static final ServicesLogger logger = ServicesLogger.ROOT_LOGGER;
 
+    /**
+     * Header with the cursor of next page of users, which is passed back as parameter "after". It's sent just for full pages
+     */
+    public static final String NEXT_PAGE_CURSOR_HEADER = "X-Next-Page-Cursor";
+
     protected RealmModel realm;
 
     private RealmAuth auth;
@@ -219,6 +233,34 @@ public class UsersResource {
         }
     }
 
+    /**
+     * Create users in bulk
+     *
+     * Every line of the request is one user representation (NDJSON). Users are created in batches and the result of every line
+     * is returned as one line of NDJSON as soon as its batch is committed. Failure of one user doesn't stop the others.
+     *
+     * @param input
+     * @return
+     */
+    @Path("bulk")
+    @POST
+    @NoCache
+    @Consumes(UserBulkProvisioner.NDJSON)
+    @Produces(UserBulkProvisioner.NDJSON)
+    public StreamingOutput createUsers(final InputStream input) {
+        auth.requireManage();
+
+        final UserBulkProvisioner provisioner = new UserBulkProvisioner(session, realm, auth.getAuth(), clientConnection);
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                provisioner.provision(input, output);
+            }
+
+        };
+    }
+
     public static void updateUserFromRep(UserModel user, UserRepresentation rep, Set<String> attrsToRemove, RealmModel realm, KeycloakSession session) {
         if (rep.getUsername() != null && realm.isEditUsernameAllowed()) {
             user.setUsername(rep.getUsername());
@@ -618,35 +660,48 @@ public class UsersResource {
      *
      * Returns a list of users, filtered according to query parameters
      *
-     * @param search A String contained in username, first or last name, or email
+     * @param search A String contained in username, first or last name, or email. String ending with '*' is matched as prefix
      * @param last
      * @param first
      * @param email
      * @param username
      * @param first Pagination offset
      * @param maxResults Pagination size
+     * @param after Cursor from {@link #NEXT_PAGE_CURSOR_HEADER} of previous page. Users are ordered by username and the page
+     *              starts after the last user of previous page. Unlike the offset, it doesn't slow down deep pages. Not
+     *              supported with search by attributes
      * @return
      */
     @GET
     @NoCache
     @Produces(MediaType.APPLICATION_JSON)
-    public List<UserRepresentation> getUsers(@QueryParam("search") String search,
-                                             @QueryParam("lastName") String last,
-                                             @QueryParam("firstName") String first,
-                                             @QueryParam("email") String email,
-                                             @QueryParam("username") String username,
-                                             @QueryParam("first") Integer firstResult,
-                                             @QueryParam("max") Integer maxResults) {
+    public Response getUsers(@QueryParam("search") String search,
+                             @QueryParam("lastName") String last,
+                             @QueryParam("firstName") String first,
+                             @QueryParam("email") String email,
+                             @QueryParam("username") String username,
+                             @QueryParam("first") Integer firstResult,
+                             @QueryParam("max") Integer maxResults,
+                             @QueryParam("after") String afterCursor) {
         auth.requireView();
 
-        firstResult = firstResult != null ? firstResult : -1;
+        firstResult = firstResult != null && afterCursor == null ? firstResult : -1;
         maxResults = maxResults != null ? maxResults : -1;
+        final String after = afterCursor != null ? decodeCursor(afterCursor) : null;
 
-        List<UserRepresentation> results = new ArrayList<UserRepresentation>();
         List<UserModel> userModels;
+        boolean cursorSupported = true;
         if (search != null) {
-            userModels = session.users().searchForUser(search.trim(), realm, firstResult, maxResults);
+            if (after != null) {
+                userModels = UserBulkQueries.searchForUserAfter(session.users(), search.trim(), realm, after, maxResults);
+            } else {
+                userModels = session.users().searchForUser(search.trim(), realm, firstResult, maxResults);
+            }
         } else if (last != null || first != null || email != null || username != null) {
+            if (after != null) {
+                throw new BadRequestException("Parameter 'after' is not supported with search by attributes");
+            }
+
             Map<String, String> attributes = new HashMap<String, String>();
             if (last != null) {
                 attributes.put(UserModel.LAST_NAME, last);
@@ -661,14 +716,68 @@ public class UsersResource {
                 attributes.put(UserModel.USERNAME, username);
             }
             userModels = session.users().searchForUserByAttributes(attributes, realm, firstResult, maxResults);
+            cursorSupported = false;
+        } else if (maxResults > 0) {
+            // Page is loaded at once, so the cursor of next page is known before the response is written
+            userModels = after != null ? UserBulkQueries.getUsersAfter(session.users(), realm, after, maxResults, false)
+                    : session.users().getUsers(realm, firstResult, maxResults, false);
         } else {
-            userModels = session.users().getUsers(realm, firstResult, maxResults, false);
+            // Users are read in batches as they are written to the response. Every batch starts after the last user of previous one
+            StreamingOutput output = new JsonArrayStreamingOutput.PaginatedOutput<UserModel>(firstResult, maxResults) {
+
+                private String lastUsername = after;
+
+                @Override
+                protected List<UserModel> getBatch(int first, int max) {
+                    List<UserModel> users = lastUsername != null ? UserBulkQueries.getUsersAfter(session.users(), realm, lastUsername, max, false)
+                            : session.users().getUsers(realm, first, max, false);
+                    if (!users.isEmpty()) {
+                        lastUsername = users.get(users.size() - 1).getUsername();
+                    }
+                    return users;
+                }
+
+                @Override
+                protected Object toRepresentation(UserModel user) {
+                    return ModelToRepresentation.toRepresentation(user);
+                }
+
+            };
+            return Response.ok(output, MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        // Search is done just once as it may query federation providers
+        StreamingOutput output = new JsonArrayStreamingOutput.CollectionOutput<UserModel>(userModels) {
+
+            @Override
+            protected Object toRepresentation(UserModel user) {
+                return ModelToRepresentation.toRepresentation(user);
+            }
+
+        };
+
+        Response.ResponseBuilder response = Response.ok(output, MediaType.APPLICATION_JSON_TYPE);
+        if (cursorSupported && maxResults > 0 && userModels.size() >= maxResults) {
+            response.header(NEXT_PAGE_CURSOR_HEADER, encodeCursor(userModels.get(userModels.size() - 1).getUsername()));
         }
+        return response.build();
+    }
 
-        for (UserModel user : userModels) {
-            results.add(ModelToRepresentation.toRepresentation(user));
+    // Cursor is opaque for clients, so the ordering of users can change without breaking them
+    private static String encodeCursor(String username) {
+        try {
+            return Base64Url.encode(username.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64Url.decode(cursor), "UTF-8");
+        } catch (RuntimeException | UnsupportedEncodingException e) {
+            throw new BadRequestException("Invalid parameter 'after'");
         }
-        return results;
     }
 
     @Path("{id}/role-mappings")
@@ -45,6 +45,17 @@ public class CacheControlUtil {
         return cacheControl;
     }
 
+    /**
+     * Cache control for realm metadata (JWKS, discovery documents). These are served with an ETag, so clients can
+     * cheaply revalidate once max-age has passed.
+     */
+    public static CacheControl getMetadataCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoTransform(false);
+        cacheControl.setMaxAge(Config.scope("well-known").getInt("maxAge", 60));
+        return cacheControl;
+    }
+
     public static CacheControl noCache() {
         CacheControl cacheControl = new CacheControl();
         cacheControl.setNoCache(true);
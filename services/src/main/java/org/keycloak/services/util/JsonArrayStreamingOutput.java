@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.services.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.services.ServicesLogger;
+import org.keycloak.util.JsonSerialization;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.ContextResolver;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Writes JSON array of representations one by one as the models are read, so the whole list of representations is never
+ * kept in memory. Response is flushed after every {@link #FLUSH_INTERVAL} items.
+ * <p>
+ * Request transaction is left open by {@link org.keycloak.services.filters.KeycloakTransactionCommitter} and it's committed
+ * when all models are written. If writing fails, transaction is rolled back and the JSON array is not closed, so the client
+ * can't take the truncated response as complete.
+ */
+public abstract class JsonArrayStreamingOutput<M> implements StreamingOutput {
+
+    public static final int FLUSH_INTERVAL = 100;
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    // Resolved in the request thread, so same mapper like for other JSON responses is used
+    private final ObjectMapper mapper = getMapper();
+
+    private final KeycloakTransaction tx = ResteasyProviderFactory.getContextData(KeycloakTransaction.class);
+
+    /**
+     * @return models to write. Called when the response is being written
+     */
+    protected abstract Iterator<M> iterator();
+
+    protected abstract Object toRepresentation(M model);
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        JsonGenerator generator = mapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        try {
+            if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartArray();
+
+            int count = 0;
+            Iterator<M> it = iterator();
+            while (it.hasNext()) {
+                generator.writeObject(toRepresentation(it.next()));
+                if (++count % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+
+            endTransaction();
+            generator.writeEndArray();
+        } finally {
+            try {
+                rollbackTransaction();
+            } finally {
+                generator.close();
+            }
+        }
+    }
+
+    private void endTransaction() {
+        if (tx != null && tx.isActive()) {
+            if (tx.getRollbackOnly()) {
+                tx.rollback();
+            } else {
+                tx.commit();
+            }
+        }
+    }
+
+    // Transaction is still active just if writing failed
+    private void rollbackTransaction() {
+        if (tx != null && tx.isActive()) {
+            try {
+                tx.rollback();
+            } catch (RuntimeException e) {
+                ServicesLogger.ROOT_LOGGER.exceptionDuringRollback(e);
+            }
+        }
+    }
+
+    private static ObjectMapper getMapper() {
+        ContextResolver<ObjectMapper> resolver = ResteasyProviderFactory.getInstance().getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE);
+        ObjectMapper mapper = resolver != null ? resolver.getContext(ObjectMapper.class) : null;
+        return mapper != null ? mapper : JsonSerialization.mapper;
+    }
+
+    /**
+     * Streams models, which are already loaded
+     */
+    public abstract static class CollectionOutput<M> extends JsonArrayStreamingOutput<M> {
+
+        private final Collection<M> models;
+
+        public CollectionOutput(Collection<M> models) {
+            this.models = models;
+        }
+
+        @Override
+        protected Iterator<M> iterator() {
+            return models.iterator();
+        }
+
+    }
+
+    /**
+     * Reads models in batches, so just one batch is loaded at a time. Reading ends with first batch smaller than requested.
+     */
+    public abstract static class PaginatedOutput<M> extends JsonArrayStreamingOutput<M> {
+
+        private final int firstResult;
+        private final int maxResults;
+        private final int batchSize;
+
+        /**
+         * @param firstResult offset of first model. -1 for no offset
+         * @param maxResults maximum count of models to write. -1 for all models
+         */
+        public PaginatedOutput(int firstResult, int maxResults, int batchSize) {
+            this.firstResult = Math.max(firstResult, 0);
+            this.maxResults = maxResults;
+            this.batchSize = batchSize;
+        }
+
+        public PaginatedOutput(int firstResult, int maxResults) {
+            this(firstResult, maxResults, DEFAULT_BATCH_SIZE);
+        }
+
+        protected abstract List<M> getBatch(int first, int max);
+
+        @Override
+        protected Iterator<M> iterator() {
+            return new Iterator<M>() {
+
+                private int next = firstResult;
+                private int remaining = maxResults >= 0 ? maxResults : Integer.MAX_VALUE;
+                private Iterator<M> batch;
+                private boolean lastBatch;
+
+                @Override
+                public boolean hasNext() {
+                    while ((batch == null || !batch.hasNext()) && !lastBatch && remaining > 0) {
+                        int max = Math.min(batchSize, remaining);
+                        List<M> models = getBatch(next, max);
+                        lastBatch = models.size() < max;
+                        next += models.size();
+                        remaining -= models.size();
+                        batch = models.iterator();
+                    }
+                    return batch != null && batch.hasNext();
+                }
+
+                @Override
+                public M next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return batch.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+        }
+
+    }
+
+}
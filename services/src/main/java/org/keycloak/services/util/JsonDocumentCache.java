@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.services.util;
+
+import org.keycloak.common.util.Base64Url;
+import org.keycloak.util.JsonSerialization;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of JSON documents, which are requested often, but rarely change (JWKS, discovery documents). Documents
+ * are kept serialized together with a strong ETag. Each entry remembers the fingerprint of the state it was built from
+ * and is rebuilt once the fingerprint changes.
+ */
+public class JsonDocumentCache {
+
+    private final Map<String, Document> documents;
+
+    public JsonDocumentCache(final int maxEntries) {
+        this.documents = new LinkedHashMap<String, Document>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Document get(String key, String fingerprint, DocumentBuilder builder) {
+        Document document;
+        synchronized (documents) {
+            document = documents.get(key);
+        }
+
+        if (document == null || !document.getFingerprint().equals(fingerprint)) {
+            document = new Document(fingerprint, builder.build());
+            synchronized (documents) {
+                documents.put(key, document);
+            }
+        }
+
+        return document;
+    }
+
+    public void clear() {
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    public interface DocumentBuilder {
+        Object build();
+    }
+
+    public static class Document {
+
+        private final String fingerprint;
+        private final byte[] content;
+        private final EntityTag entityTag;
+
+        public Document(String fingerprint, Object representation) {
+            this.fingerprint = fingerprint;
+            try {
+                this.content = JsonSerialization.writeValueAsBytes(representation);
+                this.entityTag = new EntityTag(Base64Url.encode(MessageDigest.getInstance("SHA-256").digest(content)));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+
+        /**
+         * Returns 304 if the client already has the current version of the document, otherwise the serialized document
+         */
+        public Response toResponse(Request request, CacheControl cacheControl) {
+            Response.ResponseBuilder builder = request.evaluatePreconditions(entityTag);
+            if (builder == null) {
+                builder = Response.ok(content, MediaType.APPLICATION_JSON_TYPE);
+            }
+            return builder.tag(entityTag).cacheControl(cacheControl).build();
+        }
+
+    }
+
+}
@@ -37,15 +37,24 @@ public class ExtendingThemeManager implements ThemeProvider {
 
     private final KeycloakSession session;
     private final ConcurrentHashMap<ExtendingThemeManagerFactory.ThemeKey, Theme> themeCache;
+    private final ThemeResourceCache resourceCache;
     private List<ThemeProvider> providers;
     private String defaultTheme;
 
-    public ExtendingThemeManager(KeycloakSession session, ConcurrentHashMap<ExtendingThemeManagerFactory.ThemeKey, Theme> themeCache) {
+    public ExtendingThemeManager(KeycloakSession session, ConcurrentHashMap<ExtendingThemeManagerFactory.ThemeKey, Theme> themeCache, ThemeResourceCache resourceCache) {
         this.session = session;
         this.themeCache = themeCache;
+        this.resourceCache = resourceCache;
         this.defaultTheme = Config.scope("theme").get("default", Version.NAME.toLowerCase());
     }
 
+    /**
+     * @return cache of static theme resources or null if themes are not cached
+     */
+    public ThemeResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
     private List<ThemeProvider> getProviders() {
         if (providers == null) {
             providers = new LinkedList();
@@ -29,16 +29,23 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ExtendingThemeManagerFactory implements ThemeProviderFactory {
 
     private ConcurrentHashMap<ThemeKey, Theme> themeCache;
+    private ThemeResourceCache resourceCache;
 
     @Override
     public ThemeProvider create(KeycloakSession session) {
-        return new ExtendingThemeManager(session, themeCache);
+        return new ExtendingThemeManager(session, themeCache, resourceCache);
     }
 
     @Override
     public void init(Config.Scope config) {
-        if(Config.scope("theme").getBoolean("cacheThemes", true)) {
+        Config.Scope themeConfig = Config.scope("theme");
+        if(themeConfig.getBoolean("cacheThemes", true)) {
             themeCache = new ConcurrentHashMap<>();
+
+            long resourceCacheSize = themeConfig.getLong("resourceCacheSize", 50L * 1024 * 1024);
+            if (resourceCacheSize > 0) {
+                resourceCache = new ThemeResourceCache(resourceCacheSize, themeConfig.getInt("resourceCacheMaxEntrySize", 1024 * 1024));
+            }
         }
     }
 
@@ -49,6 +56,7 @@ public class ExtendingThemeManagerFactory implements ThemeProviderFactory {
 
     @Override
     public void close() {
+        FreeMarkerUtil.clearCache();
     }
 
     @Override
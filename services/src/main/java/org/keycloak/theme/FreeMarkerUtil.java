@@ -20,67 +20,226 @@ package org.keycloak.theme;
 import freemarker.cache.URLTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
+import org.jboss.logging.Logger;
 import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Renders theme templates. There is a single FreeMarker configuration per theme instance, which caches parsed templates.
+ * Configurations are weakly referenced by the theme, so when the theme provider loads the theme again (for example after
+ * redeployment) the templates are parsed again from the new theme and the old configuration is garbage collected. When
+ * template caching is disabled templates are still cached, but re-parsed as soon as they are modified.
+ *
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
 public class FreeMarkerUtil {
 
-    private ConcurrentHashMap<String, Template> cache;
+    private static final Logger logger = Logger.getLogger(FreeMarkerUtil.class);
+
+    private static final Map<Theme, ThemeTemplates> themeTemplates = Collections.synchronizedMap(new WeakHashMap<Theme, ThemeTemplates>());
+
+    private final boolean cacheTemplates;
 
     public FreeMarkerUtil() {
-        if (Config.scope("theme").getBoolean("cacheTemplates", true)) {
-            cache = new ConcurrentHashMap<>();
-        }
+        cacheTemplates = Config.scope("theme").getBoolean("cacheTemplates", true);
     }
 
     public String processTemplate(Object data, String templateName, Theme theme) throws FreeMarkerException {
         try {
-            Template template;
-            if (cache != null) {
-                String key = theme.getName() + "/" + templateName;
-                template = cache.get(key);
-                if (template == null) {
-                    template = getTemplate(templateName, theme);
-                    if (cache.putIfAbsent(key, template) != null) {
-                        template = cache.get(key);
-                    }
-                }
-            } else {
-                template = getTemplate(templateName, theme);
-            }
+            long start = System.nanoTime();
 
+            ThemeTemplates templates = getThemeTemplates(theme);
+            Template template = templates.configuration.getTemplate(templateName);
             Writer out = new StringWriter();
             template.process(data, out);
+
+            templates.getStatistics(templateName).record(System.nanoTime() - start);
+
             return out.toString();
         } catch (Exception e) {
             throw new FreeMarkerException("Failed to process template " + templateName, e);
         }
     }
 
-    private Template getTemplate(String templateName, Theme theme) throws IOException {
-        Configuration cfg = new Configuration();
-        cfg.setTemplateLoader(new ThemeTemplateLoader(theme));
-        return cfg.getTemplate(templateName);
+    /**
+     * Parses templates of all themes of the given type in the background, so requests don't have to wait for it. Does
+     * nothing if template caching or precompiling (theme.precompileTemplates) is disabled.
+     */
+    public void precompileTemplates(KeycloakSessionFactory sessionFactory, Theme.Type type, Collection<String> templateNames) {
+        if (!cacheTemplates || !Config.scope("theme").getBoolean("precompileTemplates", true)) {
+            return;
+        }
+
+        List<Theme> themes = new LinkedList<>();
+        KeycloakSession session = sessionFactory.create();
+        try {
+            ThemeProvider themeProvider = session.getProvider(ThemeProvider.class, "extending");
+            for (String name : themeProvider.nameSet(type)) {
+                themes.add(themeProvider.getTheme(name, type));
+            }
+        } catch (IOException e) {
+            logger.warnv(e, "Failed to load {0} themes, templates are not precompiled", type);
+            return;
+        } finally {
+            session.close();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        for (final Theme theme : themes) {
+            for (final String templateName : templateNames) {
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            getThemeTemplates(theme).configuration.getTemplate(templateName);
+                        } catch (Exception e) {
+                            // Themes are not required to provide all templates
+                            logger.debugv("Failed to precompile template {0} in {1} theme {2}", templateName, theme.getType(), theme.getName());
+                        }
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * @return render statistics for each template of themes in use, keyed by theme type, theme name and template name
+     */
+    public static Map<String, TemplateStatistics> getStatistics() {
+        Map<String, TemplateStatistics> result = new HashMap<>();
+        synchronized (themeTemplates) {
+            for (Map.Entry<Theme, ThemeTemplates> entry : themeTemplates.entrySet()) {
+                Theme theme = entry.getKey();
+                if (theme == null) {
+                    continue;
+                }
+                for (Map.Entry<String, TemplateStatistics> s : entry.getValue().statistics.entrySet()) {
+                    result.put(theme.getType() + "/" + theme.getName() + "/" + s.getKey(), s.getValue());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Drops parsed templates and statistics of all themes
+     */
+    public static void clearCache() {
+        themeTemplates.clear();
+    }
+
+    private ThemeTemplates getThemeTemplates(Theme theme) {
+        synchronized (themeTemplates) {
+            ThemeTemplates templates = themeTemplates.get(theme);
+            if (templates == null) {
+                Configuration cfg = new Configuration();
+                cfg.setTemplateLoader(new ThemeTemplateLoader(theme));
+                // Without template caching check for modified templates on every request. Otherwise templates are
+                // reloaded just with new instance of the theme
+                cfg.setTemplateUpdateDelayMilliseconds(cacheTemplates ? Long.MAX_VALUE : 0);
+
+                templates = new ThemeTemplates(cfg);
+                themeTemplates.put(theme, templates);
+            }
+            return templates;
+        }
+    }
+
+    private static class ThemeTemplates {
+
+        private final Configuration configuration;
+
+        // Key is name of the template
+        private final ConcurrentHashMap<String, TemplateStatistics> statistics = new ConcurrentHashMap<>();
+
+        private ThemeTemplates(Configuration configuration) {
+            this.configuration = configuration;
+        }
+
+        private TemplateStatistics getStatistics(String templateName) {
+            TemplateStatistics s = statistics.get(templateName);
+            if (s == null) {
+                s = new TemplateStatistics();
+                TemplateStatistics existing = statistics.putIfAbsent(templateName, s);
+                if (existing != null) {
+                    s = existing;
+                }
+            }
+            return s;
+        }
+
+    }
+
+    public static class TemplateStatistics {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong maxTime = new AtomicLong();
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalTime.addAndGet(nanos);
+
+            long max = maxTime.get();
+            while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+                max = maxTime.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(totalTime.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getAverageTime(TimeUnit unit) {
+            long c = count.get();
+            return c > 0 ? unit.convert(totalTime.get() / c, TimeUnit.NANOSECONDS) : 0;
+        }
+
+        public long getMaxTime(TimeUnit unit) {
+            return unit.convert(maxTime.get(), TimeUnit.NANOSECONDS);
+        }
+
     }
 
     class ThemeTemplateLoader extends URLTemplateLoader {
 
-        private Theme theme;
+        // Configuration of the theme is weakly referenced by the theme, so it can't reference the theme strongly
+        private WeakReference<Theme> theme;
 
         public ThemeTemplateLoader(Theme theme) {
-            this.theme = theme;
+            this.theme = new WeakReference<>(theme);
         }
 
         @Override
         protected URL getURL(String name) {
+            Theme theme = this.theme.get();
+            if (theme == null) {
+                return null;
+            }
             try {
                 return theme.getTemplate(name);
             } catch (IOException e) {
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.theme;
+
+import org.keycloak.common.util.Base64Url;
+
+import javax.ws.rs.core.EntityTag;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded in-memory cache of static theme resources. Resources are kept as byte arrays together with a strong ETag, so
+ * they can be served without touching the theme providers again. Compressible resources are kept gzipped too. The cache is
+ * bounded by the total size of cached resources; resources bigger than the max entry size are never cached.
+ */
+public class ThemeResourceCache {
+
+    private final long maxSize;
+    private final int maxEntrySize;
+
+    private final LinkedHashMap<String, Resource> resources = new LinkedHashMap<>(64, 0.75f, true);
+    private long size;
+
+    public ThemeResourceCache(long maxSize, int maxEntrySize) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public static String key(String version, Theme.Type type, String themeName, String path) {
+        return version + "/" + type.name() + "/" + themeName + "/" + path;
+    }
+
+    public Resource get(String key) {
+        synchronized (resources) {
+            return resources.get(key);
+        }
+    }
+
+    /**
+     * Reads the resource and adds it to the cache. The stream is always closed.
+     *
+     * @return cached resource or null if the resource is too big to be cached
+     */
+    public Resource put(String key, InputStream is, String contentType) throws IOException {
+        byte[] content;
+        try {
+            content = read(is, maxEntrySize);
+        } finally {
+            is.close();
+        }
+
+        if (content == null) {
+            return null;
+        }
+
+        Resource resource = new Resource(content, contentType);
+        synchronized (resources) {
+            Resource previous = resources.put(key, resource);
+            if (previous != null) {
+                size -= previous.getSize();
+            }
+            size += resource.getSize();
+
+            Iterator<Resource> itr = resources.values().iterator();
+            while (size > maxSize && itr.hasNext()) {
+                Resource eldest = itr.next();
+                if (eldest != resource) {
+                    size -= eldest.getSize();
+                    itr.remove();
+                }
+            }
+        }
+        return resource;
+    }
+
+    public long getSize() {
+        synchronized (resources) {
+            return size;
+        }
+    }
+
+    public void clear() {
+        synchronized (resources) {
+            resources.clear();
+            size = 0;
+        }
+    }
+
+    private static byte[] read(InputStream is, int maxLength) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int c;
+        while ((c = is.read(buffer)) != -1) {
+            if (os.size() + c > maxLength) {
+                return null;
+            }
+            os.write(buffer, 0, c);
+        }
+        return os.toByteArray();
+    }
+
+    public static class Resource {
+
+        private final byte[] content;
+        private final byte[] gzippedContent;
+        private final String contentType;
+        private final EntityTag entityTag;
+        private final EntityTag gzippedEntityTag;
+
+        public Resource(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType;
+            try {
+                String hash = Base64Url.encode(MessageDigest.getInstance("SHA-256").digest(content));
+                this.entityTag = new EntityTag(hash);
+                // Strong ETag identifies the exact bytes sent, so gzipped variant needs its own
+                this.gzippedEntityTag = new EntityTag(hash + "-gzip");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            this.gzippedContent = isCompressible() ? gzip(content) : null;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+
+        /**
+         * @return gzipped content or null if the resource isn't compressible or it doesn't get smaller by compression
+         */
+        public byte[] getGzippedContent() {
+            return gzippedContent;
+        }
+
+        public EntityTag getGzippedEntityTag() {
+            return gzippedEntityTag;
+        }
+
+        public int getSize() {
+            return content.length + (gzippedContent != null ? gzippedContent.length : 0);
+        }
+
+        /**
+         * Text based resources benefit from compression, images and fonts are already compressed
+         */
+        public boolean isCompressible() {
+            return contentType != null && (contentType.startsWith("text/") || contentType.contains("javascript")
+                    || contentType.contains("json") || contentType.contains("xml"));
+        }
+
+        private static byte[] gzip(byte[] content) {
+            try {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                GZIPOutputStream gzip = new GZIPOutputStream(os);
+                gzip.write(content);
+                gzip.close();
+                return os.size() < content.length ? os.toByteArray() : null;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.services.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unlike other services tests, this one is in the package of {@link DefaultBruteForceProtector}. It fills worker queues directly and
+ * reads processed events, but protected members of nested classes like Worker.queue or LoginEvent.username are accessible just from
+ * the same package, not from subclass in other package.
+ */
+public class DefaultBruteForceProtectorTest {
+
+    private static final String REALM_ID = "realm1";
+
+    private TestProtector protector;
+
+    @After
+    public void after() {
+        if (protector != null) {
+            protector.release.countDown();
+            protector.shutdown();
+        }
+    }
+
+    @Test
+    public void testUserProcessedBySameWorker() {
+        DefaultBruteForceProtector protector = new DefaultBruteForceProtector(null, 4);
+
+        DefaultBruteForceProtector.Worker worker = protector.getWorker(REALM_ID, "john");
+        Assert.assertSame(worker, protector.getWorker(REALM_ID, "John"));
+        Assert.assertSame(worker, protector.getWorker(REALM_ID, "JOHN"));
+    }
+
+    @Test
+    public void testUsersSpreadAcrossWorkers() {
+        DefaultBruteForceProtector protector = new DefaultBruteForceProtector(null, 4);
+
+        Map<DefaultBruteForceProtector.Worker, Integer> counts = new IdentityHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            DefaultBruteForceProtector.Worker worker = protector.getWorker(REALM_ID, "user" + i);
+            Integer count = counts.get(worker);
+            counts.put(worker, count == null ? 1 : count + 1);
+        }
+
+        Assert.assertEquals(4, counts.size());
+        for (Integer count : counts.values()) {
+            Assert.assertTrue("Unbalanced workers: " + counts.values(), count > 100);
+        }
+    }
+
+    @Test
+    public void testFailuresOfUserProcessedInOrder() throws Exception {
+        protector = new TestProtector(4);
+        protector.start();
+
+        // Workers are blocked, so the failures are queued and processed in batches
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            usernames.add("user" + i);
+        }
+        int failuresPerUser = 100;
+        for (int i = 0; i < failuresPerUser; i++) {
+            for (String username : usernames) {
+                protector.getWorker(REALM_ID, username).queue.offer(protector.new FailedLogin(REALM_ID, username, String.valueOf(i)));
+            }
+        }
+        protector.release.countDown();
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (protector.getProcessedEvents() < usernames.size() * failuresPerUser && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(usernames.size() * failuresPerUser, protector.getProcessedEvents());
+        Assert.assertEquals(0, protector.getQueueSize());
+
+        for (String username : usernames) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < failuresPerUser; i++) {
+                expected.add(String.valueOf(i));
+            }
+            Assert.assertEquals(expected, protector.processedIps.get(username));
+            Assert.assertEquals(1, protector.processingThreads.get(username).size());
+        }
+
+        Assert.assertTrue(protector.getMaxProcessingTime() >= protector.getAverageProcessingTime());
+    }
+
+    @Test
+    public void testShutdownWithoutStart() {
+        long start = System.currentTimeMillis();
+        new DefaultBruteForceProtector(null, 2).shutdown();
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+
+    private static class TestProtector extends DefaultBruteForceProtector {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Map<String, List<String>> processedIps = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> processingThreads = new ConcurrentHashMap<>();
+
+        private TestProtector(int workers) {
+            super(null, workers);
+        }
+
+        @Override
+        protected void processFailures(List<LoginEvent> events) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (LoginEvent event : events) {
+                if (event instanceof FailedLogin) {
+                    if (!processedIps.containsKey(event.username)) {
+                        processedIps.put(event.username, Collections.synchronizedList(new ArrayList<String>()));
+                        processingThreads.put(event.username, Collections.synchronizedSet(new HashSet<String>()));
+                    }
+                    processedIps.get(event.username).add(event.ip);
+                    processingThreads.get(event.username).add(Thread.currentThread().getName());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.executors.DefaultExecutorsProviderFactory;
+import org.keycloak.executors.ExecutorsProvider;
+
+public class DefaultExecutorsProviderFactoryTest {
+
+    @Test
+    public void testExecutorShared() {
+        DefaultExecutorsProviderFactory factory = new DefaultExecutorsProviderFactory();
+        factory.init(null);
+
+        ExecutorsProvider provider1 = factory.create(null);
+        ExecutorsProvider provider2 = factory.create(null);
+        Assert.assertSame(provider1.getExecutor("test", 2, 4), provider2.getExecutor("test", 5, 10));
+        Assert.assertNotSame(provider1.getExecutor("test", 2, 4), provider1.getExecutor("other", 2, 4));
+
+        factory.close();
+    }
+
+    @Test
+    public void testFullQueueRejected() throws Exception {
+        DefaultExecutorsProviderFactory factory = new DefaultExecutorsProviderFactory();
+        factory.init(null);
+        ExecutorService executor = factory.create(null).getExecutor("test", 1, 1);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocked = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        };
+
+        // One task running and one waiting in the queue
+        executor.execute(blocked);
+        executor.execute(blocked);
+        try {
+            executor.execute(blocked);
+            Assert.fail("Expected task rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        latch.countDown();
+        factory.close();
+    }
+
+    @Test
+    public void testShutdownOnClose() throws Exception {
+        DefaultExecutorsProviderFactory factory = new DefaultExecutorsProviderFactory();
+        factory.init(null);
+        ExecutorService executor = factory.create(null).getExecutor("test", 1, 0);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        });
+        started.await();
+
+        // Running tasks are interrupted
+        factory.close();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        try {
+            factory.create(null).getExecutor("test", 1, 0);
+            Assert.fail("Expected executors shut down");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+}
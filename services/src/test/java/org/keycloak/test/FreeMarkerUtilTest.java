@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.keycloak.theme.FreeMarkerUtil;
+import org.keycloak.theme.Theme;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FreeMarkerUtilTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTemplateParsedOnce() throws Exception {
+        File dir = folder.newFolder();
+        writeTemplate(dir, "Hello ${name}");
+
+        CountingTheme theme = new CountingTheme("parsed-once", dir);
+        FreeMarkerUtil freeMarker = new FreeMarkerUtil();
+
+        Assert.assertEquals("Hello first", freeMarker.processTemplate(Collections.singletonMap("name", "first"), "test.ftl", theme));
+        Assert.assertEquals("Hello second", freeMarker.processTemplate(Collections.singletonMap("name", "second"), "test.ftl", theme));
+        Assert.assertEquals("Hello third", new FreeMarkerUtil().processTemplate(Collections.singletonMap("name", "third"), "test.ftl", theme));
+
+        Assert.assertEquals(1, theme.loaded.get());
+
+        FreeMarkerUtil.TemplateStatistics statistics = FreeMarkerUtil.getStatistics().get("LOGIN/parsed-once/test.ftl");
+        Assert.assertEquals(3, statistics.getCount());
+    }
+
+    @Test
+    public void testTemplateReloadedWithNewThemeInstance() throws Exception {
+        File dir = folder.newFolder();
+        writeTemplate(dir, "Hello ${name}");
+
+        FreeMarkerUtil freeMarker = new FreeMarkerUtil();
+        Assert.assertEquals("Hello first", freeMarker.processTemplate(Collections.singletonMap("name", "first"), "test.ftl", new CountingTheme("reloaded", dir)));
+
+        writeTemplate(dir, "Bye ${name}");
+
+        // Same theme instance keeps the parsed template, theme loaded again parses it again
+        CountingTheme reloaded = new CountingTheme("reloaded", dir);
+        Assert.assertEquals("Bye second", freeMarker.processTemplate(Collections.singletonMap("name", "second"), "test.ftl", reloaded));
+        Assert.assertEquals(1, reloaded.loaded.get());
+    }
+
+    private static void writeTemplate(File dir, String template) throws IOException {
+        FileOutputStream os = new FileOutputStream(new File(dir, "test.ftl"));
+        try {
+            os.write(template.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    private static class CountingTheme implements Theme {
+
+        private final String name;
+        private final File dir;
+        private final AtomicInteger loaded = new AtomicInteger();
+
+        private CountingTheme(String name, File dir) {
+            this.name = name;
+            this.dir = dir;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getParentName() {
+            return null;
+        }
+
+        @Override
+        public String getImportName() {
+            return null;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.LOGIN;
+        }
+
+        @Override
+        public URL getTemplate(String name) throws IOException {
+            File file = new File(dir, name);
+            if (!file.isFile()) {
+                return null;
+            }
+            loaded.incrementAndGet();
+            return file.toURI().toURL();
+        }
+
+        @Override
+        public InputStream getTemplateAsStream(String name) throws IOException {
+            return null;
+        }
+
+        @Override
+        public URL getResource(String path) throws IOException {
+            return null;
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String path) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Properties getMessages(Locale locale) throws IOException {
+            return new Properties();
+        }
+
+        @Override
+        public Properties getMessages(String baseBundlename, Locale locale) throws IOException {
+            return new Properties();
+        }
+
+        @Override
+        public Properties getProperties() throws IOException {
+            return new Properties();
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.services.util.JsonArrayStreamingOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class JsonArrayStreamingOutputTest {
+
+    private static final List<Integer> MODELS = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+    @After
+    public void after() {
+        ResteasyProviderFactory.clearContextData();
+    }
+
+    @Test
+    public void testPaginated() throws Exception {
+        final List<Integer> requested = new ArrayList<>();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new TestPaginatedOutput(1, 5, 2, requested).write(os);
+
+        Assert.assertEquals("[\"2\",\"3\",\"4\",\"5\",\"6\"]", os.toString("UTF-8"));
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 2, 5, 1), requested);
+    }
+
+    @Test
+    public void testPaginatedAll() throws Exception {
+        final List<Integer> requested = new ArrayList<>();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new TestPaginatedOutput(-1, -1, 4, requested).write(os);
+
+        Assert.assertEquals("[\"1\",\"2\",\"3\",\"4\",\"5\",\"6\",\"7\",\"8\",\"9\",\"10\"]", os.toString("UTF-8"));
+
+        // Last batch is smaller than requested, so there is no other query
+        Assert.assertEquals(Arrays.asList(0, 4, 4, 4, 8, 4), requested);
+    }
+
+    @Test
+    public void testCollection() throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new JsonArrayStreamingOutput.CollectionOutput<Integer>(MODELS.subList(0, 2)) {
+
+            @Override
+            protected Object toRepresentation(Integer model) {
+                return model;
+            }
+
+        }.write(os);
+
+        Assert.assertEquals("[1,2]", os.toString("UTF-8"));
+    }
+
+    @Test
+    public void testTransactionCommitted() throws Exception {
+        TestTransaction tx = new TestTransaction();
+        ResteasyProviderFactory.pushContext(KeycloakTransaction.class, tx);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new TestPaginatedOutput(-1, -1, 4, new ArrayList<Integer>()).write(os);
+
+        Assert.assertTrue(tx.committed);
+        Assert.assertFalse(tx.rolledBack);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        TestTransaction tx = new TestTransaction();
+        ResteasyProviderFactory.pushContext(KeycloakTransaction.class, tx);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            new JsonArrayStreamingOutput.CollectionOutput<Integer>(MODELS) {
+
+                @Override
+                protected Object toRepresentation(Integer model) {
+                    if (model == 3) {
+                        throw new IllegalStateException();
+                    }
+                    return model;
+                }
+
+            }.write(os);
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+
+        // Array is not closed, so the response isn't valid JSON
+        Assert.assertEquals("[1,2", os.toString("UTF-8"));
+        Assert.assertFalse(tx.committed);
+        Assert.assertTrue(tx.rolledBack);
+    }
+
+    private static class TestTransaction implements KeycloakTransaction {
+
+        private boolean active = true;
+        private boolean committed;
+        private boolean rolledBack;
+
+        @Override
+        public void begin() {
+            active = true;
+        }
+
+        @Override
+        public void commit() {
+            committed = true;
+            active = false;
+        }
+
+        @Override
+        public void rollback() {
+            rolledBack = true;
+            active = false;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+    }
+
+    private static class TestPaginatedOutput extends JsonArrayStreamingOutput.PaginatedOutput<Integer> {
+
+        private final List<Integer> requested;
+
+        private TestPaginatedOutput(int firstResult, int maxResults, int batchSize, List<Integer> requested) {
+            super(firstResult, maxResults, batchSize);
+            this.requested = requested;
+        }
+
+        @Override
+        protected List<Integer> getBatch(int first, int max) {
+            requested.add(first);
+            requested.add(max);
+            return MODELS.subList(Math.min(first, MODELS.size()), Math.min(first + max, MODELS.size()));
+        }
+
+        @Override
+        protected Object toRepresentation(Integer model) {
+            return String.valueOf(model);
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.services.util.JsonDocumentCache;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonDocumentCacheTest {
+
+    @Test
+    public void testDocumentReusedUntilFingerprintChanges() {
+        JsonDocumentCache cache = new JsonDocumentCache(10);
+        CountingBuilder builder = new CountingBuilder();
+
+        JsonDocumentCache.Document d1 = cache.get("realm", "key-1", builder);
+        JsonDocumentCache.Document d2 = cache.get("realm", "key-1", builder);
+
+        Assert.assertSame(d1, d2);
+        Assert.assertEquals(1, builder.count.get());
+
+        JsonDocumentCache.Document d3 = cache.get("realm", "key-2", builder);
+
+        Assert.assertNotSame(d1, d3);
+        Assert.assertNotEquals(d1.getEntityTag(), d3.getEntityTag());
+        Assert.assertEquals(2, builder.count.get());
+    }
+
+    @Test
+    public void testEntityTagDependsOnContent() {
+        JsonDocumentCache.Document d1 = new JsonDocumentCache.Document("a", Collections.singletonMap("key", "value"));
+        JsonDocumentCache.Document d2 = new JsonDocumentCache.Document("b", Collections.singletonMap("key", "value"));
+        JsonDocumentCache.Document d3 = new JsonDocumentCache.Document("a", Collections.singletonMap("key", "other"));
+
+        Assert.assertEquals(d1.getEntityTag(), d2.getEntityTag());
+        Assert.assertNotEquals(d1.getEntityTag(), d3.getEntityTag());
+        Assert.assertFalse(d1.getEntityTag().isWeak());
+    }
+
+    @Test
+    public void testBounded() {
+        JsonDocumentCache cache = new JsonDocumentCache(2);
+        CountingBuilder builder = new CountingBuilder();
+
+        cache.get("a", "1", builder);
+        cache.get("b", "1", builder);
+        cache.get("c", "1", builder);
+        Assert.assertEquals(3, builder.count.get());
+
+        // "a" was evicted as eldest entry
+        cache.get("a", "1", builder);
+        Assert.assertEquals(4, builder.count.get());
+
+        cache.get("c", "1", builder);
+        Assert.assertEquals(4, builder.count.get());
+    }
+
+    private static class CountingBuilder implements JsonDocumentCache.DocumentBuilder {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Object build() {
+            return Collections.singletonMap("count", count.incrementAndGet());
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.services.managers.SlidingWindowRateLimiter;
+
+public class SlidingWindowRateLimiterTest {
+
+    @Test
+    public void testLimitInWindow() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(60, 3, 0, 0);
+        long now = 600000;
+
+        Assert.assertTrue(limiter.tryAcquire("ip", 3, now));
+        Assert.assertTrue(limiter.tryAcquire("ip", 3, now + 1000));
+        Assert.assertTrue(limiter.tryAcquire("ip", 3, now + 2000));
+        Assert.assertFalse(limiter.tryAcquire("ip", 3, now + 3000));
+
+        // Other keys are counted separately
+        Assert.assertTrue(limiter.tryAcquire("ip2", 3, now + 3000));
+        Assert.assertEquals(2, limiter.size());
+    }
+
+    @Test
+    public void testPreviousWindowWeighted() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(60, 4, 0, 0);
+        long now = 600000;
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(limiter.tryAcquire("ip", 4, now));
+        }
+
+        // Just started next window. Attempts from previous window still count almost fully
+        Assert.assertFalse(limiter.tryAcquire("ip", 4, now + 60000));
+
+        // In the middle of next window, half of previous attempts count
+        Assert.assertTrue(limiter.tryAcquire("ip", 4, now + 90000));
+
+        // Two windows later, previous attempts don't count at all
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(limiter.tryAcquire("ip", 4, now + 240000));
+        }
+        Assert.assertFalse(limiter.tryAcquire("ip", 4, now + 240000));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(60, 3, 0, 0, 3);
+        long now = 600000;
+
+        Assert.assertTrue(limiter.tryAcquire("ip1", 3, now));
+        Assert.assertTrue(limiter.tryAcquire("ip2", 3, now));
+        Assert.assertTrue(limiter.tryAcquire("ip3", 3, now));
+
+        // New keys are rejected while all tracked keys are in use. Tracked keys still work
+        Assert.assertFalse(limiter.tryAcquire("ip4", 3, now + 1000));
+        Assert.assertFalse(limiter.tryAcquire("ip5", 3, now + 2000));
+        Assert.assertTrue(limiter.tryAcquire("ip1", 3, now + 2000));
+        Assert.assertEquals(3, limiter.size());
+
+        // Expired keys are removed when limit is reached
+        Assert.assertTrue(limiter.tryAcquire("ip4", 3, now + 180000));
+        Assert.assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void testRemoveExpired() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(60, 3, 0, 0);
+        long now = 600000;
+
+        Assert.assertTrue(limiter.tryAcquire("ip1", 3, now));
+        Assert.assertTrue(limiter.tryAcquire("ip2", 3, now + 60000));
+
+        // Attempts from previous window still count
+        limiter.removeExpired(now + 60000);
+        Assert.assertEquals(2, limiter.size());
+
+        limiter.removeExpired(now + 120000);
+        Assert.assertEquals(1, limiter.size());
+
+        limiter.removeExpired(now + 180000);
+        Assert.assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        Assert.assertFalse(new SlidingWindowRateLimiter(60, 0, 0, 0).isEnabled());
+        Assert.assertTrue(new SlidingWindowRateLimiter(60, 0, 10, 0).isEnabled());
+    }
+
+}
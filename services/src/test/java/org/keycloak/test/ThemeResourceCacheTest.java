@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.theme.Theme;
+import org.keycloak.theme.ThemeResourceCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+public class ThemeResourceCacheTest {
+
+    @Test
+    public void testCacheResource() throws Exception {
+        ThemeResourceCache cache = new ThemeResourceCache(1000, 100);
+        String key = ThemeResourceCache.key("1", Theme.Type.LOGIN, "keycloak", "css/login.css");
+
+        Assert.assertNull(cache.get(key));
+
+        ThemeResourceCache.Resource resource = cache.put(key, new ByteArrayInputStream("body {}".getBytes()), "text/css");
+        Assert.assertNotNull(resource);
+        Assert.assertSame(resource, cache.get(key));
+        Assert.assertEquals("body {}", new String(resource.getContent()));
+        Assert.assertTrue(resource.isCompressible());
+        Assert.assertEquals(7, cache.getSize());
+    }
+
+    @Test
+    public void testEntityTag() throws Exception {
+        ThemeResourceCache cache = new ThemeResourceCache(1000, 100);
+
+        ThemeResourceCache.Resource r1 = cache.put("a", new ByteArrayInputStream("body {}".getBytes()), "text/css");
+        ThemeResourceCache.Resource r2 = cache.put("b", new ByteArrayInputStream("body {}".getBytes()), "text/css");
+        ThemeResourceCache.Resource r3 = cache.put("c", new ByteArrayInputStream("body { color: red }".getBytes()), "text/css");
+
+        Assert.assertEquals(r1.getEntityTag(), r2.getEntityTag());
+        Assert.assertNotEquals(r1.getEntityTag(), r3.getEntityTag());
+    }
+
+    @Test
+    public void testMaxEntrySize() throws Exception {
+        ThemeResourceCache cache = new ThemeResourceCache(1000, 10);
+
+        Assert.assertNull(cache.put("a", new ByteArrayInputStream(new byte[11]), "image/png"));
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.getSize());
+
+        Assert.assertNotNull(cache.put("b", new ByteArrayInputStream(new byte[10]), "image/png"));
+        Assert.assertFalse(cache.get("b").isCompressible());
+    }
+
+    @Test
+    public void testEvictEldest() throws Exception {
+        ThemeResourceCache cache = new ThemeResourceCache(25, 10);
+
+        cache.put("a", new ByteArrayInputStream(new byte[10]), "image/png");
+        cache.put("b", new ByteArrayInputStream(new byte[10]), "image/png");
+
+        // access "a", so "b" is the eldest entry
+        cache.get("a");
+
+        cache.put("c", new ByteArrayInputStream(new byte[10]), "image/png");
+
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(20, cache.getSize());
+    }
+
+    @Test
+    public void testGzippedContent() throws Exception {
+        ThemeResourceCache cache = new ThemeResourceCache(10000, 2000);
+
+        StringBuilder css = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            css.append(".c").append(i).append(" { color: red }\n");
+        }
+        byte[] content = css.toString().getBytes("UTF-8");
+
+        ThemeResourceCache.Resource resource = cache.put("a", new ByteArrayInputStream(content), "text/css");
+        Assert.assertNotNull(resource.getGzippedContent());
+        Assert.assertTrue(resource.getGzippedContent().length < content.length);
+        Assert.assertArrayEquals(content, gunzip(resource.getGzippedContent()));
+        Assert.assertNotEquals(resource.getEntityTag(), resource.getGzippedEntityTag());
+        Assert.assertEquals(content.length + resource.getGzippedContent().length, cache.getSize());
+
+        // Not compressible or not smaller when compressed
+        Assert.assertNull(cache.put("b", new ByteArrayInputStream(content), "image/png").getGzippedContent());
+        Assert.assertNull(cache.put("c", new ByteArrayInputStream("body {}".getBytes()), "text/css").getGzippedContent());
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws Exception {
+        GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int c;
+        while ((c = is.read(buffer)) != -1) {
+            os.write(buffer, 0, c);
+        }
+        return os.toByteArray();
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.services.resources.ThemeResource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ThemeResourceTest {
+
+    @Test
+    public void testAcceptsGzip() {
+        Assert.assertTrue(accepts("gzip"));
+        Assert.assertTrue(accepts("deflate, GZIP"));
+        Assert.assertTrue(accepts("gzip;q=0.5, identity"));
+        Assert.assertTrue(accepts("*"));
+        Assert.assertTrue(accepts("deflate", "gzip"));
+
+        Assert.assertFalse(ThemeResource.acceptsGzip(null));
+        Assert.assertFalse(accepts("identity"));
+        Assert.assertFalse(accepts("deflate, gzip;q=0"));
+        Assert.assertFalse(accepts("gzip; q=0.0"));
+        Assert.assertFalse(accepts("*;q=0"));
+
+        // Explicit gzip takes precedence over the wildcard
+        Assert.assertFalse(accepts("gzip;q=0, *"));
+        Assert.assertTrue(accepts("gzip, *;q=0"));
+    }
+
+    private static boolean accepts(String... acceptEncodings) {
+        return ThemeResource.acceptsGzip(acceptEncodings.length == 1 ? Collections.singletonList(acceptEncodings[0]) : Arrays.asList(acceptEncodings));
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.test.broker.oidc;
+
+import org.apache.http.client.HttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.broker.oidc.OIDCIdentityProviderKeyCache;
+import org.keycloak.common.util.Time;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKBuilder;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.protocol.oidc.representations.JSONWebKeySet;
+import org.keycloak.representations.idm.CertificateRepresentation;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OIDCIdentityProviderKeyCacheTest {
+
+    private static final String JWKS_URL = "http://localhost/jwks";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void after() {
+        Time.setOffset(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPemKeysCached() throws Exception {
+        OIDCIdentityProviderKeyCache cache = new OIDCIdentityProviderKeyCache(10, 3600);
+
+        KeyPair keyPair = generateKeyPair();
+        String pem = KeycloakModelUtils.getPemFromKey(keyPair.getPublic());
+
+        PublicKey key = cache.getPemPublicKey(pem, false);
+        Assert.assertEquals(keyPair.getPublic(), key);
+        Assert.assertSame(key, cache.getPemPublicKey(pem, false));
+
+        CertificateRepresentation cert = KeycloakModelUtils.generateKeyPairCertificate("test");
+        PublicKey certKey = cache.getPemPublicKey(cert.getCertificate(), true);
+        Assert.assertNotNull(certKey);
+        Assert.assertSame(certKey, cache.getPemPublicKey(cert.getCertificate(), true));
+    }
+
+    @Test
+    public void testKeysByKid() throws Exception {
+        PublicKey key1 = generateKeyPair().getPublic();
+        PublicKey key2 = generateKeyPair().getPublic();
+        TestKeyCache cache = new TestKeyCache(10, 3600);
+        cache.setKeys(createJWK("key1", key1), createJWK("key2", key2));
+
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+        Assert.assertEquals(key2, cache.getPublicKey(null, executor, JWKS_URL, "key2"));
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+        Assert.assertEquals(1, cache.requests.get());
+
+        // Without kid, the key is found just if there is single key
+        Assert.assertNull(cache.getPublicKey(null, executor, JWKS_URL, null));
+    }
+
+    @Test
+    public void testRefreshOnUnknownKid() throws Exception {
+        PublicKey key1 = generateKeyPair().getPublic();
+        PublicKey key2 = generateKeyPair().getPublic();
+        TestKeyCache cache = new TestKeyCache(10, 3600);
+        cache.setKeys(createJWK("key1", key1));
+
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+        Assert.assertEquals(1, cache.requests.get());
+
+        // Keys rotated. Unknown kid triggers refresh once minTimeBetweenRequests passed
+        cache.setKeys(createJWK("key2", key2));
+        Time.setOffset(10);
+        Assert.assertEquals(key2, cache.getPublicKey(null, executor, JWKS_URL, "key2"));
+        Assert.assertEquals(2, cache.requests.get());
+
+        // Old key is not available anymore
+        Assert.assertNull(cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+        Assert.assertEquals(2, cache.requests.get());
+    }
+
+    @Test
+    public void testMinTimeBetweenRequests() throws Exception {
+        PublicKey key1 = generateKeyPair().getPublic();
+        PublicKey key2 = generateKeyPair().getPublic();
+        TestKeyCache cache = new TestKeyCache(10, 3600);
+        cache.setKeys(createJWK("key1", key1));
+
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+
+        // Tokens with unknown kids don't cause request to JWKS URL for every token
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(cache.getPublicKey(null, executor, JWKS_URL, "unknown" + i));
+        }
+        Assert.assertEquals(1, cache.requests.get());
+
+        cache.setKeys(createJWK("key2", key2));
+        Time.setOffset(5);
+        Assert.assertNull(cache.getPublicKey(null, executor, JWKS_URL, "key2"));
+        Assert.assertEquals(1, cache.requests.get());
+
+        Time.setOffset(10);
+        Assert.assertEquals(key2, cache.getPublicKey(null, executor, JWKS_URL, "key2"));
+        Assert.assertEquals(2, cache.requests.get());
+    }
+
+    @Test
+    public void testRefreshAfterMaxAge() throws Exception {
+        PublicKey key1 = generateKeyPair().getPublic();
+        PublicKey key2 = generateKeyPair().getPublic();
+        TestKeyCache cache = new TestKeyCache(10, 60);
+        cache.setKeys(createJWK("key1", key1), createJWK("key2", key2));
+
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+
+        // Keys older than keysMaxAge are still returned, but refreshed in the background
+        cache.setKeys(createJWK("key2", key2));
+        Time.setOffset(60);
+        Assert.assertEquals(key1, cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (cache.requests.get() < 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, cache.requests.get());
+
+        // Wait until refreshed keys are set
+        while (cache.getPublicKey(null, executor, JWKS_URL, "key1") != null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertNull(cache.getPublicKey(null, executor, JWKS_URL, "key1"));
+        Assert.assertEquals(key2, cache.getPublicKey(null, executor, JWKS_URL, "key2"));
+        Assert.assertEquals(2, cache.requests.get());
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair();
+    }
+
+    private static JWK createJWK(String kid, PublicKey key) {
+        JWK jwk = JWKBuilder.create().rs256(key);
+        jwk.setKeyId(kid);
+        return jwk;
+    }
+
+
+    // Serves configured keys instead of downloading them from JWKS URL
+    private static class TestKeyCache extends OIDCIdentityProviderKeyCache {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile String keySet;
+
+        private TestKeyCache(int minTimeBetweenRequests, int keysMaxAge) {
+            super(minTimeBetweenRequests, keysMaxAge);
+        }
+
+        private void setKeys(JWK... keys) throws IOException {
+            JSONWebKeySet keySet = new JSONWebKeySet();
+            keySet.setKeys(keys);
+            this.keySet = JsonSerialization.writeValueAsString(keySet);
+        }
+
+        @Override
+        protected String downloadKeySet(String jwksUrl, HttpClient client) throws IOException {
+            requests.incrementAndGet();
+            return keySet;
+        }
+    }
+
+}
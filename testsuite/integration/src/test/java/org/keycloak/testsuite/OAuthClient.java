@@ -48,6 +48,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.PublicKey;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -165,16 +166,26 @@ public class OAuthClient {
     }
 
     public String introspectTokenWithClientCredential(String clientId, String clientSecret, String tokenType, String tokenToIntrospect) {
+        return introspectTokens(getTokenIntrospectionUrl(), clientId, clientSecret, tokenType, Collections.singletonList(tokenToIntrospect));
+    }
+
+    public String introspectTokensWithClientCredential(String clientId, String clientSecret, String tokenType, List<String> tokensToIntrospect) {
+        return introspectTokens(getTokenIntrospectionUrl() + "/batch", clientId, clientSecret, tokenType, tokensToIntrospect);
+    }
+
+    private String introspectTokens(String url, String clientId, String clientSecret, String tokenType, List<String> tokensToIntrospect) {
         CloseableHttpClient client = new DefaultHttpClient();
         try {
-            HttpPost post = new HttpPost(getTokenIntrospectionUrl());
+            HttpPost post = new HttpPost(url);
 
             String authorization = BasicAuthHelper.createHeader(clientId, clientSecret);
             post.setHeader("Authorization", authorization);
 
             List<NameValuePair> parameters = new LinkedList<>();
 
-            parameters.add(new BasicNameValuePair("token", tokenToIntrospect));
+            for (String tokenToIntrospect : tokensToIntrospect) {
+                parameters.add(new BasicNameValuePair("token", tokenToIntrospect));
+            }
             parameters.add(new BasicNameValuePair("token_type_hint", tokenType));
 
             UrlEncodedFormEntity formEntity;
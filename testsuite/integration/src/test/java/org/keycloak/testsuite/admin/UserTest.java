@@ -25,6 +25,7 @@ import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.models.UserModel;
 import org.keycloak.representations.idm.*;
 import org.keycloak.services.resources.RealmsResource;
+import org.keycloak.services.resources.admin.UsersResource;
 import org.keycloak.testsuite.Constants;
 import org.keycloak.testsuite.actions.RequiredActionEmailVerificationTest;
 import org.keycloak.testsuite.forms.ResetPasswordTest;
@@ -32,11 +33,13 @@ import org.keycloak.testsuite.pages.*;
 import org.keycloak.testsuite.rule.GreenMailRule;
 import org.keycloak.testsuite.rule.WebResource;
 import org.keycloak.testsuite.rule.WebRule;
+import org.keycloak.util.JsonSerialization;
 import org.openqa.selenium.WebDriver;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
@@ -44,6 +47,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -251,6 +255,50 @@ public class UserTest extends AbstractClientTest {
         assertEquals(9, users.size());
     }
 
+    @Test
+    public void searchPaginatedAfter() {
+        createUsers();
+
+        Response response = realm.users().searchAfter("username", null, 2);
+        List<UserRepresentation> users = readUsers(response);
+        assertEquals(2, users.size());
+        assertEquals("username1", users.get(0).getUsername());
+        assertEquals("username2", users.get(1).getUsername());
+
+        response = realm.users().searchAfter("username", nextCursor(response), 2);
+        users = readUsers(response);
+        assertEquals(2, users.size());
+        assertEquals("username3", users.get(0).getUsername());
+        assertEquals("username4", users.get(1).getUsername());
+
+        String cursor = nextCursor(response);
+        response = realm.users().searchAfter("username", cursor, 20);
+        users = readUsers(response);
+        assertEquals(5, users.size());
+        assertEquals("username5", users.get(0).getUsername());
+        assertEquals("username9", users.get(4).getUsername());
+        assertNull(nextCursor(response));
+
+        response = realm.users().searchAfter(null, cursor, 2);
+        users = readUsers(response);
+        assertEquals(2, users.size());
+        assertEquals("username5", users.get(0).getUsername());
+        assertEquals("username6", users.get(1).getUsername());
+
+        response = realm.users().searchAfter(null, "x", 2);
+        assertEquals(400, response.getStatus());
+        response.close();
+    }
+
+    private List<UserRepresentation> readUsers(Response response) {
+        assertEquals(200, response.getStatus());
+        return response.readEntity(new GenericType<List<UserRepresentation>>() {});
+    }
+
+    private String nextCursor(Response response) {
+        return response.getHeaderString(UsersResource.NEXT_PAGE_CURSOR_HEADER);
+    }
+
     @Test
     public void getFederatedIdentities() {
         // Add sample identity provider
@@ -29,7 +29,13 @@ import org.keycloak.OAuth2Constants;
 import org.keycloak.federation.ldap.LDAPConfig;
 import org.keycloak.federation.ldap.LDAPFederationProvider;
 import org.keycloak.federation.ldap.LDAPFederationProviderFactory;
+import org.keycloak.federation.ldap.LDAPIdentityStoreRegistry;
+import org.keycloak.federation.ldap.LDAPUtils;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
+import org.keycloak.federation.ldap.idm.query.internal.LDAPQuery;
+import org.keycloak.federation.ldap.idm.query.internal.LDAPQueryResultIterator;
+import org.keycloak.federation.ldap.idm.store.ldap.LDAPBindConnectionPool;
+import org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore;
 import org.keycloak.federation.ldap.mappers.FullNameLDAPFederationMapper;
 import org.keycloak.federation.ldap.mappers.FullNameLDAPFederationMapperFactory;
 import org.keycloak.federation.ldap.mappers.HardcodedLDAPRoleMapper;
@@ -63,8 +69,12 @@ import org.keycloak.testsuite.rule.WebResource;
 import org.keycloak.testsuite.rule.WebRule;
 import org.openqa.selenium.WebDriver;
 
+import javax.naming.AuthenticationException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 
@@ -213,6 +223,39 @@ public class FederationProvidersIntegrationTest {
         }
     }
 
+    @Test
+    public void searchInMultipleProviders() {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel appRealm = new RealmManager(session).getRealm("test");
+            LDAPFederationProvider ldapFedProvider = FederationTestUtils.getLdapProvider(session, ldapModel);
+            FederationTestUtils.addLDAPUser(ldapFedProvider, appRealm, "jbrown6", "John", "Brown6", "jbrown6@email.org", null, "1234");
+            FederationTestUtils.addLDAPUser(ldapFedProvider, appRealm, "jbrown7", "John", "Brown7", "jbrown7@email.org", null, "1234");
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+
+        session = keycloakRule.startSession();
+        try {
+            RealmModel appRealm = new RealmManager(session).getRealm("test");
+
+            // Second provider pointing to same LDAP, so both providers are queried concurrently and both find same users
+            appRealm.addUserFederationProvider(LDAPFederationProviderFactory.PROVIDER_NAME, ldapModel.getConfig(), 1, "test-ldap-2", -1, -1, 0);
+
+            // User is imported just by the provider with higher priority
+            UserModel user6 = session.users().getUserByUsername("jbrown6", appRealm);
+            Assert.assertNotNull(user6);
+            Assert.assertEquals(ldapModel.getId(), user6.getFederationLink());
+
+            List<UserModel> users = session.users().searchForUser("jbrown7", appRealm);
+            Assert.assertEquals(1, users.size());
+            Assert.assertEquals("jbrown7", users.get(0).getUsername());
+            Assert.assertEquals(ldapModel.getId(), users.get(0).getFederationLink());
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
     @Test
     public void deleteFederationLink() {
         loginLdap();
@@ -293,6 +336,76 @@ public class FederationProvidersIntegrationTest {
         Assert.assertNotNull(oauth.getCurrentQuery().get(OAuth2Constants.CODE));
     }
 
+    @Test
+    public void bindConnectionPool() throws Exception {
+        Map<String, String> config = new HashMap<>(ldapModel.getConfig());
+        config.put(LDAPConstants.BIND_CONNECTION_POOL_SIZE, "2");
+        LDAPIdentityStore store = LDAPIdentityStoreRegistry.createLdapIdentityStore(config);
+
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel appRealm = session.realms().getRealmByName("test");
+            LDAPFederationProvider ldapFedProvider = FederationTestUtils.getLdapProvider(session, ldapModel);
+            LDAPObject john = ldapFedProvider.loadLDAPUserByUsername(appRealm, "johnkeycloak");
+
+            store.validatePassword(john, "Password1");
+            store.validatePassword(john, "Password1");
+            try {
+                store.validatePassword(john, "invalid");
+                Assert.fail("Expected authentication to fail");
+            } catch (AuthenticationException expected) {
+            }
+            store.validatePassword(john, "Password1");
+
+            // Connection, which failed to authenticate, is not reused
+            LDAPBindConnectionPool pool = store.getBindConnectionPool();
+            Assert.assertEquals(2, pool.getCreatedCount());
+            Assert.assertEquals(2, pool.getReusedCount());
+            Assert.assertEquals(1, pool.getIdleCount());
+        } finally {
+            keycloakRule.stopSession(session, false);
+            store.close();
+        }
+    }
+
+    @Test
+    public void resultIterator() {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel appRealm = session.realms().getRealmByName("test");
+            LDAPFederationProvider ldapFedProvider = FederationTestUtils.getLdapProvider(session, ldapModel);
+
+            List<LDAPObject> all = LDAPUtils.createQueryForUserSearch(ldapFedProvider, appRealm).getResultList();
+            Set<String> expectedDns = new HashSet<>();
+            for (LDAPObject ldapUser : all) {
+                expectedDns.add(ldapUser.getDn().toString());
+            }
+
+            // Lazily read results are same, even if they are read in pages
+            LDAPQuery query = LDAPUtils.createQueryForUserSearch(ldapFedProvider, appRealm);
+            query.setLimit(2);
+            Set<String> iteratedDns = new HashSet<>();
+            LDAPQueryResultIterator itr = query.getResultIterator();
+            try {
+                while (itr.hasNext()) {
+                    iteratedDns.add(itr.next().getDn().toString());
+                }
+            } finally {
+                itr.close();
+            }
+            Assert.assertEquals(expectedDns, iteratedDns);
+
+            // Early termination
+            itr = LDAPUtils.createQueryForUserSearch(ldapFedProvider, appRealm).getResultIterator();
+            Assert.assertTrue(itr.hasNext());
+            Assert.assertTrue(expectedDns.contains(itr.next().getDn().toString()));
+            itr.close();
+            Assert.assertFalse(itr.hasNext());
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
     @Test
     public void loginLdapWithoutPassword() {
         loginPage.open();
@@ -17,6 +17,7 @@
 
 package org.keycloak.testsuite.federation.ldap.base;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -30,10 +31,13 @@ import org.junit.rules.TestRule;
 import org.junit.runners.MethodSorters;
 import org.keycloak.federation.ldap.LDAPFederationProvider;
 import org.keycloak.federation.ldap.LDAPFederationProviderFactory;
+import org.keycloak.federation.ldap.LDAPMembershipCache;
 import org.keycloak.federation.ldap.LDAPUtils;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
+import org.keycloak.federation.ldap.mappers.LDAPFederationMapper;
 import org.keycloak.federation.ldap.mappers.membership.LDAPGroupMapperMode;
 import org.keycloak.federation.ldap.mappers.membership.MembershipType;
+import org.keycloak.federation.ldap.mappers.membership.UserRolesRetrieveStrategy;
 import org.keycloak.federation.ldap.mappers.membership.group.GroupMapperConfig;
 import org.keycloak.federation.ldap.mappers.membership.group.GroupLDAPFederationMapper;
 import org.keycloak.federation.ldap.mappers.membership.group.GroupLDAPFederationMapperFactory;
@@ -258,4 +262,104 @@ public class LDAPGroupMapperSyncTest {
         }
     }
 
+    @Test
+    public void test04_syncChangedGroups() throws Exception {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("test");
+            UserFederationMapperModel mapperModel = realm.getUserFederationMapperByName(ldapModel.getId(), "groupsMapper");
+            LDAPFederationProvider ldapProvider = FederationTestUtils.getLdapProvider(session, ldapModel);
+            GroupLDAPFederationMapper groupMapper = FederationTestUtils.getGroupMapper(mapperModel, ldapProvider, realm);
+            LDAPFederationMapper mapper = (LDAPFederationMapper) new GroupLDAPFederationMapperFactory().create(session);
+
+            // Full sync first
+            UserFederationSyncResult syncResult = mapper.syncDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm);
+            FederationTestUtils.assertSyncEquals(syncResult, 3, 0, 0, 0);
+
+            sleep(ldapRule.getSleepTime());
+            Date lastSync = new Date();
+
+            // Nothing changed in LDAP since last sync
+            syncResult = mapper.syncChangedDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm, lastSync);
+            FederationTestUtils.assertSyncEquals(syncResult, 0, 0, 0, 0);
+
+            // Add new group13 to group1 and remove group12 from group1 in LDAP
+            LDAPObject group1 = groupMapper.loadLDAPGroupByName("group1");
+            LDAPObject group12 = groupMapper.loadLDAPGroupByName("group12");
+            LDAPObject group13 = FederationTestUtils.createLDAPGroup(session, realm, ldapModel, "group13");
+            LDAPUtils.addMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group13, true);
+            LDAPUtils.deleteMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group12, true);
+
+            // Just group1 and group13 are synced
+            syncResult = mapper.syncChangedDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm, lastSync);
+            FederationTestUtils.assertSyncEquals(syncResult, 1, 1, 0, 0);
+
+            Assert.assertNotNull(KeycloakModelUtils.findGroupByPath(realm, "/group1/group11"));
+            Assert.assertNotNull(KeycloakModelUtils.findGroupByPath(realm, "/group1/group13"));
+            Assert.assertNotNull(KeycloakModelUtils.findGroupByPath(realm, "/group12"));
+            Assert.assertNull(KeycloakModelUtils.findGroupByPath(realm, "/group1/group12"));
+
+            // Same groups are returned from LDAP again, but nothing changed in Keycloak, so nothing is counted as updated
+            syncResult = mapper.syncChangedDataFromFederationProviderToKeycloak(mapperModel, ldapProvider, session, realm, lastSync);
+            FederationTestUtils.assertSyncEquals(syncResult, 0, 0, 0, 0);
+
+            // Cleanup - revert changes in LDAP
+            LDAPUtils.addMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group12, false);
+            LDAPUtils.deleteMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group13, true);
+            ldapProvider.getLdapIdentityStore().remove(group13);
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
+    @Test
+    public void test05_membershipCache() throws Exception {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("test");
+            UserFederationMapperModel mapperModel = realm.getUserFederationMapperByName(ldapModel.getId(), "groupsMapper");
+            LDAPFederationProvider ldapProvider = FederationTestUtils.getLdapProvider(session, ldapModel);
+            GroupLDAPFederationMapper groupMapper = FederationTestUtils.getGroupMapper(mapperModel, ldapProvider, realm);
+            UserRolesRetrieveStrategy strategy = new UserRolesRetrieveStrategy.LoadRolesByMember();
+
+            LDAPObject group11 = groupMapper.loadLDAPGroupByName("group11");
+            LDAPObject group12 = groupMapper.loadLDAPGroupByName("group12");
+
+            LDAPMembershipCache membershipCache = ldapProvider.getLdapIdentityStore().startMembershipCache();
+            try {
+                Assert.assertSame(membershipCache, LDAPMembershipCache.getCurrent());
+
+                // Groups are found in the cache with same result like from LDAP query
+                List<LDAPObject> groups = strategy.getLDAPRoleMappings(groupMapper, group11);
+                Assert.assertEquals(1, groups.size());
+                Assert.assertEquals("group1", groups.get(0).getAttributeAsString(LDAPConstants.CN));
+                Assert.assertEquals(1, strategy.getLDAPRoleMappings(groupMapper, group12).size());
+
+                // Cache is cleared after write to LDAP
+                LDAPObject group1 = groupMapper.loadLDAPGroupByName("group1");
+                LDAPUtils.deleteMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group12, true);
+                Assert.assertTrue(strategy.getLDAPRoleMappings(groupMapper, group12).isEmpty());
+                Assert.assertEquals(1, strategy.getLDAPRoleMappings(groupMapper, group11).size());
+
+                // Cleanup - revert changes in LDAP
+                LDAPUtils.addMember(ldapProvider, MembershipType.DN, LDAPConstants.MEMBER, group1, group12, true);
+            } finally {
+                ldapProvider.getLdapIdentityStore().stopMembershipCache(membershipCache);
+            }
+
+            Assert.assertNull(LDAPMembershipCache.getCurrent());
+            Assert.assertEquals(1, strategy.getLDAPRoleMappings(groupMapper, group12).size());
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
+    private void sleep(int time) {
+        try {
+            Thread.sleep(time);
+        } catch (InterruptedException ie) {
+            throw new RuntimeException(ie);
+        }
+    }
+
 }
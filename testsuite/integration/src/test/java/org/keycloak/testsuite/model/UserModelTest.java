@@ -25,15 +25,19 @@ import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserModel.RequiredAction;
+import org.keycloak.models.utils.UserBulkQueries;
 import org.keycloak.services.managers.ClientManager;
 
 import static org.junit.Assert.assertNotNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
@@ -84,6 +88,62 @@ public class UserModelTest extends AbstractModelTest {
         Assert.assertEquals(search.get(0).getUsername(), "user");
     }
     
+    @Test
+    public void getUsersByUsernames() {
+        RealmModel realm = realmManager.createRealm("original");
+        KeycloakSession session = realmManager.getSession();
+        session.users().addUser(realm, "user1");
+        session.users().addUser(realm, "user2");
+        session.users().addUser(realm, "user3");
+
+        commit();
+        session = realmManager.getSession();
+        realm = realmManager.getRealmByName("original");
+
+        List<UserModel> users = UserBulkQueries.getUsersByUsernames(session.users(), Arrays.asList("User1", "user3", "user4"), realm);
+        Assert.assertEquals(2, users.size());
+
+        Set<String> usernames = new HashSet<>();
+        for (UserModel user : users) {
+            usernames.add(user.getUsername());
+        }
+        Assert.assertTrue(usernames.contains("user1"));
+        Assert.assertTrue(usernames.contains("user3"));
+
+        Assert.assertTrue(UserBulkQueries.getUsersByUsernames(session.users(), Collections.<String>emptyList(), realm).isEmpty());
+    }
+
+    @Test
+    public void getUsersCount() {
+        RealmModel realm = realmManager.createRealm("original");
+        session.users().addUser(realm, "user1");
+        session.users().addUser(realm, "user2");
+        Assert.assertEquals(2, session.users().getUsersCount(realm));
+
+        commit();
+        realm = realmManager.getRealmByName("original");
+        Assert.assertEquals(2, session.users().getUsersCount(realm));
+
+        session.users().addUser(realm, "user3");
+        Assert.assertEquals(3, session.users().getUsersCount(realm));
+
+        commit();
+        realm = realmManager.getRealmByName("original");
+        Assert.assertEquals(3, session.users().getUsersCount(realm));
+
+        session.users().removeUser(realm, session.users().getUserByUsername("user1", realm));
+
+        commit();
+        realm = realmManager.getRealmByName("original");
+        Assert.assertEquals(2, session.users().getUsersCount(realm));
+
+        session.users().addUser(realm, "user4");
+
+        commit(true);
+        realm = realmManager.getRealmByName("original");
+        Assert.assertEquals(2, session.users().getUsersCount(realm));
+    }
+
     @Test
     public void webOriginSetTest() {
         RealmModel realm = realmManager.createRealm("original");
@@ -266,6 +326,15 @@ public class UserModelTest extends AbstractModelTest {
         Assert.assertTrue(users.contains(user1));
         Assert.assertTrue(users.contains(user2));
 
+        users = session.users().searchForUser("jo", realm);
+        Assert.assertEquals(2, users.size());
+        users = session.users().searchForUser("OE", realm);
+        Assert.assertEquals(2, users.size());
+        users = session.users().searchForUser("Do*", realm);
+        Assert.assertEquals(2, users.size());
+        users = session.users().searchForUser("oe*", realm);
+        Assert.assertEquals(0, users.size());
+
         // Link service account
         user1.setServiceAccountClientLink(client.getId());
 
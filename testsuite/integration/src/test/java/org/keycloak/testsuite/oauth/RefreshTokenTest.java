@@ -25,6 +25,8 @@ import org.keycloak.common.enums.SslRequired;
 import org.keycloak.events.Details;
 import org.keycloak.events.Errors;
 import org.keycloak.events.Event;
+import org.keycloak.jose.jws.Algorithm;
+import org.keycloak.jose.jws.JWSInput;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserSessionModel;
@@ -278,6 +280,77 @@ public class RefreshTokenTest {
         }
     }
 
+    @Test
+    public void refreshTokenSymmetricSigning() throws Exception {
+        try {
+            keycloakRule.configure(new KeycloakRule.KeycloakSetup() {
+                @Override
+                public void config(RealmManager manager, RealmModel adminstrationRealm, RealmModel appRealm) {
+                    appRealm.setRefreshTokenSymmetricSigning(true);
+                    KeycloakModelUtils.generateRefreshTokenSecret(appRealm);
+                }
+            });
+
+            oauth.doLogin("test-user@localhost", "password");
+
+            Event loginEvent = events.expectLogin().assertEvent();
+
+            String sessionId = loginEvent.getSessionId();
+            String codeId = loginEvent.getDetails().get(Details.CODE_ID);
+
+            String code = oauth.getCurrentQuery().get(OAuth2Constants.CODE);
+
+            AccessTokenResponse response1 = oauth.doAccessTokenRequest(code, "password");
+            JWSInput jws = new JWSInput(response1.getRefreshToken());
+            Assert.assertEquals(Algorithm.HS256, jws.getHeader().getAlgorithm());
+            Assert.assertNotNull(jws.getHeader().getKeyId());
+            RefreshToken refreshToken1 = jws.readJsonContent(RefreshToken.class);
+
+            events.expectCodeToToken(codeId, sessionId).assertEvent();
+
+            // Rotate secret. Tokens signed with previous secret are still valid
+            keycloakRule.configure(new KeycloakRule.KeycloakSetup() {
+                @Override
+                public void config(RealmManager manager, RealmModel adminstrationRealm, RealmModel appRealm) {
+                    KeycloakModelUtils.generateRefreshTokenSecret(appRealm);
+                }
+            });
+
+            Time.setOffset(2);
+
+            AccessTokenResponse response2 = oauth.doRefreshTokenRequest(response1.getRefreshToken(), "password");
+            Assert.assertEquals(200, response2.getStatusCode());
+            Assert.assertNotEquals(jws.getHeader().getKeyId(), new JWSInput(response2.getRefreshToken()).getHeader().getKeyId());
+
+            events.expectRefresh(refreshToken1.getId(), sessionId).assertEvent();
+
+            // Remove previous secret. Tokens signed with it are rejected
+            final String oldKid = jws.getHeader().getKeyId();
+            keycloakRule.configure(new KeycloakRule.KeycloakSetup() {
+                @Override
+                public void config(RealmManager manager, RealmModel adminstrationRealm, RealmModel appRealm) {
+                    appRealm.removeRefreshTokenSecret(oldKid);
+                }
+            });
+
+            AccessTokenResponse response3 = oauth.doRefreshTokenRequest(response1.getRefreshToken(), "password");
+            Assert.assertEquals(400, response3.getStatusCode());
+            Assert.assertEquals("invalid_grant", response3.getError());
+
+            AccessTokenResponse response4 = oauth.doRefreshTokenRequest(response2.getRefreshToken(), "password");
+            Assert.assertEquals(200, response4.getStatusCode());
+            events.clear();
+        } finally {
+            Time.setOffset(0);
+            keycloakRule.configure(new KeycloakRule.KeycloakSetup() {
+                @Override
+                public void config(RealmManager manager, RealmModel adminstrationRealm, RealmModel appRealm) {
+                    appRealm.setRefreshTokenSymmetricSigning(false);
+                }
+            });
+        }
+    }
+
     PrivateKey privateKey;
     PublicKey publicKey;
 
@@ -18,6 +18,7 @@ package org.keycloak.testsuite.oauth;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpResponse;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
@@ -43,6 +44,8 @@ import org.keycloak.testsuite.rule.WebResource;
 import org.keycloak.testsuite.rule.WebRule;
 import org.openqa.selenium.WebDriver;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 /**
@@ -127,6 +130,70 @@ public class TokenIntrospectionTest {
         events.clear();
     }
 
+    @Test
+    public void testBatchIntrospection() throws Exception {
+        oauth.doLogin("test-user@localhost", "password");
+        String code = oauth.getCurrentQuery().get(OAuth2Constants.CODE);
+        AccessTokenResponse accessTokenResponse = oauth.doAccessTokenRequest(code, "password");
+        String accessToken = accessTokenResponse.getAccessToken();
+
+        // Same token introspected repeatedly returns same result
+        String tokenResponse = oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken);
+        assertEquals(tokenResponse, oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken));
+
+        tokenResponse = oauth.introspectTokensWithClientCredential("confidential-cli", "secret1", "access_token", Arrays.asList(accessToken, "invalid", accessToken));
+        JsonNode jsonNode = new ObjectMapper().readTree(tokenResponse);
+
+        assertTrue(jsonNode.isArray());
+        assertEquals(3, jsonNode.size());
+        assertTrue(jsonNode.get(0).get("active").asBoolean());
+        assertEquals("test-user@localhost", jsonNode.get(0).get("username").asText());
+        assertFalse(jsonNode.get(1).get("active").asBoolean());
+        assertTrue(jsonNode.get(2).get("active").asBoolean());
+
+        events.clear();
+    }
+
+    @Test
+    public void testIntrospectAccessTokenAfterLogout() throws Exception {
+        oauth.doLogin("test-user@localhost", "password");
+        String code = oauth.getCurrentQuery().get(OAuth2Constants.CODE);
+        AccessTokenResponse accessTokenResponse = oauth.doAccessTokenRequest(code, "password");
+        String accessToken = accessTokenResponse.getAccessToken();
+
+        String tokenResponse = oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken);
+        assertTrue(new ObjectMapper().readTree(tokenResponse).get("active").asBoolean());
+
+        HttpResponse logoutResponse = oauth.doLogout(accessTokenResponse.getRefreshToken(), "password");
+        assertEquals(204, logoutResponse.getStatusLine().getStatusCode());
+
+        // Cached response isn't used once the session is logged out
+        tokenResponse = oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken);
+        assertFalse(new ObjectMapper().readTree(tokenResponse).get("active").asBoolean());
+
+        events.clear();
+    }
+
+    @Test
+    public void testIntrospectAccessTokenAfterSessionRemoved() throws Exception {
+        oauth.doLogin("test-user@localhost", "password");
+        String code = oauth.getCurrentQuery().get(OAuth2Constants.CODE);
+        String sessionId = events.expectLogin().assertEvent().getSessionId();
+        AccessTokenResponse accessTokenResponse = oauth.doAccessTokenRequest(code, "password");
+        String accessToken = accessTokenResponse.getAccessToken();
+
+        String tokenResponse = oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken);
+        assertTrue(new ObjectMapper().readTree(tokenResponse).get("active").asBoolean());
+
+        // Session removed without logout, like when it expires
+        keycloakRule.removeUserSession(sessionId);
+
+        tokenResponse = oauth.introspectAccessTokenWithClientCredential("confidential-cli", "secret1", accessToken);
+        assertFalse(new ObjectMapper().readTree(tokenResponse).get("active").asBoolean());
+
+        events.clear();
+    }
+
     @Test
     public void testInvalidClientCredentials() throws Exception {
         oauth.doLogin("test-user@localhost", "password");
@@ -234,10 +234,13 @@ module.controller('UserListCtrl', function($scope, realm, User, UserImpersonatio
 
     $scope.query = {
         realm: realm.realm,
-        max : 5,
-        first : 0
+        max : 5
     }
 
+    // Cursors of previous pages. Cursor of next page is sent by the server in the header of full page
+    var cursors = [];
+    var nextCursor;
+
     $scope.impersonate = function(userId) {
         UserImpersonation.save({realm : realm.realm, user: userId}, function (data) {
             if (data.sameRealm) {
@@ -256,20 +259,27 @@ module.controller('UserListCtrl', function($scope, realm, User, UserImpersonatio
 
 
     $scope.firstPage = function() {
-        $scope.query.first = 0;
+        cursors = [];
+        $scope.page = 0;
+        delete $scope.query.after;
         $scope.searchQuery();
     }
 
     $scope.previousPage = function() {
-        $scope.query.first -= parseInt($scope.query.max);
-        if ($scope.query.first < 0) {
-            $scope.query.first = 0;
+        cursors.pop();
+        $scope.page = cursors.length;
+        if (cursors.length > 0) {
+            $scope.query.after = cursors[cursors.length - 1];
+        } else {
+            delete $scope.query.after;
         }
         $scope.searchQuery();
     }
 
     $scope.nextPage = function() {
-        $scope.query.first += parseInt($scope.query.max);
+        cursors.push(nextCursor);
+        $scope.page = cursors.length;
+        $scope.query.after = cursors[cursors.length - 1];
         $scope.searchQuery();
     }
 
@@ -277,7 +287,8 @@ module.controller('UserListCtrl', function($scope, realm, User, UserImpersonatio
         console.log("query.search: " + $scope.query.search);
         $scope.searchLoaded = false;
 
-        $scope.users = User.query($scope.query, function() {
+        $scope.users = User.query($scope.query, function(data, headers) {
+            nextCursor = headers('X-Next-Page-Cursor');
             $scope.searchLoaded = true;
             $scope.lastSearch = $scope.query.search;
         });
@@ -772,6 +783,7 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
     ];
 
     var DEFAULT_BATCH_SIZE = "1000";
+    var DEFAULT_SYNC_THREADS = "1";
 
     $scope.create = !instance.providerName;
 
@@ -785,6 +797,7 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
             instance.config.userAccountControlsAfterPasswordUpdate = true;
             instance.config.connectionPooling = true;
             instance.config.pagination = true;
+            instance.config.startTls = false;
 
             instance.config.allowKerberosAuthentication = false;
             instance.config.debug = false;
@@ -792,6 +805,7 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
 
             instance.config.authType = 'simple';
             instance.config.batchSizeForSync = DEFAULT_BATCH_SIZE;
+            instance.config.syncThreads = DEFAULT_SYNC_THREADS;
             instance.config.searchScope = "1";
 
             $scope.fullSyncEnabled = false;
@@ -801,6 +815,7 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
             instance.config.userAccountControlsAfterPasswordUpdate = (instance.config.userAccountControlsAfterPasswordUpdate === 'true' || instance.config.userAccountControlsAfterPasswordUpdate === true);
             instance.config.connectionPooling = (instance.config.connectionPooling === 'true' || instance.config.connectionPooling === true);
             instance.config.pagination = (instance.config.pagination === 'true' || instance.config.pagination === true);
+            instance.config.startTls = (instance.config.startTls === 'true' || instance.config.startTls === true);
 
             instance.config.allowKerberosAuthentication = (instance.config.allowKerberosAuthentication === 'true' || instance.config.allowKerberosAuthentication === true);
             instance.config.debug = (instance.config.debug === 'true' || instance.config.debug === true);
@@ -812,6 +827,9 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
             if (!instance.config.batchSizeForSync) {
                 instance.config.batchSizeForSync = DEFAULT_BATCH_SIZE;
             }
+            if (!instance.config.syncThreads) {
+                instance.config.syncThreads = DEFAULT_SYNC_THREADS;
+            }
             if (!instance.config.searchScope) {
                 instance.config.searchScope = '1';
             }
@@ -892,6 +910,12 @@ module.controller('LDAPCtrl', function($scope, $location, $route, Notifications,
             $scope.instance.config.batchSizeForSync = parseInt($scope.instance.config.batchSizeForSync).toString();
         }
 
+        if (!(parseInt($scope.instance.config.syncThreads) > 0)) {
+            $scope.instance.config.syncThreads = DEFAULT_SYNC_THREADS;
+        } else {
+            $scope.instance.config.syncThreads = parseInt($scope.instance.config.syncThreads).toString();
+        }
+
         if ($scope.create) {
             UserFederationInstances.save({realm: realm.realm}, $scope.instance,  function (data, headers) {
                 var l = headers().location;